@@ -0,0 +1,275 @@
+package com.netcourier.chatbot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.handler.timeout.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker and retry policy for the outbound {@link org.springframework.web.reactive.function.client.WebClient}s,
+ * one breaker per backend. A breaker opens when the failure rate over the last {@code window} calls reaches
+ * {@code failure-rate-threshold}, rejects calls with {@link BackendUnavailableException} for {@code open-seconds},
+ * then lets {@code half-open-probes} calls through and closes again once they all succeed. A call its caller
+ * cancels after {@code slow-call-ms}, such as a search that hit the retrieval deadline because the backend hung,
+ * counts as a failure; a call cancelled sooner, such as a losing hedge, counts as nothing. Transport errors
+ * other than timeouts are retried with jittered backoff; each call earns {@code retry-budget-percent / 100} of a
+ * retry, so a failing backend sees at most that share of extra traffic.
+ */
+@Component
+public class BackendResilience {
+
+    private static final Logger log = LoggerFactory.getLogger(BackendResilience.class);
+    private static final Set<HttpMethod> IDEMPOTENT = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.OPTIONS);
+    private static final double MAX_RETRY_TOKENS = 10d;
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+    private final Duration slowCall;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final double retryJitter;
+    private final double retryBudgetRatio;
+    private final Clock clock;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BackendResilience(MeterRegistry meterRegistry,
+                             @Value("${chat.resilience.enabled:true}") boolean enabled,
+                             @Value("${chat.resilience.window:20}") int window,
+                             @Value("${chat.resilience.minimum-calls:10}") int minimumCalls,
+                             @Value("${chat.resilience.failure-rate-threshold:0.5}") double failureRateThreshold,
+                             @Value("${chat.resilience.open-seconds:10}") long openSeconds,
+                             @Value("${chat.resilience.half-open-probes:3}") int halfOpenProbes,
+                             @Value("${chat.resilience.slow-call-ms:1400}") long slowCallMillis,
+                             @Value("${chat.resilience.max-retries:2}") int maxRetries,
+                             @Value("${chat.resilience.retry-backoff-ms:50}") long retryBackoffMillis,
+                             @Value("${chat.resilience.retry-jitter:0.5}") double retryJitter,
+                             @Value("${chat.resilience.retry-budget-percent:10}") double retryBudgetPercent) {
+        this(meterRegistry, enabled, window, minimumCalls, failureRateThreshold, Duration.ofSeconds(openSeconds),
+                halfOpenProbes, Duration.ofMillis(slowCallMillis), maxRetries, Duration.ofMillis(retryBackoffMillis),
+                retryJitter, retryBudgetPercent, Clock.systemUTC());
+    }
+
+    BackendResilience(MeterRegistry meterRegistry,
+                      boolean enabled,
+                      int window,
+                      int minimumCalls,
+                      double failureRateThreshold,
+                      Duration openDuration,
+                      int halfOpenProbes,
+                      Duration slowCall,
+                      int maxRetries,
+                      Duration retryBackoff,
+                      double retryJitter,
+                      double retryBudgetPercent,
+                      Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.window = Math.max(1, window);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.window));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.slowCall = slowCall;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoff = retryBackoff;
+        this.retryJitter = Math.min(1d, Math.max(0d, retryJitter));
+        this.retryBudgetRatio = Math.max(0d, retryBudgetPercent) / 100d;
+        this.clock = clock;
+    }
+
+    /**
+     * Filter for one backend's client. With {@code retryUnsafeMethods} false, POST and PATCH requests are never
+     * retried, for backends where a repeated request could act twice.
+     */
+    public ExchangeFilterFunction filter(String backend, boolean retryUnsafeMethods) {
+        if (!enabled) {
+            return (request, next) -> next.exchange(request);
+        }
+        Breaker breaker = breakers.computeIfAbsent(backend, Breaker::new);
+        return (request, next) -> {
+            breaker.earnRetry();
+            Mono<ClientResponse> attempt = Mono.defer(() -> {
+                if (!breaker.tryAcquire()) {
+                    breaker.fallbacks.increment();
+                    return Mono.error(new BackendUnavailableException(backend));
+                }
+                long started = clock.millis();
+                return next.exchange(request)
+                        .doOnNext(response -> breaker.record(!response.statusCode().is5xxServerError()))
+                        .doOnError(error -> breaker.record(false))
+                        .doOnCancel(() -> breaker.cancelled(clock.millis() - started));
+            });
+            if (maxRetries == 0 || (!retryUnsafeMethods && !IDEMPOTENT.contains(request.method()))) {
+                return attempt;
+            }
+            return attempt.retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                    .jitter(retryJitter)
+                    .filter(error -> retryable(error) && breaker.spendRetry())
+                    .doBeforeRetry(signal -> log.debug("Retrying {} {} after {}", backend, path(request),
+                            signal.failure().getMessage()))
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        };
+    }
+
+    public State state(String backend) {
+        Breaker breaker = breakers.get(backend);
+        return breaker == null ? State.CLOSED : breaker.state();
+    }
+
+    private static boolean retryable(Throwable error) {
+        if (!(error instanceof WebClientRequestException)) {
+            return false;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof java.util.concurrent.TimeoutException || cause instanceof TimeoutException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String path(ClientRequest request) {
+        return request.method() + " " + request.url().getPath();
+    }
+
+    private final class Breaker {
+        private final String name;
+        private final boolean[] outcomes = new boolean[window];
+        private final Counter fallbacks;
+        private final Counter retries;
+        private final Counter retriesDenied;
+        private int calls;
+        private int failures;
+        private int next;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private int probesStarted;
+        private int probesSucceeded;
+        private double retryTokens;
+
+        Breaker(String name) {
+            this.name = name;
+            this.fallbacks = meterRegistry.counter("chat.resilience.fallbacks", "backend", name);
+            this.retries = meterRegistry.counter("chat.resilience.retries", "backend", name, "outcome", "sent");
+            this.retriesDenied = meterRegistry.counter("chat.resilience.retries", "backend", name, "outcome", "budget-exhausted");
+            meterRegistry.gauge("chat.resilience.breaker.state", Tags.of("backend", name), this,
+                    breaker -> breaker.state().ordinal());
+        }
+
+        synchronized State state() {
+            if (state == State.OPEN && clock.millis() - openedAt >= openDuration.toMillis()) {
+                transition(State.HALF_OPEN);
+            }
+            return state;
+        }
+
+        synchronized boolean tryAcquire() {
+            return switch (state()) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (probesStarted >= halfOpenProbes) {
+                        yield false;
+                    }
+                    probesStarted++;
+                    yield true;
+                }
+            };
+        }
+
+        /**
+         * A call cancelled past {@code slow-call-ms} hung until its caller gave up and counts as a failure. One
+         * cancelled sooner (e.g. a losing hedge) says nothing about the backend; free its probe slot.
+         */
+        synchronized void cancelled(long elapsedMillis) {
+            if (elapsedMillis >= slowCall.toMillis()) {
+                record(false);
+            } else if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+                probesStarted--;
+            }
+        }
+
+        synchronized void record(boolean success) {
+            switch (state) {
+                case OPEN -> { }
+                case HALF_OPEN -> {
+                    if (!success) {
+                        transition(State.OPEN);
+                    } else if (++probesSucceeded >= halfOpenProbes) {
+                        transition(State.CLOSED);
+                    }
+                }
+                case CLOSED -> {
+                    if (calls == outcomes.length && !outcomes[next]) {
+                        failures--;
+                    }
+                    outcomes[next] = success;
+                    next = (next + 1) % outcomes.length;
+                    calls = Math.min(calls + 1, outcomes.length);
+                    if (!success) {
+                        failures++;
+                    }
+                    if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                        transition(State.OPEN);
+                    }
+                }
+            }
+        }
+
+        synchronized void earnRetry() {
+            retryTokens = Math.min(MAX_RETRY_TOKENS, retryTokens + retryBudgetRatio);
+        }
+
+        synchronized boolean spendRetry() {
+            if (retryTokens < 1d) {
+                retriesDenied.increment();
+                return false;
+            }
+            retryTokens -= 1d;
+            retries.increment();
+            return true;
+        }
+
+        private void transition(State target) {
+            if (target != state) {
+                log.info("Circuit breaker for {} moved from {} to {}", name, state, target);
+            }
+            state = target;
+            openedAt = clock.millis();
+            probesStarted = 0;
+            probesSucceeded = 0;
+            if (target == State.CLOSED) {
+                calls = 0;
+                failures = 0;
+                next = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.netcourier.chatbot.config;
+
+/**
+ * Raised without contacting a backend whose circuit breaker is open.
+ */
+public class BackendUnavailableException extends RuntimeException {
+
+    private final String backend;
+
+    public BackendUnavailableException(String backend) {
+        super("Circuit breaker for " + backend + " is open");
+        this.backend = backend;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+}
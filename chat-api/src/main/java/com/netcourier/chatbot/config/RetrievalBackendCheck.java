@@ -0,0 +1,42 @@
+package com.netcourier.chatbot.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Refuses to start with retrieval backends that would quietly serve partial results together.
+ * <ul>
+ *   <li>{@code chat.rag.sparse.backend=qdrant} has no sparse retriever or index of its own. Only the REST
+ *   {@code qdrant} dense backend writes and fuses the lexical weights, so with any other dense backend lexical
+ *   search would simply be gone.</li>
+ *   <li>{@code qdrant-grpc} writes to and searches the shared collection only. It neither routes dedicated tenants
+ *   to their own collection nor maintains the document-level index that hierarchical retrieval reads.</li>
+ * </ul>
+ */
+@Component
+public class RetrievalBackendCheck {
+
+    @Autowired
+    public RetrievalBackendCheck(@Value("${chat.rag.dense.backend:qdrant}") String denseBackend,
+                                 @Value("${chat.rag.sparse.backend:opensearch}") String sparseBackend,
+                                 @Value("${chat.rag.hierarchical.enabled:false}") boolean hierarchical,
+                                 @Value("${chat.rag.partitioning.dedicated-tenants:}") Set<String> dedicatedTenants,
+                                 @Value("${chat.rag.partitioning.size-threshold:0}") long sizeThreshold) {
+        boolean partitioned = sizeThreshold > 0 || dedicatedTenants.stream().anyMatch(tenant -> !tenant.isBlank());
+        check(denseBackend, sparseBackend, hierarchical, partitioned);
+    }
+
+    static void check(String denseBackend, String sparseBackend, boolean hierarchical, boolean partitioned) {
+        if ("qdrant".equalsIgnoreCase(sparseBackend) && !"qdrant".equalsIgnoreCase(denseBackend)) {
+            throw new IllegalStateException("chat.rag.sparse.backend=qdrant needs chat.rag.dense.backend=qdrant, not "
+                    + denseBackend + ": only the REST Qdrant backend writes and searches the sparse vectors");
+        }
+        if ("qdrant-grpc".equalsIgnoreCase(denseBackend) && (partitioned || hierarchical)) {
+            throw new IllegalStateException("chat.rag.dense.backend=qdrant-grpc supports neither "
+                    + "chat.rag.partitioning.* nor chat.rag.hierarchical.enabled; use chat.rag.dense.backend=qdrant");
+        }
+    }
+}
@@ -1,48 +1,64 @@
 package com.netcourier.chatbot.config;
 
+import com.netcourier.chatbot.service.ingestion.OpenSearchIndexProperties;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.retrieval.RetrievalTrace;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
 import java.time.Duration;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties({QdrantCollectionProperties.class, OpenSearchIndexProperties.class})
 public class WebClientConfig {
 
     @Bean
-    public WebClient qdrantWebClient(@Value("${chat.qdrant.base-url:http://localhost:6333}") String baseUrl) {
-        return baseClient(baseUrl);
+    public WebClient qdrantWebClient(@Value("${chat.qdrant.base-url:http://localhost:6333}") String baseUrl,
+                                     BackendResilience resilience) {
+        return baseClient(baseUrl, resilience.filter("qdrant", true), RetrievalTrace.filter("qdrant"));
     }
 
     @Bean
-    public WebClient openSearchWebClient(@Value("${chat.opensearch.base-url:http://localhost:9200}") String baseUrl) {
-        return baseClient(baseUrl);
+    public WebClient openSearchWebClient(@Value("${chat.opensearch.base-url:http://localhost:9200}") String baseUrl,
+                                         BackendResilience resilience) {
+        return baseClient(baseUrl, resilience.filter("opensearch", true), RetrievalTrace.filter("opensearch"));
     }
 
+    /**
+     * Tool calls such as ticket creation are not idempotent, so only safe methods are retried against this client.
+     */
     @Bean
-    public WebClient netCourierApiClient(@Value("${chat.netcourier.base-url:http://localhost:8085}") String baseUrl) {
-        return baseClient(baseUrl);
+    public WebClient netCourierApiClient(@Value("${chat.netcourier.base-url:http://localhost:8085}") String baseUrl,
+                                         BackendResilience resilience) {
+        return baseClient(baseUrl, resilience.filter("netcourier", false));
     }
 
     @Bean
-    public WebClient embeddingsWebClient(@Value("${chat.embeddings.base-url:http://localhost:9000}") String baseUrl) {
-        return baseClient(baseUrl);
+    public WebClient embeddingsWebClient(@Value("${chat.embeddings.base-url:http://localhost:9000}") String baseUrl,
+                                         BackendResilience resilience) {
+        return baseClient(baseUrl, resilience.filter("embeddings", true));
     }
 
     @Bean
     public WebClient llmWebClient(@Value("${chat.llm.base-url:http://localhost:1234}") String baseUrl,
                                   @Value("${chat.llm.api-key:}") String apiKey,
-                                  @Value("${chat.llm.timeout-seconds:60}") long timeoutSeconds) {
+                                  @Value("${chat.llm.timeout-seconds:60}") long timeoutSeconds,
+                                  BackendResilience resilience) {
         ExchangeStrategies strategies = exchangeStrategies();
         WebClient.Builder builder = WebClient.builder()
                 .baseUrl(baseUrl)
-                .exchangeStrategies(strategies);
+                .exchangeStrategies(strategies)
+                .filter(resilience.filter("llm", true));
         if (timeoutSeconds > 0) {
             HttpClient httpClient = HttpClient.create()
                     .responseTimeout(Duration.ofSeconds(timeoutSeconds));
@@ -56,11 +72,15 @@ public class WebClientConfig {
         return builder.build();
     }
 
-    private WebClient baseClient(String baseUrl) {
+    /**
+     * Filters apply in order, outermost first; the retrieval trace goes inside resilience so each attempt shows.
+     */
+    private WebClient baseClient(String baseUrl, ExchangeFilterFunction... filters) {
         ExchangeStrategies strategies = exchangeStrategies();
         return WebClient.builder()
                 .baseUrl(baseUrl)
                 .exchangeStrategies(strategies)
+                .filters(list -> list.addAll(List.of(filters)))
                 .build();
     }
 
@@ -0,0 +1,30 @@
+package com.netcourier.chatbot.controller;
+
+import com.netcourier.chatbot.service.ingestion.OpenSearchIndexManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/opensearch")
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "opensearch", matchIfMissing = true)
+public class OpenSearchAdminController {
+
+    private final OpenSearchIndexManager indexManager;
+
+    public OpenSearchAdminController(OpenSearchIndexManager indexManager) {
+        this.indexManager = indexManager;
+    }
+
+    @PostMapping(value = "/index", produces = MediaType.APPLICATION_JSON_VALUE)
+    public OpenSearchIndexManager.IndexReport ensureIndex() {
+        return indexManager.ensureIndex();
+    }
+
+    @PostMapping(value = "/rebuild", produces = MediaType.APPLICATION_JSON_VALUE)
+    public OpenSearchIndexManager.IndexReport rebuild() {
+        return indexManager.rebuild();
+    }
+}
@@ -0,0 +1,25 @@
+package com.netcourier.chatbot.controller;
+
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/qdrant")
+@ConditionalOnExpression("'${chat.rag.dense.backend:qdrant}'.startsWith('qdrant')")
+public class QdrantAdminController {
+
+    private final QdrantCollectionManager collectionManager;
+
+    public QdrantAdminController(QdrantCollectionManager collectionManager) {
+        this.collectionManager = collectionManager;
+    }
+
+    @PostMapping(value = "/collection", produces = MediaType.APPLICATION_JSON_VALUE)
+    public QdrantCollectionManager.CollectionReport ensureCollection() {
+        return collectionManager.ensureCollection();
+    }
+}
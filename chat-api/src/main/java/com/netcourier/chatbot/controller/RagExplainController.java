@@ -0,0 +1,59 @@
+package com.netcourier.chatbot.controller;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RagExplainRequest;
+import com.netcourier.chatbot.service.orchestration.TokenBudgetGuard;
+import com.netcourier.chatbot.service.retrieval.HybridRagService;
+import com.netcourier.chatbot.service.retrieval.RetrievalExplanation;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs retrieval for an utterance as a given tenant and roles and returns every stage of it. Answers may contain
+ * any tenant's content, so {@code SecurityConfig} limits this path to the admin role.
+ */
+@RestController
+@RequestMapping("/admin/rag")
+@ConditionalOnProperty(name = "chat.rag.explain.enabled", havingValue = "true")
+public class RagExplainController {
+
+    private static final String DEFAULT_INTENT = "RAG_FAQ";
+
+    private final HybridRagService ragService;
+    private final TokenBudgetGuard tokenGuard;
+
+    public RagExplainController(HybridRagService ragService,
+                                @Value("${chat.orchestration.max-context-tokens:2048}") int maxContextTokens) {
+        this.ragService = ragService;
+        this.tokenGuard = new TokenBudgetGuard(maxContextTokens);
+    }
+
+    @PostMapping(value = "/explain", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<RetrievalExplanation> explain(@Valid @RequestBody RagExplainRequest body) {
+        Locale locale = body.locale() == null ? Locale.ENGLISH : Locale.forLanguageTag(body.locale());
+        Set<String> roles = body.roles() == null ? Set.of() : Set.copyOf(body.roles());
+        ChatRequest request = new ChatRequest(
+                "explain-" + UUID.randomUUID(),
+                body.tenantId(),
+                "explain",
+                List.of(new ChatTurn(ChatMessageRole.USER, body.utterance())),
+                new ChatContext(locale, roles, null));
+        String intent = body.intent() == null || body.intent().isBlank() ? DEFAULT_INTENT : body.intent();
+        return ragService.explain(request, intent, tokenGuard);
+    }
+}
@@ -0,0 +1,35 @@
+package com.netcourier.chatbot.controller;
+
+import com.netcourier.chatbot.service.ingestion.TenantMigrationService;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/tenants")
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
+public class TenantPartitionAdminController {
+
+    private final TenantMigrationService migrationService;
+
+    public TenantPartitionAdminController(TenantMigrationService migrationService) {
+        this.migrationService = migrationService;
+    }
+
+    @GetMapping(value = "/{tenantId}/partition", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TenantMigrationService.PartitionStatus status(@PathVariable("tenantId") String tenantId) {
+        return migrationService.status(tenantId);
+    }
+
+    @PostMapping(value = "/{tenantId}/partition", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TenantMigrationService.MigrationReport migrate(@PathVariable("tenantId") String tenantId,
+                                                          @RequestParam("layout") TenantPartitioning.Layout layout) {
+        return migrationService.migrate(tenantId, layout);
+    }
+}
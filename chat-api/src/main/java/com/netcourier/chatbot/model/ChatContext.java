@@ -1,11 +1,24 @@
 package com.netcourier.chatbot.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Locale;
 import java.util.Set;
 
 public record ChatContext(
         Locale locale,
         Set<String> roles,
-        String ui
+        String ui,
+        @JsonIgnore RoleSet roleSet
 ) {
+
+    public ChatContext {
+        if (roleSet == null) {
+            roleSet = RoleSet.of(roles);
+        }
+    }
+
+    public ChatContext(Locale locale, Set<String> roles, String ui) {
+        this(locale, roles, ui, null);
+    }
 }
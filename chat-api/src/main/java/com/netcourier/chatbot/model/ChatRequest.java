@@ -11,4 +11,8 @@ public record ChatRequest(
         @NotNull List<ChatTurn> turns,
         ChatContext context
 ) {
+
+    public RoleSet roleSet() {
+        return context == null ? RoleSet.empty() : context.roleSet();
+    }
 }
@@ -1,10 +1,9 @@
 package com.netcourier.chatbot.model;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public final class ChatRequestFactory {
 
@@ -14,8 +13,12 @@ public final class ChatRequestFactory {
     public static ChatRequest fromSubmission(ChatSubmission submission) {
         ChatSubmissionContext context = submission.context();
         Locale locale = Locale.forLanguageTag(context.locale());
-        Set<String> roles = context.roles() == null ? Set.of() : context.roles().stream().collect(Collectors.toSet());
-        roles = Set.copyOf(Stream.concat(roles.stream(), Stream.of(context.ui())).collect(Collectors.toSet()));
+        Set<String> roles = new HashSet<>();
+        if (context.roles() != null) {
+            roles.addAll(context.roles());
+        }
+        roles.add(context.ui());
+        roles = Set.copyOf(roles);
         ChatContext chatContext = new ChatContext(locale, roles, context.ui());
         ChatTurn turn = new ChatTurn(ChatMessageRole.USER, submission.message());
         return new ChatRequest(
@@ -0,0 +1,14 @@
+package com.netcourier.chatbot.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.List;
+
+public record RagExplainRequest(
+        @NotBlank String utterance,
+        @NotBlank String tenantId,
+        List<String> roles,
+        String intent,
+        String locale
+) {
+}
@@ -6,6 +6,19 @@ public record RetrievedChunk(
         int page,
         String text,
         double score,
-        String source
+        String source,
+        String chunkId
 ) {
+
+    public RetrievedChunk(String docId, String title, int page, String text, double score, String source) {
+        this(docId, title, page, text, score, source, null);
+    }
+
+    public RetrievedChunk withScore(double newScore) {
+        return new RetrievedChunk(docId, title, page, text, newScore, source, chunkId);
+    }
+
+    public RetrievedChunk withText(String newText) {
+        return new RetrievedChunk(docId, title, page, newText, score, source, chunkId);
+    }
 }
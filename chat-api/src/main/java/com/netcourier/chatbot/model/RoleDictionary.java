@@ -0,0 +1,60 @@
+package com.netcourier.chatbot.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide interning of tenant and role names to small dense ids, so that role sets can be carried as
+ * bitsets and filter payloads can be cached per (tenant, roles) without hashing strings on every request.
+ * Ids are assigned on first sight and never reused. Names arrive from clients, so each vocabulary stops growing
+ * at {@link #MAX_ENTRIES} names and never takes names longer than {@link #MAX_NAME_LENGTH}; anything else gets
+ * {@link #UNKNOWN} and callers fall back to comparing the names themselves. Tool roles are interned when the
+ * tool registry starts, ahead of any request.
+ */
+public final class RoleDictionary {
+
+    public static final int UNKNOWN = -1;
+    static final int MAX_ENTRIES = 1024;
+    static final int MAX_NAME_LENGTH = 64;
+
+    private static final Dictionary TENANTS = new Dictionary(MAX_ENTRIES);
+    private static final Dictionary ROLES = new Dictionary(MAX_ENTRIES);
+
+    private RoleDictionary() {
+    }
+
+    public static int tenant(String tenantId) {
+        return TENANTS.intern(tenantId == null ? "" : tenantId);
+    }
+
+    public static int role(String role) {
+        return ROLES.intern(role);
+    }
+
+    static final class Dictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger next = new AtomicInteger();
+        private final int capacity;
+
+        Dictionary(int capacity) {
+            this.capacity = capacity;
+        }
+
+        int intern(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (name.length() > MAX_NAME_LENGTH || next.get() >= capacity) {
+                return UNKNOWN;
+            }
+            id = ids.computeIfAbsent(name, key -> next.get() < capacity ? next.getAndIncrement() : null);
+            return id == null ? UNKNOWN : id;
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.netcourier.chatbot.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of caller roles as a bitset over {@link RoleDictionary} ids. Alongside the exact names it keeps
+ * the lower-cased ones, which tool authorization compares against. Names the dictionary would not intern are
+ * kept as sorted arrays and compared by value, so unknown roles never alias each other.
+ */
+public final class RoleSet {
+
+    private static final String[] NONE = new String[0];
+    private static final RoleSet EMPTY = new RoleSet(new long[0], new long[0], NONE, NONE, List.of());
+
+    private final long[] words;
+    private final long[] foldedWords;
+    private final String[] unknown;
+    private final String[] foldedUnknown;
+    private final List<String> names;
+    private final int hash;
+
+    private RoleSet(long[] words, long[] foldedWords, String[] unknown, String[] foldedUnknown, List<String> names) {
+        this.words = words;
+        this.foldedWords = foldedWords;
+        this.unknown = unknown;
+        this.foldedUnknown = foldedUnknown;
+        this.names = names;
+        this.hash = 31 * Arrays.hashCode(words) + Arrays.hashCode(unknown);
+    }
+
+    public static RoleSet empty() {
+        return EMPTY;
+    }
+
+    public static RoleSet of(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return EMPTY;
+        }
+        BitSet exact = new BitSet();
+        BitSet folded = new BitSet();
+        TreeSet<String> unknown = new TreeSet<>();
+        TreeSet<String> foldedUnknown = new TreeSet<>();
+        for (String role : roles) {
+            if (role != null) {
+                add(role, exact, unknown);
+                add(role.toLowerCase(Locale.ROOT), folded, foldedUnknown);
+            }
+        }
+        if (exact.isEmpty() && unknown.isEmpty()) {
+            return EMPTY;
+        }
+        return new RoleSet(exact.toLongArray(), folded.toLongArray(), unknown.toArray(NONE), foldedUnknown.toArray(NONE),
+                roles.stream().filter(role -> role != null).sorted().toList());
+    }
+
+    private static void add(String role, BitSet ids, TreeSet<String> unknown) {
+        int id = RoleDictionary.role(role);
+        if (id == RoleDictionary.UNKNOWN) {
+            unknown.add(role);
+        } else {
+            ids.set(id);
+        }
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * Role names in a stable order, ready to drop into a backend filter.
+     */
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * Whether every role was interned, which makes the set cheap and safe to use as a cache key.
+     */
+    public boolean isInterned() {
+        return unknown.length == 0;
+    }
+
+    public boolean intersects(RoleSet other) {
+        return intersects(words, other.words) || intersects(unknown, other.unknown);
+    }
+
+    public boolean intersectsIgnoreCase(RoleSet other) {
+        return intersects(foldedWords, other.foldedWords) || intersects(foldedUnknown, other.foldedUnknown);
+    }
+
+    private static boolean intersects(long[] left, long[] right) {
+        for (int i = Math.min(left.length, right.length) - 1; i >= 0; i--) {
+            if ((left[i] & right[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean intersects(String[] left, String[] right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            int order = left[i].compareTo(right[j]);
+            if (order == 0) {
+                return true;
+            }
+            if (order < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof RoleSet roles && hash == roles.hash && Arrays.equals(words, roles.words)
+                && Arrays.equals(unknown, roles.unknown);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return names.toString();
+    }
+}
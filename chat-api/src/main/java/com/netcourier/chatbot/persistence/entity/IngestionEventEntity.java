@@ -0,0 +1,60 @@
+package com.netcourier.chatbot.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "ingestion_events")
+public class IngestionEventEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    private String tenantId;
+
+    @Column(name = "instance_id", nullable = false, length = 64)
+    private String instanceId;
+
+    @Column(name = "recorded_at", nullable = false)
+    private OffsetDateTime recordedAt;
+
+    protected IngestionEventEntity() {
+    }
+
+    public IngestionEventEntity(String tenantId, String instanceId) {
+        this.tenantId = tenantId;
+        this.instanceId = instanceId;
+    }
+
+    @PrePersist
+    void onCreate() {
+        if (recordedAt == null) {
+            recordedAt = OffsetDateTime.now();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public OffsetDateTime getRecordedAt() {
+        return recordedAt;
+    }
+}
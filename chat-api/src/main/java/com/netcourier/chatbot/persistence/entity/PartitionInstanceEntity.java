@@ -0,0 +1,50 @@
+package com.netcourier.chatbot.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "partition_instances")
+public class PartitionInstanceEntity {
+
+    @Id
+    @Column(name = "instance_id", nullable = false, updatable = false, length = 64)
+    private String instanceId;
+
+    @Column(name = "applied_revision", nullable = false)
+    private long appliedRevision;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private OffsetDateTime heartbeatAt;
+
+    protected PartitionInstanceEntity() {
+    }
+
+    public PartitionInstanceEntity(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public long getAppliedRevision() {
+        return appliedRevision;
+    }
+
+    public void setAppliedRevision(long appliedRevision) {
+        this.appliedRevision = appliedRevision;
+    }
+
+    public OffsetDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(OffsetDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+}
@@ -0,0 +1,68 @@
+package com.netcourier.chatbot.persistence.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "tenant_placements")
+public class TenantPlacementEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    private String tenantId;
+
+    @Column(name = "read_layout", nullable = false, length = 16)
+    private String readLayout;
+
+    @Column(name = "migrating_to", length = 16)
+    private String migratingTo;
+
+    @Column(name = "recorded_at", nullable = false)
+    private OffsetDateTime recordedAt;
+
+    protected TenantPlacementEntity() {
+    }
+
+    public TenantPlacementEntity(String tenantId, String readLayout, String migratingTo) {
+        this.tenantId = tenantId;
+        this.readLayout = readLayout;
+        this.migratingTo = migratingTo;
+    }
+
+    @PrePersist
+    void onCreate() {
+        if (recordedAt == null) {
+            recordedAt = OffsetDateTime.now();
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getReadLayout() {
+        return readLayout;
+    }
+
+    public String getMigratingTo() {
+        return migratingTo;
+    }
+
+    public OffsetDateTime getRecordedAt() {
+        return recordedAt;
+    }
+}
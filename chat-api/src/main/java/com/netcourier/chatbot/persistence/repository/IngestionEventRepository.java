@@ -0,0 +1,14 @@
+package com.netcourier.chatbot.persistence.repository;
+
+import com.netcourier.chatbot.persistence.entity.IngestionEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface IngestionEventRepository extends JpaRepository<IngestionEventEntity, Long> {
+
+    List<IngestionEventEntity> findByIdGreaterThanOrderByIdAsc(Long id);
+
+    Optional<IngestionEventEntity> findTopByOrderByIdDesc();
+}
@@ -0,0 +1,12 @@
+package com.netcourier.chatbot.persistence.repository;
+
+import com.netcourier.chatbot.persistence.entity.PartitionInstanceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface PartitionInstanceRepository extends JpaRepository<PartitionInstanceEntity, String> {
+
+    List<PartitionInstanceEntity> findByHeartbeatAtAfter(OffsetDateTime since);
+}
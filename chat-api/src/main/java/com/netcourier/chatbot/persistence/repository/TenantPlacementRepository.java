@@ -0,0 +1,11 @@
+package com.netcourier.chatbot.persistence.repository;
+
+import com.netcourier.chatbot.persistence.entity.TenantPlacementEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TenantPlacementRepository extends JpaRepository<TenantPlacementEntity, Long> {
+
+    List<TenantPlacementEntity> findByIdGreaterThanOrderByIdAsc(Long id);
+}
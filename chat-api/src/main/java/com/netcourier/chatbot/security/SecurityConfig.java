@@ -22,6 +22,14 @@ import reactor.core.publisher.Mono;
 @EnableConfigurationProperties(SecurityProperties.class)
 public class SecurityConfig {
 
+    /**
+     * Diagnostics and backend maintenance: explain, tenant partitioning, index rebuilds and collection checks.
+     * Document upload under {@code /admin/ingest} keeps its existing authenticated-only access.
+     */
+    private static final String[] OPERATOR_PATHS = {
+            "/admin/rag/**", "/admin/tenants/**", "/admin/opensearch/**", "/admin/qdrant/**"
+    };
+
     private final JwtRoleConverter roleConverter;
     private final SecurityProperties securityProperties;
 
@@ -38,9 +46,12 @@ public class SecurityConfig {
                 .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
                 .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
                 .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
-                .authorizeExchange(registry -> registry
-                        .pathMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll()
-                        .anyExchange().authenticated());
+                .authorizeExchange(registry -> {
+                    registry.pathMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll();
+                    // the shared static token carries no roles, so only chat.security.static-admin-token gets through
+                    registry.pathMatchers(OPERATOR_PATHS).hasRole(securityProperties.getAdminRole());
+                    registry.anyExchange().authenticated();
+                });
 
         if (securityProperties.hasStaticToken()) {
             security.addFilterAt(staticTokenAuthenticationFilter(), SecurityWebFiltersOrder.AUTHENTICATION);
@@ -60,7 +71,8 @@ public class SecurityConfig {
     }
 
     private AuthenticationWebFilter staticTokenAuthenticationFilter() {
-        AuthenticationWebFilter filter = new AuthenticationWebFilter(new StaticTokenAuthenticationManager(securityProperties.getStaticToken()));
+        AuthenticationWebFilter filter = new AuthenticationWebFilter(new StaticTokenAuthenticationManager(
+                securityProperties.getStaticToken(), securityProperties.getStaticAdminToken(), securityProperties.getAdminRole()));
         filter.setServerAuthenticationConverter(new ServerBearerTokenAuthenticationConverter());
         filter.setRequiresAuthenticationMatcher(ServerWebExchangeMatchers.anyExchange());
         filter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
@@ -10,6 +10,17 @@ public class SecurityProperties {
      */
     private String staticToken;
 
+    /**
+     * Optional second static bearer token for the operator endpoints when {@link #staticToken} is set. The shared
+     * chat token never reaches them; without this token they are refused.
+     */
+    private String staticAdminToken;
+
+    /**
+     * Role required for diagnostic admin endpoints such as retrieval explain, without the {@code ROLE_} prefix.
+     */
+    private String adminRole = "ADMIN";
+
     public String getStaticToken() {
         return staticToken;
     }
@@ -18,6 +29,22 @@ public class SecurityProperties {
         this.staticToken = staticToken;
     }
 
+    public String getStaticAdminToken() {
+        return staticAdminToken;
+    }
+
+    public void setStaticAdminToken(String staticAdminToken) {
+        this.staticAdminToken = staticAdminToken;
+    }
+
+    public String getAdminRole() {
+        return adminRole;
+    }
+
+    public void setAdminRole(String adminRole) {
+        this.adminRole = adminRole;
+    }
+
     public boolean hasStaticToken() {
         return staticToken != null && !staticToken.isBlank();
     }
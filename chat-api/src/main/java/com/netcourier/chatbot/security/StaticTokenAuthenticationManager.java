@@ -4,16 +4,32 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+/**
+ * Accepts the shared static bearer token with no roles, and an optional separate admin token that carries the
+ * admin role the operator endpoints require.
+ */
 public class StaticTokenAuthenticationManager implements ReactiveAuthenticationManager {
 
     private final String expectedToken;
+    private final String adminToken;
+    private final List<GrantedAuthority> adminAuthorities;
 
     public StaticTokenAuthenticationManager(String expectedToken) {
+        this(expectedToken, null, null);
+    }
+
+    public StaticTokenAuthenticationManager(String expectedToken, String adminToken, String adminRole) {
         this.expectedToken = expectedToken;
+        this.adminToken = adminToken == null || adminToken.isBlank() ? null : adminToken;
+        this.adminAuthorities = adminRole == null ? AuthorityUtils.NO_AUTHORITIES
+                : AuthorityUtils.createAuthorityList("ROLE_" + adminRole);
     }
 
     @Override
@@ -23,6 +39,9 @@ public class StaticTokenAuthenticationManager implements ReactiveAuthenticationM
         }
 
         String token = bearer.getToken();
+        if (token != null && token.equals(adminToken)) {
+            return Mono.just(new UsernamePasswordAuthenticationToken("static-admin-bearer", null, adminAuthorities));
+        }
         if (token == null || !token.equals(expectedToken)) {
             return Mono.error(new BadCredentialsException("Invalid bearer token"));
         }
@@ -8,6 +8,7 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -36,18 +37,23 @@ public class DefaultIngestionService implements IngestionService {
     private final VectorStoreClient vectorStoreClient;
     private final SearchIndexClient searchIndexClient;
     private final DocumentIngestionRepository ingestionRepository;
+    private final IngestionEpochs ingestionEpochs;
+    private final IngestionEpochStore epochStore;
     private final MeterRegistry meterRegistry;
     private final Counter ingestionCounter;
     private final Counter dedupCounter;
     private final Timer ingestionTimer;
     private final List<String> defaultRoles;
 
+    @Autowired
     public DefaultIngestionService(DocumentTextExtractor textExtractor,
                                    TextChunker textChunker,
                                    EmbeddingsClient embeddingsClient,
                                    VectorStoreClient vectorStoreClient,
                                    SearchIndexClient searchIndexClient,
                                    DocumentIngestionRepository ingestionRepository,
+                                   IngestionEpochs ingestionEpochs,
+                                   IngestionEpochStore epochStore,
                                    MeterRegistry meterRegistry,
                                    @Value("${chat.ingest.default-roles:CP,BO}") String defaultRoles) {
         this.textExtractor = textExtractor;
@@ -56,6 +62,8 @@ public class DefaultIngestionService implements IngestionService {
         this.vectorStoreClient = vectorStoreClient;
         this.searchIndexClient = searchIndexClient;
         this.ingestionRepository = ingestionRepository;
+        this.ingestionEpochs = ingestionEpochs;
+        this.epochStore = epochStore;
         this.meterRegistry = meterRegistry;
         this.ingestionCounter = meterRegistry.counter("chat.ingest.events", "outcome", "accepted");
         this.dedupCounter = meterRegistry.counter("chat.ingest.events", "outcome", "deduplicated");
@@ -63,6 +71,19 @@ public class DefaultIngestionService implements IngestionService {
         this.defaultRoles = parseRoles(defaultRoles);
     }
 
+    public DefaultIngestionService(DocumentTextExtractor textExtractor,
+                                   TextChunker textChunker,
+                                   EmbeddingsClient embeddingsClient,
+                                   VectorStoreClient vectorStoreClient,
+                                   SearchIndexClient searchIndexClient,
+                                   DocumentIngestionRepository ingestionRepository,
+                                   IngestionEpochs ingestionEpochs,
+                                   MeterRegistry meterRegistry,
+                                   String defaultRoles) {
+        this(textExtractor, textChunker, embeddingsClient, vectorStoreClient, searchIndexClient, ingestionRepository,
+                ingestionEpochs, null, meterRegistry, defaultRoles);
+    }
+
     @Override
     public IngestUploadResponse ingestDocument(IngestDocumentCommand command) {
         if (command == null || command.bytes() == null || command.bytes().length == 0) {
@@ -153,10 +174,16 @@ public class DefaultIngestionService implements IngestionService {
         List<EmbeddedChunk> embeddedChunks = new ArrayList<>();
         for (int i = 0; i < chunks.size(); i++) {
             String chunkId = docId + "-" + (i + 1);
-            embeddedChunks.add(new EmbeddedChunk(chunkId, metadata.title(), i + 1, normaliseWhitespace(chunks.get(i)), roles, metadata, embeddings.vectors().get(i)));
+            embeddedChunks.add(new EmbeddedChunk(chunkId, metadata.title(), i + 1, normaliseWhitespace(chunks.get(i)), roles, metadata,
+                    embeddings.vectors().get(i), embeddings.sparseAt(i)));
         }
         vectorStoreClient.upsert(tenantId, docId, embeddedChunks);
         searchIndexClient.index(tenantId, docId, embeddedChunks);
+        // Both writes return once the chunks are searchable, so nothing cached after this advance predates them.
+        ingestionEpochs.advance(tenantId);
+        if (epochStore != null) {
+            epochStore.publish(tenantId);
+        }
         persistSnapshot(tenantId, docId, externalId, version, contentHash, roles, metadata, embeddedChunks.size());
         log.info("Ingested document {} for tenant {} with {} chunks (version {})", docId, tenantId, embeddedChunks.size(), version);
         return new IngestUploadResponse(tenantId, docId, embeddedChunks.size(), version, false, metadata);
@@ -0,0 +1,183 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.netcourier.chatbot.service.retrieval.vector.VectorScorer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Document-level vectors for two-stage retrieval. Each ingested document is stored as one point whose vector is
+ * the normalised mean of its chunk vectors, so no extra embedding call is made. At query time
+ * {@link #topDocuments} picks the closest documents and the dense retriever then searches only their chunks.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
+public class DocumentVectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentVectorIndex.class);
+    private static final Map<String, Object> DOC_ID_PAYLOAD = Map.of("include", List.of("docId"));
+
+    private final WebClient qdrantWebClient;
+    private final QdrantCollectionManager collectionManager;
+    private final String collection;
+    private final String vectorName;
+    private final boolean enabled;
+    private final int topDocuments;
+
+    @Autowired
+    public DocumentVectorIndex(WebClient qdrantWebClient,
+                               QdrantCollectionManager collectionManager,
+                               @Value("${chat.rag.hierarchical.collection:nc_documents_v1}") String collection,
+                               @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
+                               @Value("${chat.rag.hierarchical.enabled:false}") boolean enabled,
+                               @Value("${chat.rag.hierarchical.top-documents:20}") int topDocuments) {
+        this.qdrantWebClient = qdrantWebClient;
+        this.collectionManager = collectionManager;
+        this.collection = collection;
+        this.vectorName = vectorName;
+        this.enabled = enabled;
+        this.topDocuments = Math.max(1, topDocuments);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled || collectionManager == null) {
+            return;
+        }
+        try {
+            collectionManager.ensureCollection(collection);
+        } catch (RuntimeException e) {
+            log.warn("Could not prepare document collection {}: {}", collection, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void upsert(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        if (!enabled || chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        float[] mean = null;
+        for (EmbeddedChunk chunk : chunks) {
+            float[] vector = VectorScorer.normalise(chunk.vector());
+            if (mean == null) {
+                mean = vector;
+            } else if (vector.length == mean.length) {
+                for (int i = 0; i < mean.length; i++) {
+                    mean[i] += vector[i];
+                }
+            }
+        }
+        double norm = 0d;
+        for (float value : mean) {
+            norm += value * value;
+        }
+        float scale = norm == 0d ? 0f : (float) (1d / Math.sqrt(norm));
+        for (int i = 0; i < mean.length; i++) {
+            mean[i] *= scale;
+        }
+        EmbeddedChunk first = chunks.getFirst();
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("tenantId", tenantId);
+        payload.put("tenant_id", tenantId);
+        payload.put("docId", docId);
+        payload.put("doc_id", docId);
+        payload.put("title", first.title());
+        payload.put("roles", first.roles());
+        payload.put("chunks", chunks.size());
+        Point point = new Point(pointId(tenantId, docId), Map.of(vectorName, mean), payload);
+        try {
+            qdrantWebClient.put()
+                    .uri("/collections/{collection}/points?wait=true", collection)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("points", List.of(point)))
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .block();
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to upsert document vector into Qdrant", e);
+        }
+    }
+
+    /**
+     * Ids of the documents closest to {@code query}, best first, taking up to {@code top-documents} from each
+     * filter (one per tenant scope). Empty when nothing matched or the search failed, so callers can fall back
+     * to a flat search.
+     */
+    public Mono<List<String>> topDocuments(List<Double> query, List<?> scopeFilters) {
+        List<DocumentQuery> searches = scopeFilters.stream()
+                .map(filter -> new DocumentQuery(query, vectorName, topDocuments, filter, DOC_ID_PAYLOAD))
+                .toList();
+        return qdrantWebClient.post()
+                .uri("/collections/{collection}/points/query/batch", collection)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("searches", searches))
+                .retrieve()
+                .bodyToMono(QueryBatchResponse.class)
+                .map(QueryBatchResponse::documentIds)
+                .defaultIfEmpty(List.of())
+                .onErrorResume(throwable -> {
+                    log.warn("Document-level search failed: {}", throwable.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    private static String pointId(String tenantId, String docId) {
+        return UUID.nameUUIDFromBytes((tenantId + '\u0000' + docId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private record Point(String id, Object vector, Map<String, Object> payload) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record DocumentQuery(Object query, String using, int limit, Object filter,
+                                 @JsonProperty("with_payload") Object withPayload) {}
+
+    private record QueryBatchResponse(List<ScoredPoints> result) {
+        List<String> documentIds() {
+            if (result == null) {
+                return List.of();
+            }
+            List<Hit> hits = new ArrayList<>();
+            result.stream()
+                    .filter(scope -> scope != null && scope.points() != null)
+                    .forEach(scope -> hits.addAll(scope.points()));
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            Set<String> ids = new LinkedHashSet<>();
+            for (Hit hit : hits) {
+                if (hit.payload() != null && hit.payload().docId() != null) {
+                    ids.add(hit.payload().docId());
+                }
+            }
+            return List.copyOf(ids);
+        }
+    }
+
+    private record ScoredPoints(List<Hit> points) {}
+
+    private record Hit(double score, HitPayload payload) {}
+
+    private record HitPayload(String docId) {}
+}
@@ -8,5 +8,16 @@ public record EmbeddedChunk(String id,
                             String text,
                             List<String> roles,
                             DocumentMetadata metadata,
-                            List<Double> vector) {
+                            List<Double> vector,
+                            EmbeddingsClient.SparseVector sparse) {
+
+    public EmbeddedChunk(String id,
+                         String title,
+                         int page,
+                         String text,
+                         List<String> roles,
+                         DocumentMetadata metadata,
+                         List<Double> vector) {
+        this(id, title, page, text, roles, metadata, vector, null);
+    }
 }
@@ -6,5 +6,19 @@ public interface EmbeddingsClient {
 
     EmbeddingBatch embed(List<String> texts);
 
-    record EmbeddingBatch(List<List<Double>> vectors, String model, int dimensions) {}
+    /**
+     * @param sparse lexical weights per text, aligned with {@code vectors}; empty when the service was not
+     *               asked for them or does not produce them
+     */
+    record EmbeddingBatch(List<List<Double>> vectors, String model, int dimensions, List<SparseVector> sparse) {
+        public EmbeddingBatch(List<List<Double>> vectors, String model, int dimensions) {
+            this(vectors, model, dimensions, List.of());
+        }
+
+        public SparseVector sparseAt(int index) {
+            return sparse == null || index >= sparse.size() ? null : sparse.get(index);
+        }
+    }
+
+    record SparseVector(List<Integer> indices, List<Double> values) {}
 }
@@ -0,0 +1,78 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.netcourier.chatbot.persistence.entity.IngestionEventEntity;
+import com.netcourier.chatbot.persistence.repository.IngestionEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Shares {@link IngestionEpochs} advances between API instances through the {@code ingestion_events} table, so
+ * a document ingested on one instance invalidates what the others cached for its tenant. Each ingestion adds a
+ * row; every instance replays the rows written by others since the last one it applied and advances its own
+ * epochs for them, at most {@code epoch-sync-interval-ms} after the write.
+ */
+@Component
+public class IngestionEpochStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionEpochStore.class);
+
+    private final IngestionEventRepository eventRepository;
+    private final IngestionEpochs ingestionEpochs;
+    private final String instanceId = UUID.randomUUID().toString();
+    private long applied = -1;
+
+    public IngestionEpochStore(IngestionEventRepository eventRepository, IngestionEpochs ingestionEpochs) {
+        this.eventRepository = eventRepository;
+        this.ingestionEpochs = ingestionEpochs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.rag.cache.epoch-sync-interval-ms:1000}",
+            initialDelayString = "${chat.rag.cache.epoch-sync-interval-ms:1000}")
+    public void refresh() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh ingestion epochs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Advances the local epoch of every tenant another instance ingested for since the last call. The first call
+     * only notes where the table ends: nothing is cached before it, so older rows have nothing to invalidate.
+     */
+    public synchronized void sync() {
+        if (applied < 0) {
+            applied = eventRepository.findTopByOrderByIdDesc().map(IngestionEventEntity::getId).orElse(0L);
+            return;
+        }
+        for (IngestionEventEntity row : eventRepository.findByIdGreaterThanOrderByIdAsc(applied)) {
+            if (!instanceId.equals(row.getInstanceId())) {
+                ingestionEpochs.advance(row.getTenantId());
+            }
+            applied = row.getId();
+        }
+    }
+
+    /**
+     * Records an epoch advance made on this instance for the others. Failing to record it leaves their caches
+     * to expire on their TTL, which is logged rather than failing the ingestion.
+     */
+    public void publish(String tenantId) {
+        try {
+            eventRepository.save(new IngestionEventEntity(tenantId, instanceId));
+        } catch (RuntimeException e) {
+            log.warn("Could not share the ingestion epoch of tenant {}: {}", tenantId, e.getMessage());
+        }
+    }
+}
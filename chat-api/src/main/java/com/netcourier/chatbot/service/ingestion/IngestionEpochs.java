@@ -0,0 +1,30 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-tenant counter that advances every time fresh content is written to the search backends.
+ * Readers snapshot the epoch before retrieving so cached results can be discarded once it moves on.
+ */
+@Component
+public class IngestionEpochs {
+
+    private final Map<String, AtomicLong> epochs = new ConcurrentHashMap<>();
+
+    public long current(String tenantId) {
+        AtomicLong epoch = epochs.get(key(tenantId));
+        return epoch == null ? 0L : epoch.get();
+    }
+
+    public long advance(String tenantId) {
+        return epochs.computeIfAbsent(key(tenantId), ignored -> new AtomicLong()).incrementAndGet();
+    }
+
+    private String key(String tenantId) {
+        return tenantId == null ? "" : tenantId;
+    }
+}
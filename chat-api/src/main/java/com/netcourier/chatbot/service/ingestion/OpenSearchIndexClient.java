@@ -2,7 +2,8 @@ package com.netcourier.chatbot.service.ingestion;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -12,17 +13,22 @@ import reactor.core.publisher.Mono;
 import java.util.List;
 
 @Component
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "opensearch", matchIfMissing = true)
 public class OpenSearchIndexClient implements SearchIndexClient {
 
     private static final Logger log = LoggerFactory.getLogger(OpenSearchIndexClient.class);
 
     private final WebClient openSearchWebClient;
-    private final String indexAlias;
+    private final TenantPartitioning partitioning;
 
-    public OpenSearchIndexClient(WebClient openSearchWebClient,
-                                 @Value("${chat.opensearch.index:nc_chunks}") String indexAlias) {
+    @Autowired
+    public OpenSearchIndexClient(WebClient openSearchWebClient, TenantPartitioning partitioning) {
         this.openSearchWebClient = openSearchWebClient;
-        this.indexAlias = indexAlias;
+        this.partitioning = partitioning;
+    }
+
+    public OpenSearchIndexClient(WebClient openSearchWebClient, String indexAlias) {
+        this(openSearchWebClient, TenantPartitioning.shared("nc_chunks_v1", indexAlias));
     }
 
     @Override
@@ -30,25 +36,56 @@ public class OpenSearchIndexClient implements SearchIndexClient {
         if (chunks == null || chunks.isEmpty()) {
             return;
         }
+        List<String> indices = partitioning.openSearchWriteIndices(tenantId);
         for (EmbeddedChunk chunk : chunks) {
-            try {
-                openSearchWebClient.put()
-                        .uri("/{index}/_doc/{id}", indexAlias, chunk.id())
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(new SearchDocument(tenantId, docId, chunk.id(), chunk.title(), chunk.page(), chunk.text(), chunk.roles(), chunk.metadata().asIndexPayload()))
-                        .retrieve()
-                        .bodyToMono(Void.class)
-                        .onErrorResume(throwable -> {
-                            log.error("Failed to index chunk {} in OpenSearch: {}", chunk.id(), throwable.getMessage());
-                            return Mono.error(new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to index chunk in OpenSearch", throwable));
-                        })
-                        .block();
-            } catch (IngestionException ex) {
-                throw ex;
-            } catch (Exception e) {
-                throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to index chunk in OpenSearch", e);
+            for (String index : indices) {
+                index(index, tenantId, docId, chunk);
             }
         }
+        indices.forEach(this::refresh);
+    }
+
+    /**
+     * Makes the new chunks searchable before returning, so the ingestion epoch the caller advances next never
+     * lets a cache repopulate from a search that cannot see them yet.
+     */
+    private void refresh(String index) {
+        try {
+            openSearchWebClient.post()
+                    .uri("/{index}/_refresh", index)
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .block();
+        } catch (Exception e) {
+            log.error("Failed to refresh OpenSearch index {}: {}", index, e.getMessage());
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to refresh OpenSearch index", e);
+        }
+    }
+
+    /**
+     * Versions each write externally with its {@code indexedAt} stamp, so a reindex that copies an older copy of
+     * the same chunk id over it (see {@link OpenSearchIndexManager#rebuild()}) is rejected as a conflict.
+     */
+    private void index(String index, String tenantId, String docId, EmbeddedChunk chunk) {
+        long indexedAt = System.currentTimeMillis();
+        try {
+            openSearchWebClient.put()
+                    .uri("/{index}/_doc/{id}?version={version}&version_type=external_gte", index, chunk.id(), indexedAt)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new SearchDocument(tenantId, docId, chunk.id(), chunk.title(), chunk.page(), chunk.text(), chunk.roles(),
+                            chunk.metadata().asIndexPayload(), indexedAt))
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .onErrorResume(throwable -> {
+                        log.error("Failed to index chunk {} in OpenSearch: {}", chunk.id(), throwable.getMessage());
+                        return Mono.error(new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to index chunk in OpenSearch", throwable));
+                    })
+                    .block();
+        } catch (IngestionException ex) {
+            throw ex;
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to index chunk in OpenSearch", e);
+        }
     }
 
     private record SearchDocument(String tenantId,
@@ -58,5 +95,6 @@ public class OpenSearchIndexClient implements SearchIndexClient {
                                   int page,
                                   String text,
                                   List<String> roles,
-                                  java.util.Map<String, Object> metadata) {}
+                                  java.util.Map<String, Object> metadata,
+                                  long indexedAt) {}
 }
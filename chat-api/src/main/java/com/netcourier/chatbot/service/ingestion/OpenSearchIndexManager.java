@@ -0,0 +1,298 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the layout of the sparse index: an index template with explicit mappings for every
+ * {@code <alias>-v<n>} index, and the alias that readers and {@link OpenSearchIndexClient} write through.
+ * A rebuild reindexes the current data into the next version with refreshes and replicas off, restores
+ * them, force-merges, and then swaps the alias atomically. The previous index is left in place for rollback.
+ * <p>
+ * Writers keep going through the alias, so chunks written after the reindex snapshot land in the old index
+ * only. Every chunk carries an {@code indexedAt} stamp that is also its external version: just before the swap
+ * a catch-up reindex copies over whatever was written since the rebuild started, and just after it a second one
+ * copies whatever was written since the first catch-up. Every reindex keeps the source versions, so a copy only
+ * replaces an older version of the same chunk id and never a newer write that went to the new index directly.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "opensearch", matchIfMissing = true)
+public class OpenSearchIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenSearchIndexManager.class);
+    private static final String ANALYZER = "nc_text";
+    static final String INDEXED_AT_FIELD = "indexedAt";
+
+    private final WebClient openSearchWebClient;
+    private final OpenSearchIndexProperties properties;
+    private final String alias;
+    private final String tenantField;
+    private final String rolesField;
+
+    public OpenSearchIndexManager(WebClient openSearchWebClient,
+                                  OpenSearchIndexProperties properties,
+                                  @Value("${chat.opensearch.index:nc_chunks}") String alias,
+                                  @Value("${chat.opensearch.tenant-field:tenantId}") String tenantField,
+                                  @Value("${chat.opensearch.roles-field:roles}") String rolesField) {
+        this.openSearchWebClient = openSearchWebClient;
+        this.properties = properties;
+        this.alias = alias;
+        this.tenantField = tenantField;
+        this.rolesField = rolesField;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isManageOnStartup()) {
+            return;
+        }
+        try {
+            IndexReport report = ensureIndex();
+            report.warnings().forEach(warning -> log.warn("OpenSearch index {}: {}", alias, warning));
+        } catch (RuntimeException e) {
+            log.warn("Could not prepare OpenSearch index {}: {}", alias, e.getMessage());
+        }
+    }
+
+    public IndexReport ensureIndex() {
+        List<String> actions = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        installTemplate(actions);
+
+        List<String> targets = aliasTargets();
+        String current = targets.isEmpty() ? null : targets.getFirst();
+        if (current == null) {
+            if (indexExists(alias)) {
+                warnings.add("'" + alias + "' is a concrete index with dynamic mappings; "
+                        + "POST /admin/opensearch/rebuild moves it behind the alias");
+                current = alias;
+            } else {
+                current = versionedName(1);
+                Map<String, Object> body = Map.of("aliases", Map.of(alias, Map.of("is_write_index", true)));
+                send(openSearchWebClient.put().uri("/{index}", current), body, "create index " + current);
+                actions.add("created " + current + " behind alias " + alias);
+            }
+        }
+        actions.forEach(action -> log.info("OpenSearch index {}: {}", alias, action));
+        return new IndexReport(alias, current, List.copyOf(actions), List.copyOf(warnings));
+    }
+
+    public IndexReport rebuild() {
+        List<String> targets = aliasTargets();
+        boolean legacy = targets.isEmpty() && indexExists(alias);
+        if (targets.isEmpty() && !legacy) {
+            return ensureIndex();
+        }
+        List<String> actions = new ArrayList<>();
+        installTemplate(actions);
+        String sources = legacy ? alias : String.join(",", targets);
+        long startedAt = System.currentTimeMillis() - properties.getCatchUpMarginMs();
+
+        String next = versionedName(latestVersion() + 1);
+        Map<String, Object> bulkSettings = Map.of("index",
+                Map.of("refresh_interval", properties.getBulkRefreshInterval(), "number_of_replicas", 0));
+        send(openSearchWebClient.put().uri("/{index}", next), Map.of("settings", bulkSettings), "create index " + next);
+
+        long copied = reindex(Map.of("source", Map.of("index", alias),
+                "dest", Map.of("index", next, "version_type", "external")), next);
+        actions.add("reindexed " + copied + " chunks into " + next);
+
+        Map<String, Object> liveSettings = Map.of("index",
+                Map.of("refresh_interval", properties.getRefreshInterval(), "number_of_replicas", properties.getReplicas()));
+        send(openSearchWebClient.put().uri("/{index}/_settings", next), liveSettings, "restore settings on " + next);
+        send(openSearchWebClient.post().uri("/{index}/_refresh", next), null, "refresh " + next);
+        if (properties.getForceMergeSegments() > 0) {
+            send(openSearchWebClient.post().uri("/{index}/_forcemerge?max_num_segments={segments}", next, properties.getForceMergeSegments()),
+                    null, "force-merge " + next);
+            actions.add("force-merged " + next + " to " + properties.getForceMergeSegments() + " segment(s)");
+        }
+
+        long caughtUpAt = System.currentTimeMillis() - properties.getCatchUpMarginMs();
+        actions.add("caught up " + catchUp(sources, next, startedAt) + " chunks written during the rebuild");
+
+        List<Map<String, Object>> swap = new ArrayList<>();
+        if (legacy) {
+            swap.add(Map.of("remove_index", Map.of("index", alias)));
+        }
+        targets.forEach(target -> swap.add(Map.of("remove", Map.of("index", target, "alias", alias))));
+        swap.add(Map.of("add", Map.of("index", next, "alias", alias, "is_write_index", true)));
+        send(openSearchWebClient.post().uri("/_aliases"), Map.of("actions", swap), "move alias " + alias);
+        actions.add(legacy
+                ? "replaced concrete index " + alias + " with alias onto " + next
+                : "moved alias " + alias + " from " + String.join(", ", targets) + " to " + next);
+        if (!legacy) {
+            // a legacy index is deleted by the swap itself, so there is nothing left to catch up from
+            actions.add("caught up " + catchUp(sources, next, caughtUpAt) + " chunks written during the swap");
+        }
+
+        actions.forEach(action -> log.info("OpenSearch index {}: {}", alias, action));
+        return new IndexReport(alias, next, List.copyOf(actions), List.of());
+    }
+
+    /**
+     * Copies chunks stamped at or after {@code since} from {@code sources} into {@code next}. Copies that are not
+     * newer than the version already in {@code next} are skipped as version conflicts.
+     */
+    private long catchUp(String sources, String next, long since) {
+        send(openSearchWebClient.post().uri("/{index}/_refresh", sources), null, "refresh " + sources);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("conflicts", "proceed");
+        body.put("source", Map.of("index", sources,
+                "query", Map.of("range", Map.of(INDEXED_AT_FIELD, Map.of("gte", since)))));
+        body.put("dest", Map.of("index", next, "version_type", "external"));
+        return reindex(body, next);
+    }
+
+    private long reindex(Map<String, Object> body, String next) {
+        JsonNode result = send(openSearchWebClient.post().uri("/_reindex?wait_for_completion=true"), body, "reindex into " + next);
+        if (result != null && result.path("failures").size() > 0) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY,
+                    "Reindex into " + next + " reported " + result.path("failures").size() + " failures");
+        }
+        return result == null ? 0 : result.path("total").asLong() - result.path("version_conflicts").asLong();
+    }
+
+    /**
+     * Creates a tenant's dedicated index, which takes its settings and mappings from the same template.
+     */
+    public IndexReport ensureTenantIndex(String index) {
+        List<String> actions = new ArrayList<>();
+        installTemplate(actions);
+        if (!indexExists(index)) {
+            send(openSearchWebClient.put().uri("/{index}", index), null, "create index " + index);
+            actions.add("created " + index);
+        }
+        actions.forEach(action -> log.info("OpenSearch index {}: {}", index, action));
+        return new IndexReport(alias, index, List.copyOf(actions), List.of());
+    }
+
+    private void installTemplate(List<String> actions) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("index_patterns", List.of(alias + "-v*", alias + "-t-*"));
+        body.put("priority", 100);
+        body.put("template", Map.of("settings", templateSettings(), "mappings", mappings()));
+        send(openSearchWebClient.put().uri("/_index_template/{name}", alias + "-template"), body, "install index template");
+        actions.add("installed template for " + alias + "-v* and " + alias + "-t-*");
+    }
+
+    private Map<String, Object> templateSettings() {
+        Map<String, Object> index = new LinkedHashMap<>();
+        index.put("number_of_shards", properties.getShards());
+        index.put("number_of_replicas", properties.getReplicas());
+        index.put("refresh_interval", properties.getRefreshInterval());
+        Map<String, Object> analysis = Map.of(
+                "filter", Map.of("nc_stemmer", Map.of("type", "stemmer", "language", properties.getStemmer())),
+                "analyzer", Map.of(ANALYZER, Map.of(
+                        "type", "custom",
+                        "tokenizer", "standard",
+                        "filter", List.of("lowercase", "asciifolding", "nc_stemmer"))));
+        return Map.of("index", index, "analysis", analysis);
+    }
+
+    private Map<String, Object> mappings() {
+        Map<String, Object> filterField = new LinkedHashMap<>();
+        filterField.put("type", "keyword");
+        filterField.put("norms", false);
+        Map<String, Object> storedOnly = Map.of("type", "keyword", "index", false, "doc_values", false);
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put(tenantField, filterField);
+        fields.put(rolesField, filterField);
+        fields.put("docId", filterField);
+        fields.put("chunkId", filterField);
+        fields.put("title", storedOnly);
+        fields.put("page", Map.of("type", "integer", "index", false, "doc_values", false));
+        fields.put("text", Map.of("type", "text", "analyzer", ANALYZER));
+        fields.put("metadata", Map.of("type", "object", "enabled", false));
+        fields.put(INDEXED_AT_FIELD, Map.of("type", "date", "format", "epoch_millis"));
+
+        Map<String, Object> mappings = new LinkedHashMap<>();
+        mappings.put("dynamic", false);
+        mappings.put("_source", Map.of("excludes", List.of("metadata")));
+        mappings.put("properties", fields);
+        return mappings;
+    }
+
+    private List<String> aliasTargets() {
+        JsonNode response = openSearchWebClient.get()
+                .uri("/_alias/{alias}", alias)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.empty())
+                .block();
+        List<String> targets = new ArrayList<>();
+        if (response != null) {
+            response.fieldNames().forEachRemaining(targets::add);
+        }
+        return targets;
+    }
+
+    private boolean indexExists(String index) {
+        return Boolean.TRUE.equals(openSearchWebClient.head()
+                .uri("/{index}", index)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.just(false))
+                .block());
+    }
+
+    private int latestVersion() {
+        JsonNode indices = openSearchWebClient.get()
+                .uri("/_cat/indices/{pattern}?format=json&h=index", alias + "-v*")
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.empty())
+                .block();
+        int latest = 0;
+        if (indices != null) {
+            String prefix = alias + "-v";
+            for (JsonNode entry : indices) {
+                String name = entry.path("index").asText();
+                if (name.startsWith(prefix)) {
+                    try {
+                        latest = Math.max(latest, Integer.parseInt(name.substring(prefix.length())));
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    private String versionedName(int version) {
+        return alias + "-v" + version;
+    }
+
+    private JsonNode send(WebClient.RequestBodySpec request, Object body, String action) {
+        try {
+            WebClient.RequestHeadersSpec<?> spec = body == null
+                    ? request
+                    : request.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+            return spec.retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block();
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to " + action + " in OpenSearch", e);
+        }
+    }
+
+    public record IndexReport(String alias, String index, List<String> actions, List<String> warnings) {}
+}
@@ -0,0 +1,103 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "chat.opensearch.lifecycle")
+public class OpenSearchIndexProperties {
+
+    /**
+     * Install the index template and point the alias at a versioned index when the application starts.
+     */
+    private boolean manageOnStartup = true;
+
+    private int shards = 1;
+
+    private int replicas = 1;
+
+    private String refreshInterval = "1s";
+
+    /**
+     * Refresh interval applied to a new index while a rebuild bulk-loads it; {@code -1} disables refreshes.
+     */
+    private String bulkRefreshInterval = "-1";
+
+    /**
+     * Segment count the rebuilt index is force-merged down to before the alias moves; 0 skips the merge.
+     */
+    private int forceMergeSegments = 1;
+
+    /**
+     * How far before each rebuild pass the catch-up reindex starts copying recently written chunks, to cover
+     * clock skew between the API instances that stamp {@code indexedAt}.
+     */
+    private long catchUpMarginMs = 5000;
+
+    /**
+     * Stemmer applied by the {@code text} analyzer after lowercasing and ASCII folding.
+     */
+    private String stemmer = "light_english";
+
+    public boolean isManageOnStartup() {
+        return manageOnStartup;
+    }
+
+    public void setManageOnStartup(boolean manageOnStartup) {
+        this.manageOnStartup = manageOnStartup;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(int replicas) {
+        this.replicas = replicas;
+    }
+
+    public String getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(String refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public String getBulkRefreshInterval() {
+        return bulkRefreshInterval;
+    }
+
+    public void setBulkRefreshInterval(String bulkRefreshInterval) {
+        this.bulkRefreshInterval = bulkRefreshInterval;
+    }
+
+    public int getForceMergeSegments() {
+        return forceMergeSegments;
+    }
+
+    public void setForceMergeSegments(int forceMergeSegments) {
+        this.forceMergeSegments = forceMergeSegments;
+    }
+
+    public long getCatchUpMarginMs() {
+        return catchUpMarginMs;
+    }
+
+    public void setCatchUpMarginMs(long catchUpMarginMs) {
+        this.catchUpMarginMs = catchUpMarginMs;
+    }
+
+    public String getStemmer() {
+        return stemmer;
+    }
+
+    public void setStemmer(String stemmer) {
+        this.stemmer = stemmer;
+    }
+}
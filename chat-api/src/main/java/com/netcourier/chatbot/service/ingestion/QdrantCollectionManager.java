@@ -0,0 +1,233 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates the Qdrant collection on first start and keeps an existing one in line with the selected
+ * profile: HNSW parameters, quantization, and keyword payload indexes on the tenant and role fields the
+ * retriever filters on, plus {@code chunkId} when projected results are hydrated by chunk id. A vector size mismatch is reported but never "fixed", since that would mean
+ * dropping the collection.
+ */
+@Component
+@ConditionalOnExpression("'${chat.rag.dense.backend:qdrant}'.startsWith('qdrant')")
+public class QdrantCollectionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(QdrantCollectionManager.class);
+
+    private final WebClient qdrantWebClient;
+    private final EmbeddingsClient embeddingsClient;
+    private final QdrantCollectionProperties properties;
+    private final String collection;
+    private final String vectorName;
+    private final List<String> keywordFields;
+    private final boolean sparseVectors;
+
+    @Autowired
+    public QdrantCollectionManager(WebClient qdrantWebClient,
+                                   EmbeddingsClient embeddingsClient,
+                                   QdrantCollectionProperties properties,
+                                   @Value("${chat.qdrant.collection:nc_chunks_v1}") String collection,
+                                   @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
+                                   @Value("${chat.qdrant.filters.tenant-field:tenantId}") String tenantField,
+                                   @Value("${chat.qdrant.filters.role-field:roles}") String roleField,
+                                   @Value("${chat.rag.sparse.backend:opensearch}") String sparseBackend,
+                                   @Value("${chat.rag.projection.enabled:true}") boolean projection,
+                                   @Value("${chat.rag.hierarchical.enabled:false}") boolean hierarchical) {
+        this.qdrantWebClient = qdrantWebClient;
+        this.embeddingsClient = embeddingsClient;
+        this.properties = properties;
+        this.collection = collection;
+        this.vectorName = vectorName;
+        List<String> keywordFields = new ArrayList<>(List.of(tenantField, roleField));
+        if (projection) {
+            // projected hits are hydrated by a chunkId lookup
+            keywordFields.add("chunkId");
+        }
+        if (hierarchical) {
+            // the second stage of hierarchical search filters chunks by the first stage's documents
+            keywordFields.add("docId");
+        }
+        this.keywordFields = List.copyOf(keywordFields);
+        this.sparseVectors = "qdrant".equalsIgnoreCase(sparseBackend);
+    }
+
+    public QdrantCollectionManager(WebClient qdrantWebClient,
+                                   EmbeddingsClient embeddingsClient,
+                                   QdrantCollectionProperties properties,
+                                   String collection,
+                                   String vectorName,
+                                   String tenantField,
+                                   String roleField) {
+        this(qdrantWebClient, embeddingsClient, properties, collection, vectorName, tenantField, roleField, "opensearch", false, false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isManageOnStartup()) {
+            return;
+        }
+        try {
+            CollectionReport report = ensureCollection();
+            report.warnings().forEach(warning -> log.warn("Qdrant collection {}: {}", collection, warning));
+        } catch (RuntimeException e) {
+            log.warn("Could not prepare Qdrant collection {}: {}", collection, e.getMessage());
+        }
+    }
+
+    public CollectionReport ensureCollection() {
+        return ensureCollection(collection);
+    }
+
+    /**
+     * Same check for any collection with this layout, such as a tenant's dedicated collection.
+     */
+    public CollectionReport ensureCollection(String collection) {
+        QdrantCollectionProperties.Profile profile = properties.activeProfile();
+        JsonNode existing = fetchCollection(collection);
+        List<String> warnings = new ArrayList<>();
+        List<String> actions = new ArrayList<>();
+        JsonNode payloadSchema;
+
+        if (existing == null) {
+            int vectorSize = resolveVectorSize();
+            Map<String, Object> body = new LinkedHashMap<>();
+            Map<String, Object> vectors = new LinkedHashMap<>();
+            vectors.put(vectorName, Map.of("size", vectorSize, "distance", properties.getDistance()));
+            QdrantCollectionProperties.Truncation truncation = properties.getTruncation();
+            if (truncation.isEnabled()) {
+                vectors.put(truncation.vectorName(vectorName),
+                        Map.of("size", Math.min(truncation.getDimensions(), vectorSize), "distance", properties.getDistance()));
+            }
+            body.put("vectors", vectors);
+            if (sparseVectors) {
+                body.put("sparse_vectors", Map.of(properties.getSparse().getVectorName(), Map.of()));
+            }
+            body.put("hnsw_config", hnswConfig(profile));
+            quantizationConfig(profile).ifPresent(config -> body.put("quantization_config", config));
+            send(qdrantWebClient.put().uri("/collections/{collection}", collection), body, "create collection");
+            actions.add("created collection with " + vectorSize + "-dimensional vectors");
+            payloadSchema = null;
+        } else {
+            JsonNode config = existing.path("config");
+            JsonNode vector = config.path("params").path("vectors").path(vectorName);
+            if (vector.isMissingNode()) {
+                warnings.add("named vector '" + vectorName + "' is not defined");
+            } else if (properties.getVectorSize() > 0 && vector.path("size").asInt() != properties.getVectorSize()) {
+                warnings.add("vector size is " + vector.path("size").asInt() + " but " + properties.getVectorSize() + " is configured");
+            }
+            QdrantCollectionProperties.Truncation truncation = properties.getTruncation();
+            if (truncation.isEnabled()
+                    && config.path("params").path("vectors").path(truncation.vectorName(vectorName)).isMissingNode()) {
+                warnings.add("truncated vector '" + truncation.vectorName(vectorName)
+                        + "' is not defined; two-stage search needs the collection to be recreated");
+            }
+            if (sparseVectors && config.path("params").path("sparse_vectors")
+                    .path(properties.getSparse().getVectorName()).isMissingNode()) {
+                warnings.add("sparse vector '" + properties.getSparse().getVectorName()
+                        + "' is not defined; hybrid search needs the collection to be recreated");
+            }
+            JsonNode hnsw = config.path("hnsw_config");
+            boolean hnswMatches = hnsw.path("m").asInt() == profile.getM()
+                    && hnsw.path("ef_construct").asInt() == profile.getEfConstruct();
+            boolean quantizationMatches = quantizationOf(config.path("quantization_config")) == profile.getQuantization();
+            if (!hnswMatches || !quantizationMatches) {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("hnsw_config", hnswConfig(profile));
+                body.put("quantization_config", quantizationConfig(profile).map(Object.class::cast).orElse("Disabled"));
+                send(qdrantWebClient.patch().uri("/collections/{collection}", collection), body, "update collection");
+                actions.add("applied profile '" + properties.getProfile() + "'");
+            }
+            payloadSchema = existing.path("payload_schema");
+        }
+
+        for (String field : keywordFields) {
+            if (payloadSchema == null || !"keyword".equals(payloadSchema.path(field).path("data_type").asText())) {
+                send(qdrantWebClient.put().uri("/collections/{collection}/index?wait=true", collection),
+                        Map.of("field_name", field, "field_schema", "keyword"), "create payload index on " + field);
+                actions.add("created keyword index on " + field);
+            }
+        }
+        actions.forEach(action -> log.info("Qdrant collection {}: {}", collection, action));
+        return new CollectionReport(collection, properties.getProfile(), List.copyOf(actions), List.copyOf(warnings));
+    }
+
+    private JsonNode fetchCollection(String collection) {
+        return qdrantWebClient.get()
+                .uri("/collections/{collection}", collection)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(response -> response.path("result"))
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.empty())
+                .block();
+    }
+
+    private int resolveVectorSize() {
+        if (properties.getVectorSize() > 0) {
+            return properties.getVectorSize();
+        }
+        EmbeddingsClient.EmbeddingBatch probe = embeddingsClient.embed(List.of("dimension probe"));
+        if (probe.dimensions() > 0) {
+            return probe.dimensions();
+        }
+        if (!probe.vectors().isEmpty()) {
+            return probe.vectors().getFirst().size();
+        }
+        throw new IngestionException(HttpStatus.BAD_GATEWAY, "Embeddings service did not report vector dimensions");
+    }
+
+    private void send(WebClient.RequestBodySpec request, Object body, String action) {
+        try {
+            request.contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .block();
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to " + action + " in Qdrant", e);
+        }
+    }
+
+    private static Map<String, Object> hnswConfig(QdrantCollectionProperties.Profile profile) {
+        return Map.of("m", profile.getM(), "ef_construct", profile.getEfConstruct());
+    }
+
+    private static Optional<Map<String, Object>> quantizationConfig(QdrantCollectionProperties.Profile profile) {
+        return switch (profile.getQuantization()) {
+            case NONE -> Optional.empty();
+            case SCALAR -> Optional.of(Map.of("scalar",
+                    Map.of("type", "int8", "quantile", 0.99, "always_ram", profile.isAlwaysRam())));
+            case BINARY -> Optional.of(Map.of("binary", Map.of("always_ram", profile.isAlwaysRam())));
+        };
+    }
+
+    private static QdrantCollectionProperties.Quantization quantizationOf(JsonNode config) {
+        if (config.has("scalar")) {
+            return QdrantCollectionProperties.Quantization.SCALAR;
+        }
+        if (config.has("binary")) {
+            return QdrantCollectionProperties.Quantization.BINARY;
+        }
+        return QdrantCollectionProperties.Quantization.NONE;
+    }
+
+    public record CollectionReport(String collection, String profile, List<String> actions, List<String> warnings) {}
+}
@@ -0,0 +1,297 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "chat.qdrant.lifecycle")
+public class QdrantCollectionProperties {
+
+    /**
+     * Create or validate the collection and its payload indexes when the application starts.
+     */
+    private boolean manageOnStartup = true;
+
+    /**
+     * Dense vector size; 0 probes the embeddings service once and uses the reported dimensions.
+     */
+    private int vectorSize;
+
+    private String distance = "Cosine";
+
+    /**
+     * Name of the entry in {@link #profiles} applied to the collection and to queries.
+     */
+    private String profile = "default";
+
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    private Truncation truncation = new Truncation();
+
+    private Sparse sparse = new Sparse();
+
+    public boolean isManageOnStartup() {
+        return manageOnStartup;
+    }
+
+    public void setManageOnStartup(boolean manageOnStartup) {
+        this.manageOnStartup = manageOnStartup;
+    }
+
+    public int getVectorSize() {
+        return vectorSize;
+    }
+
+    public void setVectorSize(int vectorSize) {
+        this.vectorSize = vectorSize;
+    }
+
+    public String getDistance() {
+        return distance;
+    }
+
+    public void setDistance(String distance) {
+        this.distance = distance;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public Map<String, Profile> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Map<String, Profile> profiles) {
+        this.profiles = profiles;
+    }
+
+    public Truncation getTruncation() {
+        return truncation;
+    }
+
+    public void setTruncation(Truncation truncation) {
+        this.truncation = truncation;
+    }
+
+    public Sparse getSparse() {
+        return sparse;
+    }
+
+    public void setSparse(Sparse sparse) {
+        this.sparse = sparse;
+    }
+
+    public Profile activeProfile() {
+        return profiles.getOrDefault(profile, new Profile());
+    }
+
+    public enum Quantization {
+        NONE,
+        SCALAR,
+        BINARY
+    }
+
+    public static class Profile {
+
+        private int m = 16;
+        private int efConstruct = 100;
+        private Quantization quantization = Quantization.NONE;
+        private boolean alwaysRam = true;
+
+        /**
+         * Query-time search breadth; unset leaves Qdrant's default.
+         */
+        private Integer hnswEf;
+
+        /**
+         * Re-score quantized candidates with the original vectors.
+         */
+        private boolean rescore = true;
+
+        /**
+         * Multiplier on the limit for how many quantized candidates are fetched before rescoring.
+         */
+        private double oversampling = 1.0;
+
+        public int getM() {
+            return m;
+        }
+
+        public void setM(int m) {
+            this.m = m;
+        }
+
+        public int getEfConstruct() {
+            return efConstruct;
+        }
+
+        public void setEfConstruct(int efConstruct) {
+            this.efConstruct = efConstruct;
+        }
+
+        public Quantization getQuantization() {
+            return quantization;
+        }
+
+        public void setQuantization(Quantization quantization) {
+            this.quantization = quantization;
+        }
+
+        public boolean isAlwaysRam() {
+            return alwaysRam;
+        }
+
+        public void setAlwaysRam(boolean alwaysRam) {
+            this.alwaysRam = alwaysRam;
+        }
+
+        public Integer getHnswEf() {
+            return hnswEf;
+        }
+
+        public void setHnswEf(Integer hnswEf) {
+            this.hnswEf = hnswEf;
+        }
+
+        public boolean isRescore() {
+            return rescore;
+        }
+
+        public void setRescore(boolean rescore) {
+            this.rescore = rescore;
+        }
+
+        public double getOversampling() {
+            return oversampling;
+        }
+
+        public void setOversampling(double oversampling) {
+            this.oversampling = oversampling;
+        }
+
+        /**
+         * Qdrant search {@code params} for this profile, or {@code null} when the server defaults apply.
+         */
+        public Map<String, Object> searchParams() {
+            Map<String, Object> params = new LinkedHashMap<>();
+            if (hnswEf != null) {
+                params.put("hnsw_ef", hnswEf);
+            }
+            if (quantization != Quantization.NONE) {
+                params.put("quantization", Map.of("ignore", false, "rescore", rescore, "oversampling", oversampling));
+            }
+            return params.isEmpty() ? null : params;
+        }
+    }
+
+    /**
+     * Matryoshka-style two-stage search: a renormalised prefix of each embedding is stored as a second
+     * named vector, searched first with a wider pool, and the survivors are rescored on the full vector.
+     */
+    public static class Truncation {
+
+        /**
+         * Prefix length stored next to the full vector; 0 keeps single-stage search.
+         */
+        private int dimensions;
+
+        /**
+         * Named vector holding the prefix; defaults to the full vector name with a {@code _short} suffix.
+         */
+        private String vectorName;
+
+        /**
+         * Multiplier on the limit for how many prefix candidates are rescored.
+         */
+        private int candidateMultiplier = 4;
+
+        public int getDimensions() {
+            return dimensions;
+        }
+
+        public void setDimensions(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        public String getVectorName() {
+            return vectorName;
+        }
+
+        public void setVectorName(String vectorName) {
+            this.vectorName = vectorName;
+        }
+
+        public int getCandidateMultiplier() {
+            return candidateMultiplier;
+        }
+
+        public void setCandidateMultiplier(int candidateMultiplier) {
+            this.candidateMultiplier = candidateMultiplier;
+        }
+
+        public boolean isEnabled() {
+            return dimensions > 0;
+        }
+
+        public String vectorName(String fullVectorName) {
+            return vectorName == null || vectorName.isBlank() ? fullVectorName + "_short" : vectorName;
+        }
+
+        /**
+         * First {@link #dimensions} components of {@code vector}, scaled back to unit length so cosine and
+         * dot-product scores on the prefix stay comparable.
+         */
+        public List<Double> prefix(List<Double> vector) {
+            int length = Math.min(dimensions, vector.size());
+            double norm = 0;
+            for (int i = 0; i < length; i++) {
+                double value = vector.get(i);
+                norm += value * value;
+            }
+            double scale = norm == 0 ? 0 : 1 / Math.sqrt(norm);
+            Double[] prefix = new Double[length];
+            for (int i = 0; i < length; i++) {
+                prefix[i] = vector.get(i) * scale;
+            }
+            return Arrays.asList(prefix);
+        }
+    }
+
+    /**
+     * Lexical weights stored next to the dense vector when {@code chat.rag.sparse.backend=qdrant}, so one
+     * query can prefetch both and let Qdrant fuse them.
+     */
+    public static class Sparse {
+
+        private String vectorName = "text_sparse";
+
+        /**
+         * Multiplier on the limit for how many candidates each prefetch contributes to the fusion.
+         */
+        private int candidateMultiplier = 3;
+
+        public String getVectorName() {
+            return vectorName;
+        }
+
+        public void setVectorName(String vectorName) {
+            this.vectorName = vectorName;
+        }
+
+        public int getCandidateMultiplier() {
+            return candidateMultiplier;
+        }
+
+        public void setCandidateMultiplier(int candidateMultiplier) {
+            this.candidateMultiplier = candidateMultiplier;
+        }
+    }
+}
@@ -2,29 +2,51 @@ package com.netcourier.chatbot.service.ingestion;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
 public class QdrantVectorStoreClient implements VectorStoreClient {
 
     private static final Logger log = LoggerFactory.getLogger(QdrantVectorStoreClient.class);
 
     private final WebClient qdrantWebClient;
-    private final String collection;
+    private final String vectorName;
+    private final QdrantCollectionProperties.Truncation truncation;
+    private final String sparseVectorName;
+    private final TenantPartitioning partitioning;
+    private final DocumentVectorIndex documentIndex;
 
+    @Autowired
     public QdrantVectorStoreClient(WebClient qdrantWebClient,
-                                   @Value("${chat.qdrant.collection:nc_chunks_v1}") String collection) {
+                                   @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
+                                   QdrantCollectionProperties collectionProperties,
+                                   TenantPartitioning partitioning,
+                                   DocumentVectorIndex documentIndex) {
         this.qdrantWebClient = qdrantWebClient;
-        this.collection = collection;
+        this.vectorName = vectorName;
+        this.truncation = collectionProperties.getTruncation();
+        this.sparseVectorName = collectionProperties.getSparse().getVectorName();
+        this.partitioning = partitioning;
+        this.documentIndex = documentIndex;
+    }
+
+    public QdrantVectorStoreClient(WebClient qdrantWebClient, String collection) {
+        this(qdrantWebClient, "text_embeddings", new QdrantCollectionProperties(),
+                TenantPartitioning.shared(collection, "nc_chunks"), null);
     }
 
     @Override
@@ -33,11 +55,28 @@ public class QdrantVectorStoreClient implements VectorStoreClient {
             return;
         }
         List<Point> points = chunks.stream()
-                .map(chunk -> new Point(chunk.id(), chunk.vector(), payloadFor(tenantId, docId, chunk)))
+                .map(chunk -> new Point(pointId(chunk.id()).toString(), vectorFor(chunk), payloadFor(tenantId, docId, chunk)))
                 .toList();
+        for (String target : partitioning.qdrantWriteCollections(tenantId)) {
+            upsert(target, points);
+        }
+        if (documentIndex != null) {
+            documentIndex.upsert(tenantId, docId, chunks);
+        }
+    }
+
+    /**
+     * Qdrant point ids must be integers or UUIDs, so both transports derive a name-based UUID from the chunk id; the
+     * chunk id itself is kept in the {@code chunkId} payload field.
+     */
+    public static UUID pointId(String chunkId) {
+        return UUID.nameUUIDFromBytes(chunkId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void upsert(String target, List<Point> points) {
         try {
             qdrantWebClient.put()
-                    .uri("/collections/{collection}/points", collection)
+                    .uri("/collections/{collection}/points?wait=true", target)
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(new UpsertRequest(points))
                     .retrieve()
@@ -54,6 +93,22 @@ public class QdrantVectorStoreClient implements VectorStoreClient {
         }
     }
 
+    /**
+     * Always the named form: {@link QdrantCollectionManager} creates collections with named vectors only, and
+     * Qdrant rejects an unnamed vector for them.
+     */
+    private Map<String, Object> vectorFor(EmbeddedChunk chunk) {
+        Map<String, Object> vectors = new HashMap<>();
+        vectors.put(vectorName, chunk.vector());
+        if (truncation.isEnabled()) {
+            vectors.put(truncation.vectorName(vectorName), truncation.prefix(chunk.vector()));
+        }
+        if (chunk.sparse() != null) {
+            vectors.put(sparseVectorName, chunk.sparse());
+        }
+        return vectors;
+    }
+
     private Map<String, Object> payloadFor(String tenantId, String docId, EmbeddedChunk chunk) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("tenantId", tenantId);
@@ -69,7 +124,7 @@ public class QdrantVectorStoreClient implements VectorStoreClient {
         return payload;
     }
 
-    private record Point(String id, List<Double> vector, Map<String, Object> payload) {}
+    private record Point(String id, Map<String, Object> vector, Map<String, Object> payload) {}
 
     private record UpsertRequest(List<Point> points) {}
 }
@@ -0,0 +1,288 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves a tenant between the shared and dedicated layouts of {@link TenantPartitioning} while it stays
+ * online: the target collection and index are prepared, writes start going to both layouts, existing
+ * points are scrolled across and documents reindexed, reads flip to the target, and the old copy is deleted.
+ * Each switch goes through {@link TenantPlacementStore}, and the copy starts only once every live instance is
+ * writing to both layouts; the old copy is deleted only once every live instance reads the target. A failure
+ * before the flip leaves reads where they were and stops the dual writes.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
+public class TenantMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantMigrationService.class);
+
+    private final WebClient qdrantWebClient;
+    private final WebClient openSearchWebClient;
+    private final TenantPartitioning partitioning;
+    private final TenantPlacementStore placementStore;
+    private final QdrantCollectionManager collectionManager;
+    private final OpenSearchIndexManager indexManager;
+    private final String qdrantTenantField;
+    private final String openSearchTenantField;
+    private final int batchSize;
+
+    @Autowired
+    public TenantMigrationService(WebClient qdrantWebClient,
+                                  WebClient openSearchWebClient,
+                                  TenantPartitioning partitioning,
+                                  TenantPlacementStore placementStore,
+                                  QdrantCollectionManager collectionManager,
+                                  ObjectProvider<OpenSearchIndexManager> indexManager,
+                                  @Value("${chat.qdrant.filters.tenant-field:tenantId}") String qdrantTenantField,
+                                  @Value("${chat.opensearch.tenant-field:tenantId}") String openSearchTenantField,
+                                  @Value("${chat.rag.partitioning.copy-batch-size:256}") int batchSize) {
+        this(qdrantWebClient, openSearchWebClient, partitioning, placementStore, collectionManager,
+                indexManager.getIfAvailable(), qdrantTenantField, openSearchTenantField, batchSize);
+    }
+
+    TenantMigrationService(WebClient qdrantWebClient,
+                           WebClient openSearchWebClient,
+                           TenantPartitioning partitioning,
+                           TenantPlacementStore placementStore,
+                           QdrantCollectionManager collectionManager,
+                           OpenSearchIndexManager indexManager,
+                           String qdrantTenantField,
+                           String openSearchTenantField,
+                           int batchSize) {
+        this.qdrantWebClient = qdrantWebClient;
+        this.openSearchWebClient = openSearchWebClient;
+        this.partitioning = partitioning;
+        this.placementStore = placementStore;
+        this.collectionManager = collectionManager;
+        this.indexManager = indexManager;
+        this.qdrantTenantField = qdrantTenantField;
+        this.openSearchTenantField = openSearchTenantField;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Loads the recorded placements, then makes sure every dedicated tenant has its collection and index before
+     * the first write arrives.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            placementStore.sync();
+            for (String tenantId : partitioning.dedicatedTenants()) {
+                prepare(tenantId, TenantPartitioning.Layout.DEDICATED, new ArrayList<>());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not prepare dedicated tenant partitions: {}", e.getMessage());
+        }
+    }
+
+    public PartitionStatus status(String tenantId) {
+        long chunks = countPoints(partitioning.qdrantCollection(tenantId), tenantId);
+        return new PartitionStatus(tenantId, partitioning.layout(tenantId), partitioning.migratingTo(tenantId),
+                chunks, partitioning.recommended(chunks));
+    }
+
+    public MigrationReport migrate(String tenantId, TenantPartitioning.Layout target) {
+        placementStore.sync();
+        TenantPartitioning.Layout source = partitioning.layout(tenantId);
+        partitioning.checkMigration(tenantId, target);
+        List<String> actions = new ArrayList<>();
+        prepare(tenantId, target, actions);
+        long revision = placementStore.record(tenantId, source, target);
+        actions.add("writing to both " + source + " and " + target);
+        long points;
+        long documents = 0;
+        try {
+            List<String> behind = placementStore.awaitInstances(revision);
+            if (!behind.isEmpty()) {
+                throw new IngestionException(HttpStatus.SERVICE_UNAVAILABLE, "Instances " + behind
+                        + " did not start writing tenant " + tenantId + " to both layouts");
+            }
+            points = copyPoints(tenantId, partitioning.qdrantCollection(tenantId, source), partitioning.qdrantCollection(tenantId, target));
+            actions.add("copied " + points + " points to " + partitioning.qdrantCollection(tenantId, target));
+            if (indexManager != null) {
+                documents = reindex(tenantId, partitioning.openSearchIndex(tenantId, source), partitioning.openSearchIndex(tenantId, target));
+                actions.add("reindexed " + documents + " documents into " + partitioning.openSearchIndex(tenantId, target));
+            }
+        } catch (RuntimeException e) {
+            abort(tenantId, source);
+            log.warn("Migration of tenant {} to {} failed; reads stay {}: {}", tenantId, target, source, e.getMessage());
+            throw e instanceof IngestionException ingestion
+                    ? ingestion
+                    : new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to migrate tenant " + tenantId, e);
+        }
+        revision = placementStore.record(tenantId, target, null);
+        actions.add("reads switched to " + target);
+        List<String> behind = placementStore.awaitInstances(revision);
+        if (behind.isEmpty()) {
+            cleanUp(tenantId, source, actions);
+        } else {
+            log.warn("Tenant {} was moved but instances {} still read its old {} copy; leaving it in place",
+                    tenantId, behind, source);
+            actions.add("old " + source + " copy left in place: instances " + behind + " have not switched reads");
+        }
+        actions.forEach(action -> log.info("Tenant {} partition: {}", tenantId, action));
+        return new MigrationReport(tenantId, source, target, points, documents, List.copyOf(actions));
+    }
+
+    private void abort(String tenantId, TenantPartitioning.Layout source) {
+        try {
+            placementStore.record(tenantId, source, null);
+        } catch (RuntimeException e) {
+            log.warn("Could not stop dual writes for tenant {}: {}", tenantId, e.getMessage());
+        }
+    }
+
+    private void prepare(String tenantId, TenantPartitioning.Layout target, List<String> actions) {
+        if (target != TenantPartitioning.Layout.DEDICATED) {
+            return;
+        }
+        actions.addAll(collectionManager.ensureCollection(partitioning.qdrantCollection(tenantId, target)).actions());
+        if (indexManager != null) {
+            actions.addAll(indexManager.ensureTenantIndex(partitioning.openSearchIndex(tenantId, target)).actions());
+        }
+    }
+
+    private long copyPoints(String tenantId, String from, String to) {
+        long copied = 0;
+        JsonNode offset = null;
+        do {
+            Map<String, Object> scroll = new LinkedHashMap<>();
+            scroll.put("filter", tenantFilter(tenantId));
+            scroll.put("limit", batchSize);
+            scroll.put("with_payload", true);
+            scroll.put("with_vector", true);
+            if (offset != null) {
+                scroll.put("offset", offset);
+            }
+            JsonNode page = send(qdrantWebClient.post().uri("/collections/{collection}/points/scroll", from), scroll,
+                    "scroll " + from).path("result");
+            Set<JsonNode> present = existingIds(to, page.path("points"));
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (JsonNode point : page.path("points")) {
+                if (!present.contains(point.path("id"))) {
+                    points.add(Map.of("id", point.path("id"), "vector", point.path("vector"), "payload", point.path("payload")));
+                }
+            }
+            if (!points.isEmpty()) {
+                send(qdrantWebClient.put().uri("/collections/{collection}/points?wait=true", to), Map.of("points", points),
+                        "upsert into " + to);
+                copied += points.size();
+            }
+            offset = page.path("next_page_offset");
+        } while (offset != null && !offset.isNull() && !offset.isMissingNode());
+        return copied;
+    }
+
+    /**
+     * Ids of the scrolled points the dual writes already put in the target. Those copies are newer than the ones
+     * just scrolled from the source, so they are left alone rather than overwritten.
+     */
+    private Set<JsonNode> existingIds(String collection, JsonNode points) {
+        List<JsonNode> ids = new ArrayList<>();
+        points.forEach(point -> ids.add(point.path("id")));
+        Set<JsonNode> present = new HashSet<>();
+        if (ids.isEmpty()) {
+            return present;
+        }
+        Map<String, Object> lookup = Map.of("ids", ids, "with_payload", false, "with_vector", false);
+        send(qdrantWebClient.post().uri("/collections/{collection}/points", collection), lookup,
+                "look up points in " + collection).path("result").forEach(point -> present.add(point.path("id")));
+        return present;
+    }
+
+    /**
+     * Documents already written to the target by the dual writes carry a newer external version than the
+     * source copy, so the reindex only creates missing ones and refreshes older ones.
+     */
+    private long reindex(String tenantId, String from, String to) {
+        Map<String, Object> body = Map.of(
+                "conflicts", "proceed",
+                "source", Map.of("index", from, "query", Map.of("term", Map.of(openSearchTenantField, tenantId))),
+                "dest", Map.of("index", to, "version_type", "external"));
+        JsonNode result = send(openSearchWebClient.post().uri("/_reindex?wait_for_completion=true"), body, "reindex into " + to);
+        send(openSearchWebClient.post().uri("/{index}/_refresh", to), Map.of(), "refresh " + to);
+        return result.path("created").asLong() + result.path("updated").asLong();
+    }
+
+    private void cleanUp(String tenantId, TenantPartitioning.Layout source, List<String> actions) {
+        String collection = partitioning.qdrantCollection(tenantId, source);
+        String index = partitioning.openSearchIndex(tenantId, source);
+        try {
+            if (source == TenantPartitioning.Layout.DEDICATED) {
+                qdrantWebClient.delete().uri("/collections/{collection}", collection).retrieve().bodyToMono(Void.class).block();
+                if (indexManager != null) {
+                    openSearchWebClient.delete().uri("/{index}", index).retrieve().bodyToMono(Void.class).block();
+                }
+                actions.add("dropped " + collection + (indexManager != null ? " and " + index : ""));
+            } else {
+                send(qdrantWebClient.post().uri("/collections/{collection}/points/delete?wait=true", collection),
+                        Map.of("filter", tenantFilter(tenantId)), "delete points from " + collection);
+                if (indexManager != null) {
+                    send(openSearchWebClient.post().uri("/{index}/_delete_by_query?conflicts=proceed", index),
+                            Map.of("query", Map.of("term", Map.of(openSearchTenantField, tenantId))), "delete from " + index);
+                }
+                actions.add("deleted the tenant's chunks from " + collection + (indexManager != null ? " and " + index : ""));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Tenant {} was moved but its old {} copy could not be removed: {}", tenantId, source, e.getMessage());
+            actions.add("old " + source + " copy left in place: " + e.getMessage());
+        }
+    }
+
+    private long countPoints(String collection, String tenantId) {
+        JsonNode response = send(qdrantWebClient.post().uri("/collections/{collection}/points/count", collection),
+                Map.of("filter", tenantFilter(tenantId), "exact", true), "count points in " + collection);
+        return response.path("result").path("count").asLong();
+    }
+
+    private Map<String, Object> tenantFilter(String tenantId) {
+        return Map.of("must", List.of(Map.of("key", qdrantTenantField, "match", Map.of("value", tenantId))));
+    }
+
+    private JsonNode send(WebClient.RequestBodySpec request, Object body, String action) {
+        try {
+            JsonNode response = request.contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block();
+            return response == null ? MissingNode.getInstance() : response;
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to " + action, e);
+        }
+    }
+
+    public record PartitionStatus(String tenantId,
+                                  TenantPartitioning.Layout layout,
+                                  TenantPartitioning.Layout migratingTo,
+                                  long chunks,
+                                  TenantPartitioning.Layout recommended) {}
+
+    public record MigrationReport(String tenantId,
+                                  TenantPartitioning.Layout from,
+                                  TenantPartitioning.Layout to,
+                                  long pointsCopied,
+                                  long documentsCopied,
+                                  List<String> actions) {}
+}
@@ -0,0 +1,160 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides where a tenant's chunks live. Shared tenants sit in the common Qdrant collection and OpenSearch
+ * alias and are isolated by filters; dedicated tenants get their own collection ({@code <collection>-t-<tenant>})
+ * and index ({@code <index>-t-<tenant>}). GLOBAL content is always shared. While {@link TenantMigrationService}
+ * moves a tenant, writes go to both layouts and reads stay on the old one until the copy is complete. Tenants
+ * listed in {@code dedicated-tenants} start out dedicated; every other placement comes from
+ * {@link TenantPlacementStore}, which keeps all instances in step.
+ */
+@Component
+public class TenantPartitioning {
+
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+
+    private final String collection;
+    private final String indexAlias;
+    private final long sizeThreshold;
+    private final Map<String, Placement> placements = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TenantPartitioning(@Value("${chat.qdrant.collection:nc_chunks_v1}") String collection,
+                              @Value("${chat.opensearch.index:nc_chunks}") String indexAlias,
+                              @Value("${chat.rag.partitioning.dedicated-tenants:}") Set<String> dedicatedTenants,
+                              @Value("${chat.rag.partitioning.size-threshold:0}") long sizeThreshold) {
+        this.collection = collection;
+        this.indexAlias = indexAlias;
+        this.sizeThreshold = sizeThreshold;
+        dedicatedTenants.stream()
+                .filter(tenant -> !tenant.isBlank() && !GLOBAL_TENANT_ID.equals(tenant))
+                .forEach(tenant -> placements.put(tenant, new Placement(Layout.DEDICATED, null)));
+    }
+
+    public static TenantPartitioning shared(String collection, String indexAlias) {
+        return new TenantPartitioning(collection, indexAlias, Set.of(), 0);
+    }
+
+    public Layout layout(String tenantId) {
+        return placement(tenantId).read();
+    }
+
+    public Layout migratingTo(String tenantId) {
+        return placement(tenantId).migratingTo();
+    }
+
+    public Set<String> dedicatedTenants() {
+        Set<String> tenants = new LinkedHashSet<>();
+        placements.forEach((tenant, placement) -> {
+            if (placement.read() == Layout.DEDICATED || placement.migratingTo() == Layout.DEDICATED) {
+                tenants.add(tenant);
+            }
+        });
+        return tenants;
+    }
+
+    /**
+     * Layout a tenant of the given size belongs in; without a threshold only explicit placement counts.
+     */
+    public Layout recommended(long chunks) {
+        return sizeThreshold > 0 && chunks >= sizeThreshold ? Layout.DEDICATED : Layout.SHARED;
+    }
+
+    public String qdrantCollection(String tenantId) {
+        return qdrantCollection(tenantId, layout(tenantId));
+    }
+
+    public String qdrantCollection(String tenantId, Layout layout) {
+        return layout == Layout.DEDICATED ? collection + "-t-" + slug(tenantId) : collection;
+    }
+
+    public List<String> qdrantWriteCollections(String tenantId) {
+        return writeLayouts(tenantId).stream().map(layout -> qdrantCollection(tenantId, layout)).toList();
+    }
+
+    public String openSearchIndex(String tenantId) {
+        return openSearchIndex(tenantId, layout(tenantId));
+    }
+
+    public String openSearchIndex(String tenantId, Layout layout) {
+        return layout == Layout.DEDICATED ? indexAlias + "-t-" + slug(tenantId) : indexAlias;
+    }
+
+    public List<String> openSearchWriteIndices(String tenantId) {
+        return writeLayouts(tenantId).stream().map(layout -> openSearchIndex(tenantId, layout)).toList();
+    }
+
+    /**
+     * Replaces this instance's view of a tenant with a placement recorded by {@link TenantPlacementStore}.
+     */
+    public void apply(String tenantId, Layout read, Layout migratingTo) {
+        if (tenantId != null && !GLOBAL_TENANT_ID.equals(tenantId)) {
+            placements.put(tenantId, new Placement(read, migratingTo));
+        }
+    }
+
+    /**
+     * Rejects moves that cannot start: GLOBAL, a tenant already in {@code target}, or one already moving.
+     */
+    public void checkMigration(String tenantId, Layout target) {
+        if (tenantId == null || tenantId.isBlank() || GLOBAL_TENANT_ID.equals(tenantId)) {
+            throw new IngestionException(HttpStatus.BAD_REQUEST, "Tenant " + tenantId + " cannot be repartitioned");
+        }
+        check(tenantId, placement(tenantId), target);
+    }
+
+    private static void check(String tenantId, Placement placement, Layout target) {
+        if (placement.migratingTo() != null) {
+            throw new IngestionException(HttpStatus.CONFLICT, "Tenant " + tenantId + " is already being migrated");
+        }
+        if (placement.read() == target) {
+            throw new IngestionException(HttpStatus.CONFLICT, "Tenant " + tenantId + " is already " + target);
+        }
+    }
+
+    private Set<Layout> writeLayouts(String tenantId) {
+        Placement placement = placement(tenantId);
+        return placement.migratingTo() == null
+                ? Set.of(placement.read())
+                : new LinkedHashSet<>(List.of(placement.read(), placement.migratingTo()));
+    }
+
+    private Placement placement(String tenantId) {
+        Placement placement = tenantId == null ? null : placements.get(tenantId);
+        return placement == null ? new Placement(Layout.SHARED, null) : placement;
+    }
+
+    /**
+     * Lower-case form safe for both backends' naming rules; ids that had to be altered get a hash suffix so
+     * that, say, {@code Acme} and {@code acme} do not share a collection.
+     */
+    static String slug(String tenantId) {
+        String slug = tenantId.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "-");
+        if (slug.equals(tenantId)) {
+            return slug;
+        }
+        String hash = UUID.nameUUIDFromBytes(tenantId.getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+        return slug + "-" + hash;
+    }
+
+    public enum Layout {
+        SHARED,
+        DEDICATED
+    }
+
+    private record Placement(Layout read, Layout migratingTo) {}
+}
@@ -0,0 +1,155 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.netcourier.chatbot.persistence.entity.PartitionInstanceEntity;
+import com.netcourier.chatbot.persistence.entity.TenantPlacementEntity;
+import com.netcourier.chatbot.persistence.repository.PartitionInstanceRepository;
+import com.netcourier.chatbot.persistence.repository.TenantPlacementRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shares tenant placement between API instances through the {@code tenant_placements} table. Every change is a
+ * new row, so the highest row id is a revision all instances agree on. Each instance replays the rows past the
+ * one it last applied into {@link TenantPartitioning} and reports that revision with a heartbeat in
+ * {@code partition_instances}, which lets a migration wait until every live instance has seen a change before
+ * relying on it.
+ */
+@Component
+public class TenantPlacementStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantPlacementStore.class);
+
+    private final TenantPlacementRepository placementRepository;
+    private final PartitionInstanceRepository instanceRepository;
+    private final TenantPartitioning partitioning;
+    private final IngestionEpochs ingestionEpochs;
+    private final Duration syncInterval;
+    private final Duration instanceTtl;
+    private final Duration switchTimeout;
+    private final String instanceId = UUID.randomUUID().toString();
+    private long applied;
+
+    @Autowired
+    public TenantPlacementStore(TenantPlacementRepository placementRepository,
+                                PartitionInstanceRepository instanceRepository,
+                                TenantPartitioning partitioning,
+                                IngestionEpochs ingestionEpochs,
+                                @Value("${chat.rag.partitioning.sync-interval-ms:2000}") long syncIntervalMillis,
+                                @Value("${chat.rag.partitioning.instance-ttl-seconds:30}") long instanceTtlSeconds,
+                                @Value("${chat.rag.partitioning.switch-timeout-seconds:60}") long switchTimeoutSeconds) {
+        this(placementRepository, instanceRepository, partitioning, ingestionEpochs, Duration.ofMillis(syncIntervalMillis),
+                Duration.ofSeconds(instanceTtlSeconds), Duration.ofSeconds(switchTimeoutSeconds));
+    }
+
+    TenantPlacementStore(TenantPlacementRepository placementRepository,
+                         PartitionInstanceRepository instanceRepository,
+                         TenantPartitioning partitioning,
+                         IngestionEpochs ingestionEpochs,
+                         Duration syncInterval,
+                         Duration instanceTtl,
+                         Duration switchTimeout) {
+        this.placementRepository = placementRepository;
+        this.instanceRepository = instanceRepository;
+        this.partitioning = partitioning;
+        this.ingestionEpochs = ingestionEpochs;
+        this.syncInterval = syncInterval;
+        this.instanceTtl = instanceTtl;
+        this.switchTimeout = switchTimeout;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.rag.partitioning.sync-interval-ms:2000}",
+            initialDelayString = "${chat.rag.partitioning.sync-interval-ms:2000}")
+    public void refresh() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh tenant placements: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies placement changes recorded since the last call and reports the revision reached. A tenant whose
+     * read layout changes gets its ingestion epoch advanced, so results cached from the old layout are dropped.
+     */
+    public synchronized long sync() {
+        for (TenantPlacementEntity row : placementRepository.findByIdGreaterThanOrderByIdAsc(applied)) {
+            TenantPartitioning.Layout read = TenantPartitioning.Layout.valueOf(row.getReadLayout());
+            TenantPartitioning.Layout migratingTo = row.getMigratingTo() == null
+                    ? null
+                    : TenantPartitioning.Layout.valueOf(row.getMigratingTo());
+            TenantPartitioning.Layout before = partitioning.layout(row.getTenantId());
+            partitioning.apply(row.getTenantId(), read, migratingTo);
+            if (before != read) {
+                ingestionEpochs.advance(row.getTenantId());
+            }
+            applied = row.getId();
+        }
+        PartitionInstanceEntity instance = instanceRepository.findById(instanceId)
+                .orElseGet(() -> new PartitionInstanceEntity(instanceId));
+        instance.setAppliedRevision(applied);
+        instance.setHeartbeatAt(OffsetDateTime.now());
+        instanceRepository.save(instance);
+        return applied;
+    }
+
+    /**
+     * Records a tenant's new placement, applies it on this instance and returns its revision.
+     */
+    public long record(String tenantId, TenantPartitioning.Layout read, TenantPartitioning.Layout migratingTo) {
+        TenantPlacementEntity saved = placementRepository.save(new TenantPlacementEntity(tenantId, read.name(),
+                migratingTo == null ? null : migratingTo.name()));
+        sync();
+        return saved.getId();
+    }
+
+    /**
+     * Waits up to {@code switch-timeout-seconds} for every instance that sent a heartbeat within
+     * {@code instance-ttl-seconds} to apply {@code revision}. Returns the instances still behind, empty once all
+     * of them caught up.
+     */
+    public List<String> awaitInstances(long revision) {
+        long deadline = System.nanoTime() + switchTimeout.toNanos();
+        while (true) {
+            sync();
+            List<String> behind = instanceRepository.findByHeartbeatAtAfter(OffsetDateTime.now().minus(instanceTtl)).stream()
+                    .filter(instance -> instance.getAppliedRevision() < revision)
+                    .map(PartitionInstanceEntity::getInstanceId)
+                    .toList();
+            if (behind.isEmpty() || System.nanoTime() >= deadline) {
+                return behind;
+            }
+            try {
+                Thread.sleep(syncInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return behind;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            instanceRepository.deleteById(instanceId);
+        } catch (RuntimeException e) {
+            log.debug("Could not remove partition instance {}: {}", instanceId, e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.netcourier.chatbot.service.ingestion;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -16,9 +18,12 @@ public class WebClientEmbeddingsClient implements EmbeddingsClient {
     private static final Logger log = LoggerFactory.getLogger(WebClientEmbeddingsClient.class);
 
     private final WebClient embeddingsWebClient;
+    private final boolean sparse;
 
-    public WebClientEmbeddingsClient(WebClient embeddingsWebClient) {
+    public WebClientEmbeddingsClient(WebClient embeddingsWebClient,
+                                     @Value("${chat.rag.sparse.backend:opensearch}") String sparseBackend) {
         this.embeddingsWebClient = embeddingsWebClient;
+        this.sparse = "qdrant".equalsIgnoreCase(sparseBackend);
     }
 
     @Override
@@ -30,7 +35,7 @@ public class WebClientEmbeddingsClient implements EmbeddingsClient {
             EmbedResponse response = embeddingsWebClient.post()
                     .uri("/embed")
                     .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(new EmbedRequest(texts))
+                    .bodyValue(new EmbedRequest(texts, sparse ? Boolean.TRUE : null))
                     .retrieve()
                     .bodyToMono(EmbedResponse.class)
                     .onErrorResume(throwable -> {
@@ -41,7 +46,13 @@ public class WebClientEmbeddingsClient implements EmbeddingsClient {
             if (response == null || response.vectors() == null || response.vectors().isEmpty()) {
                 throw new IngestionException(HttpStatus.BAD_GATEWAY, "Embeddings service returned no vectors");
             }
-            return new EmbeddingBatch(response.vectors(), response.model(), response.dimensions());
+            if (sparse && (response.sparse() == null || response.sparse().size() != response.vectors().size())) {
+                log.error("Embeddings service returned no lexical weights although chat.rag.sparse.backend=qdrant; "
+                        + "it needs the FlagEmbedding extra and a bge-m3 model");
+                throw new IngestionException(HttpStatus.BAD_GATEWAY, "Embeddings service returned no lexical weights");
+            }
+            return new EmbeddingBatch(response.vectors(), response.model(), response.dimensions(),
+                    response.sparse() == null ? List.of() : response.sparse());
         } catch (IngestionException ex) {
             throw ex;
         } catch (Exception e) {
@@ -49,7 +60,8 @@ public class WebClientEmbeddingsClient implements EmbeddingsClient {
         }
     }
 
-    private record EmbedRequest(List<String> texts) {}
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record EmbedRequest(List<String> texts, Boolean sparse) {}
 
-    private record EmbedResponse(List<List<Double>> vectors, String model, int dimensions) {}
+    private record EmbedResponse(List<List<Double>> vectors, String model, int dimensions, List<SparseVector> sparse) {}
 }
@@ -7,6 +7,8 @@ import com.netcourier.chatbot.model.Citation;
 import com.netcourier.chatbot.model.RetrievedChunk;
 import com.netcourier.chatbot.model.ToolCallResult;
 import com.netcourier.chatbot.model.WorkflowResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -27,14 +29,19 @@ public class GuardedOrchestrationService implements OrchestrationService {
     private final QueryClassifier classifier;
     private final TokenBudgetGuard tokenGuard;
     private final int maxCitations;
+    private final DistributionSummary contextTokens;
 
     public GuardedOrchestrationService(LlmClient llmClient,
                                        @Value("${chat.orchestration.max-context-tokens:2048}") int maxContextTokens,
-                                       @Value("${chat.orchestration.max-citations:5}") int maxCitations) {
+                                       @Value("${chat.orchestration.max-citations:5}") int maxCitations,
+                                       MeterRegistry meterRegistry) {
         this.llmClient = llmClient;
         this.classifier = new QueryClassifier();
         this.tokenGuard = new TokenBudgetGuard(maxContextTokens);
         this.maxCitations = Math.max(1, maxCitations);
+        this.contextTokens = DistributionSummary.builder("chat.orchestration.context.tokens")
+                .baseUnit("tokens")
+                .register(meterRegistry);
     }
 
     @Override
@@ -47,6 +54,9 @@ public class GuardedOrchestrationService implements OrchestrationService {
                 .sorted(Comparator.comparingDouble(RetrievedChunk::score).reversed())
                 .toList();
         TokenBudgetGuard.GuardedChunks guardedChunks = tokenGuard.enforce(sorted);
+        contextTokens.record(guardedChunks.chunks().stream()
+                .mapToInt(chunk -> TokenBudgetGuard.estimateTokens(chunk.text()))
+                .sum());
         Map<String, Object> workflowContext = buildWorkflowContext(workflowResult);
         String userPrompt = latestUserUtterance(request.turns());
 
@@ -32,7 +32,7 @@ public class TokenBudgetGuard {
         return new GuardedChunks(List.copyOf(accepted), truncated);
     }
 
-    private int estimateTokens(String text) {
+    public static int estimateTokens(String text) {
         if (text == null || text.isBlank()) {
             return 0;
         }
@@ -0,0 +1,104 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Query-dependent retrieval depth. Retrievers are first asked for {@code initial-k} hits per scope and asked
+ * again for {@code max-k} only when the k-th hit still scores within {@code flat-ratio} of the leader, i.e.
+ * nothing separates the head of the list from what lies beyond it. Each retriever's hits are then cut at the
+ * first step down between neighbours of at least {@code gap-ratio} × the leading score, keeping
+ * {@code min-results}. The cut runs on the retriever's own scores before fusion: under RANK normalisation a
+ * fused score depends only on rank, so a fused list has no gaps to find.
+ */
+@Component
+public class AdaptiveTopK {
+
+    private final boolean enabled;
+    private final int initialK;
+    private final int maxK;
+    private final int minResults;
+    private final double flatRatio;
+    private final double gapRatio;
+    private final MeterRegistry meterRegistry;
+    private final Counter widenedCounter;
+
+    public AdaptiveTopK(@Value("${chat.rag.adaptive.enabled:false}") boolean enabled,
+                        @Value("${chat.rag.adaptive.initial-k:4}") int initialK,
+                        @Value("${chat.rag.adaptive.max-k:16}") int maxK,
+                        @Value("${chat.rag.adaptive.min-results:2}") int minResults,
+                        @Value("${chat.rag.adaptive.flat-ratio:0.85}") double flatRatio,
+                        @Value("${chat.rag.adaptive.gap-ratio:0.4}") double gapRatio,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.initialK = Math.max(1, initialK);
+        this.maxK = Math.max(this.initialK, maxK);
+        this.minResults = Math.max(1, minResults);
+        this.flatRatio = flatRatio;
+        this.gapRatio = gapRatio;
+        this.meterRegistry = meterRegistry;
+        this.widenedCounter = meterRegistry.counter("chat.rag.adaptive.widened");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int initialK() {
+        return initialK;
+    }
+
+    public int maxK() {
+        return maxK;
+    }
+
+    /**
+     * Whether a retriever asked for {@code k} hits should be asked again for {@link #maxK()}. Hits are sorted
+     * best first; fewer than {@code k} of them means the scopes are exhausted and widening finds nothing new.
+     */
+    public boolean shouldWiden(List<RetrievedChunk> hits, int k) {
+        if (k >= maxK || hits.size() < k) {
+            return false;
+        }
+        double leader = hits.getFirst().score();
+        return leader > 0d && hits.get(k - 1).score() >= leader * flatRatio;
+    }
+
+    public void recordK(String retriever, int k, boolean widened) {
+        if (widened) {
+            widenedCounter.increment();
+        }
+        DistributionSummary.builder("chat.rag.adaptive.k")
+                .tag("retriever", retriever)
+                .register(meterRegistry)
+                .record(k);
+    }
+
+    /**
+     * Cuts one retriever's hits, sorted best first, at the first sharp drop in its raw scores.
+     */
+    public List<RetrievedChunk> cut(String retriever, List<RetrievedChunk> hits) {
+        int keep = hits.size();
+        if (keep > minResults && hits.getFirst().score() > 0d) {
+            double gap = hits.getFirst().score() * gapRatio;
+            for (int i = 1; i < hits.size(); i++) {
+                if (hits.get(i - 1).score() - hits.get(i).score() >= gap) {
+                    keep = Math.max(i, minResults);
+                    break;
+                }
+            }
+        }
+        DistributionSummary.builder("chat.rag.adaptive.results")
+                .baseUnit("chunks")
+                .tag("retriever", retriever)
+                .register(meterRegistry)
+                .record(keep);
+        return keep == hits.size() ? hits : hits.subList(0, keep);
+    }
+}
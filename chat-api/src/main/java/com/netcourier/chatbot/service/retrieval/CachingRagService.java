@@ -0,0 +1,98 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.IngestionEpochs;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Primary
+public class CachingRagService implements RagService {
+
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+
+    private final RagService delegate;
+    private final IngestionEpochs ingestionEpochs;
+    private final RetrievalCache cache;
+    private final boolean enabled;
+    private final ConversationWorkingSet workingSet;
+
+    @Autowired
+    public CachingRagService(HybridRagService delegate,
+                             IngestionEpochs ingestionEpochs,
+                             ConversationWorkingSet workingSet,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.rag.cache.enabled:true}") boolean enabled,
+                             @Value("${chat.rag.cache.max-bytes:33554432}") long maxBytes,
+                             @Value("${chat.rag.cache.ttl-seconds:600}") long ttlSeconds,
+                             @Value("${chat.rag.cache.empty-ttl-seconds:30}") long emptyTtlSeconds) {
+        this(delegate, ingestionEpochs, enabled, new RetrievalCache(
+                maxBytes,
+                Duration.ofSeconds(Math.max(0, ttlSeconds)),
+                Duration.ofSeconds(Math.max(0, emptyTtlSeconds)),
+                Clock.systemUTC(),
+                meterRegistry), workingSet);
+    }
+
+    CachingRagService(RagService delegate, IngestionEpochs ingestionEpochs, boolean enabled, RetrievalCache cache) {
+        this(delegate, ingestionEpochs, enabled, cache, null);
+    }
+
+    CachingRagService(RagService delegate,
+                      IngestionEpochs ingestionEpochs,
+                      boolean enabled,
+                      RetrievalCache cache,
+                      ConversationWorkingSet workingSet) {
+        this.delegate = delegate;
+        this.ingestionEpochs = ingestionEpochs;
+        this.enabled = enabled;
+        this.cache = cache;
+        this.workingSet = workingSet != null && workingSet.isEnabled() ? workingSet : null;
+    }
+
+    /**
+     * The exact-query cache is consulted first, then the conversation's working set, and only then the backends.
+     */
+    @Override
+    public List<RetrievedChunk> retrieve(ChatRequest request, String intent) {
+        if (!enabled && workingSet == null) {
+            return delegate.retrieve(request, intent);
+        }
+        RetrievalCache.Key key = RetrievalCache.Key.of(request, intent);
+        long tenantEpoch = ingestionEpochs.current(request.tenantId());
+        long globalEpoch = ingestionEpochs.current(GLOBAL_TENANT_ID);
+        if (enabled) {
+            Optional<List<RetrievedChunk>> cached = cache.get(key, tenantEpoch, globalEpoch);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        QueryEmbedding queryEmbedding = null;
+        if (workingSet != null) {
+            ConversationWorkingSet.Lookup local = workingSet.lookup(request, tenantEpoch, globalEpoch);
+            if (local.hit()) {
+                return local.hits();
+            }
+            queryEmbedding = local.queryEmbedding();
+        }
+        long start = System.nanoTime();
+        Retrieval retrieval = delegate.retrieveWithStatus(request, intent, queryEmbedding);
+        List<RetrievedChunk> chunks = retrieval.chunks();
+        if (workingSet != null && !retrieval.degraded()) {
+            workingSet.record(request, chunks, tenantEpoch, globalEpoch, System.nanoTime() - start);
+        }
+        if (enabled) {
+            cache.put(key, chunks, tenantEpoch, globalEpoch, retrieval.degraded());
+        }
+        return chunks;
+    }
+}
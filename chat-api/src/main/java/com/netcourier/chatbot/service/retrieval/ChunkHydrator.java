@@ -0,0 +1,24 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up chunk text for candidates that a retriever returned with a projected payload (ids, scores and
+ * titles only). {@link HybridRagService} calls it once per source for the fused candidates it keeps.
+ */
+public interface ChunkHydrator {
+
+    /**
+     * The {@code source} value on the chunks this hydrator can fill in.
+     */
+    String source();
+
+    /**
+     * Text keyed by chunk id; ids that are not found are simply absent from the map. The tenant is the one
+     * the chunks were retrieved for, so the lookup covers its partition as well as the GLOBAL corpus.
+     */
+    Mono<Map<String, String>> fetchText(String tenantId, List<String> chunkIds);
+}
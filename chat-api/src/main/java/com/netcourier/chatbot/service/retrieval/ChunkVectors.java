@@ -0,0 +1,19 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the stored embeddings of chunks by id, so {@link ConversationWorkingSet} can score follow-ups against
+ * the chunks a retrieval returned without sending their text to the embeddings service again.
+ */
+public interface ChunkVectors {
+
+    /**
+     * Vectors keyed by chunk id; ids that are not found are simply absent from the map. The lookup covers the
+     * tenant's partition as well as the GLOBAL corpus.
+     */
+    Mono<Map<String, List<Double>>> fetchVectors(String tenantId, List<String> chunkIds);
+}
@@ -0,0 +1,367 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.retrieval.vector.VectorScorer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chunks recently retrieved in a conversation, with their embeddings, so that a follow-up turn can be answered
+ * from what the previous turns already found. A follow-up query is embedded and scored against the working set;
+ * when at least {@code min-hits} chunks reach {@code min-similarity} they are served without asking the backends.
+ * On a miss the query embedding is handed on to the dense retriever, so the lookup costs no extra embeddings call.
+ * Chunks take their stored vectors from the dense backend off the request path after a backend retrieval (only
+ * those it cannot find are embedded), and a working set is only used by the same tenant, user and roles, under
+ * the ingestion epochs it was filled in.
+ */
+@Component
+public class ConversationWorkingSet {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationWorkingSet.class);
+
+    private final EmbeddingsClient embeddingsClient;
+    private final ChunkVectors chunkVectors;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int maxChunks;
+    private final int maxConversations;
+    private final double minSimilarity;
+    private final int minHits;
+    private final int resultLimit;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final VectorScorer scorer = VectorScorer.instance();
+    private final Map<String, WorkingSet> conversations = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final DistributionSummary savedMillis;
+    private final DistributionSummary missMillis;
+    private volatile double retrievalMillis;
+
+    @Autowired
+    public ConversationWorkingSet(EmbeddingsClient embeddingsClient,
+                                  ObjectProvider<ChunkVectors> chunkVectors,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${chat.rag.working-set.enabled:false}") boolean enabled,
+                                  @Value("${chat.rag.working-set.ttl-seconds:900}") long ttlSeconds,
+                                  @Value("${chat.rag.working-set.max-chunks:24}") int maxChunks,
+                                  @Value("${chat.rag.working-set.max-conversations:10000}") int maxConversations,
+                                  @Value("${chat.rag.working-set.min-similarity:0.75}") double minSimilarity,
+                                  @Value("${chat.rag.working-set.min-hits:2}") int minHits,
+                                  @Value("${chat.rag.hybrid.limit:5}") int resultLimit) {
+        this(embeddingsClient, chunkVectors.getIfUnique(), meterRegistry, enabled, Duration.ofSeconds(Math.max(0, ttlSeconds)),
+                maxChunks, maxConversations, minSimilarity, minHits, resultLimit, Clock.systemUTC(), Schedulers.boundedElastic());
+    }
+
+    ConversationWorkingSet(EmbeddingsClient embeddingsClient,
+                           MeterRegistry meterRegistry,
+                           boolean enabled,
+                           Duration ttl,
+                           int maxChunks,
+                           int maxConversations,
+                           double minSimilarity,
+                           int minHits,
+                           int resultLimit,
+                           Clock clock,
+                           Scheduler scheduler) {
+        this(embeddingsClient, null, meterRegistry, enabled, ttl, maxChunks, maxConversations, minSimilarity, minHits,
+                resultLimit, clock, scheduler);
+    }
+
+    ConversationWorkingSet(EmbeddingsClient embeddingsClient,
+                           ChunkVectors chunkVectors,
+                           MeterRegistry meterRegistry,
+                           boolean enabled,
+                           Duration ttl,
+                           int maxChunks,
+                           int maxConversations,
+                           double minSimilarity,
+                           int minHits,
+                           int resultLimit,
+                           Clock clock,
+                           Scheduler scheduler) {
+        this.embeddingsClient = embeddingsClient;
+        this.chunkVectors = chunkVectors;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxChunks = Math.max(1, maxChunks);
+        this.maxConversations = Math.max(1, maxConversations);
+        this.minSimilarity = minSimilarity;
+        this.minHits = Math.max(1, minHits);
+        this.resultLimit = Math.max(1, resultLimit);
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.hitCounter = meterRegistry.counter("chat.rag.working-set.lookups", "outcome", "hit");
+        this.missCounter = meterRegistry.counter("chat.rag.working-set.lookups", "outcome", "miss");
+        this.savedMillis = DistributionSummary.builder("chat.rag.working-set.saved")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.missMillis = DistributionSummary.builder("chat.rag.working-set.miss-cost")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("chat.rag.working-set.conversations", List.of(), conversations);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Chunks from the conversation's working set that answer the latest turn, best first. On a miss the result
+     * carries the query embedding when one was computed, for the caller to pass on to the backends.
+     */
+    public Lookup lookup(ChatRequest request, long tenantEpoch, long globalEpoch) {
+        WorkingSet workingSet = request.conversationId() == null ? null : conversations.get(request.conversationId());
+        String query = query(request);
+        if (workingSet == null || query == null || !workingSet.usableBy(request, tenantEpoch, globalEpoch, clock.millis())) {
+            return Lookup.MISS;
+        }
+        long start = System.nanoTime();
+        List<Embedded> candidates = workingSet.embedded();
+        if (candidates.size() < minHits) {
+            return miss(start, null);
+        }
+        EmbeddingsClient.EmbeddingBatch embedding;
+        try {
+            embedding = embeddingsClient.embed(List.of(query));
+        } catch (Exception e) {
+            log.warn("Failed to embed follow-up query for the working set: {}", e.getMessage());
+            return miss(start, null);
+        }
+        QueryEmbedding queryEmbedding = new QueryEmbedding(query, embedding);
+        float[] queryVector = VectorScorer.normalise(embedding.vectors().getFirst());
+        List<RetrievedChunk> hits = candidates.stream()
+                .filter(candidate -> candidate.vector().length == queryVector.length)
+                .map(candidate -> new Scored(candidate.chunk(), scorer.dot(queryVector, candidate.vector())))
+                .filter(candidate -> candidate.similarity() >= minSimilarity)
+                .sorted(Comparator.comparingDouble(Scored::similarity).reversed())
+                .limit(resultLimit)
+                .map(candidate -> candidate.chunk().withScore(candidate.similarity()))
+                .toList();
+        if (hits.size() < minHits) {
+            return miss(start, queryEmbedding);
+        }
+        workingSet.touch(clock.millis());
+        hitCounter.increment();
+        savedMillis.record(Math.max(0d, retrievalMillis - (System.nanoTime() - start) / 1_000_000d));
+        return new Lookup(hits, queryEmbedding);
+    }
+
+    /**
+     * A miss adds its own latency to the backend retrieval that follows, so it is recorded as a cost next to
+     * {@code chat.rag.working-set.saved}.
+     */
+    private Lookup miss(long start, QueryEmbedding queryEmbedding) {
+        missCounter.increment();
+        missMillis.record((System.nanoTime() - start) / 1_000_000d);
+        return queryEmbedding == null ? Lookup.MISS : new Lookup(null, queryEmbedding);
+    }
+
+    /**
+     * Adds chunks a backend retrieval returned to the conversation's working set. Their embeddings are computed
+     * in the background; until then they do not take part in lookups.
+     */
+    public void record(ChatRequest request, List<RetrievedChunk> chunks, long tenantEpoch, long globalEpoch, long retrievalNanos) {
+        double millis = retrievalNanos / 1_000_000d;
+        retrievalMillis = retrievalMillis == 0d ? millis : retrievalMillis * 0.9 + millis * 0.1;
+        if (request.conversationId() == null || chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        long now = clock.millis();
+        WorkingSet workingSet = conversations.compute(request.conversationId(), (conversation, current) ->
+                current != null && current.usableBy(request, tenantEpoch, globalEpoch, now)
+                        ? current
+                        : new WorkingSet(request.tenantId(), request.userId(), request.roleSet(), tenantEpoch, globalEpoch));
+        List<RetrievedChunk> added = workingSet.add(chunks, now);
+        if (conversations.size() > maxConversations) {
+            evict(now);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        Mono.fromRunnable(() -> embed(workingSet, request.tenantId(), added))
+                .subscribeOn(scheduler)
+                .subscribe(ignored -> { }, error -> log.warn("Failed to embed working set chunks: {}", error.getMessage()));
+    }
+
+    private void embed(WorkingSet workingSet, String tenantId, List<RetrievedChunk> chunks) {
+        Map<String, List<Double>> stored = storedVectors(tenantId, chunks);
+        List<RetrievedChunk> missing = new ArrayList<>();
+        for (RetrievedChunk chunk : chunks) {
+            List<Double> vector = chunk.chunkId() == null ? null : stored.get(chunk.chunkId());
+            if (vector != null) {
+                workingSet.embedded(chunk, VectorScorer.normalise(vector));
+            } else {
+                missing.add(chunk);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<List<Double>> vectors = embeddingsClient.embed(missing.stream().map(RetrievedChunk::text).toList()).vectors();
+        for (int i = 0; i < missing.size() && i < vectors.size(); i++) {
+            workingSet.embedded(missing.get(i), VectorScorer.normalise(vectors.get(i)));
+        }
+    }
+
+    private Map<String, List<Double>> storedVectors(String tenantId, List<RetrievedChunk> chunks) {
+        List<String> chunkIds = chunks.stream().map(RetrievedChunk::chunkId).filter(Objects::nonNull).distinct().toList();
+        if (chunkVectors == null || chunkIds.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            Map<String, List<Double>> vectors = chunkVectors.fetchVectors(tenantId, chunkIds).block();
+            return vectors == null ? Map.of() : vectors;
+        } catch (Exception e) {
+            log.warn("Failed to look up stored vectors for working set chunks: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void evict(long now) {
+        conversations.entrySet().removeIf(entry -> entry.getValue().expired(now));
+        while (conversations.size() > maxConversations) {
+            conversations.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().touchedAt()))
+                    .ifPresent(eldest -> conversations.remove(eldest.getKey(), eldest.getValue()));
+        }
+    }
+
+    private static String query(ChatRequest request) {
+        List<ChatTurn> turns = request.turns();
+        String query = turns == null || turns.isEmpty() ? null : turns.getLast().content();
+        return query == null || query.isBlank() ? null : query;
+    }
+
+    /**
+     * Outcome of {@link #lookup}: {@code hits} is null on a miss, and {@code queryEmbedding} is null when the query
+     * was not embedded.
+     */
+    public record Lookup(List<RetrievedChunk> hits, QueryEmbedding queryEmbedding) {
+        static final Lookup MISS = new Lookup(null, null);
+
+        public boolean hit() {
+            return hits != null;
+        }
+    }
+
+    private record Embedded(RetrievedChunk chunk, float[] vector) {}
+
+    private record Scored(RetrievedChunk chunk, double similarity) {}
+
+    private final class WorkingSet {
+        private final String tenantId;
+        private final String userId;
+        private final RoleSet roles;
+        private final long tenantEpoch;
+        private final long globalEpoch;
+        private final Deque<Slot> slots = new ArrayDeque<>();
+        private volatile long touchedAt;
+
+        WorkingSet(String tenantId, String userId, RoleSet roles, long tenantEpoch, long globalEpoch) {
+            this.tenantId = tenantId;
+            this.userId = userId;
+            this.roles = roles;
+            this.tenantEpoch = tenantEpoch;
+            this.globalEpoch = globalEpoch;
+        }
+
+        boolean usableBy(ChatRequest request, long tenantEpoch, long globalEpoch, long now) {
+            return !expired(now)
+                    && this.tenantEpoch == tenantEpoch && this.globalEpoch == globalEpoch
+                    && Objects.equals(tenantId, request.tenantId()) && Objects.equals(userId, request.userId())
+                    && roles.equals(request.roleSet());
+        }
+
+        boolean expired(long now) {
+            return now - touchedAt >= ttl.toMillis();
+        }
+
+        long touchedAt() {
+            return touchedAt;
+        }
+
+        void touch(long now) {
+            touchedAt = now;
+        }
+
+        synchronized List<RetrievedChunk> add(List<RetrievedChunk> chunks, long now) {
+            touchedAt = now;
+            List<RetrievedChunk> added = new ArrayList<>();
+            for (RetrievedChunk chunk : chunks) {
+                if (chunk.text() == null || chunk.text().isBlank()
+                        || slots.stream().anyMatch(slot -> sameChunk(slot.chunk(), chunk))) {
+                    continue;
+                }
+                slots.addLast(new Slot(chunk));
+                added.add(chunk);
+                if (slots.size() > maxChunks) {
+                    slots.removeFirst();
+                }
+            }
+            return added;
+        }
+
+        synchronized void embedded(RetrievedChunk chunk, float[] vector) {
+            for (Slot slot : slots) {
+                if (slot.chunk() == chunk) {
+                    slot.vector = vector;
+                }
+            }
+        }
+
+        synchronized List<Embedded> embedded() {
+            List<Embedded> candidates = new ArrayList<>(slots.size());
+            for (Slot slot : slots) {
+                if (slot.vector != null) {
+                    candidates.add(new Embedded(slot.chunk(), slot.vector));
+                }
+            }
+            return candidates;
+        }
+
+        private static boolean sameChunk(RetrievedChunk a, RetrievedChunk b) {
+            return a.chunkId() != null
+                    ? a.chunkId().equals(b.chunkId())
+                    : Objects.equals(a.docId(), b.docId()) && Objects.equals(a.text(), b.text());
+        }
+    }
+
+    private static final class Slot {
+        private final RetrievedChunk chunk;
+        private volatile float[] vector;
+
+        Slot(RetrievedChunk chunk) {
+            this.chunk = chunk;
+        }
+
+        RetrievedChunk chunk() {
+            return chunk;
+        }
+    }
+}
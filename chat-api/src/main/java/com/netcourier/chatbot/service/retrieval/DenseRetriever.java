@@ -2,9 +2,29 @@ package com.netcourier.chatbot.service.retrieval;
 
 import com.netcourier.chatbot.model.ChatRequest;
 import com.netcourier.chatbot.model.RetrievedChunk;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 
 public interface DenseRetriever {
     List<RetrievedChunk> search(ChatRequest request, String intent);
+
+    /**
+     * Non-blocking variant used by {@link HybridRagService} to run both retrievers concurrently.
+     * Implementations backed by a reactive client should override this; the default offloads the
+     * blocking {@link #search} onto the bounded elastic scheduler.
+     */
+    default Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+        return Mono.fromCallable(() -> search(request, intent))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Search asking for {@code topK} hits per tenant scope instead of the configured count; used by adaptive
+     * top-k in {@link HybridRagService}. Backends that cannot vary the count return their configured search.
+     */
+    default Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+        return searchAsync(request, intent);
+    }
 }
@@ -0,0 +1,179 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.orchestration.TokenBudgetGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maximal-marginal-relevance selection over the fused candidate pool. Retrievers do not return vectors,
+ * so similarity is the overlap coefficient of hashed word 3-shingles; it catches the same paragraph
+ * coming back from the tenant and GLOBAL corpora while leaving neighbouring chunker windows alone.
+ */
+@Component
+public class DiversitySelector {
+
+    private static final Logger log = LoggerFactory.getLogger(DiversitySelector.class);
+
+    private static final int SHINGLE_WORDS = 3;
+
+    private final boolean enabled;
+    private final double lambda;
+    private final double duplicateThreshold;
+    private final int candidateMultiplier;
+    private final Counter suppressedCounter;
+    private final DistributionSummary tokensSaved;
+
+    public DiversitySelector(@Value("${chat.rag.diversity.enabled:true}") boolean enabled,
+                             @Value("${chat.rag.diversity.lambda:0.7}") double lambda,
+                             @Value("${chat.rag.diversity.duplicate-threshold:0.8}") double duplicateThreshold,
+                             @Value("${chat.rag.diversity.candidate-multiplier:3}") int candidateMultiplier,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.lambda = Math.min(1d, Math.max(0d, lambda));
+        this.duplicateThreshold = duplicateThreshold;
+        this.candidateMultiplier = Math.max(1, candidateMultiplier);
+        this.suppressedCounter = meterRegistry.counter("chat.rag.diversity.suppressed");
+        this.tokensSaved = DistributionSummary.builder("chat.rag.diversity.tokens.saved")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * How many fused candidates to request so MMR has something to choose from.
+     */
+    public int candidatePool(int limit) {
+        return enabled ? limit * candidateMultiplier : limit;
+    }
+
+    public List<RetrievedChunk> select(List<RetrievedChunk> candidates, int limit) {
+        if (!enabled || candidates.size() <= 1) {
+            return candidates.size() <= limit ? candidates : candidates.subList(0, limit);
+        }
+        int size = candidates.size();
+        double maxScore = candidates.stream().mapToDouble(RetrievedChunk::score).max().orElse(0d);
+        int[][] shingles = new int[size][];
+        for (int i = 0; i < size; i++) {
+            shingles[i] = shingles(candidates.get(i).text());
+        }
+        double[] maxSimilarity = new double[size];
+        boolean[] taken = new boolean[size];
+        List<RetrievedChunk> selected = new ArrayList<>(Math.min(limit, size));
+        int suppressed = 0;
+        int savedTokens = 0;
+
+        while (selected.size() < limit) {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                if (taken[i]) {
+                    continue;
+                }
+                double relevance = maxScore > 0d ? candidates.get(i).score() / maxScore : 0d;
+                double value = lambda * relevance - (1d - lambda) * maxSimilarity[i];
+                if (value > bestValue) {
+                    best = i;
+                    bestValue = value;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            taken[best] = true;
+            selected.add(candidates.get(best));
+            for (int i = 0; i < size; i++) {
+                if (taken[i]) {
+                    continue;
+                }
+                double similarity = overlap(shingles[best], shingles[i]);
+                maxSimilarity[i] = Math.max(maxSimilarity[i], similarity);
+                if (similarity >= duplicateThreshold) {
+                    taken[i] = true;
+                    suppressed++;
+                    if (i < limit) {
+                        savedTokens += TokenBudgetGuard.estimateTokens(candidates.get(i).text());
+                    }
+                }
+            }
+        }
+
+        if (suppressed > 0) {
+            suppressedCounter.increment(suppressed);
+            log.debug("Suppressed {} near-duplicate chunks, saving ~{} prompt tokens", suppressed, savedTokens);
+        }
+        tokensSaved.record(savedTokens);
+        return selected;
+    }
+
+    static int[] shingles(String text) {
+        if (text == null || text.isBlank()) {
+            return new int[0];
+        }
+        int[] words = wordHashes(text);
+        if (words.length < SHINGLE_WORDS) {
+            return sortedUnique(words);
+        }
+        int[] hashes = new int[words.length - SHINGLE_WORDS + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            int hash = 17;
+            for (int w = 0; w < SHINGLE_WORDS; w++) {
+                hash = 31 * hash + words[i + w];
+            }
+            hashes[i] = hash;
+        }
+        return sortedUnique(hashes);
+    }
+
+    static double overlap(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0d;
+        }
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / Math.min(a.length, b.length);
+    }
+
+    private static int[] wordHashes(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        text.codePoints().forEach(codePoint -> {
+            if (Character.isLetterOrDigit(codePoint)) {
+                current.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (!current.isEmpty()) {
+                words.add(current.toString());
+                current.setLength(0);
+            }
+        });
+        if (!current.isEmpty()) {
+            words.add(current.toString());
+        }
+        return words.stream().mapToInt(String::hashCode).toArray();
+    }
+
+    private static int[] sortedUnique(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return Arrays.stream(sorted).distinct().toArray();
+    }
+}
@@ -0,0 +1,60 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RoleDictionary;
+import com.netcourier.chatbot.model.RoleSet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Retrieval filter payloads built once per (tenant, role set) and reused by every later request with the same
+ * scope. Payloads must be immutable since they are shared between concurrent searches. The cache starts
+ * over when it reaches {@code maxEntries}, which only an unusual spread of role combinations will hit. Scopes
+ * with a tenant or role {@link RoleDictionary} did not intern are built on every call and never cached.
+ */
+public final class FilterCache<T> {
+
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final Map<Key, T> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public FilterCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    FilterCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cached payload, building it with {@code builder} on a miss. A {@code null} payload is
+     * returned as is and not cached.
+     */
+    public T get(String tenantId, RoleSet roles, BiFunction<String, RoleSet, T> builder) {
+        int tenant = RoleDictionary.tenant(tenantId);
+        if (tenant == RoleDictionary.UNKNOWN || !roles.isInterned()) {
+            return builder.apply(tenantId, roles);
+        }
+        Key key = new Key(tenant, roles);
+        T payload = entries.get(key);
+        if (payload != null) {
+            return payload;
+        }
+        payload = builder.apply(tenantId, roles);
+        if (payload != null) {
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            entries.putIfAbsent(key, payload);
+        }
+        return payload;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private record Key(int tenant, RoleSet roles) {}
+}
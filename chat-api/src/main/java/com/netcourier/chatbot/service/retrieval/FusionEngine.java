@@ -0,0 +1,220 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fuses dense and sparse hit lists per chunk. Candidates are keyed by chunk ID (falling back to doc ID
+ * for backends that do not report one) in a small open-addressing table, scores accumulate in primitive
+ * arrays, and the result is popped from a heap so only the returned entries are ever ordered.
+ */
+public final class FusionEngine {
+
+    public enum Normalisation {
+        /** Reciprocal rank: {@code weight / (k + rank + 1)}. */
+        RANK,
+        /** Min-max normalised backend score multiplied by the weight. */
+        SCORE
+    }
+
+    private final double denseWeight;
+    private final double sparseWeight;
+    private final int rrfK;
+    private final Normalisation normalisation;
+    private final int maxChunksPerDocument;
+
+    public FusionEngine(double denseWeight,
+                        double sparseWeight,
+                        int rrfK,
+                        Normalisation normalisation,
+                        int maxChunksPerDocument) {
+        this.denseWeight = denseWeight;
+        this.sparseWeight = sparseWeight;
+        this.rrfK = Math.max(0, rrfK);
+        this.normalisation = normalisation == null ? Normalisation.RANK : normalisation;
+        this.maxChunksPerDocument = maxChunksPerDocument;
+    }
+
+    public List<RetrievedChunk> fuse(List<RetrievedChunk> dense, List<RetrievedChunk> sparse, int limit) {
+        int capacity = dense.size() + sparse.size();
+        if (capacity == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Candidates candidates = new Candidates(capacity);
+        accumulate(dense, denseWeight, (hit, rank, contribution) -> candidates.add(hit, contribution));
+        accumulate(sparse, sparseWeight, (hit, rank, contribution) -> candidates.add(hit, contribution));
+        return candidates.select(limit, maxChunksPerDocument);
+    }
+
+    /**
+     * What each hit adds to its chunk's fused score, in input order; used to explain a fusion rather than on
+     * the request path.
+     */
+    public List<Contribution> contributions(List<RetrievedChunk> dense, List<RetrievedChunk> sparse) {
+        List<Contribution> contributions = new ArrayList<>(dense.size() + sparse.size());
+        accumulate(dense, denseWeight, (hit, rank, contribution) ->
+                contributions.add(new Contribution("dense", key(hit), rank, hit.score(), contribution)));
+        accumulate(sparse, sparseWeight, (hit, rank, contribution) ->
+                contributions.add(new Contribution("sparse", key(hit), rank, hit.score(), contribution)));
+        return contributions;
+    }
+
+    /** Fusion key: chunk ID, or doc ID for backends that do not report one. */
+    public static String key(RetrievedChunk hit) {
+        return hit.chunkId() != null ? hit.chunkId() : hit.docId() == null ? "" : hit.docId();
+    }
+
+    public record Contribution(String retriever, String key, int rank, double rawScore, double contribution) {}
+
+    private interface ContributionSink {
+        void accept(RetrievedChunk hit, int rank, double contribution);
+    }
+
+    private void accumulate(List<RetrievedChunk> hits, double weight, ContributionSink sink) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        if (normalisation == Normalisation.SCORE) {
+            for (RetrievedChunk hit : hits) {
+                min = Math.min(min, hit.score());
+                max = Math.max(max, hit.score());
+            }
+        }
+        for (int rank = 0; rank < hits.size(); rank++) {
+            RetrievedChunk hit = hits.get(rank);
+            double contribution = switch (normalisation) {
+                case RANK -> weight / (rrfK + rank + 1d);
+                case SCORE -> weight * (max > min ? (hit.score() - min) / (max - min) : 1d);
+            };
+            sink.accept(hit, rank, contribution);
+        }
+    }
+
+    private static boolean isGlobal(RetrievedChunk chunk) {
+        return chunk.docId() != null && chunk.docId().regionMatches(true, 0, "GLOBAL", 0, 6);
+    }
+
+    private static final class Candidates {
+
+        private final String[] tableKeys;
+        private final int[] tableSlots;
+        private final int mask;
+        private final RetrievedChunk[] chunks;
+        private final double[] scores;
+        private final double[] bestSourceScores;
+        private final boolean[] global;
+        private int size;
+
+        Candidates(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+            this.tableKeys = new String[tableSize];
+            this.tableSlots = new int[tableSize];
+            this.mask = tableSize - 1;
+            this.chunks = new RetrievedChunk[capacity];
+            this.scores = new double[capacity];
+            this.bestSourceScores = new double[capacity];
+            this.global = new boolean[capacity];
+        }
+
+        void add(RetrievedChunk hit, double contribution) {
+            String key = key(hit);
+            int bucket = key.hashCode() & mask;
+            while (tableKeys[bucket] != null && !tableKeys[bucket].equals(key)) {
+                bucket = (bucket + 1) & mask;
+            }
+            if (tableKeys[bucket] == null) {
+                int slot = size++;
+                tableKeys[bucket] = key;
+                tableSlots[bucket] = slot;
+                chunks[slot] = hit;
+                scores[slot] = contribution;
+                bestSourceScores[slot] = hit.score();
+                global[slot] = isGlobal(hit);
+                return;
+            }
+            int slot = tableSlots[bucket];
+            scores[slot] += contribution;
+            global[slot] |= isGlobal(hit);
+            if (hit.score() > bestSourceScores[slot]) {
+                chunks[slot] = hit;
+                bestSourceScores[slot] = hit.score();
+            }
+        }
+
+        List<RetrievedChunk> select(int limit, int maxChunksPerDocument) {
+            int[] heap = new int[size];
+            for (int i = 0; i < size; i++) {
+                heap[i] = i;
+            }
+            for (int i = (size >>> 1) - 1; i >= 0; i--) {
+                siftDown(heap, i, size);
+            }
+            List<RetrievedChunk> selected = new ArrayList<>(Math.min(limit, size));
+            String[] docs = new String[Math.min(limit, size)];
+            int[] docCounts = new int[docs.length];
+            int distinctDocs = 0;
+            int remaining = size;
+            while (remaining > 0 && selected.size() < limit) {
+                int slot = heap[0];
+                heap[0] = heap[--remaining];
+                siftDown(heap, 0, remaining);
+                RetrievedChunk chunk = chunks[slot];
+                if (maxChunksPerDocument > 0) {
+                    String docId = chunk.docId() == null ? "" : chunk.docId();
+                    int doc = 0;
+                    while (doc < distinctDocs && !docs[doc].equals(docId)) {
+                        doc++;
+                    }
+                    if (doc == distinctDocs) {
+                        docs[distinctDocs++] = docId;
+                    }
+                    if (docCounts[doc] >= maxChunksPerDocument) {
+                        continue;
+                    }
+                    docCounts[doc]++;
+                }
+                selected.add(chunk.withScore(scores[slot]));
+            }
+            return selected;
+        }
+
+        private void siftDown(int[] heap, int index, int length) {
+            int slot = heap[index];
+            int half = length >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                int right = child + 1;
+                if (right < length && outranks(heap[right], heap[child])) {
+                    child = right;
+                }
+                if (!outranks(heap[child], slot)) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = slot;
+        }
+
+        private boolean outranks(int a, int b) {
+            int byScore = Double.compare(scores[a], scores[b]);
+            if (byScore != 0) {
+                return byScore > 0;
+            }
+            if (global[a] != global[b]) {
+                return !global[a];
+            }
+            String docA = chunks[a].docId();
+            String docB = chunks[b].docId();
+            if (docA == null || docB == null) {
+                return docA != null && docB == null;
+            }
+            return docA.compareTo(docB) < 0;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.IngestionEpochs;
+import com.netcourier.chatbot.service.retrieval.vector.VectorScorer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Node-local copy of the GLOBAL tenant's chunks and vectors, scrolled out of Qdrant at startup and again whenever
+ * the GLOBAL ingestion epoch moves. While the copy is current, {@link QdrantDenseRetriever} sends only the
+ * caller's own tenant to Qdrant and takes GLOBAL hits from an exhaustive cosine scan here; cosine scores are on
+ * the same scale as Qdrant's, so the two lists merge by score. The sparse side keeps searching GLOBAL in
+ * OpenSearch, in the same request as the tenant, because a local BM25 score is not comparable with OpenSearch's.
+ * Until a reload completes, dense retrieval falls back to searching GLOBAL remotely.
+ * <p>
+ * The GLOBAL epoch moves for ingestion on any instance, since {@code IngestionEpochStore} replays the others'
+ * advances, so a re-ingest elsewhere stops the copy serving within one epoch sync even when it keeps the chunk
+ * count. As a backstop for writes that bypass ingestion, a periodic check also counts the GLOBAL points in
+ * Qdrant: a count that no longer matches the copy stops it serving until reloaded, and a copy older than
+ * {@code max-age-seconds} is reloaded in the background.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
+public class GlobalCorpusReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(GlobalCorpusReplica.class);
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+    private static final String SOURCE = "replica";
+    private static final int SCROLL_PAGE = 256;
+
+    private final WebClient qdrantWebClient;
+    private final IngestionEpochs ingestionEpochs;
+    private final String collection;
+    private final String vectorName;
+    private final String tenantField;
+    private final String roleField;
+    private final boolean enabled;
+    private final int maxChunks;
+    private final Duration maxAge;
+    private final Scheduler scheduler;
+    private final VectorScorer scorer = VectorScorer.instance();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Counter localCounter;
+    private final Counter staleCounter;
+    private volatile Snapshot snapshot;
+    private volatile boolean drifted;
+
+    @Autowired
+    public GlobalCorpusReplica(WebClient qdrantWebClient,
+                               IngestionEpochs ingestionEpochs,
+                               MeterRegistry meterRegistry,
+                               @Value("${chat.qdrant.collection:nc_chunks_v1}") String collection,
+                               @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
+                               @Value("${chat.qdrant.filters.tenant-field:tenantId}") String tenantField,
+                               @Value("${chat.qdrant.filters.role-field:roles}") String roleField,
+                               @Value("${chat.rag.global-replica.enabled:false}") boolean enabled,
+                               @Value("${chat.rag.global-replica.max-chunks:50000}") int maxChunks,
+                               @Value("${chat.rag.global-replica.max-age-seconds:600}") long maxAgeSeconds) {
+        this(qdrantWebClient, ingestionEpochs, meterRegistry, collection, vectorName, tenantField, roleField, enabled,
+                maxChunks, Duration.ofSeconds(maxAgeSeconds), Schedulers.boundedElastic());
+    }
+
+    GlobalCorpusReplica(WebClient qdrantWebClient,
+                        IngestionEpochs ingestionEpochs,
+                        MeterRegistry meterRegistry,
+                        String collection,
+                        String vectorName,
+                        String tenantField,
+                        String roleField,
+                        boolean enabled,
+                        int maxChunks,
+                        Duration maxAge,
+                        Scheduler scheduler) {
+        this.qdrantWebClient = qdrantWebClient;
+        this.ingestionEpochs = ingestionEpochs;
+        this.collection = collection;
+        this.vectorName = vectorName;
+        this.tenantField = tenantField;
+        this.roleField = roleField;
+        this.enabled = enabled;
+        this.maxChunks = maxChunks;
+        this.maxAge = maxAge;
+        this.scheduler = scheduler;
+        this.localCounter = meterRegistry.counter("chat.rag.global-replica.requests", "outcome", "local");
+        this.staleCounter = meterRegistry.counter("chat.rag.global-replica.requests", "outcome", "stale");
+        meterRegistry.gauge("chat.rag.global-replica.chunks", this, replica -> replica.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            refreshAsync();
+        }
+    }
+
+    /**
+     * Whether GLOBAL can be answered from this node for the given caller. A stale copy schedules a reload and
+     * answers {@code false} until it is done.
+     */
+    public boolean serves(String tenantId) {
+        if (!enabled || GLOBAL_TENANT_ID.equals(tenantId)) {
+            return false;
+        }
+        Snapshot current = snapshot;
+        if (current != null && !drifted && current.epoch() == ingestionEpochs.current(GLOBAL_TENANT_ID)) {
+            localCounter.increment();
+            return true;
+        }
+        staleCounter.increment();
+        refreshAsync();
+        return false;
+    }
+
+    /**
+     * Compares the copy with Qdrant. A different GLOBAL point count stops the copy serving and reloads it; a copy
+     * older than {@code max-age-seconds} keeps serving while it is reloaded.
+     */
+    @Scheduled(fixedDelayString = "${chat.rag.global-replica.check-interval-ms:30000}",
+            initialDelayString = "${chat.rag.global-replica.check-interval-ms:30000}")
+    public void checkStaleness() {
+        Snapshot current = snapshot;
+        if (!enabled || current == null || drifted) {
+            return;
+        }
+        try {
+            long count = countGlobalPoints();
+            if (count != current.chunks().length) {
+                log.info("GLOBAL corpus has {} chunks in Qdrant but {} in the local replica; reloading", count, current.chunks().length);
+                drifted = true;
+                refreshAsync();
+            } else if (System.nanoTime() - current.loadedAt() > maxAge.toNanos()) {
+                refreshAsync();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not check the GLOBAL replica against Qdrant: {}", e.getMessage());
+        }
+    }
+
+    public List<RetrievedChunk> searchDense(List<Double> query, RoleSet roles, int topK) {
+        Snapshot current = snapshot;
+        if (current == null || query == null) {
+            return List.of();
+        }
+        float[] vector = VectorScorer.normalise(query);
+        if (vector.length != current.dimensions()) {
+            return List.of();
+        }
+        int count = current.chunks().length;
+        float[] scores = new float[count];
+        scorer.dot(vector, current.vectors(), count, scores);
+        NodeHeap heap = NodeHeap.worstFirst(topK);
+        for (int i = 0; i < count; i++) {
+            if (current.embedded()[i] && visible(current.roles()[i], roles)) {
+                offer(heap, i, scores[i], topK);
+            }
+        }
+        return current.hits(heap);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.chunks().length;
+    }
+
+    /**
+     * Scrolls every GLOBAL point out of Qdrant and swaps the copy in. The epoch is read first, so content written
+     * during the scroll leaves the copy stale and triggers another reload. A page without a result fails the
+     * reload and leaves the previous copy, and its staleness, as they were.
+     */
+    public void refresh() {
+        long epoch = ingestionEpochs.current(GLOBAL_TENANT_ID);
+        long loadedAt = System.nanoTime();
+        List<JsonNode> points = new ArrayList<>();
+        JsonNode offset = null;
+        do {
+            Map<String, Object> scroll = new LinkedHashMap<>();
+            scroll.put("filter", globalFilter());
+            scroll.put("limit", SCROLL_PAGE);
+            scroll.put("with_payload", List.of("docId", "chunkId", "title", "page", "text", roleField));
+            scroll.put("with_vector", List.of(vectorName));
+            if (offset != null) {
+                scroll.put("offset", offset);
+            }
+            JsonNode page = qdrantWebClient.post()
+                    .uri("/collections/{collection}/points/scroll", collection)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(scroll)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block();
+            JsonNode result = page == null ? null : page.path("result");
+            if (result == null || !result.path("points").isArray()) {
+                throw new IllegalStateException("Qdrant scroll of " + collection + " returned no result after "
+                        + points.size() + " GLOBAL points");
+            }
+            result.path("points").forEach(points::add);
+            if (points.size() > maxChunks) {
+                log.warn("GLOBAL corpus has more than {} chunks; serving it from Qdrant instead of a local replica", maxChunks);
+                snapshot = null;
+                return;
+            }
+            offset = result.path("next_page_offset");
+        } while (!offset.isNull() && !offset.isMissingNode());
+        snapshot = Snapshot.of(points, vectorName, roleField, epoch, loadedAt);
+        drifted = false;
+        log.info("Loaded {} GLOBAL chunks into the local replica (epoch {})", points.size(), epoch);
+    }
+
+    private long countGlobalPoints() {
+        JsonNode response = qdrantWebClient.post()
+                .uri("/collections/{collection}/points/count", collection)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("filter", globalFilter(), "exact", true))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .block();
+        return response == null ? 0 : response.path("result").path("count").asLong();
+    }
+
+    private Map<String, Object> globalFilter() {
+        return Map.of("must", List.of(Map.of("key", tenantField, "match", Map.of("value", GLOBAL_TENANT_ID))));
+    }
+
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.fromRunnable(this::refresh)
+                .subscribeOn(scheduler)
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe(ignored -> { }, error -> log.warn("Failed to load the GLOBAL replica: {}", error.getMessage()));
+    }
+
+    private static boolean visible(RoleSet chunkRoles, RoleSet callerRoles) {
+        return callerRoles.isEmpty() || chunkRoles.intersects(callerRoles);
+    }
+
+    private static void offer(NodeHeap heap, int node, float score, int capacity) {
+        if (heap.size() < capacity) {
+            heap.push(node, score);
+        } else if (score > heap.topScore()) {
+            heap.pop();
+            heap.push(node, score);
+        }
+    }
+
+    /** Vectors are stored back to back in one array so the dense scan is a single batch score. */
+    private record Snapshot(RetrievedChunk[] chunks,
+                            RoleSet[] roles,
+                            float[] vectors,
+                            int dimensions,
+                            boolean[] embedded,
+                            long epoch,
+                            long loadedAt) {
+
+        static Snapshot of(List<JsonNode> points, String vectorName, String roleField, long epoch, long loadedAt) {
+            int count = points.size();
+            RetrievedChunk[] chunks = new RetrievedChunk[count];
+            RoleSet[] roles = new RoleSet[count];
+            float[][] rows = new float[count][];
+            for (int i = 0; i < count; i++) {
+                JsonNode payload = points.get(i).path("payload");
+                chunks[i] = new RetrievedChunk(payload.path("docId").asText(null), payload.path("title").asText(null),
+                        payload.path("page").asInt(), payload.path("text").asText(null), 0d, SOURCE,
+                        payload.path("chunkId").asText(null));
+                List<String> chunkRoles = new ArrayList<>();
+                payload.path(roleField).forEach(role -> chunkRoles.add(role.asText()));
+                roles[i] = RoleSet.of(chunkRoles);
+                JsonNode vector = points.get(i).path("vector");
+                rows[i] = VectorScorer.normalise(doubles(vector.isArray() ? vector : vector.path(vectorName)));
+            }
+            int dimensions = 0;
+            for (float[] row : rows) {
+                if (row.length > 0) {
+                    dimensions = row.length;
+                    break;
+                }
+            }
+            float[] vectors = new float[count * dimensions];
+            boolean[] embedded = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                if (dimensions > 0 && rows[i].length == dimensions) {
+                    System.arraycopy(rows[i], 0, vectors, i * dimensions, dimensions);
+                    embedded[i] = true;
+                }
+            }
+            return new Snapshot(chunks, roles, vectors, dimensions, embedded, epoch, loadedAt);
+        }
+
+        List<RetrievedChunk> hits(NodeHeap heap) {
+            NodeHeap.ScoredNodes ranked = heap.drainDescending();
+            List<RetrievedChunk> hits = new ArrayList<>(ranked.nodes().length);
+            for (int i = 0; i < ranked.nodes().length; i++) {
+                hits.add(chunks[ranked.nodes()[i]].withScore(ranked.scores()[i]));
+            }
+            return hits;
+        }
+
+        private static List<Double> doubles(JsonNode values) {
+            List<Double> vector = new ArrayList<>(values.size());
+            values.forEach(value -> vector.add(value.asDouble()));
+            return vector;
+        }
+    }
+}
@@ -2,91 +2,268 @@ package com.netcourier.chatbot.service.retrieval;
 
 import com.netcourier.chatbot.model.ChatRequest;
 import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.orchestration.TokenBudgetGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
 @Service
 public class HybridRagService implements RagService {
 
+    private static final Logger log = LoggerFactory.getLogger(HybridRagService.class);
+
     private final DenseRetriever denseRetriever;
     private final SparseRetriever sparseRetriever;
-    private final double denseWeight;
-    private final double sparseWeight;
+    private final FusionEngine fusionEngine;
+    private final DiversitySelector diversitySelector;
+    private final Map<String, ChunkHydrator> hydrators;
+    private final AdaptiveTopK adaptiveTopK;
     private final int resultLimit;
+    private final Duration denseTimeout;
+    private final Duration sparseTimeout;
 
+    @Autowired
     public HybridRagService(DenseRetriever denseRetriever,
                             SparseRetriever sparseRetriever,
                             @Value("${chat.rag.dense.weight:0.6}") double denseWeight,
                             @Value("${chat.rag.sparse.weight:0.4}") double sparseWeight,
-                            @Value("${chat.rag.hybrid.limit:5}") int resultLimit) {
+                            @Value("${chat.rag.hybrid.limit:5}") int resultLimit,
+                            @Value("${chat.rag.dense.timeout-ms:1500}") long denseTimeoutMs,
+                            @Value("${chat.rag.sparse.timeout-ms:1500}") long sparseTimeoutMs,
+                            @Value("${chat.rag.fusion.rrf-k:0}") int rrfK,
+                            @Value("${chat.rag.fusion.normalisation:RANK}") FusionEngine.Normalisation normalisation,
+                            @Value("${chat.rag.fusion.max-chunks-per-doc:2}") int maxChunksPerDocument,
+                            DiversitySelector diversitySelector,
+                            ObjectProvider<ChunkHydrator> hydrators,
+                            AdaptiveTopK adaptiveTopK) {
+        this(denseRetriever, sparseRetriever, denseWeight, sparseWeight, resultLimit, denseTimeoutMs, sparseTimeoutMs,
+                rrfK, normalisation, maxChunksPerDocument, diversitySelector, hydrators.orderedStream().toList(), adaptiveTopK);
+    }
+
+    HybridRagService(DenseRetriever denseRetriever,
+                     SparseRetriever sparseRetriever,
+                     double denseWeight,
+                     double sparseWeight,
+                     int resultLimit,
+                     long denseTimeoutMs,
+                     long sparseTimeoutMs,
+                     int rrfK,
+                     FusionEngine.Normalisation normalisation,
+                     int maxChunksPerDocument,
+                     DiversitySelector diversitySelector,
+                     List<ChunkHydrator> hydrators,
+                     AdaptiveTopK adaptiveTopK) {
         this.denseRetriever = denseRetriever;
         this.sparseRetriever = sparseRetriever;
-        this.denseWeight = denseWeight;
-        this.sparseWeight = sparseWeight;
+        this.fusionEngine = new FusionEngine(denseWeight, sparseWeight, rrfK, normalisation, maxChunksPerDocument);
+        this.diversitySelector = diversitySelector;
+        this.hydrators = new HashMap<>();
+        hydrators.forEach(hydrator -> this.hydrators.put(hydrator.source(), hydrator));
+        this.adaptiveTopK = adaptiveTopK != null && adaptiveTopK.isEnabled() ? adaptiveTopK : null;
         this.resultLimit = resultLimit;
+        this.denseTimeout = Duration.ofMillis(Math.max(1, denseTimeoutMs));
+        this.sparseTimeout = Duration.ofMillis(Math.max(1, sparseTimeoutMs));
+    }
+
+    public HybridRagService(DenseRetriever denseRetriever,
+                            SparseRetriever sparseRetriever,
+                            double denseWeight,
+                            double sparseWeight,
+                            int resultLimit,
+                            long denseTimeoutMs,
+                            long sparseTimeoutMs) {
+        this(denseRetriever, sparseRetriever, denseWeight, sparseWeight, resultLimit, denseTimeoutMs, sparseTimeoutMs,
+                0, FusionEngine.Normalisation.RANK, 0, null, List.of(), null);
     }
 
     @Override
     public List<RetrievedChunk> retrieve(ChatRequest request, String intent) {
-        List<RetrievedChunk> dense = denseRetriever.search(request, intent);
-        List<RetrievedChunk> sparse = sparseRetriever.search(request, intent);
-        Map<String, RetrievedChunkScore> fused = new LinkedHashMap<>();
-        applyReciprocalRankScores(dense, denseWeight, fused);
-        applyReciprocalRankScores(sparse, sparseWeight, fused);
-        return fused.values().stream()
-                .sorted(Comparator
-                        .comparingDouble(RetrievedChunkScore::score)
-                        .reversed()
-                        .thenComparing(RetrievedChunkScore::global)
-                        .thenComparing(score -> score.chunk().docId(), Comparator.nullsLast(String::compareTo)))
-                .limit(resultLimit)
-                .map(RetrievedChunkScore::chunkWithFusedScore)
-                .toList();
+        return retrieveWithStatus(request, intent).chunks();
     }
 
-    private void applyReciprocalRankScores(List<RetrievedChunk> chunks,
-                                           double weight,
-                                           Map<String, RetrievedChunkScore> fused) {
-        for (int i = 0; i < chunks.size(); i++) {
-            RetrievedChunk chunk = chunks.get(i);
-            double contribution = weight / (i + 1d);
-            fused.merge(key(chunk),
-                    new RetrievedChunkScore(chunk, contribution, chunk.score(), isGlobalChunk(chunk)),
-                    RetrievedChunkScore::merge);
-        }
+    @Override
+    public Retrieval retrieveWithStatus(ChatRequest request, String intent) {
+        return retrieveWithStatus(request, intent, null);
     }
 
-    private String key(RetrievedChunk chunk) {
-        return chunk.docId() == null ? "" : chunk.docId();
+    @Override
+    public Retrieval retrieveWithStatus(ChatRequest request, String intent, QueryEmbedding queryEmbedding) {
+        RetrievalStatus status = new RetrievalStatus();
+        List<RetrievedChunk> chunks = Mono.zip(denseSearch(request, intent), sparseSearch(request, intent), this::fuse)
+                .flatMap(candidates -> hydrate(request.tenantId(), candidates))
+                .map(this::select)
+                .contextWrite(context -> queryEmbedding == null ? context : queryEmbedding.attach(context))
+                .contextWrite(status::attach)
+                .block();
+        return new Retrieval(chunks, status.isDegraded());
     }
 
-    private boolean isGlobalChunk(RetrievedChunk chunk) {
-        if (chunk.docId() == null) {
-            return false;
-        }
-        String normalized = chunk.docId().toUpperCase(Locale.ROOT);
-        return normalized.startsWith("GLOBAL");
+    /**
+     * Runs the same retrieval as {@link #retrieve} with tracing on, bypassing every cache in front of this
+     * service, and reports each stage. {@code guard} stands in for the orchestrator's token budget.
+     */
+    public Mono<RetrievalExplanation> explain(ChatRequest request, String intent, TokenBudgetGuard guard) {
+        return Mono.defer(() -> {
+            RetrievalTrace trace = new RetrievalTrace();
+            long start = System.nanoTime();
+            return Mono.zip(denseSearch(request, intent).elapsed(), sparseSearch(request, intent).elapsed())
+                    .flatMap(results -> {
+                        List<RetrievedChunk> dense = results.getT1().getT2();
+                        List<RetrievedChunk> sparse = results.getT2().getT2();
+                        List<RetrievedChunk> fused = fuse(dense, sparse);
+                        return hydrate(request.tenantId(), fused)
+                                .map(this::select)
+                                .map(selected -> new RetrievalExplanation(
+                                        request.tenantId(),
+                                        request.roleSet().names(),
+                                        intent,
+                                        (System.nanoTime() - start) / 1_000_000d,
+                                        new RetrievalExplanation.Stage(results.getT1().getT1(), RetrievalExplanation.Hit.of(dense)),
+                                        new RetrievalExplanation.Stage(results.getT2().getT1(), RetrievalExplanation.Hit.of(sparse)),
+                                        explainFusion(dense, sparse, fused, selected),
+                                        RetrievalExplanation.Hit.of(selected),
+                                        explainContext(selected, guard),
+                                        trace.calls()));
+                    })
+                    .contextWrite(trace::attach);
+        });
+    }
+
+    private Mono<List<RetrievedChunk>> denseSearch(ChatRequest request, String intent) {
+        return adaptiveTopK == null
+                ? bounded(denseRetriever.searchAsync(request, intent), denseTimeout, "Dense")
+                : adaptive(k -> denseRetriever.searchAsync(request, intent, k), denseTimeout, "Dense");
+    }
+
+    private Mono<List<RetrievedChunk>> sparseSearch(ChatRequest request, String intent) {
+        return adaptiveTopK == null
+                ? bounded(sparseRetriever.searchAsync(request, intent), sparseTimeout, "Sparse")
+                : adaptive(k -> sparseRetriever.searchAsync(request, intent, k), sparseTimeout, "Sparse");
     }
 
-    private record RetrievedChunkScore(RetrievedChunk chunk, double score, double bestSourceScore, boolean global) {
-        RetrievedChunkScore merge(RetrievedChunkScore other) {
-            RetrievedChunk bestChunk = chunk;
-            double bestScore = bestSourceScore;
-            if (other.bestSourceScore > bestSourceScore) {
-                bestChunk = other.chunk;
-                bestScore = other.bestSourceScore;
+    private List<RetrievedChunk> fuse(List<RetrievedChunk> dense, List<RetrievedChunk> sparse) {
+        int pool = diversitySelector == null ? resultLimit : diversitySelector.candidatePool(resultLimit);
+        return fusionEngine.fuse(dense, sparse, pool);
+    }
+
+    private List<RetrievalExplanation.FusedCandidate> explainFusion(List<RetrievedChunk> dense,
+                                                                    List<RetrievedChunk> sparse,
+                                                                    List<RetrievedChunk> fused,
+                                                                    List<RetrievedChunk> selected) {
+        Map<String, List<FusionEngine.Contribution>> byKey = fusionEngine.contributions(dense, sparse).stream()
+                .collect(Collectors.groupingBy(FusionEngine.Contribution::key));
+        Set<String> selectedKeys = selected.stream().map(FusionEngine::key).collect(Collectors.toSet());
+        return fused.stream()
+                .map(chunk -> {
+                    String key = FusionEngine.key(chunk);
+                    return new RetrievalExplanation.FusedCandidate(key, chunk.docId(), chunk.score(),
+                            byKey.getOrDefault(key, List.of()), selectedKeys.contains(key));
+                })
+                .toList();
+    }
+
+    private static RetrievalExplanation.ContextWindow explainContext(List<RetrievedChunk> selected, TokenBudgetGuard guard) {
+        List<RetrievedChunk> sorted = selected.stream()
+                .sorted(Comparator.comparingDouble(RetrievedChunk::score).reversed())
+                .toList();
+        TokenBudgetGuard.GuardedChunks guarded = guard.enforce(sorted);
+        List<String> accepted = guarded.chunks().stream().map(FusionEngine::key).toList();
+        List<String> dropped = sorted.subList(guarded.chunks().size(), sorted.size()).stream()
+                .map(FusionEngine::key)
+                .toList();
+        int tokens = guarded.chunks().stream().mapToInt(chunk -> TokenBudgetGuard.estimateTokens(chunk.text())).sum();
+        return new RetrievalExplanation.ContextWindow(accepted, dropped, tokens, guarded.truncated());
+    }
+
+    private List<RetrievedChunk> select(List<RetrievedChunk> candidates) {
+        return diversitySelector == null ? candidates : diversitySelector.select(candidates, resultLimit);
+    }
+
+    /**
+     * Fills in text for fused candidates that came back with a projected payload, with one lookup per source.
+     * A candidate whose text cannot be fetched keeps its rank with empty text: a failed or partial lookup
+     * must not take the dense results out of the answer.
+     */
+    private Mono<List<RetrievedChunk>> hydrate(String tenantId, List<RetrievedChunk> candidates) {
+        Map<String, List<String>> missing = new LinkedHashMap<>();
+        for (RetrievedChunk candidate : candidates) {
+            if (candidate.text() == null && candidate.chunkId() != null && hydrators.containsKey(candidate.source())) {
+                missing.computeIfAbsent(candidate.source(), source -> new ArrayList<>()).add(candidate.chunkId());
             }
-            return new RetrievedChunkScore(bestChunk, score + other.score, bestScore, global || other.global);
         }
-
-        RetrievedChunk chunkWithFusedScore() {
-            return new RetrievedChunk(chunk.docId(), chunk.title(), chunk.page(), chunk.text(), score, chunk.source());
+        if (missing.isEmpty()) {
+            return Mono.just(candidates);
         }
+        Duration timeout = denseTimeout.compareTo(sparseTimeout) >= 0 ? denseTimeout : sparseTimeout;
+        return Flux.fromIterable(missing.entrySet())
+                .flatMap(entry -> hydrators.get(entry.getKey()).fetchText(tenantId, entry.getValue())
+                        .timeout(timeout)
+                        .onErrorResume(throwable -> {
+                            log.warn("Hydrating {} chunks from {} failed: {}", entry.getValue().size(), entry.getKey(), throwable.toString());
+                            return RetrievalStatus.degraded(Map.<String, String>of());
+                        }))
+                .collect(HashMap<String, String>::new, Map::putAll)
+                .flatMap(texts -> {
+                    List<RetrievedChunk> hydrated = new ArrayList<>(candidates.size());
+                    boolean complete = true;
+                    for (RetrievedChunk candidate : candidates) {
+                        if (candidate.text() != null || !missing.containsKey(candidate.source())) {
+                            hydrated.add(candidate);
+                        } else {
+                            String text = texts.get(candidate.chunkId());
+                            complete &= text != null;
+                            hydrated.add(candidate.withText(text == null ? "" : text));
+                        }
+                    }
+                    return complete ? Mono.just(hydrated) : RetrievalStatus.degraded(hydrated);
+                });
+    }
+
+    /**
+     * Runs the search at the initial depth and, if its scores are flat, once more at the maximum depth.
+     * Each round gets the full retriever deadline; a failed second round keeps the first round's hits. The
+     * hits are then cut at their first sharp score drop, while the retriever's own scores are still in hand.
+     */
+    private Mono<List<RetrievedChunk>> adaptive(IntFunction<Mono<List<RetrievedChunk>>> search, Duration timeout, String label) {
+        int initialK = adaptiveTopK.initialK();
+        String retriever = label.toLowerCase(Locale.ROOT);
+        return bounded(search.apply(initialK), timeout, label)
+                .flatMap(hits -> {
+                    if (!adaptiveTopK.shouldWiden(hits, initialK)) {
+                        adaptiveTopK.recordK(retriever, initialK, false);
+                        return Mono.just(hits);
+                    }
+                    adaptiveTopK.recordK(retriever, adaptiveTopK.maxK(), true);
+                    return bounded(search.apply(adaptiveTopK.maxK()), timeout, label)
+                            .map(widened -> widened.isEmpty() ? hits : widened);
+                })
+                .map(hits -> adaptiveTopK.cut(retriever, hits));
+    }
+
+    private Mono<List<RetrievedChunk>> bounded(Mono<List<RetrievedChunk>> search, Duration timeout, String label) {
+        return search
+                .timeout(timeout)
+                .defaultIfEmpty(List.of())
+                .onErrorResume(throwable -> {
+                    log.warn("{} retrieval failed or exceeded {} ms: {}", label, timeout.toMillis(), throwable.toString());
+                    return RetrievalStatus.degraded(List.<RetrievedChunk>of());
+                });
     }
 }
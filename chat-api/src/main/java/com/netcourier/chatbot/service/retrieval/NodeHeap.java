@@ -0,0 +1,118 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (node, score) pairs kept in parallel primitive arrays. A "best first" heap pops the
+ * highest score; a "worst first" heap pops the lowest, which is what a bounded top-k result set needs.
+ */
+public final class NodeHeap {
+
+    private final boolean bestFirst;
+    private int[] nodes;
+    private float[] scores;
+    private int size;
+
+    private NodeHeap(boolean bestFirst, int initialCapacity) {
+        this.bestFirst = bestFirst;
+        this.nodes = new int[Math.max(4, initialCapacity)];
+        this.scores = new float[nodes.length];
+    }
+
+    public static NodeHeap bestFirst(int initialCapacity) {
+        return new NodeHeap(true, initialCapacity);
+    }
+
+    public static NodeHeap worstFirst(int initialCapacity) {
+        return new NodeHeap(false, initialCapacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int topNode() {
+        return nodes[0];
+    }
+
+    public float topScore() {
+        return scores[0];
+    }
+
+    public void push(int node, float score) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!outranks(score, scores[parent])) {
+                break;
+            }
+            nodes[index] = nodes[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        nodes[index] = node;
+        scores[index] = score;
+    }
+
+    public int pop() {
+        int top = nodes[0];
+        size--;
+        if (size > 0) {
+            siftDown(nodes[size], scores[size]);
+        }
+        return top;
+    }
+
+    /**
+     * Drains the heap into arrays ordered from highest to lowest score.
+     */
+    public ScoredNodes drainDescending() {
+        int count = size;
+        int[] orderedNodes = new int[count];
+        float[] orderedScores = new float[count];
+        for (int i = 0; i < count; i++) {
+            int target = bestFirst ? i : count - 1 - i;
+            orderedScores[target] = topScore();
+            orderedNodes[target] = pop();
+        }
+        return new ScoredNodes(orderedNodes, orderedScores);
+    }
+
+    private void siftDown(int node, float score) {
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && outranks(scores[right], scores[child])) {
+                child = right;
+            }
+            if (!outranks(scores[child], score)) {
+                break;
+            }
+            nodes[index] = nodes[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        nodes[index] = node;
+        scores[index] = score;
+    }
+
+    private boolean outranks(float candidate, float incumbent) {
+        return bestFirst ? candidate > incumbent : candidate < incumbent;
+    }
+
+    public record ScoredNodes(int[] nodes, float[] scores) {
+        public int size() {
+            return nodes.length;
+        }
+    }
+}
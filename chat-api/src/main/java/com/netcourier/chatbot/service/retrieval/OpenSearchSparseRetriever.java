@@ -2,9 +2,14 @@ package com.netcourier.chatbot.service.retrieval;
 
 import com.netcourier.chatbot.model.ChatRequest;
 import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -12,13 +17,15 @@ import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @Component
-public class OpenSearchSparseRetriever implements SparseRetriever {
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "opensearch", matchIfMissing = true)
+public class OpenSearchSparseRetriever implements SparseRetriever, ChunkHydrator {
 
     private static final Logger log = LoggerFactory.getLogger(OpenSearchSparseRetriever.class);
 
@@ -29,87 +36,151 @@ public class OpenSearchSparseRetriever implements SparseRetriever {
     private final int topK;
     private final String tenantField;
     private final String rolesField;
+    private final boolean projection;
+    private final TenantPartitioning partitioning;
+    private final RequestHedger hedger;
+    private final FilterCache<List<Map<String, Object>>> filters = new FilterCache<>();
 
+    @Autowired
     public OpenSearchSparseRetriever(WebClient openSearchWebClient,
                                      @Value("${chat.opensearch.index:nc_chunks}") String indexAlias,
                                      @Value("${chat.rag.sparse.top-k:8}") int topK,
                                      @Value("${chat.opensearch.tenant-field:tenantId}") String tenantField,
-                                     @Value("${chat.opensearch.roles-field:roles}") String rolesField) {
+                                     @Value("${chat.opensearch.roles-field:roles}") String rolesField,
+                                     @Value("${chat.rag.projection.enabled:true}") boolean projection,
+                                     TenantPartitioning partitioning,
+                                     RequestHedger hedger) {
         this.openSearchWebClient = openSearchWebClient;
         this.indexAlias = indexAlias;
         this.topK = topK;
         this.tenantField = tenantField;
         this.rolesField = rolesField;
+        this.projection = projection;
+        this.partitioning = partitioning;
+        this.hedger = hedger;
+    }
+
+    public OpenSearchSparseRetriever(WebClient openSearchWebClient,
+                                     String indexAlias,
+                                     int topK,
+                                     String tenantField,
+                                     String rolesField,
+                                     boolean projection,
+                                     TenantPartitioning partitioning) {
+        this(openSearchWebClient, indexAlias, topK, tenantField, rolesField, projection, partitioning, RequestHedger.disabled());
+    }
+
+    public OpenSearchSparseRetriever(WebClient openSearchWebClient,
+                                     String indexAlias,
+                                     int topK,
+                                     String tenantField,
+                                     String rolesField) {
+        this(openSearchWebClient, indexAlias, topK, tenantField, rolesField, false,
+                TenantPartitioning.shared("nc_chunks_v1", indexAlias));
     }
 
     @Override
     public List<RetrievedChunk> search(ChatRequest request, String intent) {
-        String queryText = Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
-                .filter(text -> !text.isBlank())
-                .orElse("help");
-        OpenSearchQuery query = buildQuery(request, queryText);
         try {
-            OpenSearchResponse response = openSearchWebClient.post()
-                    .uri("/{index}/_search", indexAlias)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(query)
-                    .retrieve()
-                    .bodyToMono(OpenSearchResponse.class)
-                    .onErrorResume(throwable -> {
-                        log.warn("OpenSearch query failed: {}", throwable.getMessage());
-                        return Mono.just(new OpenSearchResponse(Collections.emptyList()));
-                    })
-                    .block();
-            if (response == null) {
-                return Collections.emptyList();
-            }
-            return response.toChunks();
+            List<RetrievedChunk> chunks = searchAsync(request, intent).block();
+            return chunks == null ? Collections.emptyList() : chunks;
         } catch (Exception e) {
             log.warn("Failed to query OpenSearch", e);
             return Collections.emptyList();
         }
     }
 
-    private OpenSearchQuery buildQuery(ChatRequest request, String queryText) {
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+        return searchAsync(request, intent, topK);
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+        String queryText = Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
+                .filter(text -> !text.isBlank())
+                .orElse("help");
+        OpenSearchQuery query = buildQuery(request, queryText, topK);
+        return hedger.hedge("opensearch", () -> openSearchWebClient.post()
+                        .uri("/{index}/_search", searchIndices(request.tenantId()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(query)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .as(body -> SearchHitDecoder.OPENSEARCH_HITS.decode(body, topK)))
+                .defaultIfEmpty(Collections.emptyList())
+                .onErrorResume(throwable -> {
+                    log.warn("OpenSearch query failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(Collections.emptyList());
+                });
+    }
+
+    @Override
+    public String source() {
+        return "opensearch";
+    }
+
+    @Override
+    public Mono<Map<String, String>> fetchText(String tenantId, List<String> chunkIds) {
+        OpenSearchQuery query = new OpenSearchQuery(chunkIds.size(),
+                Map.of("ids", Map.of("values", chunkIds)), List.of("chunkId", "text"));
+        return openSearchWebClient.post()
+                .uri("/{index}/_search", searchIndices(tenantId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(query)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(body -> SearchHitDecoder.OPENSEARCH_HITS.decode(body, chunkIds.size()))
+                .<Map<String, String>>map(hits -> {
+                    Map<String, String> texts = new HashMap<>();
+                    hits.stream()
+                            .filter(hit -> hit.chunkId() != null && hit.text() != null)
+                            .forEach(hit -> texts.put(hit.chunkId(), hit.text()));
+                    return texts;
+                })
+                .defaultIfEmpty(Map.of())
+                .onErrorResume(throwable -> {
+                    log.warn("OpenSearch text lookup failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(Map.of());
+                });
+    }
+
+    /**
+     * A dedicated tenant's index plus the shared alias for GLOBAL content, in one multi-index search; the
+     * tenant filter still applies, so a shared tenant's query is unchanged.
+     */
+    private String searchIndices(String tenantId) {
+        String tenantIndex = partitioning.openSearchIndex(tenantId);
+        return tenantIndex.equals(indexAlias) ? indexAlias : tenantIndex + "," + indexAlias;
+    }
+
+    private OpenSearchQuery buildQuery(ChatRequest request, String queryText, int topK) {
+        Map<String, Object> match = Map.of("match", Map.of("text", Map.of("query", queryText)));
+        Map<String, Object> bool = new LinkedHashMap<>();
+        bool.put("filter", filters.get(request.tenantId(), request.roleSet(), this::buildFilters));
+        bool.put("must", List.of(match));
+        Map<String, Object> query = Map.of("bool", bool);
+        List<String> fields = projection
+                ? List.of("docId", "chunkId", "title", "page")
+                : List.of("docId", "chunkId", "title", "page", "text");
+        return new OpenSearchQuery(topK, query, fields);
+    }
+
+    private List<Map<String, Object>> buildFilters(String tenantId, RoleSet roles) {
         List<Map<String, Object>> filters = new ArrayList<>();
         List<String> tenants = new ArrayList<>();
-        if (request.tenantId() != null && !request.tenantId().isBlank()) {
-            tenants.add(request.tenantId());
+        if (tenantId != null && !tenantId.isBlank()) {
+            tenants.add(tenantId);
         }
         if (!tenants.contains(GLOBAL_TENANT_ID)) {
             tenants.add(GLOBAL_TENANT_ID);
         }
         filters.add(Map.of("terms", Map.of(tenantField, List.copyOf(tenants))));
-        if (request.context() != null && request.context().roles() != null && !request.context().roles().isEmpty()) {
-            filters.add(Map.of("terms", Map.of(rolesField, request.context().roles())));
+        if (!roles.isEmpty()) {
+            filters.add(Map.of("terms", Map.of(rolesField, roles.names())));
         }
-        Map<String, Object> match = Map.of("match", Map.of("text", Map.of("query", queryText)));
-        Map<String, Object> bool = new LinkedHashMap<>();
-        bool.put("filter", filters);
-        bool.put("must", List.of(match));
-        Map<String, Object> query = Map.of("bool", bool);
-        return new OpenSearchQuery(topK, query, List.of("docId", "title", "page", "text"));
+        return List.copyOf(filters);
     }
 
     private record OpenSearchQuery(int size, Map<String, Object> query, List<String> _source) {}
-
-    private record OpenSearchResponse(List<Hit> hits) {
-        List<RetrievedChunk> toChunks() {
-            if (hits == null) {
-                return Collections.emptyList();
-            }
-            return hits.stream().map(Hit::toChunk).toList();
-        }
-    }
-
-    private record Hit(double score, Source _source) {
-        RetrievedChunk toChunk() {
-            if (_source == null) {
-                return new RetrievedChunk("", "", 0, "", score, "opensearch");
-            }
-            return new RetrievedChunk(_source.docId(), _source.title(), _source.page(), _source.text(), score, "opensearch");
-        }
-    }
-
-    private record Source(String docId, String title, int page, String text) {}
 }
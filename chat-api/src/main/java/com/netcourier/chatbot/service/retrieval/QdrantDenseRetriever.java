@@ -1,27 +1,52 @@
 package com.netcourier.chatbot.service.retrieval;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.netcourier.chatbot.model.ChatRequest;
 import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.DocumentVectorIndex;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Component
-public class QdrantDenseRetriever implements DenseRetriever {
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant", matchIfMissing = true)
+public class QdrantDenseRetriever implements DenseRetriever, ChunkHydrator, ChunkVectors {
 
     private static final Logger log = LoggerFactory.getLogger(QdrantDenseRetriever.class);
 
     private static final String GLOBAL_TENANT_ID = "GLOBAL";
+    private static final String DOC_ID_FIELD = "docId";
+    private static final String CHUNK_ID_FIELD = "chunkId";
+    private static final Map<String, Object> RRF_FUSION = Map.of("fusion", "rrf");
+    private static final Map<String, Object> PROJECTED_PAYLOAD = Map.of("include", List.of("docId", "chunkId", "title", "page"));
+    private static final Map<String, Object> TEXT_PAYLOAD = Map.of("include", List.of("chunkId", "text"));
+    private static final Map<String, Object> CHUNK_ID_PAYLOAD = Map.of("include", List.of("chunkId"));
 
     private final WebClient qdrantWebClient;
     private final String collection;
@@ -29,74 +54,365 @@ public class QdrantDenseRetriever implements DenseRetriever {
     private final String vectorName;
     private final String tenantField;
     private final String roleField;
+    private final Map<String, Object> searchParams;
+    private final QdrantCollectionProperties.Truncation truncation;
+    private final EmbeddingsClient embeddingsClient;
+    private final QdrantCollectionProperties.Sparse sparse;
+    private final boolean hybrid;
+    private final Object withPayload;
+    private final TenantPartitioning partitioning;
+    private final GlobalCorpusReplica replica;
+    private final RequestHedger hedger;
+    private final DocumentVectorIndex documents;
+    private final FilterCache<QueryFilter> filters = new FilterCache<>();
 
+    @Autowired
     public QdrantDenseRetriever(WebClient qdrantWebClient,
                                 @Value("${chat.qdrant.collection:nc_chunks_v1}") String collection,
                                 @Value("${chat.rag.dense.top-k:8}") int topK,
                                 @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
                                 @Value("${chat.qdrant.filters.tenant-field:tenantId}") String tenantField,
-                                @Value("${chat.qdrant.filters.role-field:roles}") String roleField) {
+                                @Value("${chat.qdrant.filters.role-field:roles}") String roleField,
+                                QdrantCollectionProperties collectionProperties,
+                                EmbeddingsClient embeddingsClient,
+                                @Value("${chat.rag.sparse.backend:opensearch}") String sparseBackend,
+                                @Value("${chat.rag.projection.enabled:true}") boolean projection,
+                                TenantPartitioning partitioning,
+                                ObjectProvider<GlobalCorpusReplica> replica,
+                                RequestHedger hedger,
+                                DocumentVectorIndex documents) {
+        this(qdrantWebClient, collection, topK, vectorName, tenantField, roleField, collectionProperties, embeddingsClient,
+                sparseBackend, projection, partitioning, hedger, documents, replica.getIfAvailable());
+    }
+
+    public QdrantDenseRetriever(WebClient qdrantWebClient,
+                                String collection,
+                                int topK,
+                                String vectorName,
+                                String tenantField,
+                                String roleField,
+                                QdrantCollectionProperties collectionProperties,
+                                EmbeddingsClient embeddingsClient,
+                                String sparseBackend,
+                                boolean projection,
+                                TenantPartitioning partitioning) {
+        this(qdrantWebClient, collection, topK, vectorName, tenantField, roleField, collectionProperties, embeddingsClient,
+                sparseBackend, projection, partitioning, RequestHedger.disabled(), null, null);
+    }
+
+    QdrantDenseRetriever(WebClient qdrantWebClient,
+                         String collection,
+                         int topK,
+                         String vectorName,
+                         String tenantField,
+                         String roleField,
+                         QdrantCollectionProperties collectionProperties,
+                         EmbeddingsClient embeddingsClient,
+                         String sparseBackend,
+                         boolean projection,
+                         TenantPartitioning partitioning,
+                         RequestHedger hedger,
+                         DocumentVectorIndex documents,
+                         GlobalCorpusReplica replica) {
         this.qdrantWebClient = qdrantWebClient;
         this.collection = collection;
         this.topK = topK;
         this.vectorName = vectorName;
         this.tenantField = tenantField;
         this.roleField = roleField;
+        this.searchParams = collectionProperties.activeProfile().searchParams();
+        this.truncation = collectionProperties.getTruncation();
+        this.embeddingsClient = embeddingsClient;
+        this.sparse = collectionProperties.getSparse();
+        this.hybrid = "qdrant".equalsIgnoreCase(sparseBackend);
+        this.withPayload = projection ? PROJECTED_PAYLOAD : Boolean.TRUE;
+        this.partitioning = partitioning;
+        this.replica = replica;
+        this.hedger = hedger;
+        this.documents = documents != null && documents.isEnabled() ? documents : null;
+    }
+
+    public QdrantDenseRetriever(WebClient qdrantWebClient,
+                                String collection,
+                                int topK,
+                                String vectorName,
+                                String tenantField,
+                                String roleField) {
+        this(qdrantWebClient, collection, topK, vectorName, tenantField, roleField, new QdrantCollectionProperties(), null, "opensearch", false,
+                TenantPartitioning.shared(collection, "nc_chunks"));
     }
 
     @Override
     public List<RetrievedChunk> search(ChatRequest request, String intent) {
+        try {
+            List<RetrievedChunk> chunks = searchAsync(request, intent).block();
+            return chunks == null ? Collections.emptyList() : chunks;
+        } catch (Exception e) {
+            log.warn("Failed to query Qdrant", e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+        return searchAsync(request, intent, topK);
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
         String query = Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
                 .filter(content -> !content.isBlank())
                 .orElse("Hello");
-        List<RetrievedChunk> combined = new ArrayList<>();
-        QueryFilter tenantFilter = buildFilter(request, request.tenantId());
-        combined.addAll(executeSearch(new DenseQueryPayload(query, topK, vectorName, tenantFilter)));
-        if (!GLOBAL_TENANT_ID.equals(request.tenantId())) {
-            QueryFilter globalFilter = buildFilter(request, GLOBAL_TENANT_ID);
-            combined.addAll(executeSearch(new DenseQueryPayload(query, topK, vectorName, globalFilter)));
+        if (embeddingsClient == null) {
+            return textSearch(request, query, topK);
         }
-        combined.sort(Comparator.comparingDouble(RetrievedChunk::score).reversed());
-        return combined;
+        return Mono.deferContextual(context -> truncation.isEnabled() || hybrid || documents != null
+                || QueryEmbedding.held(context, query) != null
+                ? querySearch(request, query, topK)
+                : textSearch(request, query, topK));
     }
 
-    private List<RetrievedChunk> executeSearch(DenseQueryPayload payload) {
-        try {
-            QdrantResponse response = qdrantWebClient.post()
-                    .uri("/collections/{collection}/points/search", collection)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(payload)
-                    .retrieve()
-                    .bodyToMono(QdrantResponse.class)
-                    .onErrorResume(throwable -> {
-                        log.warn("Qdrant search failed: {}", throwable.getMessage());
-                        return Mono.just(new QdrantResponse(Collections.emptyList()));
-                    })
-                    .block();
-            if (response == null) {
-                return Collections.emptyList();
+    /**
+     * Search by query text, which Qdrant embeds server side; used when nothing on this side needs the vector and
+     * no caller has embedded the query already.
+     */
+    private Mono<List<RetrievedChunk>> textSearch(ChatRequest request, String query, int topK) {
+        boolean globalLocal = embeddingsClient != null && replica != null && replica.serves(request.tenantId());
+        Map<String, List<DenseQueryPayload>> searches = new LinkedHashMap<>();
+        for (String scope : scopes(request.tenantId(), globalLocal)) {
+            searches.computeIfAbsent(partitioning.qdrantCollection(scope), ignored -> new ArrayList<>(2))
+                    .add(new DenseQueryPayload(query, topK, vectorName, buildFilter(request, scope), withPayload, searchParams));
+        }
+        Flux<List<RetrievedChunk>> results = Flux.fromIterable(searches.entrySet())
+                .flatMap(batch -> executeBatch(batch.getKey(), new BatchSearchPayload(batch.getValue())));
+        if (globalLocal) {
+            results = results.mergeWith(localGlobalSearch(request, query, topK));
+        }
+        return results
+                .<List<RetrievedChunk>>collect(ArrayList::new, List::addAll)
+                .map(combined -> {
+                    combined.sort(Comparator.comparingDouble(RetrievedChunk::score).reversed());
+                    return combined;
+                });
+    }
+
+    /**
+     * The GLOBAL half of a search answered from the node-local replica. Qdrant embeds the query server side on
+     * this path, so the replica needs its own embedding of it; that call runs concurrently with the tenant search.
+     */
+    private Mono<List<RetrievedChunk>> localGlobalSearch(ChatRequest request, String query, int topK) {
+        return QueryEmbedding.embed(embeddingsClient, query)
+                .publishOn(Schedulers.boundedElastic())
+                .map(embedding -> replica.searchDense(embedding.vectors().getFirst(), request.roleSet(), topK))
+                .onErrorResume(throwable -> {
+                    log.warn("Local GLOBAL search failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(new ArrayList<>());
+                });
+    }
+
+    /**
+     * Sends the tenant and GLOBAL searches in a single {@code /points/search/batch} round trip. Each
+     * search keeps its own filter and limit, so the per-scope top-k semantics are unchanged. A tenant
+     * with a dedicated collection costs a second, concurrent batch.
+     */
+    private Mono<List<RetrievedChunk>> executeBatch(String collection, BatchSearchPayload payload) {
+        return hedger.hedge("qdrant", () -> qdrantWebClient.post()
+                        .uri("/collections/{collection}/points/search/batch", collection)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(payload)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .as(body -> SearchHitDecoder.QDRANT_SEARCH_BATCH.decode(body,
+                                payload.searches().stream().mapToInt(DenseQueryPayload::limit).sum())))
+                .defaultIfEmpty(new ArrayList<>())
+                .onErrorResume(throwable -> {
+                    log.warn("Qdrant search failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(new ArrayList<>());
+                });
+    }
+
+    /**
+     * Query-API path used when the prefix vector, Qdrant-side hybrid search or document-level retrieval is
+     * enabled, or when the caller already embedded the query. The query is embedded here unless it was handed
+     * down in the context, so its prefix and lexical weights can drive the prefetches. In hybrid
+     * mode each scope prefetches dense and sparse candidates and Qdrant fuses them with RRF, which replaces the
+     * separate OpenSearch call. With document-level retrieval the chunk search is restricted to the documents
+     * closest to the query, or left unrestricted when none are found.
+     */
+    private Mono<List<RetrievedChunk>> querySearch(ChatRequest request, String query, int topK) {
+        return QueryEmbedding.embed(embeddingsClient, query)
+                .flatMapMany(embedding -> candidateDocuments(request, embedding.vectors().getFirst())
+                        .flatMapMany(documentIds -> queryBatches(request, embedding, documentIds, topK)))
+                .<List<RetrievedChunk>>collect(ArrayList::new, List::addAll)
+                .map(combined -> {
+                    combined.sort(Comparator.comparingDouble(RetrievedChunk::score).reversed());
+                    return combined;
+                })
+                .defaultIfEmpty(new ArrayList<>())
+                .onErrorResume(throwable -> {
+                    log.warn("Qdrant query failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(new ArrayList<>());
+                });
+    }
+
+    private Mono<List<String>> candidateDocuments(ChatRequest request, List<Double> query) {
+        if (documents == null) {
+            return Mono.just(List.of());
+        }
+        List<QueryFilter> scopeFilters = scopes(request.tenantId(), false).stream()
+                .map(scope -> buildFilter(request, scope))
+                .toList();
+        return hedger.hedge("qdrant", () -> documents.topDocuments(query, scopeFilters));
+    }
+
+    private Flux<List<RetrievedChunk>> queryBatches(ChatRequest request, EmbeddingsClient.EmbeddingBatch embedding,
+                                                    List<String> documentIds, int topK) {
+        List<Double> full = embedding.vectors().getFirst();
+        EmbeddingsClient.SparseVector lexical = hybrid ? embedding.sparseAt(0) : null;
+        // Qdrant-side RRF needs both scopes in the same fusion, so hybrid mode keeps GLOBAL remote;
+        // the replica has no document-level index, so neither does a document-restricted search
+        boolean globalLocal = !hybrid && documentIds.isEmpty() && replica != null && replica.serves(request.tenantId());
+        Map<String, List<QueryPayload>> batches = new LinkedHashMap<>();
+        for (String scope : scopes(request.tenantId(), globalLocal)) {
+            QueryFilter filter = restrict(buildFilter(request, scope), documentIds);
+            List<QueryPayload> searches = batches.computeIfAbsent(partitioning.qdrantCollection(scope),
+                    ignored -> new ArrayList<>(2));
+            if (hybrid) {
+                int pool = topK * Math.max(1, sparse.getCandidateMultiplier());
+                List<Prefetch> branches = new ArrayList<>(2);
+                branches.add(denseBranch(full, filter, pool));
+                if (lexical != null) {
+                    branches.add(new Prefetch(null, lexical, sparse.getVectorName(), pool, filter, null));
+                }
+                searches.add(new QueryPayload(branches, RRF_FUSION, null, topK, filter, withPayload, null));
+            } else {
+                Prefetch dense = denseBranch(full, filter, topK);
+                searches.add(new QueryPayload(dense.prefetch(), full, vectorName, topK, filter, withPayload, searchParams));
             }
-            return response.toChunks();
-        } catch (Exception e) {
-            log.warn("Failed to query Qdrant", e);
-            return Collections.emptyList();
         }
+        Flux<List<RetrievedChunk>> remote = Flux.fromIterable(batches.entrySet())
+                .flatMap(batch -> hedger.hedge("qdrant", () -> qdrantWebClient.post()
+                                .uri("/collections/{collection}/points/query/batch", batch.getKey())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(new QueryBatchPayload(batch.getValue()))
+                                .retrieve()
+                                .bodyToFlux(DataBuffer.class)
+                                .as(body -> SearchHitDecoder.QDRANT_QUERY_BATCH.decode(body,
+                                        batch.getValue().stream().mapToInt(QueryPayload::limit).sum()))));
+        return globalLocal
+                ? remote.startWith(replica.searchDense(full, request.roleSet(), topK))
+                : remote;
     }
 
-    private QueryFilter buildFilter(ChatRequest request, String tenantId) {
-        QueryFilterBuilder builder = new QueryFilterBuilder().mustMatch(tenantField, tenantId);
-        if (request.context() != null && request.context().roles() != null && !request.context().roles().isEmpty()) {
-            builder.mustAny(roleField, request.context().roles().stream().toList());
+    @Override
+    public String source() {
+        return "qdrant";
+    }
+
+    /**
+     * Scrolls the points whose {@code chunkId} payload matches rather than searching again. Point ids are
+     * derived from the chunk ids, not equal to them, so the lookup filters on the payload field instead.
+     */
+    @Override
+    public Mono<Map<String, String>> fetchText(String tenantId, List<String> chunkIds) {
+        QueryFilter filter = new QueryFilter(List.of(
+                new FieldCondition(CHUNK_ID_FIELD, Match.any(chunkIds)),
+                new FieldCondition(tenantField, Match.any(scopes(tenantId, false)))));
+        return Flux.fromIterable(new LinkedHashSet<>(List.of(partitioning.qdrantCollection(tenantId), collection)))
+                .flatMap(target -> qdrantWebClient.post()
+                        .uri("/collections/{collection}/points/scroll", target)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(new ScrollPayload(filter, chunkIds.size(), TEXT_PAYLOAD, false))
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)
+                        .as(body -> SearchHitDecoder.QDRANT_SCROLL.decode(body, chunkIds.size())))
+                .<Map<String, String>>collect(HashMap::new, (texts, points) -> points.stream()
+                        .filter(point -> point.chunkId() != null && point.text() != null)
+                        .forEach(point -> texts.put(point.chunkId(), point.text())))
+                .onErrorResume(throwable -> {
+                    log.warn("Qdrant text lookup failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(Map.of());
+                });
+    }
+
+    /**
+     * Scrolls the points whose {@code chunkId} payload matches, returning their full-size vectors.
+     */
+    @Override
+    public Mono<Map<String, List<Double>>> fetchVectors(String tenantId, List<String> chunkIds) {
+        QueryFilter filter = new QueryFilter(List.of(
+                new FieldCondition(CHUNK_ID_FIELD, Match.any(chunkIds)),
+                new FieldCondition(tenantField, Match.any(scopes(tenantId, false)))));
+        return Flux.fromIterable(new LinkedHashSet<>(List.of(partitioning.qdrantCollection(tenantId), collection)))
+                .flatMap(target -> qdrantWebClient.post()
+                        .uri("/collections/{collection}/points/scroll", target)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(new ScrollPayload(filter, chunkIds.size(), CHUNK_ID_PAYLOAD, List.of(vectorName)))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .<Map<String, List<Double>>>collect(HashMap::new, (vectors, response) ->
+                        response.path("result").path("points").forEach(point -> {
+                            String chunkId = point.path("payload").path(CHUNK_ID_FIELD).asText(null);
+                            JsonNode vector = point.path("vector").path(vectorName);
+                            if (chunkId != null && vector.isArray()) {
+                                List<Double> values = new ArrayList<>(vector.size());
+                                vector.forEach(value -> values.add(value.asDouble()));
+                                vectors.put(chunkId, values);
+                            }
+                        }));
+    }
+
+    private Prefetch denseBranch(List<Double> full, QueryFilter filter, int limit) {
+        if (!truncation.isEnabled()) {
+            return new Prefetch(null, full, vectorName, limit, filter, searchParams);
         }
-        return builder.build();
+        int candidates = limit * Math.max(1, truncation.getCandidateMultiplier());
+        Prefetch prefix = new Prefetch(null, truncation.prefix(full), truncation.vectorName(vectorName), candidates, filter, null);
+        return new Prefetch(List.of(prefix), full, vectorName, limit, filter, searchParams);
     }
 
-    private record DenseQueryPayload(String query, int limit, String vector, QueryFilter filter, boolean withPayload) {
-        private DenseQueryPayload(String query, int limit, String vector, QueryFilter filter) {
-            this(query, limit, vector, filter, true);
+    private static QueryFilter restrict(QueryFilter filter, List<String> documentIds) {
+        if (documentIds.isEmpty()) {
+            return filter;
         }
+        List<FieldCondition> must = new ArrayList<>(filter == null ? List.of() : filter.must());
+        must.add(new FieldCondition(DOC_ID_FIELD, Match.any(documentIds)));
+        return new QueryFilter(List.copyOf(must));
+    }
+
+    private static List<String> scopes(String tenantId, boolean globalLocal) {
+        return GLOBAL_TENANT_ID.equals(tenantId) || globalLocal ? List.of(tenantId) : List.of(tenantId, GLOBAL_TENANT_ID);
+    }
+
+    private QueryFilter buildFilter(ChatRequest request, String tenantId) {
+        return filters.get(tenantId, request.roleSet(), this::buildFilter);
     }
 
+    private QueryFilter buildFilter(String tenantId, RoleSet roles) {
+        return new QueryFilterBuilder()
+                .mustMatch(tenantField, tenantId)
+                .mustAny(roleField, roles.names())
+                .build();
+    }
+
+    private record DenseQueryPayload(String query, int limit, String vector, QueryFilter filter,
+                                     @JsonProperty("with_payload") Object withPayload, Map<String, Object> params) {}
+
+    private record BatchSearchPayload(List<DenseQueryPayload> searches) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Prefetch(List<Prefetch> prefetch, Object query, String using, int limit, QueryFilter filter,
+                            Map<String, Object> params) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record QueryPayload(List<Prefetch> prefetch, Object query, String using, int limit, QueryFilter filter,
+                                @JsonProperty("with_payload") Object withPayload, Map<String, Object> params) {}
+
+    private record ScrollPayload(QueryFilter filter, int limit, @JsonProperty("with_payload") Object withPayload,
+                                 @JsonProperty("with_vector") Object withVector) {}
+
+    private record QueryBatchPayload(List<QueryPayload> searches) {}
+
     private record QueryFilter(List<FieldCondition> must) {}
 
     private record FieldCondition(String key, Match match) {}
@@ -132,21 +448,4 @@ public class QdrantDenseRetriever implements DenseRetriever {
             return must.isEmpty() ? null : new QueryFilter(List.copyOf(must));
         }
     }
-
-    private record QdrantResponse(List<Result> result) {
-        List<RetrievedChunk> toChunks() {
-            return result == null ? Collections.emptyList() : result.stream().map(Result::toChunk).toList();
-        }
-    }
-
-    private record Result(double score, Payload payload) {
-        RetrievedChunk toChunk() {
-            if (payload == null) {
-                return new RetrievedChunk("", "", 0, "", score, "qdrant");
-            }
-            return new RetrievedChunk(payload.docId(), payload.title(), payload.page(), payload.text(), score, "qdrant");
-        }
-    }
-
-    private record Payload(String docId, String title, int page, String text) {}
 }
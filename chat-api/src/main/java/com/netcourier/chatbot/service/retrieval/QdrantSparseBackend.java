@@ -0,0 +1,36 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.SearchIndexClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Sparse side of {@code chat.rag.sparse.backend=qdrant}. Lexical weights are written with the dense upsert and
+ * fused by Qdrant inside the dense query, so there is nothing to index or search here; it only stands in for
+ * OpenSearch so that cluster can be left out of the deployment.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "qdrant")
+public class QdrantSparseBackend implements SearchIndexClient, SparseRetriever {
+
+    @Override
+    public void index(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        // stored by QdrantVectorStoreClient alongside the dense vector
+    }
+
+    @Override
+    public List<RetrievedChunk> search(ChatRequest request, String intent) {
+        return List.of();
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+        return Mono.just(List.of());
+    }
+}
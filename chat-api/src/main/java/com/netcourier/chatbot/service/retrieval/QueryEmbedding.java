@@ -0,0 +1,51 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+
+/**
+ * An embedding of the query computed before retrieval started, such as the one {@link ConversationWorkingSet}
+ * scores a follow-up with. {@link HybridRagService} puts it in the Reactor context and the dense retrievers take
+ * it from there through {@link #embed} instead of embedding the same text again.
+ */
+public final class QueryEmbedding {
+
+    private final String query;
+    private final EmbeddingsClient.EmbeddingBatch embedding;
+
+    public QueryEmbedding(String query, EmbeddingsClient.EmbeddingBatch embedding) {
+        this.query = query;
+        this.embedding = embedding;
+    }
+
+    /**
+     * The embedding of {@code query}: the one in the context when it was computed for the same text, otherwise a
+     * call to {@code embeddingsClient} on the bounded elastic scheduler.
+     */
+    public static Mono<EmbeddingsClient.EmbeddingBatch> embed(EmbeddingsClient embeddingsClient, String query) {
+        return Mono.deferContextual(context -> {
+            QueryEmbedding held = held(context, query);
+            return held != null
+                    ? Mono.just(held.embedding)
+                    : Mono.fromCallable(() -> embeddingsClient.embed(List.of(query))).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    static QueryEmbedding held(ContextView context, String query) {
+        QueryEmbedding held = context.getOrDefault(QueryEmbedding.class, null);
+        return held != null && held.query.equals(query) ? held : null;
+    }
+
+    public EmbeddingsClient.EmbeddingBatch embedding() {
+        return embedding;
+    }
+
+    public Context attach(Context context) {
+        return context.put(QueryEmbedding.class, this);
+    }
+}
@@ -7,4 +7,22 @@ import java.util.List;
 
 public interface RagService {
     List<RetrievedChunk> retrieve(ChatRequest request, String intent);
+
+    /**
+     * Same as {@link #retrieve}, flagging a result that a failed or timed-out backend call left partial so it is
+     * not cached as if it were complete.
+     */
+    default Retrieval retrieveWithStatus(ChatRequest request, String intent) {
+        return new Retrieval(retrieve(request, intent), false);
+    }
+
+    /**
+     * Same as {@link #retrieveWithStatus(ChatRequest, String)}, reusing an embedding of the query the caller
+     * already computed where a dense retriever would otherwise embed it again.
+     */
+    default Retrieval retrieveWithStatus(ChatRequest request, String intent, QueryEmbedding queryEmbedding) {
+        return retrieveWithStatus(request, intent);
+    }
+
+    record Retrieval(List<RetrievedChunk> chunks, boolean degraded) {}
 }
@@ -0,0 +1,156 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Hedges read requests to the search backends. When an attempt has not answered within the configured
+ * percentile of that backend's recent latency, an identical request is sent and whichever answers first wins;
+ * the loser is cancelled. Each request earns {@code budget-percent / 100} of a hedge, so duplicates stay within
+ * that share of the backend's traffic even while it is slow across the board.
+ */
+@Component
+public class RequestHedger {
+
+    private static final int MIN_SAMPLES = 32;
+    private static final int RECOMPUTE_EVERY = 32;
+    private static final double MAX_TOKENS = 10d;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double budgetRatio;
+    private final long minDelayNanos;
+    private final int window;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler timer;
+    private final Map<String, Backend> backends = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestHedger(MeterRegistry meterRegistry,
+                         @Value("${chat.rag.hedging.enabled:false}") boolean enabled,
+                         @Value("${chat.rag.hedging.percentile:0.95}") double percentile,
+                         @Value("${chat.rag.hedging.budget-percent:5}") double budgetPercent,
+                         @Value("${chat.rag.hedging.min-delay-ms:5}") long minDelayMillis,
+                         @Value("${chat.rag.hedging.window:512}") int window) {
+        this(meterRegistry, enabled, percentile, budgetPercent, Duration.ofMillis(minDelayMillis), window, Schedulers.parallel());
+    }
+
+    RequestHedger(MeterRegistry meterRegistry,
+                  boolean enabled,
+                  double percentile,
+                  double budgetPercent,
+                  Duration minDelay,
+                  int window,
+                  Scheduler timer) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = Math.min(1d, Math.max(0d, percentile));
+        this.budgetRatio = Math.max(0d, budgetPercent) / 100d;
+        this.minDelayNanos = Math.max(0L, minDelay.toNanos());
+        this.window = Math.max(MIN_SAMPLES, window);
+        this.timer = timer;
+    }
+
+    public static RequestHedger disabled() {
+        return new RequestHedger(new SimpleMeterRegistry(), false, 0.95, 0, Duration.ZERO, MIN_SAMPLES, Schedulers.parallel());
+    }
+
+    /**
+     * Subscribes to {@code attempt} and, once the backend has a latency history, to a second copy of it if the
+     * first is still outstanding at the hedge delay. Only idempotent reads may be passed in.
+     */
+    public <T> Mono<T> hedge(String backendName, Supplier<Mono<T>> attempt) {
+        if (!enabled) {
+            return attempt.get();
+        }
+        Backend backend = backends.computeIfAbsent(backendName, Backend::new);
+        backend.earn();
+        Mono<T> primary = backend.timed(Mono.defer(attempt));
+        long delay = backend.delayNanos();
+        if (delay < 0) {
+            return primary;
+        }
+        Mono<T> hedged = Mono.delay(Duration.ofNanos(delay), timer)
+                .flatMap(tick -> {
+                    if (!backend.spend()) {
+                        backend.denied.increment();
+                        return Mono.<T>never();
+                    }
+                    backend.sent.increment();
+                    return backend.timed(Mono.defer(attempt))
+                            .doOnNext(value -> backend.won.increment());
+                });
+        return Mono.firstWithSignal(primary, hedged);
+    }
+
+    /** Current hedge delay for the backend, or -1 while it has too few samples to hedge. */
+    long delayNanos(String backendName) {
+        Backend backend = backends.get(backendName);
+        return backend == null ? -1 : backend.delayNanos();
+    }
+
+    private final class Backend {
+        private final long[] samples = new long[window];
+        private final Counter sent;
+        private final Counter denied;
+        private final Counter won;
+        private int recorded;
+        private double tokens;
+        private volatile long delayNanos = -1;
+
+        Backend(String name) {
+            this.sent = meterRegistry.counter("chat.rag.hedging.hedges", "backend", name, "outcome", "sent");
+            this.denied = meterRegistry.counter("chat.rag.hedging.hedges", "backend", name, "outcome", "budget-exhausted");
+            this.won = meterRegistry.counter("chat.rag.hedging.hedges", "backend", name, "outcome", "won");
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+
+        <T> Mono<T> timed(Mono<T> attempt) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return attempt.doOnNext(value -> record(System.nanoTime() - start));
+            });
+        }
+
+        synchronized void earn() {
+            tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+        }
+
+        synchronized boolean spend() {
+            if (tokens < 1d) {
+                return false;
+            }
+            tokens -= 1d;
+            return true;
+        }
+
+        private synchronized void record(long nanos) {
+            samples[recorded++ % samples.length] = nanos;
+            if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0) {
+                long[] recent = Arrays.copyOf(samples, Math.min(recorded, samples.length));
+                Arrays.sort(recent);
+                int index = (int) Math.ceil(percentile * recent.length) - 1;
+                delayNanos = Math.max(minDelayNanos, recent[Math.max(0, index)]);
+            }
+            if (recorded == Integer.MAX_VALUE) {
+                recorded = samples.length;
+            }
+        }
+    }
+}
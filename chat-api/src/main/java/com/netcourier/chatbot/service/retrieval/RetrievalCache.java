@@ -0,0 +1,148 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU of fused retrieval results. Entries remember the ingestion epochs they were computed
+ * under and are treated as misses once either the tenant or the GLOBAL epoch has moved on.
+ */
+public class RetrievalCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int CHUNK_OVERHEAD_BYTES = 64;
+
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Duration emptyTtl;
+    private final Clock clock;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong currentBytes = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+    private final Counter evictionCounter;
+
+    public RetrievalCache(long maxBytes, Duration ttl, Duration emptyTtl, Clock clock, MeterRegistry meterRegistry) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.ttl = ttl;
+        this.emptyTtl = emptyTtl;
+        this.clock = clock;
+        this.hitCounter = meterRegistry.counter("chat.rag.cache.requests", "outcome", "hit");
+        this.missCounter = meterRegistry.counter("chat.rag.cache.requests", "outcome", "miss");
+        this.staleCounter = meterRegistry.counter("chat.rag.cache.requests", "outcome", "stale");
+        this.evictionCounter = meterRegistry.counter("chat.rag.cache.evictions");
+        meterRegistry.gauge("chat.rag.cache.bytes", currentBytes);
+    }
+
+    public synchronized Optional<List<RetrievedChunk>> get(Key key, long tenantEpoch, long globalEpoch) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        if (entry.tenantEpoch() != tenantEpoch || entry.globalEpoch() != globalEpoch
+                || clock.millis() >= entry.expiresAtMillis()) {
+            remove(key);
+            staleCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        return Optional.of(entry.chunks());
+    }
+
+    public void put(Key key, List<RetrievedChunk> chunks, long tenantEpoch, long globalEpoch) {
+        put(key, chunks, tenantEpoch, globalEpoch, false);
+    }
+
+    /**
+     * A degraded result, left partial by a failed or timed-out backend, is kept only for the empty-result TTL
+     * so the complete answer replaces it soon after the backend recovers.
+     */
+    public synchronized void put(Key key, List<RetrievedChunk> chunks, long tenantEpoch, long globalEpoch, boolean degraded) {
+        List<RetrievedChunk> value = chunks == null ? List.of() : List.copyOf(chunks);
+        long bytes = weigh(key, value);
+        if (bytes > maxBytes) {
+            return;
+        }
+        remove(key);
+        Duration lifetime = value.isEmpty() || degraded ? emptyTtl : ttl;
+        entries.put(key, new Entry(value, tenantEpoch, globalEpoch, clock.millis() + lifetime.toMillis(), bytes));
+        currentBytes.addAndGet(bytes);
+        evictToBudget();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long bytes() {
+        return currentBytes.get();
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (currentBytes.get() > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            currentBytes.addAndGet(-eldest.bytes());
+            evictionCounter.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes.addAndGet(-removed.bytes());
+        }
+    }
+
+    private long weigh(Key key, List<RetrievedChunk> chunks) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * (key.query().length() + key.roles().length());
+        for (RetrievedChunk chunk : chunks) {
+            bytes += CHUNK_OVERHEAD_BYTES + 2L * (length(chunk.text()) + length(chunk.title()) + length(chunk.docId()) + length(chunk.chunkId()));
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public record Key(String tenantId, String roles, String intent, String query) {
+
+        public static Key of(ChatRequest request, String intent) {
+            Set<String> roles = request.context() == null || request.context().roles() == null
+                    ? Set.of()
+                    : request.context().roles();
+            List<ChatTurn> turns = request.turns();
+            String query = turns == null || turns.isEmpty() ? null : turns.getLast().content();
+            return new Key(
+                    request.tenantId(),
+                    String.join(",", roles.stream().sorted().toList()),
+                    intent,
+                    normalise(query)
+            );
+        }
+
+        private static String normalise(String query) {
+            return query == null ? "" : query.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Entry(List<RetrievedChunk> chunks, long tenantEpoch, long globalEpoch, long expiresAtMillis, long bytes) {}
+}
@@ -0,0 +1,45 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.orchestration.TokenBudgetGuard;
+
+import java.util.List;
+
+/**
+ * What one retrieval did, stage by stage: each retriever's hits with their raw scores, the fused pool with the
+ * per-retriever contributions behind every fused score, the chunks that survived diversity selection and the
+ * token budget, and the backend calls underneath.
+ */
+public record RetrievalExplanation(String tenantId,
+                                   List<String> roles,
+                                   String intent,
+                                   double totalMs,
+                                   Stage dense,
+                                   Stage sparse,
+                                   List<FusedCandidate> fused,
+                                   List<Hit> selected,
+                                   ContextWindow context,
+                                   List<RetrievalTrace.BackendCall> calls) {
+
+    /** {@code latencyMs} includes a widened second round when adaptive top-k ran one. */
+    public record Stage(long latencyMs, List<Hit> hits) {}
+
+    public record Hit(String key, String docId, String chunkId, String title, int page, String source,
+                      double score, int tokens, String text) {
+
+        static Hit of(RetrievedChunk chunk) {
+            return new Hit(FusionEngine.key(chunk), chunk.docId(), chunk.chunkId(), chunk.title(), chunk.page(),
+                    chunk.source(), chunk.score(), TokenBudgetGuard.estimateTokens(chunk.text()), chunk.text());
+        }
+
+        static List<Hit> of(List<RetrievedChunk> chunks) {
+            return chunks.stream().map(Hit::of).toList();
+        }
+    }
+
+    public record FusedCandidate(String key, String docId, double fusedScore,
+                                 List<FusionEngine.Contribution> contributions, boolean selected) {}
+
+    /** The selected chunks as the orchestrator would pass them to the model, best score first. */
+    public record ContextWindow(List<String> accepted, List<String> dropped, int tokens, boolean truncated) {}
+}
@@ -0,0 +1,32 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Notes whether a failed or timed-out backend call left a retrieval partial. {@link HybridRagService} puts one
+ * in the Reactor context; a retriever or hydrator that falls back on error returns its fallback through
+ * {@link #degraded}, and callers outside a retrieval pay one context lookup.
+ */
+public final class RetrievalStatus {
+
+    private volatile boolean degraded;
+
+    public static <T> Mono<T> degraded(T fallback) {
+        return Mono.deferContextual(context -> {
+            RetrievalStatus status = context.getOrDefault(RetrievalStatus.class, null);
+            if (status != null) {
+                status.degraded = true;
+            }
+            return Mono.just(fallback);
+        });
+    }
+
+    public Context attach(Context context) {
+        return context.put(RetrievalStatus.class, this);
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+}
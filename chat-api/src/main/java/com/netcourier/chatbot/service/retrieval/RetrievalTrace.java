@@ -0,0 +1,140 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records the backend HTTP calls made while a retrieval runs, for the explain endpoint. The filter is installed
+ * on the search clients but does nothing unless the subscriber put a trace in the Reactor context, so ordinary
+ * traffic pays one context lookup per call. Every attempt is recorded, including retries and hedges.
+ */
+public final class RetrievalTrace {
+
+    private static final int MAX_CAPTURED_CHARS = 64 * 1024;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ConcurrentLinkedQueue<Call> calls = new ConcurrentLinkedQueue<>();
+
+    public static ExchangeFilterFunction filter(String backend) {
+        return (request, next) -> Mono.deferContextual(context -> {
+            RetrievalTrace trace = context.getOrDefault(RetrievalTrace.class, null);
+            return trace == null ? next.exchange(request) : trace.record(backend, request, next);
+        });
+    }
+
+    public Context attach(Context context) {
+        return context.put(RetrievalTrace.class, this);
+    }
+
+    public List<BackendCall> calls() {
+        List<BackendCall> snapshot = new ArrayList<>(calls.size());
+        calls.forEach(call -> snapshot.add(call.snapshot()));
+        return snapshot;
+    }
+
+    private Mono<ClientResponse> record(String backend, ClientRequest request, ExchangeFunction next) {
+        Call call = new Call(backend, request.method().name(), request.url().getPath(), System.nanoTime());
+        calls.add(call);
+        ClientRequest capturing = ClientRequest.from(request)
+                .body((output, context) -> request.body().insert(new ClientHttpRequestDecorator(output) {
+                    @Override
+                    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                        return super.writeWith(Flux.from(body).doOnNext(call::captureRequest));
+                    }
+                }, context))
+                .build();
+        return next.exchange(capturing)
+                .map(response -> {
+                    call.status = response.statusCode().value();
+                    call.finish();
+                    return response.mutate()
+                            .body(body -> body.doOnNext(call::countResponse).doFinally(signal -> call.finish()))
+                            .build();
+                })
+                .doOnError(throwable -> {
+                    call.error = throwable.toString();
+                    call.finish();
+                });
+    }
+
+    /**
+     * One backend call. {@code request} is the body as sent, which carries the filters; it is kept as text when
+     * it was truncated or is not JSON. {@code latencyMs} runs until the response body was fully read.
+     */
+    public record BackendCall(String backend, String method, String path, int status, double latencyMs,
+                              long requestBytes, long responseBytes, JsonNode request, String error) {}
+
+    private static final class Call {
+        private final String backend;
+        private final String method;
+        private final String path;
+        private final long startNanos;
+        private final StringBuilder body = new StringBuilder();
+        private volatile long requestBytes;
+        private volatile long responseBytes;
+        private volatile long endNanos;
+        private volatile int status;
+        private volatile String error;
+
+        Call(String backend, String method, String path, long startNanos) {
+            this.backend = backend;
+            this.method = method;
+            this.path = path;
+            this.startNanos = startNanos;
+        }
+
+        synchronized void captureRequest(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            requestBytes += length;
+            int room = MAX_CAPTURED_CHARS - body.length();
+            if (room > 0) {
+                body.append(buffer.toString(buffer.readPosition(), Math.min(length, room), StandardCharsets.UTF_8));
+            }
+        }
+
+        void countResponse(DataBuffer buffer) {
+            responseBytes += buffer.readableByteCount();
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        synchronized BackendCall snapshot() {
+            long end = endNanos == 0 ? System.nanoTime() : endNanos;
+            return new BackendCall(backend, method, path, status, (end - startNanos) / 1_000_000d,
+                    requestBytes, responseBytes, parse(), error);
+        }
+
+        private JsonNode parse() {
+            if (body.isEmpty()) {
+                return null;
+            }
+            if (requestBytes <= MAX_CAPTURED_CHARS) {
+                try {
+                    return MAPPER.readTree(body.toString());
+                } catch (IOException e) {
+                    // fall through to the raw text
+                }
+            }
+            return TextNode.valueOf(body.toString());
+        }
+    }
+}
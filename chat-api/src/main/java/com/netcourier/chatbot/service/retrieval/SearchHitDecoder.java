@@ -0,0 +1,237 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes search responses into {@link RetrievedChunk}s as the body arrives, on Jackson's non-blocking parser.
+ * Each layout names the path from the root object to the hit objects; a hit's score and the chunk fields of its
+ * payload are read straight into the chunk, and every other subtree (vectors, roles, metadata, shard stats) is
+ * stepped over by depth without building values. Nothing is buffered beyond the current network chunk, and once
+ * {@code maxHits} hits are in the rest of the body is released unparsed.
+ */
+final class SearchHitDecoder {
+
+    private static final String ELEMENT = "[]";
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** {@code /points/search/batch}: one array of hits per search. */
+    static final SearchHitDecoder QDRANT_SEARCH_BATCH = new SearchHitDecoder("qdrant", "score", "payload",
+            "result", ELEMENT, ELEMENT);
+    /** {@code /points/query/batch}: one {@code points} array per query. */
+    static final SearchHitDecoder QDRANT_QUERY_BATCH = new SearchHitDecoder("qdrant", "score", "payload",
+            "result", ELEMENT, "points", ELEMENT);
+    /** {@code /points/scroll}: one page of {@code points}, which carry no score. */
+    static final SearchHitDecoder QDRANT_SCROLL = new SearchHitDecoder("qdrant", "score", "payload",
+            "result", "points", ELEMENT);
+    static final SearchHitDecoder OPENSEARCH_HITS = new SearchHitDecoder("opensearch", "_score", "_source",
+            "hits", "hits", ELEMENT);
+
+    private final String source;
+    private final String scoreField;
+    private final String payloadField;
+    private final String[] hitPath;
+
+    private SearchHitDecoder(String source, String scoreField, String payloadField, String... hitPath) {
+        this.source = source;
+        this.scoreField = scoreField;
+        this.payloadField = payloadField;
+        this.hitPath = hitPath;
+    }
+
+    /**
+     * Hits in response order. {@code maxHits} is the most the request can return (the sum of its limits);
+     * zero or less reads the whole body.
+     */
+    Mono<List<RetrievedChunk>> decode(Flux<DataBuffer> body, int maxHits) {
+        return Mono.defer(() -> {
+            Session session = new Session(maxHits);
+            return body
+                    .doOnNext(buffer -> {
+                        try {
+                            session.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(session::finish))
+                    .doFinally(signal -> session.close());
+        });
+    }
+
+    private final class Session {
+
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final int maxHits;
+        private final List<RetrievedChunk> hits = new ArrayList<>();
+        private final boolean[] arrays = new boolean[hitPath.length + 2];
+        private int depth;
+        private int skipDepth;
+        private String field;
+        private boolean done;
+
+        private int hitDepth = -1;
+        private boolean inPayload;
+        private boolean hasPayload;
+        private double score;
+        private String docId;
+        private String chunkId;
+        private String title;
+        private String text;
+        private int page;
+
+        Session(int maxHits) {
+            try {
+                this.parser = JSON.createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            this.maxHits = maxHits;
+        }
+
+        void feed(DataBuffer buffer) {
+            if (done) {
+                return;
+            }
+            try (DataBuffer.ByteBufferIterator buffers = buffer.readableByteBuffers()) {
+                while (buffers.hasNext() && !done) {
+                    ByteBuffer next = buffers.next();
+                    if (next.hasRemaining()) {
+                        feeder.feedInput(next);
+                        drain();
+                    }
+                }
+            } catch (IOException e) {
+                throw new DecodingException("Malformed " + source + " response: " + e.getMessage(), e);
+            }
+        }
+
+        List<RetrievedChunk> finish() {
+            if (!done) {
+                feeder.endOfInput();
+                try {
+                    drain();
+                } catch (IOException e) {
+                    throw new DecodingException("Malformed " + source + " response: " + e.getMessage(), e);
+                }
+                if (depth != 0) {
+                    throw new DecodingException("Truncated " + source + " response");
+                }
+            }
+            return hits;
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (skipDepth > 0) {
+                    if (token.isStructStart()) {
+                        skipDepth++;
+                    } else if (token.isStructEnd()) {
+                        skipDepth--;
+                    }
+                    continue;
+                }
+                switch (token) {
+                    case FIELD_NAME -> field = parser.currentName();
+                    case START_OBJECT -> enter(false);
+                    case START_ARRAY -> enter(true);
+                    case END_OBJECT, END_ARRAY -> leave();
+                    default -> value(token);
+                }
+            }
+        }
+
+        private void enter(boolean array) {
+            if (hitDepth >= 0) {
+                if (!inPayload && !array && payloadField.equals(field)) {
+                    depth++;
+                    inPayload = true;
+                    hasPayload = true;
+                } else {
+                    skipDepth = 1;
+                }
+                return;
+            }
+            if (depth == 0) {
+                arrays[++depth] = array;
+                return;
+            }
+            int step = depth - 1;
+            String name = arrays[depth] ? ELEMENT : field;
+            if (step >= hitPath.length || !hitPath[step].equals(name) || (step == hitPath.length - 1 && array)) {
+                skipDepth = 1;
+                return;
+            }
+            arrays[++depth] = array;
+            if (step == hitPath.length - 1) {
+                hitDepth = depth;
+                inPayload = false;
+                hasPayload = false;
+                score = 0d;
+                docId = null;
+                chunkId = null;
+                title = null;
+                text = null;
+                page = 0;
+            }
+        }
+
+        private void leave() {
+            if (hitDepth >= 0 && inPayload) {
+                inPayload = false;
+            } else if (hitDepth >= 0) {
+                hits.add(hasPayload
+                        ? new RetrievedChunk(docId, title, page, text, score, source, chunkId)
+                        : new RetrievedChunk("", "", 0, "", score, source));
+                hitDepth = -1;
+                done = maxHits > 0 && hits.size() >= maxHits;
+            }
+            depth--;
+        }
+
+        private void value(JsonToken token) throws IOException {
+            if (hitDepth < 0) {
+                return;
+            }
+            if (inPayload) {
+                switch (field) {
+                    case "docId" -> docId = parser.getValueAsString();
+                    case "chunkId" -> chunkId = parser.getValueAsString();
+                    case "title" -> title = parser.getValueAsString();
+                    case "text" -> text = parser.getValueAsString();
+                    case "page" -> page = parser.getValueAsInt(0);
+                    default -> {
+                        // not part of a chunk
+                    }
+                }
+            } else if (scoreField.equals(field) && token.isNumeric()) {
+                score = parser.getDoubleValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.IngestionException;
+import com.netcourier.chatbot.service.ingestion.SearchIndexClient;
+import com.netcourier.chatbot.service.retrieval.NodeHeap;
+import com.netcourier.chatbot.service.retrieval.SparseRetriever;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded lexical backend replacing OpenSearch's {@code match} query. Every {@link #index} call writes
+ * one small immutable segment; once {@code merge-factor} segments pile up the smallest ones are merged
+ * on a background thread, dropping chunks that were replaced by re-ingestion.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.sparse.backend", havingValue = "embedded")
+public class Bm25Index implements SearchIndexClient, SparseRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(Bm25Index.class);
+
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+    private static final String MANIFEST_FILE = "segments.manifest";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int MANIFEST_MAGIC = 0x4E43424D;
+    private static final int MANIFEST_VERSION = 1;
+
+    private final Path directory;
+    private final int topK;
+    private final float k1;
+    private final float b;
+    private final int mergeFactor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object mergeMonitor = new Object();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bm25-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<LiveSegment> segments = new ArrayList<>();
+
+    public Bm25Index(@Value("${chat.rag.bm25.path:./data/bm25}") String directory,
+                     @Value("${chat.rag.sparse.top-k:8}") int topK,
+                     @Value("${chat.rag.bm25.k1:1.2}") float k1,
+                     @Value("${chat.rag.bm25.b:0.75}") float b,
+                     @Value("${chat.rag.bm25.merge-factor:8}") int mergeFactor) {
+        this.directory = Path.of(directory);
+        this.topK = topK;
+        this.k1 = k1;
+        this.b = b;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        load();
+    }
+
+    @Override
+    public void index(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        try {
+            SegmentWriter writer = new SegmentWriter();
+            for (EmbeddedChunk chunk : chunks) {
+                writer.add(new StoredChunk(chunk.id(), tenantId, docId, chunk.title(), chunk.page(), chunk.text(),
+                        chunk.roles() == null ? new String[0] : chunk.roles().toArray(String[]::new)));
+            }
+            Segment segment = writeSegment(writer);
+            lock.writeLock().lock();
+            try {
+                for (LiveSegment existing : segments) {
+                    existing.deleted().or(existing.segment().docsForDocument(tenantId, docId));
+                }
+                segments.add(new LiveSegment(segment, new BitSet()));
+                persistManifest();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (UncheckedIOException | IllegalStateException e) {
+            throw new IngestionException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to index chunks in embedded BM25 index", e);
+        }
+        scheduleMergeIfNeeded();
+    }
+
+    @Override
+    public List<RetrievedChunk> search(ChatRequest request, String intent) {
+        return search(request, topK);
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+        return Mono.fromCallable(() -> search(request, topK))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private List<RetrievedChunk> search(ChatRequest request, int topK) {
+        String queryText = Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
+                .filter(text -> !text.isBlank())
+                .orElse("help");
+        String[] terms = Bm25Tokenizer.tokenize(queryText).stream().distinct().toArray(String[]::new);
+        RoleSet roles = request.roleSet();
+        lock.readLock().lock();
+        try {
+            return search(terms, request.tenantId(), roles, topK);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            for (LiveSegment live : segments) {
+                live.segment().close();
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void merge() {
+        synchronized (mergeMonitor) {
+            List<LiveSegment> sources;
+            List<BitSet> deletedAtStart = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (segments.size() < 2) {
+                    return;
+                }
+                sources = segments.stream()
+                        .sorted(Comparator.comparingInt(live -> live.segment().docCount()))
+                        .limit(mergeFactor)
+                        .toList();
+                for (LiveSegment source : sources) {
+                    deletedAtStart.add((BitSet) source.deleted().clone());
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            SegmentWriter writer = new SegmentWriter();
+            int[][] remapped = new int[sources.size()][];
+            for (int i = 0; i < sources.size(); i++) {
+                Segment source = sources.get(i).segment();
+                remapped[i] = new int[source.docCount()];
+                Arrays.fill(remapped[i], -1);
+                for (int doc = 0; doc < source.docCount(); doc++) {
+                    if (!deletedAtStart.get(i).get(doc)) {
+                        remapped[i][doc] = writer.add(source.stored(doc));
+                    }
+                }
+            }
+            Segment merged = writer.docCount() == 0 ? null : writeSegment(writer);
+
+            lock.writeLock().lock();
+            try {
+                int position = segments.indexOf(sources.getFirst());
+                for (LiveSegment source : sources) {
+                    position = Math.min(position, segments.indexOf(source));
+                }
+                segments.removeAll(sources);
+                if (merged != null) {
+                    BitSet mergedDeleted = new BitSet();
+                    for (int i = 0; i < sources.size(); i++) {
+                        BitSet deletedSince = (BitSet) sources.get(i).deleted().clone();
+                        deletedSince.andNot(deletedAtStart.get(i));
+                        for (int doc = deletedSince.nextSetBit(0); doc >= 0; doc = deletedSince.nextSetBit(doc + 1)) {
+                            mergedDeleted.set(remapped[i][doc]);
+                        }
+                    }
+                    segments.add(position, new LiveSegment(merged, mergedDeleted));
+                }
+                persistManifest();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (LiveSegment source : sources) {
+                discard(source.segment());
+            }
+            log.debug("Merged {} BM25 segments into {}", sources.size(), merged == null ? "nothing" : merged.file().getFileName());
+        }
+    }
+
+    private List<RetrievedChunk> search(String[] terms, String tenantId, RoleSet roles, int topK) {
+        if (terms.length == 0 || segments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long docCount = 0;
+        long totalLength = 0;
+        int[] bases = new int[segments.size()];
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s).segment();
+            bases[s] = (int) docCount;
+            docCount += segment.docCount();
+            totalLength += segment.totalLength();
+        }
+        float averageLength = docCount == 0 ? 1f : Math.max(1f, (float) totalLength / docCount);
+        float[] idf = new float[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            long docFreq = 0;
+            for (LiveSegment live : segments) {
+                docFreq += live.segment().docFreq(terms[t]);
+            }
+            idf[t] = (float) Math.log(1d + (docCount - docFreq + 0.5d) / (docFreq + 0.5d));
+        }
+
+        NodeHeap top = NodeHeap.worstFirst(topK + 1);
+        for (int s = 0; s < segments.size(); s++) {
+            LiveSegment live = segments.get(s);
+            Segment segment = live.segment();
+            BitSet accept = accepted(live, tenantId, roles);
+            if (accept.isEmpty()) {
+                continue;
+            }
+            float[] scores = new float[segment.docCount()];
+            for (int t = 0; t < terms.length; t++) {
+                Segment.PostingsCursor cursor = segment.postings(terms[t]);
+                if (cursor == null) {
+                    continue;
+                }
+                while (cursor.next()) {
+                    int doc = cursor.doc();
+                    if (accept.get(doc)) {
+                        float freq = cursor.freq();
+                        float norm = k1 * (1f - b + b * segment.length(doc) / averageLength);
+                        scores[doc] += idf[t] * freq * (k1 + 1f) / (freq + norm);
+                    }
+                }
+            }
+            for (int doc = accept.nextSetBit(0); doc >= 0; doc = accept.nextSetBit(doc + 1)) {
+                if (scores[doc] > 0f && (top.size() < topK || scores[doc] > top.topScore())) {
+                    top.push(bases[s] + doc, scores[doc]);
+                    if (top.size() > topK) {
+                        top.pop();
+                    }
+                }
+            }
+        }
+
+        NodeHeap.ScoredNodes hits = top.drainDescending();
+        List<RetrievedChunk> chunks = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            int node = hits.nodes()[i];
+            int s = Arrays.binarySearch(bases, node);
+            if (s < 0) {
+                s = -s - 2;
+            }
+            StoredChunk stored = segments.get(s).segment().stored(node - bases[s]);
+            chunks.add(new RetrievedChunk(stored.docId(), stored.title(), stored.page(), stored.text(), hits.scores()[i], "bm25", stored.chunkId()));
+        }
+        return chunks;
+    }
+
+    private BitSet accepted(LiveSegment live, String tenantId, RoleSet roles) {
+        Segment segment = live.segment();
+        BitSet accept = (BitSet) segment.docsForTenant(GLOBAL_TENANT_ID).clone();
+        if (tenantId != null && !tenantId.isBlank()) {
+            accept.or(segment.docsForTenant(tenantId));
+        }
+        if (!roles.isEmpty()) {
+            BitSet visible = new BitSet(segment.docCount());
+            for (String role : roles.names()) {
+                visible.or(segment.docsForRole(role));
+            }
+            accept.and(visible);
+        }
+        accept.andNot(live.deleted());
+        return accept;
+    }
+
+    private void scheduleMergeIfNeeded() {
+        if (segmentCount() < mergeFactor || !mergeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            merger.execute(() -> {
+                try {
+                    merge();
+                } catch (RuntimeException e) {
+                    log.warn("Background BM25 merge failed: {}", e.getMessage());
+                } finally {
+                    mergeScheduled.set(false);
+                }
+                scheduleMergeIfNeeded();
+            });
+        } catch (RuntimeException e) {
+            mergeScheduled.set(false);
+            log.debug("BM25 merge not scheduled: {}", e.getMessage());
+        }
+    }
+
+    private Segment writeSegment(SegmentWriter writer) {
+        createDirectory();
+        Path file = directory.resolve(String.format("seg-%08d%s", nextGeneration.getAndIncrement(), SEGMENT_SUFFIX));
+        writer.write(file);
+        return Segment.open(file);
+    }
+
+    private void persistManifest() {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        Path temp = directory.resolve(MANIFEST_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(nextGeneration.get());
+            out.writeInt(segments.size());
+            for (LiveSegment live : segments) {
+                out.writeUTF(live.segment().file().getFileName().toString());
+                long[] words = live.deleted().toLongArray();
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write BM25 manifest", e);
+        }
+        try {
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish BM25 manifest", e);
+        }
+    }
+
+    private void load() {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        Set<String> referenced = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                log.warn("Ignoring BM25 index at {} written by an incompatible version", directory);
+                return;
+            }
+            nextGeneration.set(in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long[] words = new long[in.readInt()];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = in.readLong();
+                }
+                referenced.add(name);
+                segments.add(new LiveSegment(Segment.open(directory.resolve(name)), BitSet.valueOf(words)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load BM25 index from " + directory, e);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "seg-*")) {
+            for (Path file : files) {
+                if (!referenced.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to remove orphaned BM25 segments from {}: {}", directory, e.getMessage());
+        }
+        log.info("Loaded embedded BM25 index from {} with {} segments", directory, segments.size());
+    }
+
+    private void discard(Segment segment) {
+        try {
+            segment.close();
+            Files.deleteIfExists(segment.file());
+        } catch (IOException e) {
+            log.warn("Failed to remove merged BM25 segment {}: {}", segment.file(), e.getMessage());
+        }
+    }
+
+    private void createDirectory() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create BM25 index directory " + directory, e);
+        }
+    }
+
+    private record LiveSegment(Segment segment, BitSet deleted) {}
+}
@@ -0,0 +1,35 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text on anything that is not a letter or digit and lower-cases the result, which is close
+ * enough to OpenSearch's standard analyzer for the {@code match} queries we used to send there.
+ */
+final class Bm25Tokenizer {
+
+    private Bm25Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        text.codePoints().forEach(codePoint -> {
+            if (Character.isLetterOrDigit(codePoint)) {
+                current.appendCodePoint(codePoint);
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString().toLowerCase(Locale.ROOT));
+                current.setLength(0);
+            }
+        });
+        if (!current.isEmpty()) {
+            tokens.add(current.toString().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+}
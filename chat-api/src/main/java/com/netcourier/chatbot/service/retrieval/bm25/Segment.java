@@ -0,0 +1,193 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of a segment file written by {@link SegmentWriter}. The term dictionary and per-chunk
+ * filter bitsets are loaded on open; postings and stored chunks are decoded straight from the mapping.
+ */
+final class Segment implements Closeable {
+
+    static final int MAGIC = 0x4E434253;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 36;
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final long totalLength;
+    private final int storedStart;
+    private final int postingsStart;
+    private final int[] lengths;
+    private final int[] storedOffsets;
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] postingOffsets;
+    private final Map<String, BitSet> docsByTenant = new HashMap<>();
+    private final Map<String, BitSet> docsByRole = new HashMap<>();
+    private final Map<String, BitSet> docsByDocument = new HashMap<>();
+
+    private Segment(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            channel.close();
+            throw new IOException("Unrecognised BM25 segment " + file);
+        }
+        this.docCount = header.getInt();
+        int termCount = header.getInt();
+        this.totalLength = header.getLong();
+        this.storedStart = header.getInt();
+        int dictionaryStart = header.getInt();
+        this.postingsStart = header.getInt();
+        this.lengths = new int[docCount];
+        this.storedOffsets = new int[docCount];
+        for (int doc = 0; doc < docCount; doc++) {
+            lengths[doc] = header.getInt();
+            storedOffsets[doc] = header.getInt();
+        }
+
+        ByteBuffer dictionary = buffer.duplicate().position(dictionaryStart);
+        this.terms = new String[termCount];
+        this.docFreqs = new int[termCount];
+        this.postingOffsets = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            terms[i] = StoredChunk.readString(dictionary);
+            docFreqs[i] = dictionary.getInt();
+            postingOffsets[i] = dictionary.getInt();
+        }
+
+        for (int doc = 0; doc < docCount; doc++) {
+            StoredChunk chunk = stored(doc);
+            docsByTenant.computeIfAbsent(chunk.tenantId(), key -> new BitSet(docCount)).set(doc);
+            docsByDocument.computeIfAbsent(documentKey(chunk.tenantId(), chunk.docId()), key -> new BitSet(docCount)).set(doc);
+            for (String role : chunk.roles()) {
+                docsByRole.computeIfAbsent(role, key -> new BitSet(docCount)).set(doc);
+            }
+        }
+    }
+
+    static Segment open(Path file) {
+        try {
+            return new Segment(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open BM25 segment " + file, e);
+        }
+    }
+
+    static String documentKey(String tenantId, String docId) {
+        return tenantId + '\u0000' + docId;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    long totalLength() {
+        return totalLength;
+    }
+
+    int length(int doc) {
+        return lengths[doc];
+    }
+
+    int docFreq(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index < 0 ? 0 : docFreqs[index];
+    }
+
+    /**
+     * Returns a cursor over the postings of {@code term}, or {@code null} when the segment never saw it.
+     */
+    PostingsCursor postings(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        if (index < 0) {
+            return null;
+        }
+        return new PostingsCursor(buffer.duplicate().position(postingsStart + postingOffsets[index]), docFreqs[index]);
+    }
+
+    StoredChunk stored(int doc) {
+        return StoredChunk.readFrom(buffer.duplicate().position(storedStart + storedOffsets[doc]));
+    }
+
+    BitSet docsForTenant(String tenantId) {
+        return docsByTenant.getOrDefault(tenantId, EMPTY);
+    }
+
+    BitSet docsForRole(String role) {
+        return docsByRole.getOrDefault(role, EMPTY);
+    }
+
+    BitSet docsForDocument(String tenantId, String docId) {
+        return docsByDocument.getOrDefault(documentKey(tenantId, docId), EMPTY);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static final class PostingsCursor {
+
+        private final ByteBuffer in;
+        private int remaining;
+        private int doc;
+        private int freq;
+
+        private PostingsCursor(ByteBuffer in, int docFreq) {
+            this.in = in;
+            this.remaining = docFreq;
+        }
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            doc += readVarInt();
+            freq = readVarInt();
+            return true;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = in.get();
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates chunks for one immutable segment. Postings are buffered as (doc, freq) pairs in growable
+ * int arrays and written delta + varint encoded.
+ */
+final class SegmentWriter {
+
+    private final List<StoredChunk> chunks = new ArrayList<>();
+    private final Map<String, TermPostings> postings = new HashMap<>();
+    private int[] lengths = new int[16];
+    private long totalLength;
+
+    int add(StoredChunk chunk) {
+        int doc = chunks.size();
+        chunks.add(chunk);
+        List<String> tokens = Bm25Tokenizer.tokenize(chunk.text());
+        if (doc == lengths.length) {
+            lengths = Arrays.copyOf(lengths, doc * 2);
+        }
+        lengths[doc] = tokens.size();
+        totalLength += tokens.size();
+        String[] sorted = tokens.toArray(String[]::new);
+        Arrays.sort(sorted);
+        int runStart = 0;
+        for (int i = 1; i <= sorted.length; i++) {
+            if (i == sorted.length || !sorted[i].equals(sorted[runStart])) {
+                postings.computeIfAbsent(sorted[runStart], term -> new TermPostings()).add(doc, i - runStart);
+                runStart = i;
+            }
+        }
+        return doc;
+    }
+
+    int docCount() {
+        return chunks.size();
+    }
+
+    void write(Path file) {
+        String[] terms = postings.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+        try {
+            ByteArrayOutputStream storedBytes = new ByteArrayOutputStream();
+            DataOutputStream stored = new DataOutputStream(storedBytes);
+            int[] storedOffsets = new int[chunks.size()];
+            for (int doc = 0; doc < chunks.size(); doc++) {
+                storedOffsets[doc] = stored.size();
+                chunks.get(doc).writeTo(stored);
+            }
+
+            ByteArrayOutputStream postingBytes = new ByteArrayOutputStream();
+            ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+            DataOutputStream dictionary = new DataOutputStream(dictionaryBytes);
+            for (String term : terms) {
+                TermPostings termPostings = postings.get(term);
+                int offset = postingBytes.size();
+                termPostings.encodeTo(postingBytes);
+                StoredChunk.writeString(dictionary, term);
+                dictionary.writeInt(termPostings.docFreq());
+                dictionary.writeInt(offset);
+            }
+
+            long storedStart = Segment.HEADER_BYTES + 8L * chunks.size();
+            long dictionaryStart = storedStart + storedBytes.size();
+            long postingsStart = dictionaryStart + dictionaryBytes.size();
+            if (postingsStart + postingBytes.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segment exceeds 2GB; lower chat.rag.bm25.merge-factor");
+            }
+
+            ByteArrayOutputStream fileBytes = new ByteArrayOutputStream((int) postingsStart + postingBytes.size());
+            DataOutputStream out = new DataOutputStream(fileBytes);
+            out.writeInt(Segment.MAGIC);
+            out.writeInt(Segment.VERSION);
+            out.writeInt(chunks.size());
+            out.writeInt(terms.length);
+            out.writeLong(totalLength);
+            out.writeInt((int) storedStart);
+            out.writeInt((int) dictionaryStart);
+            out.writeInt((int) postingsStart);
+            for (int doc = 0; doc < chunks.size(); doc++) {
+                out.writeInt(lengths[doc]);
+                out.writeInt(storedOffsets[doc]);
+            }
+            storedBytes.writeTo(out);
+            dictionaryBytes.writeTo(out);
+            postingBytes.writeTo(out);
+            out.flush();
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, fileBytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write BM25 segment " + file, e);
+        }
+    }
+
+    private static final class TermPostings {
+
+        private int[] pairs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size++] = doc;
+            pairs[size++] = freq;
+        }
+
+        int docFreq() {
+            return size / 2;
+        }
+
+        void encodeTo(ByteArrayOutputStream out) {
+            int previous = 0;
+            for (int i = 0; i < size; i += 2) {
+                writeVarInt(out, pairs[i] - previous);
+                writeVarInt(out, pairs[i + 1]);
+                previous = pairs[i];
+            }
+        }
+
+        private static void writeVarInt(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
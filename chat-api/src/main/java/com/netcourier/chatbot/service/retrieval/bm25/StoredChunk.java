@@ -0,0 +1,56 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+record StoredChunk(String chunkId, String tenantId, String docId, String title, int page, String text, String[] roles) {
+
+    void writeTo(DataOutputStream out) throws IOException {
+        writeString(out, chunkId);
+        writeString(out, tenantId);
+        writeString(out, docId);
+        writeString(out, title);
+        out.writeInt(page);
+        writeString(out, text);
+        out.writeShort(roles.length);
+        for (String role : roles) {
+            writeString(out, role);
+        }
+    }
+
+    static StoredChunk readFrom(ByteBuffer in) {
+        String chunkId = readString(in);
+        String tenantId = readString(in);
+        String docId = readString(in);
+        String title = readString(in);
+        int page = in.getInt();
+        String text = readString(in);
+        String[] roles = new String[in.getShort()];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = readString(in);
+        }
+        return new StoredChunk(chunkId, tenantId, docId, title, page, text, roles);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,360 @@
+package com.netcourier.chatbot.service.retrieval.grpc;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.IngestionException;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.QdrantVectorStoreClient;
+import com.netcourier.chatbot.service.ingestion.VectorStoreClient;
+import com.netcourier.chatbot.service.retrieval.DenseRetriever;
+import com.netcourier.chatbot.service.retrieval.FilterCache;
+import com.netcourier.chatbot.service.retrieval.QueryEmbedding;
+import com.netcourier.chatbot.service.retrieval.RetrievalStatus;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.TlsChannelCredentials;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.JsonWithInt.ListValue;
+import io.qdrant.client.grpc.JsonWithInt.Struct;
+import io.qdrant.client.grpc.Points.BatchResult;
+import io.qdrant.client.grpc.Points.Filter;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.QuantizationSearchParams;
+import io.qdrant.client.grpc.Points.ScoredPoint;
+import io.qdrant.client.grpc.Points.SearchParams;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.Vector;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+import static io.qdrant.client.ConditionFactory.matchKeywords;
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.value;
+import static io.qdrant.client.VectorFactory.vector;
+import static io.qdrant.client.VectorsFactory.namedVectors;
+import static io.qdrant.client.WithPayloadSelectorFactory.enable;
+
+/**
+ * Qdrant over its gRPC API instead of REST/JSON. Vectors travel as packed protobuf floats on one long-lived
+ * HTTP/2 channel, and tenant and GLOBAL scopes still share a single {@code SearchBatch} call. Point ids come
+ * from {@link QdrantVectorStoreClient#pointId}, so both transports address the same points.
+ * The collection itself is still managed over REST by {@code QdrantCollectionManager}.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "qdrant-grpc")
+public class QdrantGrpcVectorStore implements VectorStoreClient, DenseRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(QdrantGrpcVectorStore.class);
+
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+
+    private final QdrantClient client;
+    private final EmbeddingsClient embeddingsClient;
+    private final String collection;
+    private final int topK;
+    private final String vectorName;
+    private final String tenantField;
+    private final String roleField;
+    private final QdrantCollectionProperties.Truncation truncation;
+    private final SearchParams searchParams;
+    private final long upsertTimeoutMs;
+    private final FilterCache<Filter> filters = new FilterCache<>();
+
+    @Autowired
+    public QdrantGrpcVectorStore(EmbeddingsClient embeddingsClient,
+                                 QdrantCollectionProperties collectionProperties,
+                                 @Value("${chat.qdrant.grpc.host:localhost}") String host,
+                                 @Value("${chat.qdrant.grpc.port:6334}") int port,
+                                 @Value("${chat.qdrant.grpc.tls:false}") boolean tls,
+                                 @Value("${chat.qdrant.grpc.keep-alive-seconds:30}") long keepAliveSeconds,
+                                 @Value("${chat.qdrant.grpc.upsert-timeout-ms:10000}") long upsertTimeoutMs,
+                                 @Value("${chat.qdrant.collection:nc_chunks_v1}") String collection,
+                                 @Value("${chat.rag.dense.top-k:8}") int topK,
+                                 @Value("${chat.qdrant.vector-name:text_embeddings}") String vectorName,
+                                 @Value("${chat.qdrant.filters.tenant-field:tenantId}") String tenantField,
+                                 @Value("${chat.qdrant.filters.role-field:roles}") String roleField) {
+        this(new QdrantClient(QdrantGrpcClient.newBuilder(channel(host, port, tls, keepAliveSeconds), true).build()),
+                embeddingsClient, collectionProperties, upsertTimeoutMs, collection, topK, vectorName, tenantField, roleField);
+    }
+
+    QdrantGrpcVectorStore(QdrantClient client,
+                          EmbeddingsClient embeddingsClient,
+                          QdrantCollectionProperties collectionProperties,
+                          long upsertTimeoutMs,
+                          String collection,
+                          int topK,
+                          String vectorName,
+                          String tenantField,
+                          String roleField) {
+        this.client = client;
+        this.embeddingsClient = embeddingsClient;
+        this.collection = collection;
+        this.topK = topK;
+        this.vectorName = vectorName;
+        this.tenantField = tenantField;
+        this.roleField = roleField;
+        this.truncation = collectionProperties.getTruncation();
+        this.searchParams = searchParams(collectionProperties.activeProfile());
+        this.upsertTimeoutMs = upsertTimeoutMs;
+    }
+
+    private static ManagedChannel channel(String host, int port, boolean tls, long keepAliveSeconds) {
+        return Grpc.newChannelBuilderForAddress(host, port,
+                        tls ? TlsChannelCredentials.create() : InsecureChannelCredentials.create())
+                .keepAliveTime(keepAliveSeconds, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(true)
+                .build();
+    }
+
+    @Override
+    public void upsert(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        try {
+            client.upsertAsync(collection, points(tenantId, docId, chunks)).get(upsertTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Interrupted while upserting into Qdrant", e);
+        } catch (ExecutionException e) {
+            log.error("Failed to upsert into Qdrant over gRPC: {}", e.getCause().getMessage());
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to upsert into Qdrant", e.getCause());
+        } catch (Exception e) {
+            throw new IngestionException(HttpStatus.BAD_GATEWAY, "Failed to upsert into Qdrant", e);
+        }
+    }
+
+    @Override
+    public List<RetrievedChunk> search(ChatRequest request, String intent) {
+        try {
+            List<RetrievedChunk> chunks = searchAsync(request, intent).block();
+            return chunks == null ? Collections.emptyList() : chunks;
+        } catch (Exception e) {
+            log.warn("Failed to query Qdrant over gRPC", e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+        return searchAsync(request, intent, topK);
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+        String query = Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
+                .filter(content -> !content.isBlank())
+                .orElse("Hello");
+        return QueryEmbedding.embed(embeddingsClient, query)
+                .flatMap(embedding -> {
+                    List<Float> packed = floats(embedding.vectors().getFirst());
+                    List<SearchPoints> searches = new ArrayList<>(2);
+                    searches.add(searchPoints(packed, filter(request, request.tenantId()), topK));
+                    if (!GLOBAL_TENANT_ID.equals(request.tenantId())) {
+                        searches.add(searchPoints(packed, filter(request, GLOBAL_TENANT_ID), topK));
+                    }
+                    return toMono(client.searchBatchAsync(collection, searches, null));
+                })
+                .map(QdrantGrpcVectorStore::toChunks)
+                .defaultIfEmpty(new ArrayList<>())
+                .onErrorResume(throwable -> {
+                    log.warn("Qdrant gRPC search failed: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(new ArrayList<>());
+                });
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+    }
+
+    List<PointStruct> points(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        List<PointStruct> points = new ArrayList<>(chunks.size());
+        for (EmbeddedChunk chunk : chunks) {
+            points.add(PointStruct.newBuilder()
+                    .setId(id(QdrantVectorStoreClient.pointId(chunk.id())))
+                    .setVectors(namedVectors(vectorsFor(chunk)))
+                    .putAllPayload(payloadFor(tenantId, docId, chunk))
+                    .build());
+        }
+        return points;
+    }
+
+    private SearchPoints searchPoints(List<Float> vector, Filter filter, int topK) {
+        SearchPoints.Builder search = SearchPoints.newBuilder()
+                .setCollectionName(collection)
+                .addAllVector(vector)
+                .setVectorName(vectorName)
+                .setLimit(topK)
+                .setWithPayload(enable(true));
+        if (filter != null) {
+            search.setFilter(filter);
+        }
+        if (searchParams != null) {
+            search.setParams(searchParams);
+        }
+        return search.build();
+    }
+
+    private Filter filter(ChatRequest request, String tenantId) {
+        return filters.get(tenantId, request.roleSet(), this::filter);
+    }
+
+    private Filter filter(String tenantId, RoleSet roles) {
+        Filter.Builder filter = Filter.newBuilder();
+        if (tenantId != null && !tenantId.isBlank()) {
+            filter.addMust(matchKeyword(tenantField, tenantId));
+        }
+        if (!roles.isEmpty()) {
+            filter.addMust(matchKeywords(roleField, roles.names()));
+        }
+        return filter.getMustCount() == 0 ? null : filter.build();
+    }
+
+    private Map<String, Vector> vectorsFor(EmbeddedChunk chunk) {
+        Map<String, Vector> vectors = new HashMap<>();
+        vectors.put(vectorName, vector(floats(chunk.vector())));
+        if (truncation.isEnabled()) {
+            vectors.put(truncation.vectorName(vectorName), vector(floats(truncation.prefix(chunk.vector()))));
+        }
+        return vectors;
+    }
+
+    private Map<String, JsonWithInt.Value> payloadFor(String tenantId, String docId, EmbeddedChunk chunk) {
+        Map<String, JsonWithInt.Value> payload = new HashMap<>();
+        payload.put("tenantId", value(tenantId));
+        payload.put("tenant_id", value(tenantId));
+        payload.put("docId", value(docId));
+        payload.put("doc_id", value(docId));
+        payload.put("chunkId", value(chunk.id()));
+        payload.put("title", toValue(chunk.title()));
+        payload.put("page", value(chunk.page()));
+        payload.put("text", toValue(chunk.text()));
+        payload.put("roles", toValue(chunk.roles()));
+        payload.put("metadata", toValue(chunk.metadata().asIndexPayload()));
+        return payload;
+    }
+
+    private static JsonWithInt.Value toValue(Object object) {
+        if (object == null) {
+            return JsonWithInt.Value.newBuilder().setNullValueValue(0).build();
+        }
+        if (object instanceof String string) {
+            return value(string);
+        }
+        if (object instanceof Integer || object instanceof Long) {
+            return value(((Number) object).longValue());
+        }
+        if (object instanceof Number number) {
+            return value(number.doubleValue());
+        }
+        if (object instanceof Boolean bool) {
+            return value(bool);
+        }
+        if (object instanceof List<?> list) {
+            ListValue.Builder values = ListValue.newBuilder();
+            list.forEach(item -> values.addValues(toValue(item)));
+            return JsonWithInt.Value.newBuilder().setListValue(values).build();
+        }
+        if (object instanceof Map<?, ?> map) {
+            Struct.Builder struct = Struct.newBuilder();
+            map.forEach((key, item) -> struct.putFields(String.valueOf(key), toValue(item)));
+            return JsonWithInt.Value.newBuilder().setStructValue(struct).build();
+        }
+        return value(object.toString());
+    }
+
+    private static SearchParams searchParams(QdrantCollectionProperties.Profile profile) {
+        SearchParams.Builder params = SearchParams.newBuilder();
+        boolean set = false;
+        if (profile.getHnswEf() != null) {
+            params.setHnswEf(profile.getHnswEf());
+            set = true;
+        }
+        if (profile.getQuantization() != QdrantCollectionProperties.Quantization.NONE) {
+            params.setQuantization(QuantizationSearchParams.newBuilder()
+                    .setIgnore(false)
+                    .setRescore(profile.isRescore())
+                    .setOversampling(profile.getOversampling()));
+            set = true;
+        }
+        return set ? params.build() : null;
+    }
+
+    private static List<Float> floats(List<Double> vector) {
+        List<Float> floats = new ArrayList<>(vector.size());
+        for (Double component : vector) {
+            floats.add(component.floatValue());
+        }
+        return floats;
+    }
+
+    private static List<RetrievedChunk> toChunks(List<BatchResult> results) {
+        List<RetrievedChunk> chunks = new ArrayList<>();
+        for (BatchResult scope : results) {
+            for (ScoredPoint point : scope.getResultList()) {
+                Map<String, JsonWithInt.Value> payload = point.getPayloadMap();
+                chunks.add(new RetrievedChunk(
+                        string(payload, "docId"),
+                        string(payload, "title"),
+                        (int) payload.getOrDefault("page", value(0)).getIntegerValue(),
+                        string(payload, "text"),
+                        point.getScore(),
+                        "qdrant",
+                        payload.containsKey("chunkId") ? string(payload, "chunkId") : null));
+            }
+        }
+        chunks.sort(Comparator.comparingDouble(RetrievedChunk::score).reversed());
+        return chunks;
+    }
+
+    private static String string(Map<String, JsonWithInt.Value> payload, String key) {
+        JsonWithInt.Value value = payload.get(key);
+        return value == null ? "" : value.getStringValue();
+    }
+
+    private static <T> Mono<T> toMono(ListenableFuture<T> future) {
+        return Mono.create(sink -> {
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(T result) {
+                    sink.success(result);
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    sink.error(throwable);
+                }
+            }, MoreExecutors.directExecutor());
+            sink.onCancel(() -> future.cancel(true));
+        });
+    }
+}
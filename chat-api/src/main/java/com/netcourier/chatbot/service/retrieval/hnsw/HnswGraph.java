@@ -0,0 +1,394 @@
+package com.netcourier.chatbot.service.retrieval.hnsw;
+
+import com.netcourier.chatbot.service.retrieval.NodeHeap;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over unit-length float vectors scored by inner product.
+ * Vectors and the dense level-0 adjacency lists live in memory-mapped files; the sparse upper levels
+ * are small enough to stay on heap and are persisted through {@link #writeTo} as a whole, or through
+ * {@link #writeChanges} as the nodes and upper-level link lists touched since the last write. Callers
+ * serialise writers against readers.
+ */
+final class HnswGraph implements Closeable {
+
+    static final String VECTORS_FILE = "vectors.f32";
+    static final String LEVEL0_FILE = "level0.adj";
+
+    private final int dimensions;
+    private final int m;
+    private final int maxLevel0Links;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+    private final MappedSlots vectors;
+    private final MappedSlots level0;
+
+    private int size;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+    private int[] levels = new int[1024];
+    private int[][][] upperLinks = new int[1024][][];
+    private int writtenSize;
+    private final Set<Long> changedLinks = new LinkedHashSet<>();
+
+    HnswGraph(Path directory, int dimensions, int m, int efConstruction, long seed) {
+        this.dimensions = dimensions;
+        this.m = Math.max(2, m);
+        this.maxLevel0Links = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1d / Math.log(this.m);
+        this.random = new SplittableRandom(seed);
+        this.vectors = new MappedSlots(directory.resolve(VECTORS_FILE), dimensions * Float.BYTES);
+        this.level0 = new MappedSlots(directory.resolve(LEVEL0_FILE), (maxLevel0Links + 1) * Integer.BYTES);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        int node = size;
+        vectors.ensureCapacity(node + 1);
+        level0.ensureCapacity(node + 1);
+        for (int i = 0; i < dimensions; i++) {
+            vectors.putFloat(node, i, vector[i]);
+        }
+        level0.putInt(node, 0, 0);
+        int level = randomLevel();
+        growNodeArrays(node + 1);
+        levels[node] = level;
+        upperLinks[node] = level == 0 ? null : new int[level][0];
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return node;
+        }
+        int current = entryPoint;
+        for (int layer = topLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            NodeHeap.ScoredNodes candidates = searchLayer(vector, current, efConstruction, layer, null);
+            int linkCount = Math.min(m, candidates.size());
+            int[] selected = Arrays.copyOf(candidates.nodes(), linkCount);
+            setLinks(node, layer, selected, linkCount);
+            for (int neighbour : selected) {
+                link(neighbour, node, layer);
+            }
+            current = candidates.nodes()[0];
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+        return node;
+    }
+
+    /**
+     * Returns up to {@code k} accepted nodes ordered by descending similarity. Rejected nodes are still
+     * traversed so filters never disconnect the graph.
+     */
+    NodeHeap.ScoredNodes search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0 || k <= 0) {
+            return new NodeHeap.ScoredNodes(new int[0], new float[0]);
+        }
+        int current = entryPoint;
+        for (int layer = topLevel; layer > 0; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+        NodeHeap.ScoredNodes found = searchLayer(query, current, Math.max(ef, k), 0, accept);
+        if (found.size() <= k) {
+            return found;
+        }
+        return new NodeHeap.ScoredNodes(Arrays.copyOf(found.nodes(), k), Arrays.copyOf(found.scores(), k));
+    }
+
+    float[] vector(int node) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = vectors.getFloat(node, i);
+        }
+        return vector;
+    }
+
+    float score(float[] query, int node) {
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * vectors.getFloat(node, i);
+        }
+        return sum;
+    }
+
+    void force() {
+        vectors.force();
+        level0.force();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(topLevel);
+        for (int node = 0; node < size; node++) {
+            out.writeByte(levels[node]);
+            for (int layer = 1; layer <= levels[node]; layer++) {
+                int[] links = upperLinks[node][layer - 1];
+                out.writeShort(links.length);
+                for (int link : links) {
+                    out.writeInt(link);
+                }
+            }
+        }
+        markWritten();
+    }
+
+    /**
+     * Writes what changed since the last {@link #writeTo} or {@code writeChanges}: the new nodes' levels and
+     * every upper-level link list that was set or pruned. Level-0 links are already in the mapped file.
+     */
+    void writeChanges(DataOutputStream out) throws IOException {
+        out.writeInt(writtenSize);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(topLevel);
+        for (int node = writtenSize; node < size; node++) {
+            out.writeByte(levels[node]);
+        }
+        out.writeInt(changedLinks.size());
+        for (long key : changedLinks) {
+            int node = (int) (key >>> 8);
+            int layer = (int) (key & 0xFF);
+            int[] links = upperLinks[node][layer - 1];
+            out.writeInt(node);
+            out.writeByte(layer);
+            out.writeShort(links.length);
+            for (int link : links) {
+                out.writeInt(link);
+            }
+        }
+        markWritten();
+    }
+
+    void readFrom(DataInputStream in) throws IOException {
+        size = in.readInt();
+        entryPoint = in.readInt();
+        topLevel = in.readInt();
+        growNodeArrays(size);
+        vectors.ensureCapacity(size);
+        level0.ensureCapacity(size);
+        for (int node = 0; node < size; node++) {
+            int level = in.readByte();
+            levels[node] = level;
+            upperLinks[node] = level == 0 ? null : new int[level][];
+            for (int layer = 1; layer <= level; layer++) {
+                int[] links = new int[in.readShort()];
+                for (int i = 0; i < links.length; i++) {
+                    links[i] = in.readInt();
+                }
+                upperLinks[node][layer - 1] = links;
+            }
+        }
+        markWritten();
+    }
+
+    void readChanges(DataInputStream in) throws IOException {
+        int from = in.readInt();
+        if (from != size) {
+            throw new IOException("Change record starts at node " + from + " but the graph holds " + size);
+        }
+        int newSize = in.readInt();
+        entryPoint = in.readInt();
+        topLevel = in.readInt();
+        growNodeArrays(newSize);
+        vectors.ensureCapacity(newSize);
+        level0.ensureCapacity(newSize);
+        for (int node = from; node < newSize; node++) {
+            int level = in.readByte();
+            levels[node] = level;
+            upperLinks[node] = level == 0 ? null : new int[level][0];
+        }
+        size = newSize;
+        int changed = in.readInt();
+        for (int i = 0; i < changed; i++) {
+            int node = in.readInt();
+            int layer = in.readByte();
+            int[] links = new int[in.readShort()];
+            for (int j = 0; j < links.length; j++) {
+                links[j] = in.readInt();
+            }
+            upperLinks[node][layer - 1] = links;
+        }
+        markWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectors.close();
+        level0.close();
+    }
+
+    private NodeHeap.ScoredNodes searchLayer(float[] query, int entry, int ef, int layer, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        NodeHeap candidates = NodeHeap.bestFirst(ef * 2);
+        NodeHeap results = NodeHeap.worstFirst(ef + 1);
+        float entryScore = score(query, entry);
+        visited.set(entry);
+        candidates.push(entry, entryScore);
+        if (accept == null || accept.test(entry)) {
+            results.push(entry, entryScore);
+        }
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.topScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int linkCount = linkCount(candidate, layer);
+            for (int i = 0; i < linkCount; i++) {
+                int neighbour = linkAt(candidate, layer, i);
+                // a link past size was mapped for a node whose change record a crash cut off
+                if (neighbour >= size || visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float neighbourScore = score(query, neighbour);
+                if (results.size() < ef || neighbourScore > results.topScore()) {
+                    candidates.push(neighbour, neighbourScore);
+                    if (accept == null || accept.test(neighbour)) {
+                        results.push(neighbour, neighbourScore);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results.drainDescending();
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int best = start;
+        float bestScore = score(query, start);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int linkCount = linkCount(best, layer);
+            for (int i = 0; i < linkCount; i++) {
+                int neighbour = linkAt(best, layer, i);
+                if (neighbour >= size) {
+                    continue;
+                }
+                float neighbourScore = score(query, neighbour);
+                if (neighbourScore > bestScore) {
+                    best = neighbour;
+                    bestScore = neighbourScore;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void link(int from, int to, int layer) {
+        int count = linkCount(from, layer);
+        int limit = layer == 0 ? maxLevel0Links : m;
+        if (count < limit) {
+            if (layer == 0) {
+                level0.putInt(from, 1 + count, to);
+                level0.putInt(from, 0, count + 1);
+            } else {
+                int[] links = upperLinks[from][layer - 1];
+                int[] grown = Arrays.copyOf(links, count + 1);
+                grown[count] = to;
+                upperLinks[from][layer - 1] = grown;
+                changedLinks.add(linkKey(from, layer));
+            }
+            return;
+        }
+        NodeHeap keep = NodeHeap.worstFirst(limit + 1);
+        for (int i = 0; i < count; i++) {
+            int existing = linkAt(from, layer, i);
+            keep.push(existing, similarity(from, existing));
+            if (keep.size() > limit) {
+                keep.pop();
+            }
+        }
+        keep.push(to, similarity(from, to));
+        if (keep.size() > limit) {
+            keep.pop();
+        }
+        NodeHeap.ScoredNodes pruned = keep.drainDescending();
+        setLinks(from, layer, pruned.nodes(), pruned.size());
+    }
+
+    private void setLinks(int node, int layer, int[] links, int count) {
+        if (layer == 0) {
+            for (int i = 0; i < count; i++) {
+                level0.putInt(node, 1 + i, links[i]);
+            }
+            level0.putInt(node, 0, count);
+        } else {
+            upperLinks[node][layer - 1] = Arrays.copyOf(links, count);
+            changedLinks.add(linkKey(node, layer));
+        }
+    }
+
+    private int linkCount(int node, int layer) {
+        return layer == 0 ? level0.getInt(node, 0) : upperLinks[node][layer - 1].length;
+    }
+
+    private int linkAt(int node, int layer, int index) {
+        return layer == 0 ? level0.getInt(node, 1 + index) : upperLinks[node][layer - 1][index];
+    }
+
+    private float similarity(int a, int b) {
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += vectors.getFloat(a, i) * vectors.getFloat(b, i);
+        }
+        return sum;
+    }
+
+    private void markWritten() {
+        writtenSize = size;
+        changedLinks.clear();
+    }
+
+    private static long linkKey(int node, int layer) {
+        return ((long) node << 8) | layer;
+    }
+
+    private int randomLevel() {
+        double uniform = 1d - random.nextDouble();
+        return Math.min(16, (int) Math.floor(-Math.log(uniform) * levelMultiplier));
+    }
+
+    private void growNodeArrays(int required) {
+        if (required <= levels.length) {
+            return;
+        }
+        int capacity = Math.max(required, levels.length * 2);
+        levels = Arrays.copyOf(levels, capacity);
+        upperLinks = Arrays.copyOf(upperLinks, capacity);
+    }
+}
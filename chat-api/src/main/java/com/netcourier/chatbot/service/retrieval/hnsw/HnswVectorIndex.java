@@ -0,0 +1,898 @@
+package com.netcourier.chatbot.service.retrieval.hnsw;
+
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.IngestionException;
+import com.netcourier.chatbot.service.ingestion.VectorStoreClient;
+import com.netcourier.chatbot.service.retrieval.ChunkVectors;
+import com.netcourier.chatbot.service.retrieval.DenseRetriever;
+import com.netcourier.chatbot.service.retrieval.NodeHeap;
+import com.netcourier.chatbot.service.retrieval.QueryEmbedding;
+import com.netcourier.chatbot.service.retrieval.RetrievalStatus;
+import com.netcourier.chatbot.service.retrieval.vector.VectorScorer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded dense backend for deployments that do not want a network hop to Qdrant. Ingestion writes
+ * through {@link VectorStoreClient}; retrieval embeds the utterance and searches the local HNSW graph
+ * with the same tenant/GLOBAL scoping and role filter as {@code QdrantDenseRetriever}.
+ * <p>
+ * The index lives in a generation directory named by {@code CURRENT}: a snapshot in {@code index.meta} plus
+ * a log of the writes made since, so an upsert costs one appended frame rather than a rewrite of the whole
+ * index. The log is folded into a new snapshot as it grows, and tombstoned chunks are dropped by rebuilding
+ * into the next generation. A rebuild runs on a background thread without blocking writers; it then applies
+ * the writes made meanwhile and swaps the new graph in under a short write lock, like {@code Bm25Index} merges.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.rag.dense.backend", havingValue = "embedded")
+public class HnswVectorIndex implements VectorStoreClient, DenseRetriever, ChunkVectors {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswVectorIndex.class);
+
+    private static final String GLOBAL_TENANT_ID = "GLOBAL";
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String GENERATION_PREFIX = "g";
+    private static final String META_FILE = "index.meta";
+    private static final String LOG_FILE = "index.log";
+    private static final int META_MAGIC = 0x4E43484E;
+    private static final int META_VERSION = 2;
+    private static final int LOG_MAGIC = 0x4E43484C;
+    private static final int LOG_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final EmbeddingsClient embeddingsClient;
+    private final Path directory;
+    private final int topK;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final long checkpointBytes;
+    private final double maxDeletedRatio;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    volatile Runnable beforeSwap = () -> { };
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hnsw-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<ChunkRecord> records = new ArrayList<>();
+    private final Map<String, Integer> nodeByChunkId = new HashMap<>();
+    private final Map<String, BitSet> nodesByTenant = new HashMap<>();
+    private final Map<String, BitSet> nodesByDocument = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private final BitSet pendingTombstones = new BitSet();
+    private HnswGraph graph;
+    private Path generation;
+    private int generationNumber;
+    private long checkpoint;
+    private FileChannel logChannel;
+    private int loggedRecords;
+    private boolean checkpointDue;
+
+    @Autowired
+    public HnswVectorIndex(EmbeddingsClient embeddingsClient,
+                           @Value("${chat.rag.embedded.path:./data/hnsw}") String directory,
+                           @Value("${chat.rag.dense.top-k:8}") int topK,
+                           @Value("${chat.rag.embedded.m:16}") int m,
+                           @Value("${chat.rag.embedded.ef-construction:200}") int efConstruction,
+                           @Value("${chat.rag.embedded.ef-search:96}") int efSearch,
+                           @Value("${chat.rag.embedded.checkpoint-bytes:16777216}") long checkpointBytes,
+                           @Value("${chat.rag.embedded.max-deleted-ratio:0.3}") double maxDeletedRatio) {
+        this.embeddingsClient = embeddingsClient;
+        this.directory = Path.of(directory);
+        this.topK = topK;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.checkpointBytes = checkpointBytes;
+        this.maxDeletedRatio = maxDeletedRatio;
+        load();
+    }
+
+    public HnswVectorIndex(EmbeddingsClient embeddingsClient, String directory, int topK, int m, int efConstruction, int efSearch) {
+        this(embeddingsClient, directory, topK, m, efConstruction, efSearch, 16L << 20, 0.3);
+    }
+
+    @Override
+    public void upsert(String tenantId, String docId, List<EmbeddedChunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int dimensions = chunks.getFirst().vector().size();
+            if (chunks.stream().anyMatch(chunk -> chunk.vector().size() != dimensions)) {
+                throw new IllegalArgumentException("Chunks of document " + docId + " have inconsistent vector sizes");
+            }
+            ensureGraph(dimensions);
+            Set<String> incoming = new HashSet<>();
+            for (EmbeddedChunk chunk : chunks) {
+                incoming.add(chunk.id());
+                Integer previous = nodeByChunkId.get(chunk.id());
+                if (previous != null) {
+                    tombstone(previous);
+                }
+                int node = graph.add(VectorScorer.normalise(chunk.vector()));
+                register(node, new ChunkRecord(chunk.id(), tenantId, docId, chunk.title(), chunk.page(), chunk.text(),
+                        chunk.roles() == null ? new String[0] : chunk.roles().toArray(String[]::new)));
+            }
+            BitSet documentNodes = nodesByDocument.get(documentKey(tenantId, docId));
+            if (documentNodes != null) {
+                for (int node = documentNodes.nextSetBit(0); node >= 0; node = documentNodes.nextSetBit(node + 1)) {
+                    if (!incoming.contains(records.get(node).chunkId())) {
+                        tombstone(node);
+                    }
+                }
+            }
+            commit();
+        } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+            throw new IngestionException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to upsert into embedded vector index", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRebuildIfNeeded();
+    }
+
+    public void delete(String tenantId, String docId) {
+        lock.writeLock().lock();
+        try {
+            BitSet documentNodes = nodesByDocument.get(documentKey(tenantId, docId));
+            if (documentNodes == null || documentNodes.isEmpty()) {
+                return;
+            }
+            for (int node = documentNodes.nextSetBit(0); node >= 0; node = documentNodes.nextSetBit(node + 1)) {
+                tombstone(node);
+            }
+            commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleRebuildIfNeeded();
+    }
+
+    @Override
+    public List<RetrievedChunk> search(ChatRequest request, String intent) {
+        try {
+            return search(request, topK);
+        } catch (Exception e) {
+            log.warn("Failed to embed query for embedded vector search: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+        return QueryEmbedding.embed(embeddingsClient, query(request))
+                .publishOn(Schedulers.boundedElastic())
+                .map(embedding -> search(VectorScorer.normalise(embedding.vectors().getFirst()), request, topK))
+                .onErrorResume(throwable -> {
+                    log.warn("Failed to embed query for embedded vector search: {}", throwable.getMessage());
+                    return RetrievalStatus.degraded(Collections.emptyList());
+                });
+    }
+
+    private List<RetrievedChunk> search(ChatRequest request, int topK) {
+        return search(VectorScorer.normalise(embeddingsClient.embed(List.of(query(request))).vectors().getFirst()), request, topK);
+    }
+
+    private List<RetrievedChunk> search(float[] vector, ChatRequest request, int topK) {
+        RoleSet roles = request.roleSet();
+        lock.readLock().lock();
+        try {
+            if (graph == null || graph.dimensions() != vector.length) {
+                return Collections.emptyList();
+            }
+            List<RetrievedChunk> combined = new ArrayList<>(searchScope(vector, request.tenantId(), roles, topK));
+            if (!GLOBAL_TENANT_ID.equals(request.tenantId())) {
+                combined.addAll(searchScope(vector, GLOBAL_TENANT_ID, roles, topK));
+            }
+            combined.sort(Comparator.comparingDouble(RetrievedChunk::score).reversed());
+            return combined;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The stored, already normalised vectors of live chunks in the tenant's scope or the GLOBAL corpus.
+     */
+    @Override
+    public Mono<Map<String, List<Double>>> fetchVectors(String tenantId, List<String> chunkIds) {
+        return Mono.fromCallable(() -> {
+            Map<String, List<Double>> vectors = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (String chunkId : chunkIds) {
+                    Integer node = nodeByChunkId.get(chunkId);
+                    if (node == null || graph == null) {
+                        continue;
+                    }
+                    String owner = records.get(node).tenantId();
+                    if (GLOBAL_TENANT_ID.equals(owner) || (owner != null && owner.equals(tenantId))) {
+                        float[] vector = graph.vector(node);
+                        List<Double> values = new ArrayList<>(vector.length);
+                        for (float value : vector) {
+                            values.add((double) value);
+                        }
+                        vectors.put(chunkId, values);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return vectors;
+        });
+    }
+
+    private static String query(ChatRequest request) {
+        return Optional.ofNullable(request.turns().isEmpty() ? null : request.turns().getLast().content())
+                .filter(content -> !content.isBlank())
+                .orElse("Hello");
+    }
+
+    public int liveChunks() {
+        lock.readLock().lock();
+        try {
+            return nodeByChunkId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        rebuilder.shutdown();
+        try {
+            rebuilder.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            if (graph != null) {
+                graph.close();
+                graph = null;
+            }
+            if (logChannel != null) {
+                logChannel.close();
+                logChannel = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<RetrievedChunk> searchScope(float[] vector, String tenantId, RoleSet roles, int topK) {
+        BitSet tenantNodes = tenantId == null ? null : nodesByTenant.get(tenantId);
+        if (tenantNodes == null || tenantNodes.isEmpty()) {
+            return List.of();
+        }
+        NodeHeap.ScoredNodes hits = graph.search(vector, topK, efSearch,
+                node -> tenantNodes.get(node) && records.get(node).visibleTo(roles));
+        List<RetrievedChunk> chunks = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            ChunkRecord record = records.get(hits.nodes()[i]);
+            chunks.add(new RetrievedChunk(record.docId(), record.title(), record.page(), record.text(), hits.scores()[i], "embedded", record.chunkId()));
+        }
+        return chunks;
+    }
+
+    private void register(int node, ChunkRecord record) {
+        records.add(record);
+        nodeByChunkId.put(record.chunkId(), node);
+        nodesByTenant.computeIfAbsent(record.tenantId(), key -> new BitSet()).set(node);
+        nodesByDocument.computeIfAbsent(documentKey(record.tenantId(), record.docId()), key -> new BitSet()).set(node);
+    }
+
+    private void tombstone(int node) {
+        ChunkRecord record = records.get(node);
+        deleted.set(node);
+        pendingTombstones.set(node);
+        nodeByChunkId.remove(record.chunkId(), node);
+        Optional.ofNullable(nodesByTenant.get(record.tenantId())).ifPresent(bits -> bits.clear(node));
+        Optional.ofNullable(nodesByDocument.get(documentKey(record.tenantId(), record.docId()))).ifPresent(bits -> bits.clear(node));
+    }
+
+    private void ensureGraph(int dimensions) {
+        if (graph == null) {
+            Path previous = generation;
+            Path target = nextGeneration();
+            graph = new HnswGraph(target, dimensions, m, efConstruction, 42L);
+            generation = target;
+            generationNumber++;
+            checkpoint = 0;
+            checkpoint();
+            publishGeneration(target, previous);
+        } else if (graph.dimensions() != dimensions) {
+            throw new IllegalArgumentException("Embedded index holds " + graph.dimensions()
+                    + "-dimensional vectors but received " + dimensions);
+        }
+    }
+
+    /**
+     * Makes the last upsert or delete durable. Normally that is one frame appended to the log: the graph
+     * changes, the new chunk records and the new tombstones. Once the log passes {@code checkpoint-bytes} it is
+     * folded into a fresh snapshot instead.
+     */
+    private void commit() {
+        if (checkpointDue || logSize() > checkpointBytes) {
+            checkpoint();
+            return;
+        }
+        graph.force();
+        byte[] frame;
+        try {
+            frame = encodeFrame(graph, records, loggedRecords, pendingTombstones);
+        } catch (IOException e) {
+            checkpointDue = true;
+            throw new UncheckedIOException("Failed to encode embedded index log frame", e);
+        }
+        loggedRecords = records.size();
+        pendingTombstones.clear();
+        try {
+            append(logChannel, frame);
+        } catch (IOException e) {
+            // the graph already handed its changes over, so only a full snapshot can capture them now
+            checkpointDue = true;
+            throw new UncheckedIOException("Failed to append to embedded index log", e);
+        }
+    }
+
+    private static byte[] encodeFrame(HnswGraph graph, List<ChunkRecord> records, int fromRecord, BitSet tombstones)
+            throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(frame)) {
+            graph.writeChanges(out);
+            out.writeInt(records.size() - fromRecord);
+            for (int node = fromRecord; node < records.size(); node++) {
+                records.get(node).writeTo(out);
+            }
+            out.writeInt(tombstones.cardinality());
+            for (int node = tombstones.nextSetBit(0); node >= 0; node = tombstones.nextSetBit(node + 1)) {
+                out.writeInt(node);
+            }
+        }
+        return frame.toByteArray();
+    }
+
+    private static void append(FileChannel channel, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private long logSize() {
+        try {
+            return logChannel.size();
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Writes the whole index as the generation's snapshot and starts an empty log tied to it, so a log left
+     * by an older snapshot is never replayed on top of a newer one.
+     */
+    private void checkpoint() {
+        long next = checkpoint + 1;
+        graph.force();
+        try {
+            writeSnapshot(generation, next, graph, records, deleted);
+        } catch (IOException e) {
+            checkpointDue = true;
+            throw new UncheckedIOException("Failed to write embedded index metadata", e);
+        }
+        try {
+            checkpoint = next;
+            resetLog();
+        } catch (IOException e) {
+            checkpointDue = true;
+            throw new UncheckedIOException("Failed to publish embedded index metadata", e);
+        }
+        loggedRecords = records.size();
+        pendingTombstones.clear();
+        checkpointDue = false;
+    }
+
+    private static void writeSnapshot(Path target, long checkpoint, HnswGraph graph, List<ChunkRecord> records,
+                                      BitSet deleted) throws IOException {
+        Path meta = target.resolve(META_FILE);
+        Path temp = target.resolve(META_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(META_MAGIC);
+            out.writeInt(META_VERSION);
+            out.writeLong(checkpoint);
+            out.writeInt(graph.dimensions());
+            graph.writeTo(out);
+            for (int node = 0; node < graph.size(); node++) {
+                records.get(node).writeTo(out);
+            }
+            long[] tombstones = deleted.toLongArray();
+            out.writeInt(tombstones.length);
+            for (long word : tombstones) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(temp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void resetLog() throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+        }
+        logChannel = openLog(generation, checkpoint);
+    }
+
+    private static FileChannel openLog(Path target, long checkpoint) throws IOException {
+        FileChannel channel = FileChannel.open(target.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).putInt(LOG_MAGIC).putLong(checkpoint).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+        return channel;
+    }
+
+    private boolean rebuildDue() {
+        return graph != null && deleted.cardinality() > maxDeletedRatio * graph.size();
+    }
+
+    private void scheduleRebuildIfNeeded() {
+        lock.readLock().lock();
+        try {
+            if (!rebuildDue()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuilder.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Background rebuild of the embedded vector index failed: {}", e.getMessage());
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            rebuildScheduled.set(false);
+            log.debug("Embedded index rebuild not scheduled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-inserts the live chunks into a fresh graph in the next generation directory, which drops the
+     * tombstoned nodes from the files and from every neighbour list. The live vectors are copied out under the
+     * read lock and the graph is built and snapshotted without any lock. Under the write lock the chunks
+     * written and tombstoned since are then applied to it and logged as one frame, and {@code CURRENT} moves to
+     * the new generation before it replaces the old one in memory, so a crash or failure part-way leaves the
+     * old generation in charge.
+     */
+    void rebuild() {
+        synchronized (rebuildMonitor) {
+            HnswGraph source;
+            int before;
+            int targetNumber;
+            Path target;
+            int[] keptNodes;
+            float[][] vectors;
+            List<ChunkRecord> kept;
+            lock.readLock().lock();
+            try {
+                if (!rebuildDue()) {
+                    return;
+                }
+                source = graph;
+                before = graph.size();
+                keptNodes = new int[before - deleted.cardinality()];
+                vectors = new float[keptNodes.length][];
+                kept = new ArrayList<>(keptNodes.length);
+                for (int node = 0, next = 0; node < before; node++) {
+                    if (!deleted.get(node)) {
+                        keptNodes[next] = node;
+                        vectors[next++] = graph.vector(node);
+                        kept.add(records.get(node));
+                    }
+                }
+                targetNumber = generationNumber + 1;
+                target = nextGeneration();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            HnswGraph rebuilt = new HnswGraph(target, source.dimensions(), m, efConstruction, 42L);
+            FileChannel nextLog = null;
+            Path previous;
+            int dropped;
+            int live;
+            try {
+                for (float[] vector : vectors) {
+                    rebuilt.add(vector);
+                }
+                rebuilt.force();
+                writeSnapshot(target, 1, rebuilt, kept, new BitSet());
+                beforeSwap.run();
+
+                lock.writeLock().lock();
+                try {
+                    if (graph != source) {
+                        throw new IllegalStateException("embedded index changed generation during the rebuild");
+                    }
+                    List<ChunkRecord> nextRecords = new ArrayList<>(kept);
+                    int[] remap = new int[graph.size()];
+                    Arrays.fill(remap, -1);
+                    for (int i = 0; i < keptNodes.length; i++) {
+                        remap[keptNodes[i]] = i;
+                    }
+                    for (int node = before; node < graph.size(); node++) {
+                        if (!deleted.get(node)) {
+                            remap[node] = rebuilt.add(graph.vector(node));
+                            nextRecords.add(records.get(node));
+                        }
+                    }
+                    BitSet nextDeleted = new BitSet();
+                    for (int node : keptNodes) {
+                        if (deleted.get(node)) {
+                            nextDeleted.set(remap[node]);
+                        }
+                    }
+                    rebuilt.force();
+                    nextLog = openLog(target, 1);
+                    append(nextLog, encodeFrame(rebuilt, nextRecords, kept.size(), nextDeleted));
+                    previous = generation;
+                    dropped = graph.size() - rebuilt.size();
+                    live = rebuilt.size() - nextDeleted.cardinality();
+                    publishGeneration(target, null);
+
+                    closeQuietly(graph);
+                    closeQuietly(logChannel);
+                    graph = rebuilt;
+                    logChannel = nextLog;
+                    generation = target;
+                    generationNumber = targetNumber;
+                    checkpoint = 1;
+                    records.clear();
+                    nodeByChunkId.clear();
+                    nodesByTenant.clear();
+                    nodesByDocument.clear();
+                    deleted.clear();
+                    for (int node = 0; node < nextRecords.size(); node++) {
+                        register(node, nextRecords.get(node));
+                    }
+                    nextDeleted.stream().forEach(this::tombstone);
+                    pendingTombstones.clear();
+                    loggedRecords = records.size();
+                    checkpointDue = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (IOException e) {
+                abandon(rebuilt, nextLog, target);
+                throw new UncheckedIOException("Failed to write rebuilt embedded index " + target, e);
+            } catch (RuntimeException e) {
+                abandon(rebuilt, nextLog, target);
+                throw e;
+            }
+            removeGeneration(previous);
+            log.info("Rebuilt embedded vector index without {} deleted chunks ({} live)", dropped, live);
+        }
+    }
+
+    private void abandon(HnswGraph rebuilt, FileChannel nextLog, Path target) {
+        lock.readLock().lock();
+        try {
+            if (graph == rebuilt) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        closeQuietly(nextLog);
+        closeQuietly(rebuilt);
+        try {
+            deleteRecursively(target);
+        } catch (IOException e) {
+            log.warn("Could not remove abandoned embedded index generation {}: {}", target, e.getMessage());
+        }
+    }
+
+    private Path nextGeneration() {
+        Path target = directory.resolve(GENERATION_PREFIX + (generationNumber + 1));
+        try {
+            deleteRecursively(target);
+            Files.createDirectories(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create embedded index directory " + target, e);
+        }
+        return target;
+    }
+
+    private void publishGeneration(Path target, Path previous) {
+        Path current = directory.resolve(CURRENT_FILE);
+        Path temp = directory.resolve(CURRENT_FILE + ".tmp");
+        try {
+            Files.writeString(temp, target.getFileName().toString());
+            Files.move(temp, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish embedded index generation " + target, e);
+        }
+        removeGeneration(previous);
+    }
+
+    private void removeGeneration(Path previous) {
+        if (previous != null) {
+            try {
+                deleteRecursively(previous);
+            } catch (IOException e) {
+                log.warn("Could not remove superseded embedded index generation {}: {}", previous, e.getMessage());
+            }
+        }
+    }
+
+    private void load() {
+        Path current = directory.resolve(CURRENT_FILE);
+        if (!Files.exists(current)) {
+            if (Files.exists(directory.resolve(META_FILE))) {
+                log.warn("Ignoring embedded index at {} written by an incompatible version", directory);
+            }
+            return;
+        }
+        try {
+            String name = Files.readString(current).trim();
+            generationNumber = Integer.parseInt(name.substring(GENERATION_PREFIX.length()));
+            Path source = directory.resolve(name);
+            generation = source;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source.resolve(META_FILE))))) {
+                if (in.readInt() != META_MAGIC || in.readInt() != META_VERSION) {
+                    log.warn("Ignoring embedded index at {} written by an incompatible version", source);
+                    return;
+                }
+                checkpoint = in.readLong();
+                graph = new HnswGraph(generation, in.readInt(), m, efConstruction, 42L);
+                graph.readFrom(in);
+                for (int node = 0; node < graph.size(); node++) {
+                    register(node, ChunkRecord.readFrom(in));
+                }
+                long[] tombstones = new long[in.readInt()];
+                for (int i = 0; i < tombstones.length; i++) {
+                    tombstones[i] = in.readLong();
+                }
+                BitSet.valueOf(tombstones).stream().forEach(this::tombstone);
+            }
+            int frames = replayLog();
+            loggedRecords = records.size();
+            pendingTombstones.clear();
+            log.info("Loaded embedded vector index from {} with {} live chunks ({} log frames replayed)",
+                    generation, nodeByChunkId.size(), frames);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load embedded index from " + directory, e);
+        }
+    }
+
+    /**
+     * Applies the frames logged since the snapshot. Replay stops at the first frame that is short or fails its
+     * checksum, which is where a crash interrupted an append, and the log is cut back to the last whole frame.
+     */
+    private int replayLog() throws IOException {
+        Path path = generation.resolve(LOG_FILE);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.exists(path) ? Files.readAllBytes(path) : new byte[0]);
+        if (bytes.remaining() < LOG_HEADER_BYTES || bytes.getInt() != LOG_MAGIC || bytes.getLong() != checkpoint) {
+            resetLog();
+            return 0;
+        }
+        int frames = 0;
+        long valid = LOG_HEADER_BYTES;
+        while (bytes.remaining() >= Integer.BYTES * 2) {
+            int length = bytes.getInt();
+            int checksum = bytes.getInt();
+            if (length < 0 || length > bytes.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            bytes.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            applyFrame(new DataInputStream(new ByteArrayInputStream(payload)));
+            frames++;
+            valid = bytes.position();
+        }
+        logChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+        logChannel.truncate(valid);
+        logChannel.position(valid);
+        return frames;
+    }
+
+    private void applyFrame(DataInputStream in) throws IOException {
+        graph.readChanges(in);
+        int added = in.readInt();
+        for (int i = 0; i < added; i++) {
+            register(records.size(), ChunkRecord.readFrom(in));
+        }
+        int tombstones = in.readInt();
+        for (int i = 0; i < tombstones; i++) {
+            tombstone(in.readInt());
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            log.debug("Could not close {}: {}", closeable, e.getMessage());
+        }
+    }
+
+    private static String documentKey(String tenantId, String docId) {
+        return tenantId + '\u0000' + docId;
+    }
+
+    /**
+     * A chunk's stored fields plus the role bitset derived from them, which is not part of the persisted form.
+     */
+    private static final class ChunkRecord {
+        private final String chunkId;
+        private final String tenantId;
+        private final String docId;
+        private final String title;
+        private final int page;
+        private final String text;
+        private final String[] roles;
+        private final RoleSet roleSet;
+
+        ChunkRecord(String chunkId, String tenantId, String docId, String title, int page, String text, String[] roles) {
+            this.chunkId = chunkId;
+            this.tenantId = tenantId;
+            this.docId = docId;
+            this.title = title;
+            this.page = page;
+            this.text = text;
+            this.roles = roles;
+            this.roleSet = RoleSet.of(List.of(roles));
+        }
+
+        String chunkId() {
+            return chunkId;
+        }
+
+        String tenantId() {
+            return tenantId;
+        }
+
+        String docId() {
+            return docId;
+        }
+
+        String title() {
+            return title;
+        }
+
+        int page() {
+            return page;
+        }
+
+        String text() {
+            return text;
+        }
+
+        boolean visibleTo(RoleSet callerRoles) {
+            return callerRoles.isEmpty() || roleSet.intersects(callerRoles);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(chunkId);
+            out.writeUTF(tenantId);
+            out.writeUTF(docId);
+            writeNullable(out, title);
+            out.writeInt(page);
+            byte[] body = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(roles.length);
+            for (String role : roles) {
+                out.writeUTF(role);
+            }
+        }
+
+        static ChunkRecord readFrom(DataInputStream in) throws IOException {
+            String chunkId = in.readUTF();
+            String tenantId = in.readUTF();
+            String docId = in.readUTF();
+            String title = readNullable(in);
+            int page = in.readInt();
+            byte[] body = in.readNBytes(in.readInt());
+            String[] roles = new String[in.readShort()];
+            for (int i = 0; i < roles.length; i++) {
+                roles[i] = in.readUTF();
+            }
+            return new ChunkRecord(chunkId, tenantId, docId, title, page, new String(body, StandardCharsets.UTF_8), roles);
+        }
+
+        private static void writeNullable(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.netcourier.chatbot.service.retrieval.hnsw;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-width records in a memory-mapped file. The mapping is widened by doubling whenever a slot past
+ * the current capacity is requested, so record data lives off-heap and survives restarts.
+ */
+final class MappedSlots implements Closeable {
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final FileChannel channel;
+    private final int slotBytes;
+    private MappedByteBuffer buffer;
+    private int capacity;
+
+    MappedSlots(Path file, int slotBytes) {
+        this.slotBytes = slotBytes;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existingSlots = channel.size() / slotBytes;
+            remap((int) Math.max(INITIAL_SLOTS, existingSlots));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + file, e);
+        }
+    }
+
+    void ensureCapacity(int slots) {
+        if (slots <= capacity) {
+            return;
+        }
+        long target = capacity;
+        while (target < slots) {
+            target *= 2;
+        }
+        if (target * slotBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Mapped index exceeds 2GB; shard the tenant or use the Qdrant backend");
+        }
+        remap((int) target);
+    }
+
+    float getFloat(int slot, int offset) {
+        return buffer.getFloat(slot * slotBytes + offset * Float.BYTES);
+    }
+
+    void putFloat(int slot, int offset, float value) {
+        buffer.putFloat(slot * slotBytes + offset * Float.BYTES, value);
+    }
+
+    int getInt(int slot, int offset) {
+        return buffer.getInt(slot * slotBytes + offset * Integer.BYTES);
+    }
+
+    void putInt(int slot, int offset, int value) {
+        buffer.putInt(slot * slotBytes + offset * Integer.BYTES, value);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void remap(int slots) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * slotBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            capacity = slots;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow mapped index file", e);
+        }
+    }
+}
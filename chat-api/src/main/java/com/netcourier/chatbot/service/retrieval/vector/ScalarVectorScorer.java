@@ -0,0 +1,32 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+final class ScalarVectorScorer implements VectorScorer {
+
+    static final ScalarVectorScorer INSTANCE = new ScalarVectorScorer();
+
+    private ScalarVectorScorer() {
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
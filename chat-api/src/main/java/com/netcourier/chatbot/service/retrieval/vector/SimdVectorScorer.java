@@ -0,0 +1,64 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation. Float lanes accumulate with fused multiply-add at the preferred width. Int8 input
+ * is widened to int lanes of the preferred width before multiplying, which cannot overflow for any realistic
+ * embedding dimension; it is loaded one int vector's worth of bytes at a time, or the 64-bit minimum split
+ * into parts where the preferred int vector has fewer than eight lanes.
+ */
+final class SimdVectorScorer implements VectorScorer {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, INTS.length() * Byte.SIZE)));
+    private static final int PARTS = BYTES.length() / INTS.length();
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector x = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        IntVector sum = IntVector.zero(INTS);
+        int bound = BYTES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += BYTES.length()) {
+            ByteVector x = ByteVector.fromArray(BYTES, a, aOffset + i);
+            ByteVector y = ByteVector.fromArray(BYTES, b, bOffset + i);
+            for (int part = 0; part < PARTS; part++) {
+                sum = sum.add(((IntVector) x.castShape(INTS, part)).mul((IntVector) y.castShape(INTS, part)));
+            }
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + FLOATS.vectorBitSize();
+    }
+}
@@ -0,0 +1,74 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+import java.util.List;
+
+/**
+ * Dot products over float32 and int8 vectors for in-JVM scoring. Batches are laid out contiguously: vector
+ * {@code i} of dimension {@code d} occupies {@code block[i * d .. (i + 1) * d)}. For unit-length vectors the
+ * dot product is the cosine similarity; int8 vectors come from {@link #quantise(float[])} and their dot
+ * product divided by {@link #INT8_SCALE} squared approximates the float one.
+ *
+ * <p>{@link #instance()} uses the Java Vector API when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} and a scalar implementation otherwise.
+ */
+public interface VectorScorer {
+
+    float INT8_SCALE = 127f;
+
+    static VectorScorer instance() {
+        return VectorScorers.INSTANCE;
+    }
+
+    static VectorScorer scalar() {
+        return ScalarVectorScorer.INSTANCE;
+    }
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    default float dot(float[] a, float[] b) {
+        return a.length != b.length ? 0f : dot(a, 0, b, 0, a.length);
+    }
+
+    /** Scores {@code query} against the first {@code count} vectors of {@code block} into {@code scores}. */
+    default void dot(float[] query, float[] block, int count, float[] scores) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = dot(query, 0, block, i * query.length, query.length);
+        }
+    }
+
+    default void dot(byte[] query, byte[] block, int count, int[] scores) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = dot(query, 0, block, i * query.length, query.length);
+        }
+    }
+
+    String name();
+
+    static float[] normalise(List<Double> vector) {
+        float[] values = new float[vector.size()];
+        double norm = 0d;
+        for (int i = 0; i < values.length; i++) {
+            double value = vector.get(i);
+            values[i] = (float) value;
+            norm += value * value;
+        }
+        if (norm > 0d) {
+            float scale = (float) (1d / Math.sqrt(norm));
+            for (int i = 0; i < values.length; i++) {
+                values[i] *= scale;
+            }
+        }
+        return values;
+    }
+
+    /** Symmetric int8 quantisation of a unit-length vector. */
+    static byte[] quantise(float[] normalised) {
+        byte[] values = new byte[normalised.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (byte) Math.max(-127, Math.min(127, Math.round(normalised[i] * INT8_SCALE)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,29 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class VectorScorers {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorScorers.class);
+
+    static final VectorScorer INSTANCE = create();
+
+    private VectorScorers() {
+    }
+
+    private static VectorScorer create() {
+        if (Boolean.getBoolean("chat.vector.scalar") || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("Vector scoring uses the scalar implementation; start the JVM with --add-modules jdk.incubator.vector for SIMD");
+            return ScalarVectorScorer.INSTANCE;
+        }
+        try {
+            VectorScorer scorer = new SimdVectorScorer();
+            log.info("Vector scoring uses {}", scorer.name());
+            return scorer;
+        } catch (LinkageError e) {
+            log.warn("Vector API unavailable, falling back to scalar scoring: {}", e.getMessage());
+            return ScalarVectorScorer.INSTANCE;
+        }
+    }
+}
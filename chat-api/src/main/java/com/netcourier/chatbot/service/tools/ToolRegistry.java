@@ -1,6 +1,5 @@
 package com.netcourier.chatbot.service.tools;
 
-import com.netcourier.chatbot.model.ChatContext;
 import com.netcourier.chatbot.model.ChatRequest;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -9,7 +8,6 @@ import org.springframework.stereotype.Component;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 @Component
 public class ToolRegistry {
@@ -39,8 +37,7 @@ public class ToolRegistry {
         }
         ToolAdapter adapter = adapterOptional.get();
         ToolSpecification specification = adapter.specification();
-        Set<String> roles = resolveRoles(request.context());
-        if (!specification.isAuthorized(roles)) {
+        if (!specification.isAuthorized(request.roleSet())) {
             deniedCounter.increment();
             auditService.denied(toolName, request, "Caller lacks required role");
             return new ToolExecutionResult(toolName, false, "Caller is not authorized for tool " + toolName);
@@ -56,8 +53,4 @@ public class ToolRegistry {
         allowedCounter.increment();
         return result;
     }
-
-    private Set<String> resolveRoles(ChatContext context) {
-        return context == null || context.roles() == null ? Set.of() : context.roles();
-    }
 }
@@ -1,37 +1,67 @@
 package com.netcourier.chatbot.service.tools;
 
+import com.netcourier.chatbot.model.RoleSet;
+
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-
-public record ToolSpecification(String name,
-                                List<String> requiredRoles,
-                                Map<String, Class<?>> inputSchema,
-                                List<String> requiredFields,
-                                boolean audit) {
-
-    public ToolSpecification {
-        requiredRoles = requiredRoles == null ? List.of() : List.copyOf(requiredRoles);
-        inputSchema = inputSchema == null ? Map.of() : Map.copyOf(inputSchema);
-        requiredFields = requiredFields == null ? List.of() : List.copyOf(requiredFields);
+
+/**
+ * A tool's name, required roles and input schema. The required roles are also kept as a {@link RoleSet}, built
+ * once here and left out of equality.
+ */
+public final class ToolSpecification {
+
+    private final String name;
+    private final List<String> requiredRoles;
+    private final Map<String, Class<?>> inputSchema;
+    private final List<String> requiredFields;
+    private final boolean audit;
+    private final RoleSet requiredRoleSet;
+
+    public ToolSpecification(String name,
+                             List<String> requiredRoles,
+                             Map<String, Class<?>> inputSchema,
+                             List<String> requiredFields,
+                             boolean audit) {
+        this.name = name;
+        this.requiredRoles = requiredRoles == null ? List.of() : List.copyOf(requiredRoles);
+        this.inputSchema = inputSchema == null ? Map.of() : Map.copyOf(inputSchema);
+        this.requiredFields = requiredFields == null ? List.of() : List.copyOf(requiredFields);
+        this.audit = audit;
+        this.requiredRoleSet = RoleSet.of(this.requiredRoles);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<String> requiredRoles() {
+        return requiredRoles;
+    }
+
+    public Map<String, Class<?>> inputSchema() {
+        return inputSchema;
+    }
+
+    public List<String> requiredFields() {
+        return requiredFields;
     }
 
-    public boolean isAuthorized(Set<String> callerRoles) {
-        if (requiredRoles.isEmpty()) {
+    public boolean audit() {
+        return audit;
+    }
+
+    /**
+     * Role names match case-insensitively, as a bitset intersection over the lower-cased names.
+     */
+    public boolean isAuthorized(RoleSet callerRoles) {
+        if (requiredRoleSet.isEmpty()) {
             return true;
         }
-        if (callerRoles == null || callerRoles.isEmpty()) {
-            return false;
-        }
-        for (String required : requiredRoles) {
-            if (callerRoles.stream().anyMatch(role -> role.equalsIgnoreCase(required))) {
-                return true;
-            }
-        }
-        return false;
+        return callerRoles != null && callerRoles.intersectsIgnoreCase(requiredRoleSet);
     }
 
     public ValidationResult validate(Map<String, Object> slots) {
@@ -57,6 +87,24 @@ public record ToolSpecification(String name,
         return ValidationResult.valid(Collections.unmodifiableMap(sanitized));
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof ToolSpecification that && audit == that.audit
+                && Objects.equals(name, that.name) && requiredRoles.equals(that.requiredRoles)
+                && inputSchema.equals(that.inputSchema) && requiredFields.equals(that.requiredFields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, requiredRoles, inputSchema, requiredFields, audit);
+    }
+
+    @Override
+    public String toString() {
+        return "ToolSpecification[name=" + name + ", requiredRoles=" + requiredRoles + ", inputSchema=" + inputSchema
+                + ", requiredFields=" + requiredFields + ", audit=" + audit + "]";
+    }
+
     public record ValidationResult(boolean valid, String message, Map<String, Object> sanitized) {
         public static ValidationResult invalid(String message) {
             return new ValidationResult(false, message, Map.of());
@@ -57,3 +57,24 @@ CREATE TABLE IF NOT EXISTS document_metadata (
 
 CREATE INDEX IF NOT EXISTS idx_document_ingestions_tenant_hash ON document_ingestions (tenant_id, content_hash);
 CREATE INDEX IF NOT EXISTS idx_document_ingestions_external ON document_ingestions (tenant_id, external_id);
+
+CREATE TABLE IF NOT EXISTS tenant_placements (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id VARCHAR(64) NOT NULL,
+    read_layout VARCHAR(16) NOT NULL,
+    migrating_to VARCHAR(16),
+    recorded_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS partition_instances (
+    instance_id VARCHAR(64) PRIMARY KEY,
+    applied_revision BIGINT NOT NULL,
+    heartbeat_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS ingestion_events (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id VARCHAR(64) NOT NULL,
+    instance_id VARCHAR(64) NOT NULL,
+    recorded_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,169 @@
+package com.netcourier.chatbot.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BackendResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+    private final BackendResilience resilience = new BackendResilience(meterRegistry, true, 4, 4, 0.5,
+            Duration.ofSeconds(10), 2, Duration.ofSeconds(1), 2, Duration.ofMillis(1), 0.5, 100, clock);
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+
+    @Test
+    void openBreakerFailsFastThenProbesBeforeClosing() {
+        WebClient client = client();
+        for (int i = 0; i < 4; i++) {
+            assertThat(get(client)).isEqualTo(503);
+        }
+        assertThat(resilience.state("qdrant")).isEqualTo(BackendResilience.State.OPEN);
+
+        assertThatThrownBy(() -> get(client)).isInstanceOf(BackendUnavailableException.class);
+        assertThat(calls).hasValue(4);
+        assertThat(meterRegistry.counter("chat.resilience.fallbacks", "backend", "qdrant").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chat.resilience.breaker.state").tag("backend", "qdrant").gauge().value()).isEqualTo(2.0);
+
+        clock.advance(Duration.ofSeconds(10));
+        status = HttpStatus.OK;
+        assertThat(get(client)).isEqualTo(200);
+        assertThat(resilience.state("qdrant")).isEqualTo(BackendResilience.State.HALF_OPEN);
+        assertThat(get(client)).isEqualTo(200);
+        assertThat(resilience.state("qdrant")).isEqualTo(BackendResilience.State.CLOSED);
+    }
+
+    @Test
+    void backendThatNeverAnswersOpensTheBreakerOnceCallersGiveUp() {
+        WebClient client = WebClient.builder()
+                .baseUrl("http://qdrant")
+                .filter(resilience.filter("qdrant", true))
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    return Mono.<ClientResponse>never().doOnSubscribe(subscription -> clock.advance(Duration.ofSeconds(2)));
+                })
+                .build();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(client.post().uri("/points/search").retrieve().toBodilessEntity()
+                    .timeout(Duration.ofMillis(20))
+                    .onErrorResume(error -> Mono.empty())
+                    .block()).isNull();
+        }
+
+        assertThat(resilience.state("qdrant")).isEqualTo(BackendResilience.State.OPEN);
+        assertThatThrownBy(() -> client.post().uri("/points/search").retrieve().toBodilessEntity().block())
+                .isInstanceOf(BackendUnavailableException.class);
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void cancellingBeforeTheSlowCallThresholdCountsAsNothing() {
+        WebClient client = WebClient.builder()
+                .baseUrl("http://qdrant")
+                .filter(resilience.filter("qdrant", true))
+                .exchangeFunction(request -> Mono.never())
+                .build();
+
+        for (int i = 0; i < 4; i++) {
+            client.post().uri("/points/search").retrieve().toBodilessEntity()
+                    .timeout(Duration.ofMillis(20))
+                    .onErrorResume(error -> Mono.empty())
+                    .block();
+        }
+
+        assertThat(resilience.state("qdrant")).isEqualTo(BackendResilience.State.CLOSED);
+    }
+
+    @Test
+    void retriesConnectionFailuresOnlyWhereSafe() {
+        WebClient client = WebClient.builder()
+                .baseUrl("http://qdrant")
+                .filter(resilience.filter("qdrant", true))
+                .exchangeFunction(request -> calls.incrementAndGet() == 1
+                        ? Mono.error(refused(request.method(), request.url()))
+                        : Mono.just(ClientResponse.create(HttpStatus.OK).build()))
+                .build();
+
+        assertThat(client.post().uri("/points/search").exchangeToMono(response -> Mono.just(response.statusCode().value()))
+                .block()).isEqualTo(200);
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.counter("chat.resilience.retries", "backend", "qdrant", "outcome", "sent").count())
+                .isEqualTo(1.0);
+
+        calls.set(0);
+        WebClient tools = WebClient.builder()
+                .baseUrl("http://netcourier")
+                .filter(resilience.filter("netcourier", false))
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    return Mono.error(refused(request.method(), request.url()));
+                })
+                .build();
+
+        assertThatThrownBy(() -> tools.post().uri("/tickets").retrieve().toBodilessEntity().block())
+                .isInstanceOf(WebClientRequestException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    private WebClient client() {
+        return WebClient.builder()
+                .baseUrl("http://qdrant")
+                .filter(resilience.filter("qdrant", true))
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(status).build());
+                })
+                .build();
+    }
+
+    private static int get(WebClient client) {
+        return client.get().uri("/collections").exchangeToMono(response -> Mono.just(response.statusCode().value())).block();
+    }
+
+    private static WebClientRequestException refused(HttpMethod method, URI uri) {
+        return new WebClientRequestException(new ConnectException("Connection refused"), method, uri, new HttpHeaders());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.netcourier.chatbot.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetrievalBackendCheckTest {
+
+    @Test
+    void qdrantSparseBackendNeedsTheRestQdrantDenseBackend() {
+        assertThatCode(() -> RetrievalBackendCheck.check("qdrant", "qdrant", true, true)).doesNotThrowAnyException();
+        assertThatThrownBy(() -> RetrievalBackendCheck.check("embedded", "qdrant", false, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("chat.rag.sparse.backend=qdrant");
+        assertThatThrownBy(() -> RetrievalBackendCheck.check("qdrant-grpc", "qdrant", false, false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void grpcBackendRejectsPartitioningAndHierarchicalRetrieval() {
+        assertThatCode(() -> RetrievalBackendCheck.check("qdrant-grpc", "opensearch", false, false)).doesNotThrowAnyException();
+        assertThatThrownBy(() -> RetrievalBackendCheck.check("qdrant-grpc", "opensearch", false, true))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("qdrant-grpc");
+        assertThatThrownBy(() -> RetrievalBackendCheck.check("qdrant-grpc", "bm25", true, false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
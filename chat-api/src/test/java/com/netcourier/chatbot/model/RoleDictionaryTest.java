@@ -0,0 +1,36 @@
+package com.netcourier.chatbot.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoleDictionaryTest {
+
+    @Test
+    void stopsAssigningIdsAtCapacity() {
+        RoleDictionary.Dictionary dictionary = new RoleDictionary.Dictionary(2);
+
+        assertThat(dictionary.intern("CP")).isZero();
+        assertThat(dictionary.intern("BO")).isEqualTo(1);
+        assertThat(dictionary.intern("random-1")).isEqualTo(RoleDictionary.UNKNOWN);
+        assertThat(dictionary.intern("random-2")).isEqualTo(RoleDictionary.UNKNOWN);
+        assertThat(dictionary.intern("CP")).isZero();
+        assertThat(dictionary.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rolesLeftOutOfTheDictionaryMatchOnlyByName() {
+        String longRole = "R".repeat(RoleDictionary.MAX_NAME_LENGTH + 1);
+        String otherLongRole = "S".repeat(RoleDictionary.MAX_NAME_LENGTH + 1);
+        RoleSet caller = RoleSet.of(List.of(longRole, "CP"));
+
+        assertThat(caller.isInterned()).isFalse();
+        assertThat(caller.intersects(RoleSet.of(List.of(longRole)))).isTrue();
+        assertThat(caller.intersects(RoleSet.of(List.of(otherLongRole)))).isFalse();
+        assertThat(caller.intersectsIgnoreCase(RoleSet.of(List.of("r".repeat(RoleDictionary.MAX_NAME_LENGTH + 1))))).isTrue();
+        assertThat(caller).isEqualTo(RoleSet.of(List.of("CP", longRole)))
+                .isNotEqualTo(RoleSet.of(List.of("CP", otherLongRole)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.netcourier.chatbot.security;
+
+import com.netcourier.chatbot.controller.RagExplainController;
+import com.netcourier.chatbot.controller.TenantPartitionAdminController;
+import com.netcourier.chatbot.model.RagExplainRequest;
+import com.netcourier.chatbot.service.ingestion.TenantMigrationService;
+import com.netcourier.chatbot.service.retrieval.HybridRagService;
+import com.netcourier.chatbot.service.retrieval.RetrievalExplanation;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@WebFluxTest(controllers = {RagExplainController.class, TenantPartitionAdminController.class},
+        properties = "chat.rag.explain.enabled=true")
+@Import({SecurityConfig.class, JwtRoleConverter.class})
+class AdminEndpointSecurityIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private HybridRagService ragService;
+
+    @MockBean
+    private TenantMigrationService migrationService;
+
+    @MockBean
+    private ReactiveJwtDecoder jwtDecoder;
+
+    @Test
+    void rejectsTenantMigrationForNonAdminRoles() {
+        webTestClient.mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.claim("roles", List.of("CP")))
+                        .authorities(new JwtRoleConverter()))
+                .post()
+                .uri("/admin/tenants/ACME/partition?layout=DEDICATED")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        Mockito.verifyNoInteractions(migrationService);
+    }
+
+    @Test
+    void rejectsExplainForNonAdminRoles() {
+        webTestClient.mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.claim("roles", List.of("CP")))
+                        .authorities(new JwtRoleConverter()))
+                .post()
+                .uri("/admin/rag/explain")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RagExplainRequest("where is my parcel?", "ACME", List.of("CP"), null, null))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void allowsExplainForAdmins() {
+        Mockito.when(ragService.explain(any(), eq("RAG_FAQ"), any()))
+                .thenReturn(Mono.just(new RetrievalExplanation("ACME", List.of("CP"), "RAG_FAQ", 1.0,
+                        new RetrievalExplanation.Stage(1, List.of()), new RetrievalExplanation.Stage(1, List.of()),
+                        List.of(), List.of(), new RetrievalExplanation.ContextWindow(List.of(), List.of(), 0, false), List.of())));
+
+        webTestClient.mutateWith(SecurityMockServerConfigurers.mockJwt().jwt(jwt -> jwt.claim("roles", List.of("ADMIN")))
+                        .authorities(new JwtRoleConverter()))
+                .post()
+                .uri("/admin/rag/explain")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RagExplainRequest("where is my parcel?", "ACME", List.of("CP"), null, null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.tenantId").isEqualTo("ACME")
+                .jsonPath("$.context.truncated").isEqualTo(false);
+    }
+}
@@ -0,0 +1,57 @@
+package com.netcourier.chatbot.security;
+
+import com.netcourier.chatbot.controller.TenantPartitionAdminController;
+import com.netcourier.chatbot.service.ingestion.TenantMigrationService;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.mockito.ArgumentMatchers.any;
+
+@WebFluxTest(controllers = TenantPartitionAdminController.class)
+@Import({SecurityConfig.class, JwtRoleConverter.class})
+@TestPropertySource(properties = {
+        "chat.security.static-token=chat-token",
+        "chat.security.static-admin-token=admin-token"
+})
+class StaticTokenAdminEndpointSecurityIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private TenantMigrationService migrationService;
+
+    @Test
+    void rejectsOperatorEndpointsWithTheSharedChatToken() {
+        webTestClient.post()
+                .uri("/admin/tenants/ACME/partition?layout=DEDICATED")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer chat-token")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        Mockito.verify(migrationService, Mockito.never()).migrate(any(), any());
+    }
+
+    @Test
+    void allowsOperatorEndpointsWithTheAdminToken() {
+        Mockito.when(migrationService.status("ACME"))
+                .thenReturn(new TenantMigrationService.PartitionStatus("ACME", TenantPartitioning.Layout.SHARED, null, 12,
+                        TenantPartitioning.Layout.SHARED));
+
+        webTestClient.get()
+                .uri("/admin/tenants/ACME/partition")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer admin-token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.chunks").isEqualTo(12);
+    }
+}
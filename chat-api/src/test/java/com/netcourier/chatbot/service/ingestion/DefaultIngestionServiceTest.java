@@ -45,13 +45,16 @@ class DefaultIngestionServiceTest {
 
     private SimpleMeterRegistry meterRegistry;
 
+    private IngestionEpochs ingestionEpochs;
+
     private DefaultIngestionService ingestionService;
 
     @BeforeEach
     void setUp() {
         TextChunker chunker = (title, text) -> List.of("first chunk", "second chunk");
         meterRegistry = new SimpleMeterRegistry();
-        ingestionService = new DefaultIngestionService(textExtractor, chunker, embeddingsClient, vectorStoreClient, searchIndexClient, ingestionRepository, meterRegistry, "CP,BO");
+        ingestionEpochs = new IngestionEpochs();
+        ingestionService = new DefaultIngestionService(textExtractor, chunker, embeddingsClient, vectorStoreClient, searchIndexClient, ingestionRepository, ingestionEpochs, meterRegistry, "CP,BO");
         when(ingestionRepository.findTopByTenantIdAndExternalIdOrderByVersionDesc(anyString(), anyString())).thenReturn(Optional.empty());
         when(ingestionRepository.findTopByTenantIdAndContentHashOrderByVersionDesc(anyString(), anyString())).thenReturn(Optional.empty());
     }
@@ -79,13 +82,14 @@ class DefaultIngestionServiceTest {
         assertThat(captured).hasSize(2);
         assertThat(captured.getFirst().roles()).containsExactly("CP");
         assertThat(captured.getFirst().text()).isEqualTo("first chunk");
+        assertThat(ingestionEpochs.current("TENANT")).isEqualTo(1L);
     }
 
     @Test
     void ingestTextWithoutRolesUsesDefaults() {
         TextChunker singleChunker = (title, text) -> List.of("only chunk");
         meterRegistry = new SimpleMeterRegistry();
-        ingestionService = new DefaultIngestionService(textExtractor, singleChunker, embeddingsClient, vectorStoreClient, searchIndexClient, ingestionRepository, meterRegistry, "CP,BO");
+        ingestionService = new DefaultIngestionService(textExtractor, singleChunker, embeddingsClient, vectorStoreClient, searchIndexClient, ingestionRepository, ingestionEpochs, meterRegistry, "CP,BO");
         when(ingestionRepository.findTopByTenantIdAndExternalIdOrderByVersionDesc(anyString(), anyString())).thenReturn(Optional.empty());
         when(ingestionRepository.findTopByTenantIdAndContentHashOrderByVersionDesc(anyString(), anyString())).thenReturn(Optional.empty());
         when(embeddingsClient.embed(anyList())).thenReturn(new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.5, 0.6)), "model", 2));
@@ -119,6 +123,7 @@ class DefaultIngestionServiceTest {
         assertThat(response.version()).isEqualTo(4);
         verifyNoInteractions(vectorStoreClient);
         verifyNoInteractions(searchIndexClient);
+        assertThat(ingestionEpochs.current("TENANT")).isZero();
     }
 
     private String hash(String value) {
@@ -0,0 +1,53 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentVectorIndexTest {
+
+    private final List<String> bodies = new ArrayList<>();
+    private final WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                bodies.add(request.method() + " " + request.url().getPath() + " " + captured.getBodyAsString().block());
+                return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+            })
+            .build();
+
+    @Test
+    void storesTheNormalisedMeanOfTheChunkVectorsAsOnePoint() {
+        DocumentVectorIndex index = new DocumentVectorIndex(webClient, null, "documents", "dense", true, 20);
+
+        index.upsert("tenant-1", "hours", List.of(
+                chunk("hours#1", List.of(3.0, 0.0)),
+                chunk("hours#2", List.of(0.0, 0.5))));
+
+        assertThat(bodies).singleElement().asString()
+                .startsWith("PUT /collections/documents/points ")
+                .contains("\"dense\":[0.70710677,0.70710677]", "\"docId\":\"hours\"", "\"chunks\":2");
+    }
+
+    @Test
+    void writesNothingWhenDisabled() {
+        DocumentVectorIndex index = new DocumentVectorIndex(webClient, null, "documents", "dense", false, 20);
+
+        index.upsert("tenant-1", "hours", List.of(chunk("hours#1", List.of(1.0, 0.0))));
+
+        assertThat(bodies).isEmpty();
+    }
+
+    private static EmbeddedChunk chunk(String id, List<Double> vector) {
+        return new EmbeddedChunk(id, "Depot hours", 1, "text", List.of("CP"), DocumentMetadata.empty(), vector);
+    }
+}
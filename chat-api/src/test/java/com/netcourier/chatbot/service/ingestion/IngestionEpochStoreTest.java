@@ -0,0 +1,68 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.netcourier.chatbot.persistence.entity.IngestionEventEntity;
+import com.netcourier.chatbot.persistence.repository.IngestionEventRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+class IngestionEpochStoreTest {
+
+    private final List<IngestionEventEntity> rows = new ArrayList<>();
+    private final IngestionEventRepository repository = repository();
+
+    @Test
+    void ingestionOnOneInstanceAdvancesTheEpochOnTheOthers() {
+        IngestionEpochs epochsA = new IngestionEpochs();
+        IngestionEpochs epochsB = new IngestionEpochs();
+        IngestionEpochStore storeA = new IngestionEpochStore(repository, epochsA);
+        IngestionEpochStore storeB = new IngestionEpochStore(repository, epochsB);
+        storeA.sync();
+        storeB.sync();
+
+        epochsA.advance("acme");
+        storeA.publish("acme");
+        storeA.sync();
+        storeB.sync();
+
+        assertThat(epochsA.current("acme")).isEqualTo(1);
+        assertThat(epochsB.current("acme")).isEqualTo(1);
+        assertThat(epochsB.current("GLOBAL")).isZero();
+    }
+
+    @Test
+    void startsFromTheEndOfTheTableInsteadOfReplayingIt() {
+        new IngestionEpochStore(repository, new IngestionEpochs()).publish("acme");
+        IngestionEpochs epochs = new IngestionEpochs();
+        IngestionEpochStore store = new IngestionEpochStore(repository, epochs);
+
+        store.sync();
+        store.sync();
+
+        assertThat(epochs.current("acme")).isZero();
+    }
+
+    private IngestionEventRepository repository() {
+        IngestionEventRepository repository = Mockito.mock(IngestionEventRepository.class);
+        Mockito.when(repository.save(any())).thenAnswer(invocation -> {
+            IngestionEventEntity row = invocation.getArgument(0);
+            ReflectionTestUtils.setField(row, "id", rows.size() + 1L);
+            rows.add(row);
+            return row;
+        });
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return rows.stream().filter(row -> row.getId() > after).toList();
+        });
+        Mockito.when(repository.findTopByOrderByIdDesc()).thenAnswer(invocation ->
+                rows.isEmpty() ? Optional.empty() : Optional.of(rows.getLast()));
+        return repository;
+    }
+}
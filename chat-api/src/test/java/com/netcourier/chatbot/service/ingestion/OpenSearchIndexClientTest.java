@@ -0,0 +1,86 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenSearchIndexClientTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void refreshesTheIndexAfterWritingTheChunks() {
+        client(HttpStatus.OK).index("acme", "doc-1", List.of(chunk("doc-1-1"), chunk("doc-1-2")));
+
+        assertThat(calls).containsExactly(
+                "PUT /nc/_doc/doc-1-1",
+                "PUT /nc/_doc/doc-1-2",
+                "POST /nc/_refresh");
+    }
+
+    @Test
+    void versionsEachWriteWithItsIndexedAtStamp() {
+        List<String> queries = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    if (request.method() == HttpMethod.PUT) {
+                        queries.add(request.url().getQuery());
+                        MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                        request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                        bodies.add(captured.getBodyAsString().block());
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{}")
+                            .build());
+                })
+                .build();
+
+        new OpenSearchIndexClient(webClient, "nc").index("acme", "doc-1", List.of(chunk("doc-1-1")));
+
+        assertThat(queries).singleElement().asString().matches("version=(\\d+)&version_type=external_gte");
+        String version = queries.get(0).replaceAll("\\D*(\\d+).*", "$1");
+        assertThat(bodies).singleElement().asString().contains("\"indexedAt\":" + version);
+    }
+
+    @Test
+    void failsTheIngestionWhenTheRefreshFails() {
+        OpenSearchIndexClient client = client(HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThatThrownBy(() -> client.index("acme", "doc-1", List.of(chunk("doc-1-1"))))
+                .isInstanceOf(IngestionException.class)
+                .hasMessageContaining("refresh");
+    }
+
+    private OpenSearchIndexClient client(HttpStatus refreshStatus) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.add(request.method() + " " + request.url().getPath());
+                    HttpStatus status = request.url().getPath().endsWith("/_refresh") ? refreshStatus : HttpStatus.OK;
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{}")
+                            .build());
+                })
+                .build();
+        return new OpenSearchIndexClient(webClient, "nc");
+    }
+
+    private static EmbeddedChunk chunk(String id) {
+        return new EmbeddedChunk(id, "Depot hours", 1, "text", List.of("CP"), DocumentMetadata.empty(), List.of(0.6, 0.8));
+    }
+}
@@ -0,0 +1,155 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenSearchIndexManagerTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final Map<String, String> bodies = new LinkedHashMap<>();
+    private final Map<String, ClientResponse> responses = new HashMap<>();
+
+    @Test
+    void installsTemplateAndCreatesFirstVersionBehindAlias() {
+        OpenSearchIndexManager.IndexReport report = manager().ensureIndex();
+
+        assertThat(calls).containsExactly(
+                "PUT /_index_template/nc-template",
+                "GET /_alias/nc",
+                "HEAD /nc",
+                "PUT /nc-v1");
+        assertThat(bodies.get("PUT /_index_template/nc-template")).contains(
+                "\"index_patterns\":[\"nc-v*\",\"nc-t-*\"]",
+                "\"tenantId\":{\"type\":\"keyword\",\"norms\":false}",
+                "\"roles\":{\"type\":\"keyword\",\"norms\":false}",
+                "\"analyzer\":\"nc_text\"",
+                "light_english",
+                "\"dynamic\":false",
+                "\"excludes\":[\"metadata\"]",
+                "\"indexedAt\":{");
+        assertThat(bodies.get("PUT /nc-v1")).contains("\"nc\":{\"is_write_index\":true}");
+        assertThat(report.index()).isEqualTo("nc-v1");
+    }
+
+    @Test
+    void rebuildsLegacyConcreteIndexBehindAlias() {
+        responses.put("HEAD /nc", ClientResponse.create(HttpStatus.OK).build());
+        responses.put("POST /_reindex", json("{\"total\": 42, \"failures\": []}"));
+        OpenSearchIndexManager manager = manager();
+
+        assertThat(manager.ensureIndex().warnings()).singleElement().asString().contains("concrete index");
+        calls.clear();
+
+        OpenSearchIndexManager.IndexReport report = manager.rebuild();
+
+        assertThat(calls).containsExactly(
+                "GET /_alias/nc",
+                "HEAD /nc",
+                "PUT /_index_template/nc-template",
+                "GET /_cat/indices/nc-v*",
+                "PUT /nc-v1",
+                "POST /_reindex",
+                "PUT /nc-v1/_settings",
+                "POST /nc-v1/_refresh",
+                "POST /nc-v1/_forcemerge",
+                "POST /nc/_refresh",
+                "POST /_reindex",
+                "POST /_aliases");
+        assertThat(bodies.get("PUT /nc-v1")).contains("\"refresh_interval\":\"-1\"", "\"number_of_replicas\":0");
+        assertThat(bodies.get("PUT /nc-v1/_settings")).contains("\"refresh_interval\":\"1s\"", "\"number_of_replicas\":1");
+        assertThat(bodies.get("POST /_aliases")).contains("\"remove_index\":{\"index\":\"nc\"}", "\"add\"");
+        assertThat(report.actions()).anyMatch(action -> action.contains("42 chunks"));
+    }
+
+    @Test
+    void rebuildMovesAliasToNextVersion() {
+        responses.put("GET /_alias/nc", json("{\"nc-v2\": {\"aliases\": {\"nc\": {}}}}"));
+        responses.put("GET /_cat/indices/nc-v*", json("[{\"index\": \"nc-v1\"}, {\"index\": \"nc-v2\"}]"));
+        responses.put("POST /_reindex", json("{\"total\": 3, \"failures\": []}"));
+
+        OpenSearchIndexManager.IndexReport report = manager().rebuild();
+
+        assertThat(report.index()).isEqualTo("nc-v3");
+        assertThat(calls).doesNotContain("HEAD /nc").contains("PUT /nc-v3", "POST /nc-v3/_forcemerge");
+        assertThat(bodies.get("POST /_aliases"))
+                .contains("\"remove\":{", "\"index\":\"nc-v2\"", "\"index\":\"nc-v3\"")
+                .doesNotContain("remove_index");
+    }
+
+    @Test
+    void rebuildCatchesUpWritesMadeThroughTheOldIndexAroundTheSwap() {
+        responses.put("GET /_alias/nc", json("{\"nc-v2\": {\"aliases\": {\"nc\": {}}}}"));
+        responses.put("GET /_cat/indices/nc-v*", json("[{\"index\": \"nc-v2\"}]"));
+        List<String> reindexBodies = new ArrayList<>();
+        OpenSearchIndexManager manager = manager(reindexBodies);
+
+        manager.rebuild();
+
+        assertThat(calls.subList(calls.indexOf("POST /nc-v3/_forcemerge") + 1, calls.size())).containsExactly(
+                "POST /nc-v2/_refresh",
+                "POST /_reindex",
+                "POST /_aliases",
+                "POST /nc-v2/_refresh",
+                "POST /_reindex");
+        assertThat(reindexBodies).hasSize(3);
+        assertThat(reindexBodies.get(0))
+                .contains("\"source\":{\"index\":\"nc\"}", "\"version_type\":\"external\"")
+                .doesNotContain("range");
+        assertThat(reindexBodies.subList(1, 3)).allSatisfy(body -> assertThat(body)
+                .startsWith("{\"conflicts\":\"proceed\"")
+                .contains("\"index\":\"nc-v2\"", "\"range\":{\"indexedAt\":{\"gte\":", "\"version_type\":\"external\"")
+                .doesNotContain("op_type"));
+    }
+
+    private OpenSearchIndexManager manager() {
+        return manager(new ArrayList<>());
+    }
+
+    private OpenSearchIndexManager manager(List<String> reindexBodies) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String call = request.method() + " " + request.url().getPath();
+                    calls.add(call);
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    String body = captured.getBodyAsString().defaultIfEmpty("").block();
+                    if (!body.isEmpty()) {
+                        bodies.put(call, body);
+                    }
+                    if (call.equals("POST /_reindex")) {
+                        reindexBodies.add(body);
+                    }
+                    ClientResponse response = responses.get(call);
+                    if (response != null) {
+                        return Mono.just(response);
+                    }
+                    return Mono.just(request.method().name().equals("GET") || request.method().name().equals("HEAD")
+                            ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                            : json("{\"acknowledged\": true}"));
+                })
+                .build();
+        return new OpenSearchIndexManager(webClient, new OpenSearchIndexProperties(), "nc", "tenantId", "roles");
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QdrantCollectionManagerTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+
+    @Test
+    void createsMissingCollectionWithProbedVectorSizeProfileAndPayloadIndexes() {
+        QdrantCollectionManager manager = manager(null, properties("compact", QdrantCollectionProperties.Quantization.SCALAR));
+
+        QdrantCollectionManager.CollectionReport report = manager.ensureCollection();
+
+        assertThat(calls).containsExactly(
+                "GET /collections/chunks",
+                "PUT /collections/chunks",
+                "PUT /collections/chunks/index",
+                "PUT /collections/chunks/index");
+        assertThat(bodies.get(0))
+                .contains("\"size\":3", "\"m\":24", "\"ef_construct\":180", "\"scalar\"");
+        assertThat(bodies.get(1)).contains("\"field_name\":\"tenantId\"", "\"field_schema\":\"keyword\"");
+        assertThat(bodies.get(2)).contains("\"field_name\":\"roles\"");
+        assertThat(report.actions()).hasSize(3);
+    }
+
+    @Test
+    void leavesMatchingCollectionUntouched() {
+        String existing = """
+                {"result": {
+                  "config": {
+                    "params": {"vectors": {"dense": {"size": 3, "distance": "Cosine"}}},
+                    "hnsw_config": {"m": 24, "ef_construct": 180},
+                    "quantization_config": {"scalar": {"type": "int8"}}
+                  },
+                  "payload_schema": {"tenantId": {"data_type": "keyword"}, "roles": {"data_type": "keyword"}}
+                }}
+                """;
+        QdrantCollectionManager manager = manager(existing, properties("compact", QdrantCollectionProperties.Quantization.SCALAR));
+
+        QdrantCollectionManager.CollectionReport report = manager.ensureCollection();
+
+        assertThat(calls).containsExactly("GET /collections/chunks");
+        assertThat(report.actions()).isEmpty();
+        assertThat(report.warnings()).isEmpty();
+    }
+
+    @Test
+    void patchesProfileDriftAndAddsMissingIndex() {
+        String existing = """
+                {"result": {
+                  "config": {
+                    "params": {"vectors": {"dense": {"size": 3, "distance": "Cosine"}}},
+                    "hnsw_config": {"m": 16, "ef_construct": 100},
+                    "quantization_config": {"scalar": {"type": "int8"}}
+                  },
+                  "payload_schema": {"tenantId": {"data_type": "keyword"}}
+                }}
+                """;
+        QdrantCollectionManager manager = manager(existing, properties("exact", QdrantCollectionProperties.Quantization.NONE));
+
+        manager.ensureCollection();
+
+        assertThat(calls).containsExactly("GET /collections/chunks", "PATCH /collections/chunks", "PUT /collections/chunks/index");
+        assertThat(bodies.get(0)).contains("\"quantization_config\":\"Disabled\"", "\"m\":24");
+        assertThat(bodies.get(1)).contains("\"field_name\":\"roles\"");
+    }
+
+    @Test
+    void indexesChunkIdWhenProjectedResultsAreHydrated() {
+        String existing = """
+                {"result": {
+                  "config": {
+                    "params": {"vectors": {"dense": {"size": 3, "distance": "Cosine"}}},
+                    "hnsw_config": {"m": 24, "ef_construct": 180},
+                    "quantization_config": {"scalar": {"type": "int8"}}
+                  },
+                  "payload_schema": {"tenantId": {"data_type": "keyword"}, "roles": {"data_type": "keyword"}}
+                }}
+                """;
+        QdrantCollectionManager manager = manager(existing, properties("compact", QdrantCollectionProperties.Quantization.SCALAR), true, false);
+
+        QdrantCollectionManager.CollectionReport report = manager.ensureCollection();
+
+        assertThat(calls).containsExactly("GET /collections/chunks", "PUT /collections/chunks/index");
+        assertThat(bodies).singleElement().asString().contains("\"field_name\":\"chunkId\"", "\"field_schema\":\"keyword\"");
+        assertThat(report.actions()).containsExactly("created keyword index on chunkId");
+    }
+
+    @Test
+    void indexesDocIdWhenHierarchicalSearchFiltersOnIt() {
+        String existing = """
+                {"result": {
+                  "config": {
+                    "params": {"vectors": {"dense": {"size": 3, "distance": "Cosine"}}},
+                    "hnsw_config": {"m": 24, "ef_construct": 180},
+                    "quantization_config": {"scalar": {"type": "int8"}}
+                  },
+                  "payload_schema": {"tenantId": {"data_type": "keyword"}, "roles": {"data_type": "keyword"}}
+                }}
+                """;
+        QdrantCollectionManager manager = manager(existing, properties("compact", QdrantCollectionProperties.Quantization.SCALAR), false, true);
+
+        QdrantCollectionManager.CollectionReport report = manager.ensureCollection();
+
+        assertThat(calls).containsExactly("GET /collections/chunks", "PUT /collections/chunks/index");
+        assertThat(bodies).singleElement().asString().contains("\"field_name\":\"docId\"", "\"field_schema\":\"keyword\"");
+        assertThat(report.actions()).containsExactly("created keyword index on docId");
+    }
+
+    private QdrantCollectionManager manager(String existingCollection, QdrantCollectionProperties properties) {
+        return manager(existingCollection, properties, false, false);
+    }
+
+    private QdrantCollectionManager manager(String existingCollection, QdrantCollectionProperties properties, boolean projection,
+                                            boolean hierarchical) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.add(request.method() + " " + request.url().getPath());
+                    if (request.method().name().equals("GET")) {
+                        return Mono.just(existingCollection == null
+                                ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                                : json(existingCollection));
+                    }
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(json("{\"result\": true, \"status\": \"ok\"}"));
+                })
+                .build();
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.1, 0.2, 0.3)), "test", 3);
+        return new QdrantCollectionManager(webClient, embeddings, properties, "chunks", "dense", "tenantId", "roles",
+                "opensearch", projection, hierarchical);
+    }
+
+    private static QdrantCollectionProperties properties(String name, QdrantCollectionProperties.Quantization quantization) {
+        QdrantCollectionProperties.Profile profile = new QdrantCollectionProperties.Profile();
+        profile.setM(24);
+        profile.setEfConstruct(180);
+        profile.setQuantization(quantization);
+        QdrantCollectionProperties properties = new QdrantCollectionProperties();
+        properties.setProfile(name);
+        properties.setProfiles(Map.of(name, profile));
+        return properties;
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QdrantVectorStoreClientTest {
+
+    @Test
+    void sendsTheNamedVectorTheManagedCollectionDefines() {
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"result\": {}}")
+                            .build());
+                })
+                .build();
+
+        new QdrantVectorStoreClient(webClient, "chunks").upsert("acme", "doc-1", List.of(
+                new EmbeddedChunk("doc-1-1", "Depot hours", 1, "text", List.of("CP"), DocumentMetadata.empty(), List.of(0.6, 0.8))));
+
+        assertThat(bodies).singleElement().asString().contains(
+                "\"id\":\"" + QdrantVectorStoreClient.pointId("doc-1-1") + "\"",
+                "\"vector\":{\"text_embeddings\":[0.6,0.8]}",
+                "\"chunkId\":\"doc-1-1\"");
+    }
+}
@@ -0,0 +1,196 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import com.netcourier.chatbot.persistence.entity.PartitionInstanceEntity;
+import com.netcourier.chatbot.persistence.entity.TenantPlacementEntity;
+import com.netcourier.chatbot.persistence.repository.PartitionInstanceRepository;
+import com.netcourier.chatbot.persistence.repository.TenantPlacementRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+
+class TenantMigrationServiceTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final Map<String, String> bodies = new LinkedHashMap<>();
+    private final Map<String, ClientResponse> responses = new HashMap<>();
+    private final TenantPartitioning partitioning = new TenantPartitioning("chunks", "nc", Set.of(), 1000);
+    private final IngestionEpochs epochs = new IngestionEpochs();
+    private final List<TenantPlacementEntity> placementRows = new ArrayList<>();
+    private final Map<String, PartitionInstanceEntity> instances = new LinkedHashMap<>();
+
+    @Test
+    void movesTenantToDedicatedCollectionAndIndexThenRemovesSharedCopy() {
+        responses.put("POST /collections/chunks/points/scroll", json("""
+                {"result": {"points": [
+                  {"id": "doc-1#1", "vector": {"dense": [0.1, 0.2]}, "payload": {"tenantId": "acme", "chunkId": "doc-1#1"}},
+                  {"id": "doc-1#2", "vector": {"dense": [0.3, 0.4]}, "payload": {"tenantId": "acme", "chunkId": "doc-1#2"}}
+                ], "next_page_offset": null}}
+                """));
+        responses.put("POST /_reindex", json("{\"created\": 2, \"failures\": []}"));
+
+        TenantMigrationService.MigrationReport report = service().migrate("acme", TenantPartitioning.Layout.DEDICATED);
+
+        assertThat(report.pointsCopied()).isEqualTo(2);
+        assertThat(report.documentsCopied()).isEqualTo(2);
+        assertThat(calls).containsSubsequence(
+                "PUT /collections/chunks-t-acme",
+                "PUT /nc-t-acme",
+                "POST /collections/chunks/points/scroll",
+                "PUT /collections/chunks-t-acme/points",
+                "POST /_reindex",
+                "POST /collections/chunks/points/delete",
+                "POST /nc/_delete_by_query");
+        assertThat(bodies.get("PUT /collections/chunks-t-acme/points")).contains("\"id\":\"doc-1#1\"", "\"dense\":[0.1,0.2]");
+        assertThat(bodies.get("POST /_reindex")).contains("\"version_type\":\"external\"", "\"tenantId\":\"acme\"");
+        assertThat(partitioning.layout("acme")).isEqualTo(TenantPartitioning.Layout.DEDICATED);
+        assertThat(partitioning.qdrantWriteCollections("acme")).containsExactly("chunks-t-acme");
+        assertThat(epochs.current("acme")).isEqualTo(1);
+        assertThat(placementRows).extracting(TenantPlacementEntity::getReadLayout, TenantPlacementEntity::getMigratingTo)
+                .containsExactly(tuple("SHARED", "DEDICATED"), tuple("DEDICATED", null));
+    }
+
+    @Test
+    void anotherInstanceAppliesTheRecordedPlacement() {
+        responses.put("POST /_reindex", json("{\"created\": 0}"));
+        service().migrate("acme", TenantPartitioning.Layout.DEDICATED);
+
+        TenantPartitioning other = new TenantPartitioning("chunks", "nc", Set.of(), 1000);
+        IngestionEpochs otherEpochs = new IngestionEpochs();
+        store(other, otherEpochs).sync();
+
+        assertThat(other.layout("acme")).isEqualTo(TenantPartitioning.Layout.DEDICATED);
+        assertThat(other.qdrantWriteCollections("acme")).containsExactly("chunks-t-acme");
+        assertThat(otherEpochs.current("acme")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTheOldCopyWhileAnotherInstanceStillReadsIt() {
+        responses.put("POST /_reindex", json("{\"created\": 0}"));
+        PartitionInstanceEntity lagging = new PartitionInstanceEntity("other");
+        lagging.setAppliedRevision(1);
+        lagging.setHeartbeatAt(OffsetDateTime.now());
+        instances.put("other", lagging);
+
+        TenantMigrationService.MigrationReport report = service().migrate("acme", TenantPartitioning.Layout.DEDICATED);
+
+        assertThat(partitioning.layout("acme")).isEqualTo(TenantPartitioning.Layout.DEDICATED);
+        assertThat(report.actions()).anyMatch(action -> action.startsWith("old SHARED copy left in place"));
+        assertThat(calls).doesNotContain("POST /collections/chunks/points/delete", "POST /nc/_delete_by_query");
+    }
+
+    @Test
+    void copyLeavesPointsTheDualWritesAlreadyPutInTheTarget() {
+        responses.put("POST /collections/chunks/points/scroll", json("""
+                {"result": {"points": [
+                  {"id": "doc-1#1", "vector": {"dense": [0.1, 0.2]}, "payload": {"tenantId": "acme", "chunkId": "doc-1#1"}},
+                  {"id": "doc-2#1", "vector": {"dense": [0.5, 0.6]}, "payload": {"tenantId": "acme", "chunkId": "doc-2#1"}}
+                ], "next_page_offset": null}}
+                """));
+        responses.put("POST /collections/chunks-t-acme/points", json("{\"result\": [{\"id\": \"doc-2#1\"}]}"));
+        responses.put("POST /_reindex", json("{\"created\": 1}"));
+
+        TenantMigrationService.MigrationReport report = service().migrate("acme", TenantPartitioning.Layout.DEDICATED);
+
+        assertThat(report.pointsCopied()).isEqualTo(1);
+        assertThat(bodies.get("POST /collections/chunks-t-acme/points")).contains("\"ids\":[\"doc-1#1\",\"doc-2#1\"]");
+        assertThat(bodies.get("PUT /collections/chunks-t-acme/points")).contains("doc-1#1").doesNotContain("doc-2#1");
+    }
+
+    @Test
+    void failedCopyLeavesReadsAndWritesOnTheSharedLayout() {
+        responses.put("POST /collections/chunks/points/scroll", ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        assertThatThrownBy(() -> service().migrate("acme", TenantPartitioning.Layout.DEDICATED))
+                .isInstanceOf(IngestionException.class);
+
+        assertThat(partitioning.layout("acme")).isEqualTo(TenantPartitioning.Layout.SHARED);
+        assertThat(partitioning.qdrantWriteCollections("acme")).containsExactly("chunks");
+        assertThat(calls).doesNotContain("POST /collections/chunks/points/delete");
+    }
+
+    private TenantMigrationService service() {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String call = request.method() + " " + request.url().getPath();
+                    calls.add(call);
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    String body = captured.getBodyAsString().defaultIfEmpty("").block();
+                    if (!body.isEmpty()) {
+                        bodies.put(call, body);
+                    }
+                    ClientResponse response = responses.get(call);
+                    if (response != null) {
+                        return Mono.just(response);
+                    }
+                    return Mono.just(request.method().name().equals("GET") || request.method().name().equals("HEAD")
+                            ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                            : json("{\"result\": {}}"));
+                })
+                .build();
+        QdrantCollectionProperties properties = new QdrantCollectionProperties();
+        properties.setVectorSize(2);
+        QdrantCollectionManager collectionManager = new QdrantCollectionManager(webClient, texts -> null, properties,
+                "chunks", "dense", "tenantId", "roles");
+        OpenSearchIndexManager indexManager = new OpenSearchIndexManager(webClient, new OpenSearchIndexProperties(),
+                "nc", "tenantId", "roles");
+        return new TenantMigrationService(webClient, webClient, partitioning, store(partitioning, epochs),
+                collectionManager, indexManager, "tenantId", "tenantId", 100);
+    }
+
+    private TenantPlacementStore store(TenantPartitioning view, IngestionEpochs viewEpochs) {
+        TenantPlacementRepository placementRepository = Mockito.mock(TenantPlacementRepository.class);
+        Mockito.when(placementRepository.save(any())).thenAnswer(invocation -> {
+            TenantPlacementEntity row = invocation.getArgument(0);
+            ReflectionTestUtils.setField(row, "id", placementRows.size() + 1L);
+            placementRows.add(row);
+            return row;
+        });
+        Mockito.when(placementRepository.findByIdGreaterThanOrderByIdAsc(any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return placementRows.stream().filter(row -> row.getId() > after).toList();
+        });
+        PartitionInstanceRepository instanceRepository = Mockito.mock(PartitionInstanceRepository.class);
+        Mockito.when(instanceRepository.findById(any()))
+                .thenAnswer(invocation -> Optional.ofNullable(instances.get(invocation.<String>getArgument(0))));
+        Mockito.when(instanceRepository.save(any())).thenAnswer(invocation -> {
+            PartitionInstanceEntity instance = invocation.getArgument(0);
+            instances.put(instance.getInstanceId(), instance);
+            return instance;
+        });
+        Mockito.when(instanceRepository.findByHeartbeatAtAfter(any()))
+                .thenAnswer(invocation -> List.copyOf(instances.values()));
+        return new TenantPlacementStore(placementRepository, instanceRepository, view, viewEpochs,
+                Duration.ofMillis(1), Duration.ofSeconds(30), Duration.ofMillis(20));
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.netcourier.chatbot.service.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebClientEmbeddingsClientTest {
+
+    @Test
+    void sparseModeRejectsResponsesWithoutLexicalWeights() {
+        WebClientEmbeddingsClient client = new WebClientEmbeddingsClient(
+                respondingWith("{\"vectors\": [[0.6, 0.8]], \"model\": \"bge-m3\", \"dimensions\": 2}"), "qdrant");
+
+        assertThatThrownBy(() -> client.embed(List.of("parcel")))
+                .isInstanceOf(IngestionException.class)
+                .hasMessageContaining("lexical weights");
+    }
+
+    @Test
+    void sparseModeKeepsLexicalWeightsAlignedWithVectors() {
+        WebClientEmbeddingsClient client = new WebClientEmbeddingsClient(respondingWith("""
+                {"vectors": [[0.6, 0.8]], "model": "bge-m3", "dimensions": 2,
+                 "sparse": [{"indices": [17, 2054], "values": [0.5, 0.25]}]}
+                """), "qdrant");
+
+        EmbeddingsClient.EmbeddingBatch batch = client.embed(List.of("parcel"));
+
+        assertThat(batch.sparseAt(0)).isEqualTo(new EmbeddingsClient.SparseVector(List.of(17, 2054), List.of(0.5, 0.25)));
+    }
+
+    private static WebClient respondingWith(String body) {
+        return WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveTopKTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdaptiveTopK adaptive = new AdaptiveTopK(true, 3, 12, 2, 0.85, 0.4, registry);
+
+    @Test
+    void widensOnlyWhenTheKthHitScoresCloseToTheLeader() {
+        assertThat(adaptive.shouldWiden(hits(0.90, 0.88, 0.86), 3)).isTrue();
+        assertThat(adaptive.shouldWiden(hits(0.90, 0.60, 0.40), 3)).isFalse();
+        assertThat(adaptive.shouldWiden(hits(0.90, 0.88), 3)).isFalse();
+        assertThat(adaptive.shouldWiden(hits(0.90, 0.88, 0.86), 12)).isFalse();
+    }
+
+    @Test
+    void cutsRetrieverHitsAtTheFirstSharpDropButKeepsTheMinimum() {
+        assertThat(adaptive.cut("dense", hits(1.0, 0.95, 0.9, 0.4, 0.35))).hasSize(3);
+        assertThat(adaptive.cut("dense", hits(1.0, 0.3, 0.25))).hasSize(2);
+        assertThat(adaptive.cut("sparse", hits(0.6, 0.5, 0.4, 0.3))).hasSize(4);
+        assertThat(registry.get("chat.rag.adaptive.results").tag("retriever", "dense").summary().count()).isEqualTo(2);
+        assertThat(registry.get("chat.rag.adaptive.results").tag("retriever", "sparse").summary().count()).isEqualTo(1);
+    }
+
+    private static List<RetrievedChunk> hits(double... scores) {
+        return IntStream.range(0, scores.length)
+                .mapToObj(i -> new RetrievedChunk("doc-" + i, "Doc " + i, 1, "text " + i, scores[i], "dense"))
+                .toList();
+    }
+}
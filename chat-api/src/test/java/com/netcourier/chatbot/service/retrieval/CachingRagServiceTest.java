@@ -0,0 +1,153 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.IngestionEpochs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingRagServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IngestionEpochs epochs = new IngestionEpochs();
+    private final MutableClock clock = new MutableClock();
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    private List<RetrievedChunk> delegateResult = List.of(chunk("doc-1", "delivery windows"));
+    private boolean delegateDegraded;
+
+    @Test
+    void repeatedQueryIsServedFromCacheRegardlessOfWhitespaceAndCase() {
+        CachingRagService service = service(1_000_000);
+
+        service.retrieve(request("tenant-1", "When do you  deliver?"), "RAG_FAQ");
+        List<RetrievedChunk> second = service.retrieve(request("tenant-1", "when do you deliver?"), "RAG_FAQ");
+
+        assertThat(second).extracting(RetrievedChunk::docId).containsExactly("doc-1");
+        assertThat(delegateCalls).hasValue(1);
+        assertThat(meterRegistry.counter("chat.rag.cache.requests", "outcome", "hit").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void ingestionForTenantOrGlobalInvalidatesEntries() {
+        CachingRagService service = service(1_000_000);
+
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+        epochs.advance("tenant-1");
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+        epochs.advance("GLOBAL");
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+
+        assertThat(delegateCalls).hasValue(3);
+    }
+
+    @Test
+    void emptyResultsExpireSoonerThanPopulatedResults() {
+        CachingRagService service = service(1_000_000);
+        delegateResult = List.of();
+
+        service.retrieve(request("tenant-1", "unknown topic"), "RAG_FAQ");
+        clock.advance(Duration.ofSeconds(31));
+        service.retrieve(request("tenant-1", "unknown topic"), "RAG_FAQ");
+
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    @Test
+    void degradedResultsExpireAsSoonAsEmptyResults() {
+        CachingRagService service = service(1_000_000);
+        delegateDegraded = true;
+
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+        clock.advance(Duration.ofSeconds(31));
+        delegateDegraded = false;
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+        clock.advance(Duration.ofSeconds(31));
+        service.retrieve(request("tenant-1", "returns policy"), "RAG_FAQ");
+
+        assertThat(delegateCalls).hasValue(2);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedWhenByteBudgetIsExceeded() {
+        CachingRagService service = service(900);
+
+        service.retrieve(request("tenant-1", "first"), "RAG_FAQ");
+        service.retrieve(request("tenant-1", "second"), "RAG_FAQ");
+        service.retrieve(request("tenant-1", "third"), "RAG_FAQ");
+        service.retrieve(request("tenant-1", "first"), "RAG_FAQ");
+
+        assertThat(delegateCalls).hasValue(4);
+        assertThat(meterRegistry.counter("chat.rag.cache.evictions").count()).isGreaterThanOrEqualTo(1.0);
+    }
+
+    private CachingRagService service(long maxBytes) {
+        RetrievalCache cache = new RetrievalCache(maxBytes, Duration.ofMinutes(10), Duration.ofSeconds(30), clock, meterRegistry);
+        RagService delegate = new RagService() {
+            @Override
+            public List<RetrievedChunk> retrieve(ChatRequest request, String intent) {
+                return retrieveWithStatus(request, intent).chunks();
+            }
+
+            @Override
+            public Retrieval retrieveWithStatus(ChatRequest request, String intent) {
+                delegateCalls.incrementAndGet();
+                return new Retrieval(new ArrayList<>(delegateResult), delegateDegraded);
+            }
+        };
+        return new CachingRagService(delegate, epochs, true, cache);
+    }
+
+    private ChatRequest request(String tenantId, String utterance) {
+        return new ChatRequest(
+                "conversation",
+                tenantId,
+                "user-1",
+                List.of(new ChatTurn(ChatMessageRole.USER, utterance)),
+                new ChatContext(Locale.ENGLISH, Set.of("CP", "BO"), "CP")
+        );
+    }
+
+    private static RetrievedChunk chunk(String docId, String text) {
+        return new RetrievedChunk(docId, "Title", 1, text.repeat(10), 0.5, "dense");
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
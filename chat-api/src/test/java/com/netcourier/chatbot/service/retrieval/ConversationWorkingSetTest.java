@@ -0,0 +1,150 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.IngestionEpochs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationWorkingSetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, List<Double>> vectors = Map.of(
+            "Weekday deliveries run from 8am to 6pm.", List.of(1.0, 0.1, 0.0),
+            "Saturday deliveries run from 9am to 1pm.", List.of(0.9, 0.3, 0.0),
+            "Returns are collected within two days.", List.of(0.0, 1.0, 0.0),
+            "when do you deliver?", List.of(1.0, 0.0, 0.0),
+            "and what about weekends?", List.of(0.95, 0.2, 0.0),
+            "how do I pay my invoice?", List.of(0.0, 0.0, 1.0));
+    private final EmbeddingsClient embeddings = texts ->
+            new EmbeddingsClient.EmbeddingBatch(texts.stream().map(vectors::get).toList(), "stub", 3);
+    private final ConversationWorkingSet workingSet = new ConversationWorkingSet(embeddings, meterRegistry, true,
+            Duration.ofMinutes(15), 24, 100, 0.8, 2, 5, Clock.systemUTC(), Schedulers.immediate());
+    private final List<RetrievedChunk> firstTurn = List.of(
+            chunk("weekdays", "Weekday deliveries run from 8am to 6pm."),
+            chunk("saturday", "Saturday deliveries run from 9am to 1pm."),
+            chunk("returns", "Returns are collected within two days."));
+
+    @Test
+    void followUpIsAnsweredFromChunksOfEarlierTurns() {
+        workingSet.record(request("user-1", "when do you deliver?"), firstTurn, 0, 0, 40_000_000);
+
+        List<RetrievedChunk> local = workingSet.lookup(request("user-1", "and what about weekends?"), 0, 0).hits();
+
+        assertThat(local).extracting(RetrievedChunk::docId).containsExactly("weekdays", "saturday");
+        assertThat(local.getFirst().score()).isGreaterThan(0.8);
+        assertThat(meterRegistry.counter("chat.rag.working-set.lookups", "outcome", "hit").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.summary("chat.rag.working-set.saved").totalAmount()).isPositive();
+    }
+
+    @Test
+    void unrelatedFollowUpFallsThroughToTheBackends() {
+        workingSet.record(request("user-1", "when do you deliver?"), firstTurn, 0, 0, 40_000_000);
+
+        ConversationWorkingSet.Lookup lookup = workingSet.lookup(request("user-1", "how do I pay my invoice?"), 0, 0);
+
+        assertThat(lookup.hit()).isFalse();
+        assertThat(lookup.queryEmbedding().embedding().vectors()).containsExactly(List.of(0.0, 0.0, 1.0));
+        assertThat(meterRegistry.counter("chat.rag.working-set.lookups", "outcome", "miss").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.summary("chat.rag.working-set.miss-cost").count()).isEqualTo(1);
+    }
+
+    @Test
+    void workingSetIsNotSharedAcrossUsersNorUsedAfterIngestion() {
+        workingSet.record(request("user-1", "when do you deliver?"), firstTurn, 0, 0, 40_000_000);
+
+        assertThat(workingSet.lookup(request("user-2", "and what about weekends?"), 0, 0).hit()).isFalse();
+        assertThat(workingSet.lookup(request("user-1", "and what about weekends?"), 1, 0).hit()).isFalse();
+    }
+
+    @Test
+    void cachingRagServiceSkipsBackendsForAnsweredFollowUps() {
+        int[] backendCalls = {0};
+        RagService backends = (request, intent) -> {
+            backendCalls[0]++;
+            return firstTurn;
+        };
+        RetrievalCache cache = new RetrievalCache(1_000_000, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Clock.systemUTC(), meterRegistry);
+        CachingRagService service = new CachingRagService(backends, new IngestionEpochs(), true, cache, workingSet);
+
+        service.retrieve(request("user-1", "when do you deliver?"), "RAG_FAQ");
+        List<RetrievedChunk> followUp = service.retrieve(request("user-1", "and what about weekends?"), "RAG_FAQ");
+
+        assertThat(backendCalls[0]).isEqualTo(1);
+        assertThat(followUp).extracting(RetrievedChunk::docId).containsExactly("weekdays", "saturday");
+    }
+
+    @Test
+    void chunksTakeTheirStoredVectorsAndOnlyTheRestAreEmbedded() {
+        List<String> embedded = new ArrayList<>();
+        EmbeddingsClient counting = texts -> {
+            embedded.addAll(texts);
+            return embeddings.embed(texts);
+        };
+        ChunkVectors stored = (tenantId, chunkIds) -> Mono.just(Map.of(
+                "weekdays#1", vectors.get("Weekday deliveries run from 8am to 6pm."),
+                "saturday#1", vectors.get("Saturday deliveries run from 9am to 1pm.")));
+        ConversationWorkingSet withStore = new ConversationWorkingSet(counting, stored, meterRegistry, true,
+                Duration.ofMinutes(15), 24, 100, 0.8, 2, 5, Clock.systemUTC(), Schedulers.immediate());
+
+        withStore.record(request("user-1", "when do you deliver?"), firstTurn, 0, 0, 40_000_000);
+
+        assertThat(embedded).containsExactly("Returns are collected within two days.");
+        assertThat(withStore.lookup(request("user-1", "and what about weekends?"), 0, 0).hits())
+                .extracting(RetrievedChunk::docId).containsExactly("weekdays", "saturday");
+    }
+
+    @Test
+    void cachingRagServicePassesTheFollowUpEmbeddingOnAfterAMiss() {
+        List<QueryEmbedding> handedDown = new ArrayList<>();
+        RagService backends = new RagService() {
+            @Override
+            public List<RetrievedChunk> retrieve(ChatRequest request, String intent) {
+                return firstTurn;
+            }
+
+            @Override
+            public Retrieval retrieveWithStatus(ChatRequest request, String intent, QueryEmbedding queryEmbedding) {
+                handedDown.add(queryEmbedding);
+                return retrieveWithStatus(request, intent);
+            }
+        };
+        RetrievalCache cache = new RetrievalCache(1_000_000, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Clock.systemUTC(), meterRegistry);
+        CachingRagService service = new CachingRagService(backends, new IngestionEpochs(), true, cache, workingSet);
+
+        service.retrieve(request("user-1", "when do you deliver?"), "RAG_FAQ");
+        service.retrieve(request("user-1", "how do I pay my invoice?"), "RAG_FAQ");
+
+        assertThat(handedDown).hasSize(2);
+        assertThat(handedDown.getFirst()).isNull();
+        assertThat(handedDown.get(1).embedding().vectors()).containsExactly(List.of(0.0, 0.0, 1.0));
+    }
+
+    private static RetrievedChunk chunk(String docId, String text) {
+        return new RetrievedChunk(docId, docId, 1, text, 0.5, "hybrid", docId + "#1");
+    }
+
+    private static ChatRequest request(String userId, String utterance) {
+        return new ChatRequest("conversation-1", "tenant-1", userId,
+                List.of(new ChatTurn(ChatMessageRole.USER, utterance)),
+                new ChatContext(Locale.ENGLISH, Set.of("CP"), "CP"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiversitySelectorTest {
+
+    private static final String RETURNS = "Returns are collected by the courier within two working days. "
+            + "Customers must print the label from the portal and attach it to the parcel before pickup.";
+    private static final String DEPOT = "Depot opening hours are eight until six on weekdays and the depot is closed "
+            + "on public holidays unless a Saturday service has been booked in advance.";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DiversitySelector selector = new DiversitySelector(true, 0.7, 0.8, 3, meterRegistry);
+
+    @Test
+    void dropsTheGlobalCopyOfATenantParagraphAndReportsSavedTokens() {
+        List<RetrievedChunk> candidates = List.of(
+                chunk("tenant-returns", RETURNS, 1.0),
+                chunk("GLOBAL-returns", RETURNS.replace("two", "2"), 0.9),
+                chunk("tenant-depot", DEPOT, 0.5));
+
+        List<RetrievedChunk> selected = selector.select(candidates, 2);
+
+        assertThat(selected).extracting(RetrievedChunk::docId).containsExactly("tenant-returns", "tenant-depot");
+        assertThat(meterRegistry.get("chat.rag.diversity.suppressed").counter().count()).isEqualTo(1d);
+        assertThat(meterRegistry.get("chat.rag.diversity.tokens.saved").summary().totalAmount())
+                .isEqualTo(RETURNS.replace("two", "2").length() / 4 + 16);
+    }
+
+    @Test
+    void keepsNeighbouringWindowsThatOnlyShareTheirOverlap() {
+        String first = RETURNS + " " + DEPOT;
+        String second = DEPOT + " Claims for damaged parcels must be raised within fourteen days with photographs attached.";
+
+        List<RetrievedChunk> selected = selector.select(List.of(chunk("manual", first, 1.0), chunk("manual", second, 0.9)), 2);
+
+        assertThat(selected).hasSize(2);
+        assertThat(DiversitySelector.overlap(DiversitySelector.shingles(first), DiversitySelector.shingles(second)))
+                .isLessThan(0.8);
+    }
+
+    @Test
+    void disabledSelectorOnlyTruncates() {
+        DiversitySelector disabled = new DiversitySelector(false, 0.7, 0.8, 3, meterRegistry);
+        List<RetrievedChunk> candidates = List.of(chunk("a", RETURNS, 1.0), chunk("b", RETURNS, 0.9), chunk("c", DEPOT, 0.8));
+
+        assertThat(disabled.candidatePool(5)).isEqualTo(5);
+        assertThat(disabled.select(candidates, 2)).extracting(RetrievedChunk::docId).containsExactly("a", "b");
+    }
+
+    private static RetrievedChunk chunk(String docId, String text, double score) {
+        return new RetrievedChunk(docId, docId, 1, text, score, "dense", docId + "#1");
+    }
+}
@@ -0,0 +1,59 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FusionEngineTest {
+
+    @Test
+    void keepsSeparateChunksOfTheSameDocumentUpToTheCap() {
+        List<RetrievedChunk> dense = List.of(
+                chunk("manual", "manual#4", 0.9),
+                chunk("manual", "manual#7", 0.8),
+                chunk("manual", "manual#9", 0.7),
+                chunk("faq", "faq#1", 0.6));
+        List<RetrievedChunk> sparse = List.of(
+                chunk("manual", "manual#7", 3.0),
+                chunk("faq", "faq#1", 2.0));
+        FusionEngine engine = new FusionEngine(1.0, 1.0, 0, FusionEngine.Normalisation.RANK, 2);
+
+        List<RetrievedChunk> fused = engine.fuse(dense, sparse, 5);
+
+        assertThat(fused).extracting(RetrievedChunk::chunkId).containsExactly("manual#7", "manual#4", "faq#1");
+        assertThat(fused.getFirst().score()).isCloseTo(0.5 + 1.0, within(1e-9));
+        assertThat(fused.getFirst().source()).isEqualTo("sparse");
+    }
+
+    @Test
+    void rrfConstantFlattensRankContributions() {
+        List<RetrievedChunk> dense = List.of(chunk("a", "a#1", 0.9), chunk("b", "b#1", 0.8));
+        FusionEngine engine = new FusionEngine(1.0, 1.0, 60, FusionEngine.Normalisation.RANK, 0);
+
+        List<RetrievedChunk> fused = engine.fuse(dense, List.of(), 5);
+
+        assertThat(fused.get(0).score()).isCloseTo(1.0 / 61, within(1e-9));
+        assertThat(fused.get(1).score()).isCloseTo(1.0 / 62, within(1e-9));
+    }
+
+    @Test
+    void scoreNormalisationWeightsMinMaxScaledScores() {
+        List<RetrievedChunk> dense = List.of(chunk("a", "a#1", 0.9), chunk("b", "b#1", 0.5));
+        List<RetrievedChunk> sparse = List.of(chunk("b", "b#1", 12.0), chunk("c", "c#1", 4.0), chunk("a", "a#1", 2.0));
+        FusionEngine engine = new FusionEngine(0.6, 0.4, 0, FusionEngine.Normalisation.SCORE, 0);
+
+        List<RetrievedChunk> fused = engine.fuse(dense, sparse, 2);
+
+        assertThat(fused).extracting(RetrievedChunk::chunkId).containsExactly("a#1", "b#1");
+        assertThat(fused.get(0).score()).isCloseTo(0.6, within(1e-9));
+        assertThat(fused.get(1).score()).isCloseTo(0.4, within(1e-9));
+    }
+
+    private static RetrievedChunk chunk(String docId, String chunkId, double score) {
+        return new RetrievedChunk(docId, docId, 1, chunkId + " text", score, score > 1 ? "sparse" : "dense", chunkId);
+    }
+}
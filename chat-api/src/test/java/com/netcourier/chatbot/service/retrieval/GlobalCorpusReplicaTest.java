@@ -0,0 +1,159 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.model.RoleSet;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.IngestionEpochs;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GlobalCorpusReplicaTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private final Map<String, String> bodies = new HashMap<>();
+    private final Map<String, String> responses = new HashMap<>();
+    private final IngestionEpochs epochs = new IngestionEpochs();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                String call = request.method() + " " + request.url().getPath();
+                calls.add(call);
+                MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                bodies.put(call, captured.getBodyAsString().defaultIfEmpty("").block());
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(responses.getOrDefault(call, "{\"result\": []}"))
+                        .build());
+            })
+            .build();
+    private final GlobalCorpusReplica replica = new GlobalCorpusReplica(webClient, epochs, meterRegistry,
+            "chunks", "dense", "tenantId", "roles", true, 100, Duration.ofMinutes(10), Schedulers.immediate());
+
+    GlobalCorpusReplicaTest() {
+        responses.put("POST /collections/chunks/points/scroll", """
+                {"result": {"points": [
+                  {"id": 1, "vector": {"dense": [1.0, 0.0]},
+                   "payload": {"docId": "hours", "chunkId": "hours#1", "text": "Depots open from 8am to 6pm on weekdays", "roles": ["CP"]}},
+                  {"id": 2, "vector": {"dense": [0.6, 0.8]},
+                   "payload": {"docId": "returns", "chunkId": "returns#1", "text": "Returns are collected within two days", "roles": ["CP"]}},
+                  {"id": 3, "vector": {"dense": [0.9, 0.1]},
+                   "payload": {"docId": "rates", "chunkId": "rates#1", "text": "Driver rates for weekday shifts", "roles": ["ADMIN"]}}
+                ], "next_page_offset": null}}
+                """);
+    }
+
+    @Test
+    void answersGlobalSearchesFromTheLoadedCopyWithinTheCallersRoles() {
+        replica.refresh();
+
+        assertThat(replica.size()).isEqualTo(3);
+        assertThat(bodies.get("POST /collections/chunks/points/scroll")).contains("\"value\":\"GLOBAL\"", "\"with_vector\":[\"dense\"]");
+        RoleSet cp = RoleSet.of(Set.of("CP"));
+        List<RetrievedChunk> dense = replica.searchDense(List.of(1.0, 0.05), cp, 5);
+        assertThat(dense).extracting(RetrievedChunk::docId).containsExactly("hours", "returns");
+        assertThat(dense.getFirst().score()).isGreaterThan(dense.get(1).score());
+        assertThat(dense.getFirst().source()).isEqualTo("replica");
+        assertThat(replica.searchDense(List.of(1.0, 0.0), RoleSet.of(Set.of("ADMIN")), 5))
+                .extracting(RetrievedChunk::docId).containsExactly("rates");
+    }
+
+    @Test
+    void stopsServingWhenGlobalContentChangesUntilReloaded() {
+        assertThat(replica.serves("tenant-1")).isFalse();
+        // the stale answer above scheduled a load, which ran inline on the immediate scheduler
+        assertThat(replica.serves("tenant-1")).isTrue();
+        assertThat(replica.serves("GLOBAL")).isFalse();
+
+        epochs.advance("GLOBAL");
+        calls.clear();
+
+        assertThat(replica.serves("tenant-1")).isFalse();
+        assertThat(calls).containsExactly("POST /collections/chunks/points/scroll");
+        assertThat(replica.serves("tenant-1")).isTrue();
+        assertThat(meterRegistry.counter("chat.rag.global-replica.requests", "outcome", "stale").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void reloadsWhenAnotherInstanceChangesTheGlobalPointCount() {
+        replica.refresh();
+        responses.put("POST /collections/chunks/points/count", "{\"result\": {\"count\": 3}}");
+
+        replica.checkStaleness();
+
+        assertThat(bodies.get("POST /collections/chunks/points/count")).contains("\"value\":\"GLOBAL\"", "\"exact\":true");
+        assertThat(replica.serves("tenant-1")).isTrue();
+
+        responses.put("POST /collections/chunks/points/count", "{\"result\": {\"count\": 4}}");
+        responses.put("POST /collections/chunks/points/scroll", "{\"result\": {\"points\": [], \"next_page_offset\": null}}");
+        calls.clear();
+
+        replica.checkStaleness();
+
+        assertThat(calls).containsExactly("POST /collections/chunks/points/count", "POST /collections/chunks/points/scroll");
+        assertThat(replica.size()).isZero();
+        assertThat(replica.serves("tenant-1")).isTrue();
+    }
+
+    @Test
+    void keepsThePreviousCopyStaleWhenAReloadReturnsNoResult() {
+        replica.refresh();
+        responses.put("POST /collections/chunks/points/count", "{\"result\": {\"count\": 4}}");
+        responses.put("POST /collections/chunks/points/scroll", "{\"status\": \"ok\"}");
+
+        replica.checkStaleness();
+
+        assertThat(replica.size()).isEqualTo(3);
+        assertThat(replica.serves("tenant-1")).isFalse();
+        assertThatThrownBy(replica::refresh).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void denseRetrieverSearchesOnlyTheTenantRemotelyWhenTheReplicaIsCurrent() {
+        replica.refresh();
+        responses.put("POST /collections/chunks/points/search/batch", """
+                {"result": [[{"id": 9, "score": 0.7, "payload": {"docId": "tenant-doc", "chunkId": "tenant-doc#1"}}]]}
+                """);
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(1.0, 0.0)), "stub", 2);
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 5, "dense", "tenantId", "roles",
+                new QdrantCollectionProperties(), embeddings, "opensearch", true,
+                TenantPartitioning.shared("chunks", "nc"), RequestHedger.disabled(), null, replica);
+
+        List<RetrievedChunk> hits = retriever.searchAsync(request(), "RAG_FAQ").block();
+
+        assertThat(bodies.get("POST /collections/chunks/points/search/batch")).contains("tenant-1").doesNotContain("GLOBAL");
+        assertThat(hits).extracting(RetrievedChunk::docId).containsExactly("hours", "tenant-doc", "returns");
+    }
+
+    private static ChatRequest request() {
+        return new ChatRequest("conversation-1", "tenant-1", "user-1",
+                List.of(new ChatTurn(ChatMessageRole.USER, "when are depots open?")),
+                new ChatContext(Locale.ENGLISH, Set.of("CP"), "CP"));
+    }
+}
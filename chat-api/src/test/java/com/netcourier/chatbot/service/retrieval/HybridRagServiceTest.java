@@ -4,11 +4,25 @@ import com.netcourier.chatbot.model.ChatMessageRole;
 import com.netcourier.chatbot.model.ChatRequest;
 import com.netcourier.chatbot.model.ChatTurn;
 import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.orchestration.TokenBudgetGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.core.api.Assertions.within;
 
 class HybridRagServiceTest {
@@ -30,7 +44,9 @@ class HybridRagServiceTest {
                 (request, intent) -> sparseResults,
                 1.0,
                 1.0,
-                5
+                5,
+                1000,
+                1000
         );
 
         List<RetrievedChunk> fused = service.retrieve(request(), "intent");
@@ -46,6 +62,35 @@ class HybridRagServiceTest {
         assertThat(fused.get(3).score()).isCloseTo(1.0 / 3.0, within(1e-6));
     }
 
+    @Test
+    void flagsTheResultDegradedWhenARetrieverTimesOut() {
+        SparseRetriever hung = new SparseRetriever() {
+            @Override
+            public List<RetrievedChunk> search(ChatRequest request, String intent) {
+                throw new AssertionError("async path expected");
+            }
+
+            @Override
+            public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+                return Mono.never();
+            }
+        };
+        HybridRagService service = new HybridRagService(
+                (request, intent) -> List.of(chunk("tenant-doc", "Tenant Doc", 1, 0.9, "dense")),
+                hung,
+                1.0,
+                1.0,
+                5,
+                1000,
+                50
+        );
+
+        RagService.Retrieval retrieval = service.retrieveWithStatus(request(), "intent");
+
+        assertThat(retrieval.chunks()).extracting(RetrievedChunk::docId).containsExactly("tenant-doc");
+        assertThat(retrieval.degraded()).isTrue();
+    }
+
     @Test
     void retrievePlacesTenantChunksAheadOfGlobalWhenScoresTie() {
         List<RetrievedChunk> denseResults = List.of(
@@ -61,7 +106,9 @@ class HybridRagServiceTest {
                 (request, intent) -> sparseResults,
                 1.0,
                 1.0,
-                5
+                5,
+                1000,
+                1000
         );
 
         List<RetrievedChunk> fused = service.retrieve(request(), "intent");
@@ -74,6 +121,202 @@ class HybridRagServiceTest {
         assertThat(fused.get(1).score()).isCloseTo(1.5, within(1e-6));
     }
 
+    @Test
+    void retrieveReturnsDenseResultsWhenSparseRetrieverTimesOut() {
+        List<RetrievedChunk> denseResults = List.of(
+                chunk("tenant-doc", "Tenant Doc", 1, 0.9, "dense")
+        );
+        SparseRetriever stalled = new SparseRetriever() {
+            @Override
+            public List<RetrievedChunk> search(ChatRequest request, String intent) {
+                throw new AssertionError("blocking search should not be used");
+            }
+
+            @Override
+            public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+                return Mono.never();
+            }
+        };
+        HybridRagService service = new HybridRagService(
+                (request, intent) -> denseResults,
+                stalled,
+                1.0,
+                1.0,
+                5,
+                1000,
+                50
+        );
+
+        List<RetrievedChunk> fused = service.retrieve(request(), "intent");
+
+        assertThat(fused)
+                .extracting(RetrievedChunk::docId)
+                .containsExactly("tenant-doc");
+        assertThat(fused.getFirst().score()).isCloseTo(1.0, within(1e-6));
+    }
+
+    @Test
+    void retrieveHydratesProjectedChunksOnceAndKeepsThoseWithoutText() {
+        List<RetrievedChunk> denseResults = List.of(
+                new RetrievedChunk("doc-1", "Doc 1", 1, null, 0.9, "qdrant", "doc-1#1"),
+                new RetrievedChunk("doc-2", "Doc 2", 1, null, 0.8, "qdrant", "doc-2#1"),
+                new RetrievedChunk("doc-3", "Doc 3", 1, null, 0.7, "qdrant", "doc-3#1")
+        );
+        List<RetrievedChunk> sparseResults = List.of(chunk("doc-4", "Doc 4", 1, 1.2, "opensearch"));
+        List<List<String>> lookups = new ArrayList<>();
+        ChunkHydrator hydrator = new ChunkHydrator() {
+            @Override
+            public String source() {
+                return "qdrant";
+            }
+
+            @Override
+            public Mono<Map<String, String>> fetchText(String tenantId, List<String> chunkIds) {
+                lookups.add(chunkIds);
+                return Mono.just(Map.of("doc-1#1", "first", "doc-3#1", "third"));
+            }
+        };
+        HybridRagService service = new HybridRagService(
+                (request, intent) -> denseResults,
+                (request, intent) -> sparseResults,
+                1.0,
+                0.9,
+                3,
+                1000,
+                1000,
+                0,
+                FusionEngine.Normalisation.RANK,
+                0,
+                null,
+                List.of(hydrator),
+                null
+        );
+
+        List<RetrievedChunk> fused = service.retrieve(request(), "intent");
+
+        assertThat(lookups).containsExactly(List.of("doc-1#1", "doc-2#1"));
+        assertThat(fused)
+                .extracting(RetrievedChunk::docId, RetrievedChunk::text)
+                .containsExactly(tuple("doc-1", "first"), tuple("doc-4", "Doc 4 text"), tuple("doc-2", ""));
+    }
+
+    @Test
+    void adaptiveModeWidensOnlyTheFlatRetrieverAndCutsEachAtItsRawScoreGap() {
+        List<Integer> denseKs = new ArrayList<>();
+        List<Integer> sparseKs = new ArrayList<>();
+        DenseRetriever dense = new DenseRetriever() {
+            @Override
+            public List<RetrievedChunk> search(ChatRequest request, String intent) {
+                throw new AssertionError("adaptive mode passes k");
+            }
+
+            @Override
+            public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+                denseKs.add(topK);
+                return Mono.just(List.of(
+                        chunk("exact", "Exact", 1, 0.95, "dense"),
+                        chunk("weak-1", "Weak 1", 1, 0.41, "dense")));
+            }
+        };
+        SparseRetriever sparse = new SparseRetriever() {
+            @Override
+            public List<RetrievedChunk> search(ChatRequest request, String intent) {
+                throw new AssertionError("adaptive mode passes k");
+            }
+
+            @Override
+            public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent, int topK) {
+                sparseKs.add(topK);
+                return Mono.just(IntStream.range(0, topK)
+                        .mapToObj(i -> chunk(i == 0 ? "exact" : "flat-" + i, "Flat", 1, 5.0 - i * 0.01, "sparse"))
+                        .toList());
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HybridRagService service = new HybridRagService(
+                dense,
+                sparse,
+                1.0,
+                1.0,
+                5,
+                1000,
+                1000,
+                0,
+                FusionEngine.Normalisation.RANK,
+                0,
+                null,
+                List.of(),
+                new AdaptiveTopK(true, 2, 6, 1, 0.85, 0.4, registry)
+        );
+
+        List<RetrievedChunk> fused = service.retrieve(request(), "intent");
+
+        assertThat(denseKs).containsExactly(2);
+        assertThat(sparseKs).containsExactly(2, 6);
+        assertThat(fused).extracting(RetrievedChunk::docId)
+                .startsWith("exact")
+                .doesNotContain("weak-1")
+                .hasSize(5);
+        assertThat(registry.get("chat.rag.adaptive.k").tag("retriever", "sparse").summary().totalAmount()).isEqualTo(6);
+        assertThat(registry.get("chat.rag.adaptive.widened").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void explainReportsEachStageAndTheBackendCallsBehindIt() {
+        WebClient webClient = WebClient.builder()
+                .filter(RetrievalTrace.filter("qdrant"))
+                .exchangeFunction(request -> request.writeTo(new MockClientHttpRequest(request.method(), request.url()),
+                                ExchangeStrategies.withDefaults())
+                        .then(Mono.just(ClientResponse.create(HttpStatus.OK)
+                                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                .body("{\"result\": []}")
+                                .build())))
+                .build();
+        DenseRetriever dense = new DenseRetriever() {
+            @Override
+            public List<RetrievedChunk> search(ChatRequest request, String intent) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Mono<List<RetrievedChunk>> searchAsync(ChatRequest request, String intent) {
+                return webClient.post()
+                        .uri("/collections/chunks/points/search/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("filter", Map.of("tenantId", request.tenantId())))
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .thenReturn(List.of(
+                                chunk("doc-a", "A", 1, 0.9, "dense"),
+                                chunk("doc-b", "B", 1, 0.8, "dense")));
+            }
+        };
+        HybridRagService service = new HybridRagService(dense,
+                (request, intent) -> List.of(chunk("doc-b", "B", 1, 7.5, "sparse")),
+                1.0, 1.0, 5, 1000, 1000);
+
+        RetrievalExplanation explanation = service.explain(request(), "RAG_FAQ", new TokenBudgetGuard(20)).block();
+
+        assertThat(explanation.dense().hits()).extracting(RetrievalExplanation.Hit::score).containsExactly(0.9, 0.8);
+        assertThat(explanation.sparse().hits()).extracting(RetrievalExplanation.Hit::score).containsExactly(7.5);
+        RetrievalExplanation.FusedCandidate top = explanation.fused().getFirst();
+        assertThat(top.key()).isEqualTo("doc-b");
+        assertThat(top.fusedScore()).isCloseTo(1.5, within(1e-6));
+        assertThat(top.contributions())
+                .extracting(FusionEngine.Contribution::retriever, FusionEngine.Contribution::rank, FusionEngine.Contribution::contribution)
+                .containsExactly(tuple("dense", 1, 0.5), tuple("sparse", 0, 1.0));
+        assertThat(explanation.context().accepted()).containsExactly("doc-b");
+        assertThat(explanation.context().dropped()).containsExactly("doc-a");
+        assertThat(explanation.context().truncated()).isTrue();
+        RetrievalTrace.BackendCall call = explanation.calls().getFirst();
+        assertThat(explanation.calls()).hasSize(1);
+        assertThat(call.path()).isEqualTo("/collections/chunks/points/search/batch");
+        assertThat(call.status()).isEqualTo(200);
+        assertThat(call.request().at("/filter/tenantId").asText()).isEqualTo("tenant-1");
+        assertThat(call.requestBytes()).isPositive();
+        assertThat(call.responseBytes()).isEqualTo("{\"result\": []}".length());
+    }
+
     private ChatRequest request() {
         return new ChatRequest(
                 "conversation",
@@ -0,0 +1,301 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentVectorIndex;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.TenantPartitioning;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QdrantDenseRetrieverTest {
+
+    private static final String BATCH_RESPONSE = """
+            {"result": [
+              [{"score": 0.7, "payload": {"docId": "tenant-doc", "title": "Tenant", "page": 1, "text": "tenant text"}}],
+              [{"score": 0.9, "payload": {"docId": "GLOBAL-doc", "title": "Global", "page": 2, "text": "global text"}}]
+            ]}
+            """;
+
+    @Test
+    void searchSendsTenantAndGlobalScopesInOneBatchRequest() {
+        List<ClientRequest> requests = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.add(request);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(BATCH_RESPONSE)
+                            .build());
+                })
+                .build();
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles");
+
+        List<RetrievedChunk> chunks = retriever.search(request("tenant-1"), "RAG_FAQ");
+
+        assertThat(requests).hasSize(1);
+        assertThat(requests.getFirst().url().getPath()).isEqualTo("/collections/chunks/points/search/batch");
+        assertThat(chunks)
+                .extracting(RetrievedChunk::docId)
+                .containsExactly("GLOBAL-doc", "tenant-doc");
+    }
+
+    @Test
+    void searchReturnsEmptyListWhenQdrantFails() {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()))
+                .build();
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles");
+
+        assertThat(retriever.search(request("tenant-1"), "RAG_FAQ")).isEmpty();
+    }
+
+    @Test
+    void truncatedModePrefetchesOnPrefixAndRescoresOnFullVector() {
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    assertThat(request.url().getPath()).isEqualTo("/collections/chunks/points/query/batch");
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("""
+                                    {"result": [
+                                      {"points": [{"score": 0.6, "payload": {"docId": "tenant-doc", "chunkId": "t#1"}}]},
+                                      {"points": [{"score": 0.8, "payload": {"docId": "GLOBAL-doc", "chunkId": "g#1"}}]}
+                                    ]}
+                                    """)
+                            .build());
+                })
+                .build();
+        QdrantCollectionProperties properties = new QdrantCollectionProperties();
+        properties.getTruncation().setDimensions(2);
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.0, 2.0, 5.0)), "test", 3);
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles",
+                properties, embeddings, "opensearch", false, TenantPartitioning.shared("chunks", "nc"));
+
+        List<RetrievedChunk> chunks = retriever.search(request("tenant-1"), "RAG_FAQ");
+
+        assertThat(chunks).extracting(RetrievedChunk::chunkId).containsExactly("g#1", "t#1");
+        assertThat(bodies).singleElement().asString().contains(
+                "\"prefetch\":[{\"query\":[0.0,1.0],\"using\":\"dense_short\",\"limit\":32",
+                "\"query\":[0.0,2.0,5.0],\"using\":\"dense\",\"limit\":8",
+                "\"with_payload\":true");
+    }
+
+    @Test
+    void hybridModeFusesDenseAndSparsePrefetchesInOneQuery() {
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"result\": [{\"points\": [{\"score\": 0.5, \"payload\": {\"docId\": \"doc\", \"chunkId\": \"doc#1\"}}]}]}")
+                            .build());
+                })
+                .build();
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.0, 1.0)), "bge-m3", 2,
+                List.of(new EmbeddingsClient.SparseVector(List.of(17, 912), List.of(0.4, 0.2))));
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 4, "dense", "tenantId", "roles",
+                new QdrantCollectionProperties(), embeddings, "qdrant", true, TenantPartitioning.shared("chunks", "nc"));
+
+        List<RetrievedChunk> chunks = retriever.search(request("GLOBAL"), "RAG_FAQ");
+
+        assertThat(chunks).extracting(RetrievedChunk::chunkId).containsExactly("doc#1");
+        assertThat(bodies).singleElement().asString().contains(
+                "{\"query\":[0.0,1.0],\"using\":\"dense\",\"limit\":12",
+                "{\"query\":{\"indices\":[17,912],\"values\":[0.4,0.2]},\"using\":\"text_sparse\",\"limit\":12",
+                "\"query\":{\"fusion\":\"rrf\"},\"limit\":4",
+                "\"with_payload\":{\"include\":[\"docId\",\"chunkId\",\"title\",\"page\"]}");
+    }
+
+    @Test
+    void hierarchicalModeSearchesOnlyTheChunksOfTheClosestDocuments() {
+        List<String> paths = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    paths.add(request.url().getPath());
+                    bodies.add(captured.getBodyAsString().block());
+                    String body = request.url().getPath().startsWith("/collections/documents")
+                            ? """
+                              {"result": [
+                                {"points": [{"score": 0.4, "payload": {"docId": "returns"}}]},
+                                {"points": [{"score": 0.9, "payload": {"docId": "hours"}}, {"score": 0.3, "payload": {"docId": "returns"}}]}
+                              ]}
+                              """
+                            : "{\"result\": [{\"points\": [{\"score\": 0.8, \"payload\": {\"docId\": \"hours\", \"chunkId\": \"hours#1\"}}]}]}";
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.0, 1.0)), "test", 2);
+        DocumentVectorIndex documents = new DocumentVectorIndex(webClient, null, "documents", "dense", true, 5);
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 4, "dense", "tenantId", "roles",
+                new QdrantCollectionProperties(), embeddings, "opensearch", false, TenantPartitioning.shared("chunks", "nc"),
+                RequestHedger.disabled(), documents, null);
+
+        List<RetrievedChunk> chunks = retriever.search(request("tenant-1"), "RAG_FAQ");
+
+        assertThat(chunks).extracting(RetrievedChunk::chunkId).containsExactly("hours#1");
+        assertThat(paths).containsExactly("/collections/documents/points/query/batch", "/collections/chunks/points/query/batch");
+        assertThat(bodies.getFirst()).contains("\"value\":\"tenant-1\"", "\"value\":\"GLOBAL\"", "\"limit\":5");
+        assertThat(bodies.get(1)).contains("{\"key\":\"docId\",\"match\":{\"value\":null,\"any\":[\"hours\",\"returns\"]}}");
+    }
+
+    @Test
+    void fetchTextScrollsTheRequestedChunksByPayloadWithinTheTenantScope() {
+        List<String> bodies = new ArrayList<>();
+        List<ClientRequest> requests = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    requests.add(request);
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"result\": {\"points\": [{\"id\": \"0b3f5a2e-0000-0000-0000-000000000001\", "
+                                    + "\"payload\": {\"chunkId\": \"doc#1\", \"text\": \"first\"}}], \"next_page_offset\": null}}")
+                            .build());
+                })
+                .build();
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles");
+
+        Map<String, String> texts = retriever.fetchText("tenant-1", List.of("doc#1", "doc#2")).block();
+
+        assertThat(texts).containsExactly(Map.entry("doc#1", "first"));
+        assertThat(requests.getFirst().url().getPath()).isEqualTo("/collections/chunks/points/scroll");
+        assertThat(bodies).singleElement().asString().contains(
+                "{\"key\":\"chunkId\",\"match\":{\"value\":null,\"any\":[\"doc#1\",\"doc#2\"]}}",
+                "{\"key\":\"tenantId\",\"match\":{\"value\":null,\"any\":[\"tenant-1\",\"GLOBAL\"]}}",
+                "\"limit\":2",
+                "\"with_payload\":{\"include\":[\"chunkId\",\"text\"]}",
+                "\"with_vector\":false");
+    }
+
+    @Test
+    void queryEmbeddedByTheCallerIsSearchedByVectorWithoutEmbeddingItAgain() {
+        List<String> bodies = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    paths.add(request.url().getPath());
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"result\": [{\"points\": [{\"score\": 0.6, \"payload\": {\"docId\": \"tenant-doc\"}}]}, {\"points\": []}]}")
+                            .build());
+                })
+                .build();
+        EmbeddingsClient embeddings = texts -> {
+            throw new AssertionError("query embedded twice");
+        };
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles",
+                new QdrantCollectionProperties(), embeddings, "opensearch", false, TenantPartitioning.shared("chunks", "nc"));
+        QueryEmbedding handedDown = new QueryEmbedding("Where is my parcel?",
+                new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.6, 0.8)), "test", 2));
+
+        List<RetrievedChunk> chunks = retriever.searchAsync(request("tenant-1"), "RAG_FAQ")
+                .contextWrite(handedDown::attach)
+                .block();
+
+        assertThat(chunks).extracting(RetrievedChunk::docId).containsExactly("tenant-doc");
+        assertThat(paths).containsExactly("/collections/chunks/points/query/batch");
+        assertThat(bodies.getFirst()).contains("\"query\":[0.6,0.8],\"using\":\"dense\"");
+    }
+
+    @Test
+    void fetchVectorsScrollsTheStoredVectorsOfTheRequestedChunks() {
+        List<String> bodies = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest captured = new MockClientHttpRequest(request.method(), request.url());
+                    request.writeTo(captured, ExchangeStrategies.withDefaults()).block();
+                    bodies.add(captured.getBodyAsString().block());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"result\": {\"points\": [{\"id\": 1, \"payload\": {\"chunkId\": \"doc#1\"}, "
+                                    + "\"vector\": {\"dense\": [0.6, 0.8]}}], \"next_page_offset\": null}}")
+                            .build());
+                })
+                .build();
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles");
+
+        Map<String, List<Double>> vectors = retriever.fetchVectors("tenant-1", List.of("doc#1", "doc#2")).block();
+
+        assertThat(vectors).containsExactly(Map.entry("doc#1", List.of(0.6, 0.8)));
+        assertThat(bodies).singleElement().asString().contains(
+                "{\"key\":\"chunkId\",\"match\":{\"value\":null,\"any\":[\"doc#1\",\"doc#2\"]}}",
+                "\"with_payload\":{\"include\":[\"chunkId\"]}",
+                "\"with_vector\":[\"dense\"]");
+    }
+
+    @Test
+    void dedicatedTenantIsSearchedInItsOwnCollectionAlongsideSharedGlobal() {
+        List<String> paths = new ArrayList<>();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    paths.add(request.url().getPath());
+                    String body = request.url().getPath().contains("-t-")
+                            ? "{\"result\": [[{\"score\": 0.7, \"payload\": {\"docId\": \"tenant-doc\"}}]]}"
+                            : "{\"result\": [[{\"score\": 0.9, \"payload\": {\"docId\": \"GLOBAL-doc\"}}]]}";
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        TenantPartitioning partitioning = new TenantPartitioning("chunks", "nc", Set.of("tenant-1"), 0);
+        QdrantDenseRetriever retriever = new QdrantDenseRetriever(webClient, "chunks", 8, "dense", "tenantId", "roles",
+                new QdrantCollectionProperties(), null, "opensearch", false, partitioning);
+
+        List<RetrievedChunk> chunks = retriever.search(request("tenant-1"), "RAG_FAQ");
+
+        assertThat(paths).containsExactlyInAnyOrder(
+                "/collections/chunks-t-tenant-1/points/search/batch",
+                "/collections/chunks/points/search/batch");
+        assertThat(chunks).extracting(RetrievedChunk::docId).containsExactly("GLOBAL-doc", "tenant-doc");
+    }
+
+    private ChatRequest request(String tenantId) {
+        return new ChatRequest(
+                "conversation",
+                tenantId,
+                "user-1",
+                List.of(new ChatTurn(ChatMessageRole.USER, "Where is my parcel?")),
+                new ChatContext(Locale.ENGLISH, Set.of("CP"), "CP")
+        );
+    }
+}
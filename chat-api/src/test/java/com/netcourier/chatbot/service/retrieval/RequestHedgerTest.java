@@ -0,0 +1,74 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void slowAttemptIsHedgedAndTheFasterCopyWins() {
+        RequestHedger hedger = hedger(100);
+        warmUp(hedger);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = hedger.hedge("qdrant", () -> attempts.incrementAndGet() == 1
+                        ? Mono.delay(Duration.ofSeconds(5)).thenReturn("primary")
+                        : Mono.just("hedge"))
+                .block(Duration.ofSeconds(1));
+
+        assertThat(answer).isEqualTo("hedge");
+        assertThat(attempts).hasValue(2);
+        assertThat(count("sent")).isEqualTo(1.0);
+        assertThat(count("won")).isEqualTo(1.0);
+    }
+
+    @Test
+    void hedgesStayWithinTheBudget() {
+        RequestHedger hedger = hedger(0);
+        warmUp(hedger);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = hedger.hedge("qdrant", () -> {
+                    attempts.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).thenReturn("primary");
+                })
+                .block(Duration.ofSeconds(1));
+
+        assertThat(answer).isEqualTo("primary");
+        assertThat(attempts).hasValue(1);
+        assertThat(count("budget-exhausted")).isEqualTo(1.0);
+    }
+
+    @Test
+    void doesNotHedgeUntilTheBackendHasALatencyHistory() {
+        RequestHedger hedger = hedger(100);
+
+        assertThat(hedger.delayNanos("qdrant")).isEqualTo(-1);
+        warmUp(hedger);
+        assertThat(hedger.delayNanos("qdrant")).isEqualTo(Duration.ofMillis(20).toNanos());
+        assertThat(hedger.delayNanos("opensearch")).isEqualTo(-1);
+    }
+
+    private RequestHedger hedger(double budgetPercent) {
+        return new RequestHedger(meterRegistry, true, 0.95, budgetPercent, Duration.ofMillis(20), 64, Schedulers.parallel());
+    }
+
+    private static void warmUp(RequestHedger hedger) {
+        for (int i = 0; i < 32; i++) {
+            hedger.hedge("qdrant", () -> Mono.just("fast")).block();
+        }
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("chat.rag.hedging.hedges", "backend", "qdrant", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,302 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentMetadata;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.retrieval.bm25.Bm25Index;
+import com.netcourier.chatbot.service.retrieval.hnsw.HnswVectorIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Offline retrieval quality and latency for {@link HybridRagService} under different weights and depths. A
+ * labelled query set (query, tenant, roles, expected docIds) is run against an embedded BM25 index and HNSW
+ * graph built from a labelled corpus, so nothing touches the network; dense vectors come from a deterministic
+ * hashed bag of words and character trigrams. Each configuration reports hit@1, hit@limit, MRR and nDCG@limit
+ * over the distinct documents returned, P50/P95/P99 latency of {@code retrieve}, and the JSON size of the
+ * hits the two retrievers handed back per query, which is what a remote backend would have sent.
+ * <p>
+ * Run from {@code chat-api} with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.netcourier.chatbot.service.retrieval.RetrievalQualityBenchmark}; optional arguments
+ * are a corpus and a query file in the format of {@code src/test/resources/benchmark}, and a repetition count.
+ */
+public class RetrievalQualityBenchmark implements AutoCloseable {
+
+    static final List<Configuration> DEFAULT_CONFIGURATIONS = List.of(
+            new Configuration("dense only", 1.0, 0.0, 8, 5),
+            new Configuration("sparse only", 0.0, 1.0, 8, 5),
+            new Configuration("0.6/0.4 k=4", 0.6, 0.4, 4, 5),
+            new Configuration("0.6/0.4 k=8", 0.6, 0.4, 8, 5),
+            new Configuration("0.6/0.4 k=16", 0.6, 0.4, 16, 5),
+            new Configuration("0.4/0.6 k=8", 0.4, 0.6, 8, 5));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String INTENT = "RAG_FAQ";
+
+    private final List<LabelledQuery> queries;
+    private final HnswVectorIndex vectorIndex;
+    private final Bm25Index textIndex;
+
+    public RetrievalQualityBenchmark(Path workDirectory, List<CorpusDocument> corpus, List<LabelledQuery> queries) throws IOException {
+        this.queries = List.copyOf(queries);
+        HashingEmbeddings embeddings = new HashingEmbeddings(256);
+        this.vectorIndex = new HnswVectorIndex(embeddings, Files.createDirectories(workDirectory.resolve("hnsw")).toString(),
+                8, 16, 100, 64);
+        this.textIndex = new Bm25Index(Files.createDirectories(workDirectory.resolve("bm25")).toString(), 8, 1.2f, 0.75f, 8);
+        for (CorpusDocument document : corpus) {
+            List<EmbeddedChunk> chunks = new ArrayList<>();
+            for (int i = 0; i < document.chunks().size(); i++) {
+                String text = document.chunks().get(i);
+                chunks.add(new EmbeddedChunk(document.docId() + "#" + (i + 1), document.title(), i + 1, text,
+                        document.roles(), DocumentMetadata.empty(), embeddings.vector(text)));
+            }
+            vectorIndex.upsert(document.tenantId(), document.docId(), chunks);
+            textIndex.index(document.tenantId(), document.docId(), chunks);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<CorpusDocument> corpus = args.length > 0
+                ? read(Files.newInputStream(Path.of(args[0])), CorpusDocument.class)
+                : read(resource("corpus.jsonl"), CorpusDocument.class);
+        List<LabelledQuery> queries = args.length > 1
+                ? read(Files.newInputStream(Path.of(args[1])), LabelledQuery.class)
+                : read(resource("queries.jsonl"), LabelledQuery.class);
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        Path workDirectory = Files.createTempDirectory("retrieval-benchmark");
+        try (RetrievalQualityBenchmark benchmark = new RetrievalQualityBenchmark(workDirectory, corpus, queries)) {
+            System.out.printf("%d documents, %d queries, %d repetitions%n", corpus.size(), queries.size(), repetitions);
+            System.out.printf("%-16s %7s %9s %7s %9s %9s %9s %9s %11s%n",
+                    "configuration", "hit@1", "hit@limit", "mrr", "ndcg", "p50(us)", "p95(us)", "p99(us)", "bytes/query");
+            for (Report report : benchmark.run(DEFAULT_CONFIGURATIONS, repetitions)) {
+                System.out.printf("%-16s %7.3f %9.3f %7.3f %9.3f %9d %9d %9d %11d%n",
+                        report.configuration().name(), report.hitAt1(), report.hitAtLimit(), report.mrr(), report.ndcg(),
+                        report.p50Micros(), report.p95Micros(), report.p99Micros(), report.bytesPerQuery());
+            }
+        }
+    }
+
+    public List<Report> run(List<Configuration> configurations, int repetitions) {
+        List<Report> reports = new ArrayList<>();
+        if (!configurations.isEmpty()) {
+            // JIT warm-up so the first configuration's latencies are comparable with the rest
+            run(configurations.getFirst(), Math.max(1, repetitions));
+        }
+        for (Configuration configuration : configurations) {
+            reports.add(run(configuration, Math.max(1, repetitions)));
+        }
+        return reports;
+    }
+
+    private Report run(Configuration configuration, int repetitions) {
+        AtomicLong bytes = new AtomicLong();
+        DenseRetriever dense = (request, intent) ->
+                metered(vectorIndex.searchAsync(request, intent, configuration.topK()).block(), bytes);
+        SparseRetriever sparse = (request, intent) ->
+                metered(textIndex.searchAsync(request, intent, configuration.topK()).block(), bytes);
+        HybridRagService service = new HybridRagService(dense, sparse, configuration.denseWeight(), configuration.sparseWeight(),
+                configuration.resultLimit(), 5_000, 5_000, 0, FusionEngine.Normalisation.RANK, 2, null, List.of(), null);
+
+        double hitAt1 = 0;
+        double hitAtLimit = 0;
+        double mrr = 0;
+        double ndcg = 0;
+        for (LabelledQuery query : queries) {
+            List<String> ranked = distinctDocIds(service.retrieve(query.toRequest(), INTENT));
+            hitAt1 += hitAt(ranked, query.expected(), 1);
+            hitAtLimit += hitAt(ranked, query.expected(), configuration.resultLimit());
+            mrr += reciprocalRank(ranked, query.expected());
+            ndcg += ndcg(ranked, query.expected(), configuration.resultLimit());
+        }
+        bytes.set(0);
+
+        long[] latencies = new long[repetitions * queries.size()];
+        int sample = 0;
+        for (int repetition = 0; repetition < repetitions; repetition++) {
+            for (LabelledQuery query : queries) {
+                ChatRequest request = query.toRequest();
+                long start = System.nanoTime();
+                service.retrieve(request, INTENT);
+                latencies[sample++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+        int count = queries.size();
+        return new Report(configuration, hitAt1 / count, hitAtLimit / count, mrr / count, ndcg / count,
+                percentile(latencies, 0.50) / 1_000, percentile(latencies, 0.95) / 1_000, percentile(latencies, 0.99) / 1_000,
+                bytes.get() / Math.max(1, latencies.length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectorIndex.close();
+        textIndex.close();
+    }
+
+    static double hitAt(List<String> ranked, List<String> expected, int k) {
+        for (int i = 0; i < Math.min(k, ranked.size()); i++) {
+            if (expected.contains(ranked.get(i))) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    static double reciprocalRank(List<String> ranked, List<String> expected) {
+        for (int i = 0; i < ranked.size(); i++) {
+            if (expected.contains(ranked.get(i))) {
+                return 1d / (i + 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Binary-relevance nDCG@k: every expected document counts as equally relevant.
+     */
+    static double ndcg(List<String> ranked, List<String> expected, int k) {
+        double dcg = 0;
+        for (int i = 0; i < Math.min(k, ranked.size()); i++) {
+            if (expected.contains(ranked.get(i))) {
+                dcg += 1 / log2(i + 2);
+            }
+        }
+        double ideal = 0;
+        for (int i = 0; i < Math.min(k, expected.size()); i++) {
+            ideal += 1 / log2(i + 2);
+        }
+        return ideal == 0 ? 0 : dcg / ideal;
+    }
+
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static List<String> distinctDocIds(List<RetrievedChunk> chunks) {
+        Set<String> docIds = new LinkedHashSet<>();
+        chunks.forEach(chunk -> docIds.add(chunk.docId()));
+        return List.copyOf(docIds);
+    }
+
+    private static double log2(int value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static List<RetrievedChunk> metered(List<RetrievedChunk> hits, AtomicLong bytes) {
+        try {
+            bytes.addAndGet(MAPPER.writeValueAsBytes(hits).length);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return hits;
+    }
+
+    private static InputStream resource(String name) {
+        InputStream stream = RetrievalQualityBenchmark.class.getResourceAsStream("/benchmark/" + name);
+        if (stream == null) {
+            throw new IllegalStateException("Missing benchmark resource " + name);
+        }
+        return stream;
+    }
+
+    static <T> List<T> read(InputStream stream, Class<T> type) {
+        try (stream) {
+            List<T> values = new ArrayList<>();
+            for (String line : new String(stream.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) {
+                    values.add(MAPPER.readValue(line, type));
+                }
+            }
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record Configuration(String name, double denseWeight, double sparseWeight, int topK, int resultLimit) {}
+
+    public record CorpusDocument(String tenantId, String docId, String title, List<String> roles, List<String> chunks) {}
+
+    public record LabelledQuery(String query, String tenantId, Set<String> roles, List<String> expected) {
+
+        ChatRequest toRequest() {
+            return new ChatRequest("benchmark", tenantId, "benchmark",
+                    List.of(new ChatTurn(ChatMessageRole.USER, query)),
+                    new ChatContext(Locale.ENGLISH, roles == null ? Set.of() : roles, "CP"));
+        }
+    }
+
+    public record Report(Configuration configuration,
+                         double hitAt1,
+                         double hitAtLimit,
+                         double mrr,
+                         double ndcg,
+                         long p50Micros,
+                         long p95Micros,
+                         long p99Micros,
+                         long bytesPerQuery) {}
+
+    /**
+     * Signed feature hashing of lower-cased words and their character trigrams into a unit vector, so that
+     * inflections such as "deliver" and "deliveries" land close together without a model.
+     */
+    static final class HashingEmbeddings implements EmbeddingsClient {
+
+        private final int dimensions;
+
+        HashingEmbeddings(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingBatch embed(List<String> texts) {
+            return new EmbeddingBatch(texts.stream().map(this::vector).toList(), "hashing", dimensions);
+        }
+
+        List<Double> vector(String text) {
+            double[] values = new double[dimensions];
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                add(values, word, 1.0);
+                String padded = "^" + word + "$";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    add(values, padded.substring(i, i + 3), 0.5);
+                }
+            }
+            double norm = Math.sqrt(Arrays.stream(values).map(value -> value * value).sum());
+            Function<Double, Double> scale = value -> norm == 0 ? 0 : value / norm;
+            return Arrays.stream(values).boxed().map(scale).toList();
+        }
+
+        private void add(double[] values, String feature, double weight) {
+            int hash = feature.hashCode() * 0x9E3779B1;
+            values[Math.floorMod(hash, dimensions)] += (hash >>> 31) == 0 ? weight : -weight;
+        }
+    }
+}
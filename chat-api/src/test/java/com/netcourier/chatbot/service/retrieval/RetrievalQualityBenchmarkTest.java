@@ -0,0 +1,56 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RetrievalQualityBenchmarkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rankingMetricsFollowTheirDefinitions() {
+        List<String> ranked = List.of("a", "b", "c", "d");
+
+        assertThat(RetrievalQualityBenchmark.hitAt(ranked, List.of("c"), 2)).isZero();
+        assertThat(RetrievalQualityBenchmark.hitAt(ranked, List.of("c"), 3)).isEqualTo(1);
+        assertThat(RetrievalQualityBenchmark.reciprocalRank(ranked, List.of("c", "d"))).isEqualTo(1d / 3);
+        assertThat(RetrievalQualityBenchmark.ndcg(ranked, List.of("a"), 5)).isEqualTo(1);
+        // relevant at ranks 2 and 4 against an ideal of ranks 1 and 2
+        double expected = (1 / log2(3) + 1 / log2(5)) / (1 + 1 / log2(3));
+        assertThat(RetrievalQualityBenchmark.ndcg(ranked, List.of("b", "d"), 5)).isCloseTo(expected, within(1e-9));
+        assertThat(RetrievalQualityBenchmark.percentile(new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 0.95)).isEqualTo(10);
+        assertThat(RetrievalQualityBenchmark.percentile(new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 0.50)).isEqualTo(5);
+    }
+
+    @Test
+    void reportsEveryConfigurationOverTheBundledQuerySet() throws IOException {
+        List<RetrievalQualityBenchmark.CorpusDocument> corpus = RetrievalQualityBenchmark.read(
+                getClass().getResourceAsStream("/benchmark/corpus.jsonl"), RetrievalQualityBenchmark.CorpusDocument.class);
+        List<RetrievalQualityBenchmark.LabelledQuery> queries = RetrievalQualityBenchmark.read(
+                getClass().getResourceAsStream("/benchmark/queries.jsonl"), RetrievalQualityBenchmark.LabelledQuery.class);
+
+        try (RetrievalQualityBenchmark benchmark = new RetrievalQualityBenchmark(directory, corpus, queries)) {
+            List<RetrievalQualityBenchmark.Report> reports = benchmark.run(RetrievalQualityBenchmark.DEFAULT_CONFIGURATIONS, 1);
+
+            assertThat(reports).hasSize(RetrievalQualityBenchmark.DEFAULT_CONFIGURATIONS.size());
+            RetrievalQualityBenchmark.Report hybrid = reports.get(3);
+            assertThat(hybrid.configuration().name()).isEqualTo("0.6/0.4 k=8");
+            assertThat(hybrid.hitAtLimit()).isGreaterThanOrEqualTo(0.75);
+            assertThat(hybrid.mrr()).isBetween(0d, 1d);
+            assertThat(hybrid.p99Micros()).isGreaterThanOrEqualTo(hybrid.p50Micros());
+            assertThat(hybrid.bytesPerQuery()).isPositive();
+        }
+    }
+
+    private static double log2(int value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,123 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a {@code /points/query/batch} response the old way (aggregate the body, bind it to records, map the
+ * records to chunks) and with {@link SearchHitDecoder} fed 8 KB network-sized buffers. With {@code dimensions}
+ * above zero each hit also carries its vector, as a {@code with_vector} response would. Run from {@code chat-api}
+ * with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.netcourier.chatbot.service.retrieval.SearchDecodingBenchmark};
+ * the GC profiler reports allocated bytes per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchDecodingBenchmark {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    @Param({"16", "128"})
+    int hits;
+
+    @Param({"0", "384"})
+    int dimensions;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        StringBuilder json = new StringBuilder("{\"result\":[{\"points\":[");
+        for (int i = 0; i < hits; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"").append(i).append("\",\"version\":4,\"score\":").append(1d - i / 1000d);
+            if (dimensions > 0) {
+                json.append(",\"vector\":{\"dense\":[");
+                for (int d = 0; d < dimensions; d++) {
+                    json.append(d == 0 ? "" : ",").append((float) random.nextGaussian());
+                }
+                json.append("]}");
+            }
+            json.append(",\"payload\":{\"docId\":\"doc-").append(i / 3).append("\",\"chunkId\":\"doc-").append(i)
+                    .append("\",\"title\":\"Depot opening hours\",\"page\":").append(i % 9)
+                    .append(",\"roles\":[\"CP\",\"ADMIN\"],\"text\":\"")
+                    .append("Depots open from 8am to 6pm on weekdays and 9am to 1pm on Saturdays. ".repeat(8))
+                    .append("\"}}");
+        }
+        body = json.append("]}],\"status\":\"ok\",\"time\":0.003}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<RetrievedChunk> bindRecords() throws IOException {
+        QueryBatchResponse response = mapper.readValue(body, QueryBatchResponse.class);
+        List<RetrievedChunk> chunks = new ArrayList<>();
+        for (ScoredPoints scope : response.result()) {
+            for (Result hit : scope.points()) {
+                Payload payload = hit.payload();
+                chunks.add(new RetrievedChunk(payload.docId(), payload.title(), payload.page(), payload.text(),
+                        hit.score(), "qdrant", payload.chunkId()));
+            }
+        }
+        return chunks;
+    }
+
+    @Benchmark
+    public List<RetrievedChunk> streamingDecoder() {
+        return SearchHitDecoder.QDRANT_QUERY_BATCH.decode(buffers(), hits).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SearchDecodingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+
+    private Flux<DataBuffer> buffers() {
+        return Flux.range(0, (body.length + BUFFER_SIZE - 1) / BUFFER_SIZE)
+                .map(index -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(body, index * BUFFER_SIZE,
+                        Math.min(BUFFER_SIZE, body.length - index * BUFFER_SIZE)).slice()));
+    }
+
+    record QueryBatchResponse(List<ScoredPoints> result) {}
+
+    record ScoredPoints(List<Result> points) {}
+
+    record Result(double score, Payload payload) {}
+
+    record Payload(String docId, String chunkId, String title, int page, String text) {}
+}
@@ -0,0 +1,80 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.model.RetrievedChunk;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SearchHitDecoderTest {
+
+    @Test
+    void readsHitsAcrossBufferBoundariesAndStepsOverUnneededFields() {
+        String response = """
+                {"result": [
+                  {"points": [
+                    {"id": "a", "version": 3, "score": 0.91, "vector": {"dense": [0.1, -0.2, 0.3]},
+                     "payload": {"docId": "hours", "chunkId": "hours#1", "title": "Depot hours", "page": 2,
+                                 "text": "Open \\u00e9t\\u00e9 8am", "roles": ["CP", "ADMIN"],
+                                 "metadata": {"score": 99, "text": "ignored"}}},
+                    {"id": "b", "score": 0.5}
+                  ]},
+                  {"points": []}
+                ], "status": "ok", "time": 0.002}
+                """;
+
+        List<RetrievedChunk> hits = SearchHitDecoder.QDRANT_QUERY_BATCH.decode(split(response, 5), 0).block();
+
+        assertThat(hits)
+                .extracting(RetrievedChunk::docId, RetrievedChunk::chunkId, RetrievedChunk::title, RetrievedChunk::page,
+                        RetrievedChunk::text, RetrievedChunk::score, RetrievedChunk::source)
+                .containsExactly(
+                        tuple("hours", "hours#1", "Depot hours", 2, "Open été 8am", 0.91, "qdrant"),
+                        tuple("", null, "", 0, "", 0.5, "qdrant"));
+    }
+
+    @Test
+    void readsOpenSearchHitsAndStopsOnceTheLimitIsReached() {
+        String response = """
+                {"took": 3, "_shards": {"total": 1, "successful": 1},
+                 "hits": {"total": {"value": 3, "relation": "eq"}, "max_score": 2.4, "hits": [
+                   {"_index": "nc_chunks_v1", "_id": "r#1", "_score": 2.4, "_source": {"docId": "returns", "chunkId": "r#1", "page": "3"}},
+                   {"_index": "nc_chunks_v1", "_id": "h#1", "_score": 1.1, "_source": {"docId": "hours", "chunkId": "h#1"}},
+                   {"_index": "nc_chunks_v1", "_id": "x#1", "_score":
+                """;
+
+        List<RetrievedChunk> hits = SearchHitDecoder.OPENSEARCH_HITS.decode(split(response, 16), 2).block();
+
+        assertThat(hits)
+                .extracting(RetrievedChunk::chunkId, RetrievedChunk::score, RetrievedChunk::page)
+                .containsExactly(tuple("r#1", 2.4, 3), tuple("h#1", 1.1, 0));
+    }
+
+    @Test
+    void rejectsATruncatedBodyThatEndsBeforeTheLimit() {
+        String response = "{\"result\": [[{\"score\": 0.7, \"payload\": {\"docId\": \"d\"}}], [{\"score\":";
+
+        assertThatThrownBy(() -> SearchHitDecoder.QDRANT_SEARCH_BATCH.decode(split(response, 8), 4).block())
+                .isInstanceOf(DecodingException.class);
+    }
+
+    private static Flux<DataBuffer> split(String json, int size) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += size) {
+            byte[] slice = new byte[Math.min(size, bytes.length - offset)];
+            System.arraycopy(bytes, offset, slice, 0, slice.length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(slice));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
@@ -0,0 +1,176 @@
+package com.netcourier.chatbot.service.retrieval;
+
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recall and latency of two-stage truncated search against a full-vector scan, on a synthetic corpus whose
+ * variance decays along the dimensions the way Matryoshka-trained embeddings do. Setup prints recall@k of
+ * the two-stage result against the exact top-k; the benchmarks report the scan cost of each. Run like
+ * {@link FusionBenchmark} with {@code -Dexec.mainClass=com.netcourier.chatbot.service.retrieval.TruncatedSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TruncatedSearchBenchmark {
+
+    private static final int DIMENSIONS = 1024;
+    private static final int CORPUS = 10_000;
+    private static final int QUERIES = 64;
+    private static final int K = 8;
+
+    @Param({"128", "256"})
+    int prefixDimensions;
+
+    @Param({"4"})
+    int candidateMultiplier;
+
+    private float[][] full;
+    private float[][] prefixes;
+    private float[][] queries;
+    private float[][] queryPrefixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        QdrantCollectionProperties.Truncation truncation = new QdrantCollectionProperties.Truncation();
+        truncation.setDimensions(prefixDimensions);
+        full = new float[CORPUS][];
+        prefixes = new float[CORPUS][];
+        for (int i = 0; i < CORPUS; i++) {
+            List<Double> vector = vector(random, null);
+            full[i] = toArray(vector);
+            prefixes[i] = toArray(truncation.prefix(vector));
+        }
+        queries = new float[QUERIES][];
+        queryPrefixes = new float[QUERIES][];
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            List<Double> query = vector(random, full[random.nextInt(CORPUS)]);
+            queries[q] = toArray(query);
+            queryPrefixes[q] = toArray(truncation.prefix(query));
+            int[] exact = fullScan(queries[q]);
+            int[] twoStage = twoStage(queries[q], queryPrefixes[q]);
+            recall += overlap(exact, twoStage) / (double) K;
+        }
+        System.out.printf("recall@%d prefix=%d pool=%d: %.3f%n", K, prefixDimensions, K * candidateMultiplier, recall / QUERIES);
+    }
+
+    @Benchmark
+    public int[] fullVectorScan() {
+        int q = next++ & (QUERIES - 1);
+        return fullScan(queries[q]);
+    }
+
+    @Benchmark
+    public int[] truncatedThenRescored() {
+        int q = next++ & (QUERIES - 1);
+        return twoStage(queries[q], queryPrefixes[q]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TruncatedSearchBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private int[] fullScan(float[] query) {
+        NodeHeap heap = NodeHeap.worstFirst(K);
+        for (int i = 0; i < CORPUS; i++) {
+            offer(heap, i, dot(query, full[i]), K);
+        }
+        return heap.drainDescending().nodes();
+    }
+
+    private int[] twoStage(float[] query, float[] queryPrefix) {
+        int pool = K * candidateMultiplier;
+        NodeHeap candidates = NodeHeap.worstFirst(pool);
+        for (int i = 0; i < CORPUS; i++) {
+            offer(candidates, i, dot(queryPrefix, prefixes[i]), pool);
+        }
+        NodeHeap rescored = NodeHeap.worstFirst(K);
+        for (int node : candidates.drainDescending().nodes()) {
+            offer(rescored, node, dot(query, full[node]), K);
+        }
+        return rescored.drainDescending().nodes();
+    }
+
+    private static void offer(NodeHeap heap, int node, float score, int capacity) {
+        if (heap.size() < capacity) {
+            heap.push(node, score);
+        } else if (score > heap.topScore()) {
+            heap.pop();
+            heap.push(node, score);
+        }
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * A unit vector whose leading dimensions carry most of the variance; with {@code near} set, a noisy
+     * copy of that vector so queries have genuine neighbours.
+     */
+    private static List<Double> vector(Random random, float[] near) {
+        List<Double> vector = new ArrayList<>(DIMENSIONS);
+        double norm = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double scale = 1 / Math.sqrt(1 + d / 16.0);
+            double value = near == null ? random.nextGaussian() * scale : near[d] + random.nextGaussian() * scale * 0.03;
+            vector.add(value);
+            norm += value * value;
+        }
+        double inverse = 1 / Math.sqrt(norm);
+        vector.replaceAll(value -> value * inverse);
+        return vector;
+    }
+
+    private static float[] toArray(List<Double> vector) {
+        float[] array = new float[vector.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.get(i).floatValue();
+        }
+        return array;
+    }
+
+    private static int overlap(int[] a, int[] b) {
+        int shared = 0;
+        for (int x : a) {
+            for (int y : b) {
+                if (x == y) {
+                    shared++;
+                    break;
+                }
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,95 @@
+package com.netcourier.chatbot.service.retrieval.bm25;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentMetadata;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTest {
+
+    @TempDir
+    Path directory;
+
+    private Bm25Index index;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void ranksByBm25WithinTenantAndGlobalScope() {
+        index = new Bm25Index(directory.toString(), 8, 1.2f, 0.75f, 8);
+        index.index("TENANT-A", "returns", List.of(
+                chunk("returns-1", "Returns are collected by the courier within two days of the request.", "CP"),
+                chunk("returns-2", "Opening hours for the depot are listed on the website.", "CP")));
+        index.index("TENANT-B", "other", List.of(
+                chunk("other-1", "Courier returns for tenant B follow a different process.", "CP")));
+        index.index("GLOBAL", "policy", List.of(
+                chunk("policy-1", "Global courier policy: every parcel is tracked.", "CP")));
+
+        List<RetrievedChunk> results = index.search(request("TENANT-A", "courier returns", Set.of("CP")), "RAG_FAQ");
+
+        assertThat(results).extracting(RetrievedChunk::docId).containsExactly("returns", "policy");
+        assertThat(results.getFirst().score()).isGreaterThan(results.get(1).score());
+        assertThat(results).extracting(RetrievedChunk::source).containsOnly("bm25");
+    }
+
+    @Test
+    void filtersByCallerRoles() {
+        index = new Bm25Index(directory.toString(), 8, 1.2f, 0.75f, 8);
+        index.index("TENANT", "internal", List.of(chunk("internal-1", "Depot escalation contacts", "BO")));
+
+        assertThat(index.search(request("TENANT", "escalation", Set.of("CP")), "RAG_FAQ")).isEmpty();
+        assertThat(index.search(request("TENANT", "escalation", Set.of("BO")), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactly("internal");
+    }
+
+    @Test
+    void mergesSegmentsDropsReplacedChunksAndReloadsFromDisk() throws IOException {
+        index = new Bm25Index(directory.toString(), 8, 1.2f, 0.75f, 4);
+        for (int i = 0; i < 6; i++) {
+            index.index("TENANT", "doc-" + i, List.of(chunk("doc-" + i + "-1", "Parcel label version " + i, "CP")));
+        }
+        index.index("TENANT", "doc-0", List.of(chunk("doc-0-1", "Replacement manifest text", "CP")));
+        index.merge();
+        index.close();
+
+        index = new Bm25Index(directory.toString(), 8, 1.2f, 0.75f, 4);
+
+        assertThat(index.segmentCount()).isLessThan(7);
+        assertThat(index.search(request("TENANT", "parcel label", Set.of()), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactlyInAnyOrder("doc-1", "doc-2", "doc-3", "doc-4", "doc-5");
+        assertThat(index.search(request("TENANT", "replacement manifest", Set.of()), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactly("doc-0");
+    }
+
+    private static EmbeddedChunk chunk(String id, String text, String role) {
+        return new EmbeddedChunk(id, "Title " + id, 1, text, List.of(role), DocumentMetadata.empty(), List.of());
+    }
+
+    private static ChatRequest request(String tenantId, String utterance, Set<String> roles) {
+        return new ChatRequest("conversation", tenantId, "user",
+                List.of(new ChatTurn(ChatMessageRole.USER, utterance)),
+                new ChatContext(Locale.ENGLISH, roles, "CP"));
+    }
+}
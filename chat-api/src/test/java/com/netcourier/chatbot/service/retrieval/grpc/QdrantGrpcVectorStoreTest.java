@@ -0,0 +1,133 @@
+package com.netcourier.chatbot.service.retrieval.grpc;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentMetadata;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.QdrantVectorStoreClient;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.PointsGrpc;
+import io.qdrant.client.grpc.Points.BatchResult;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.PointsOperationResponse;
+import io.qdrant.client.grpc.Points.ScoredPoint;
+import io.qdrant.client.grpc.Points.SearchBatchPoints;
+import io.qdrant.client.grpc.Points.SearchBatchResponse;
+import io.qdrant.client.grpc.Points.UpdateResult;
+import io.qdrant.client.grpc.Points.UpdateStatus;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static io.qdrant.client.ValueFactory.value;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QdrantGrpcVectorStoreTest {
+
+    private final List<UpsertPoints> upserts = new ArrayList<>();
+    private final List<SearchBatchPoints> searches = new ArrayList<>();
+    private Server server;
+    private QdrantGrpcVectorStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new PointsGrpc.PointsImplBase() {
+                    @Override
+                    public void upsert(UpsertPoints request, StreamObserver<PointsOperationResponse> response) {
+                        upserts.add(request);
+                        response.onNext(PointsOperationResponse.newBuilder()
+                                .setResult(UpdateResult.newBuilder().setStatus(UpdateStatus.Completed))
+                                .build());
+                        response.onCompleted();
+                    }
+
+                    @Override
+                    public void searchBatch(SearchBatchPoints request, StreamObserver<SearchBatchResponse> response) {
+                        searches.add(request);
+                        response.onNext(SearchBatchResponse.newBuilder()
+                                .addResult(BatchResult.newBuilder().addResult(hit("tenant-doc", 0.6f)))
+                                .addResult(BatchResult.newBuilder().addResult(hit("GLOBAL-doc", 0.8f)))
+                                .build());
+                        response.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        EmbeddingsClient embeddings = texts -> new EmbeddingsClient.EmbeddingBatch(List.of(List.of(0.25, 0.5, 0.75)), "test", 3);
+        QdrantCollectionProperties properties = new QdrantCollectionProperties();
+        properties.getTruncation().setDimensions(2);
+        store = new QdrantGrpcVectorStore(new QdrantClient(QdrantGrpcClient.newBuilder(channel, true).build()),
+                embeddings, properties, 5_000, "chunks", 4, "dense", "tenantId", "roles");
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void upsertSendsPackedNamedVectorsAndPayload() {
+        store.upsert("tenant-1", "doc-1", List.of(new EmbeddedChunk("doc-1-1", "Title", 2, "text", List.of("CP"),
+                DocumentMetadata.empty(), List.of(0.25, 0.5, 0.75))));
+
+        assertThat(upserts).singleElement().satisfies(request -> {
+            assertThat(request.getCollectionName()).isEqualTo("chunks");
+            PointStruct point = request.getPoints(0);
+            assertThat(point.getId().getUuid()).isEqualTo(QdrantVectorStoreClient.pointId("doc-1-1").toString());
+            assertThat(point.getVectors().getVectors().getVectorsMap().get("dense").getDataList())
+                    .containsExactly(0.25f, 0.5f, 0.75f);
+            assertThat(point.getVectors().getVectors().getVectorsMap()).containsKey("dense_short");
+            assertThat(point.getPayloadMap().get("chunkId").getStringValue()).isEqualTo("doc-1-1");
+            assertThat(point.getPayloadMap().get("page").getIntegerValue()).isEqualTo(2);
+            assertThat(point.getPayloadMap().get("roles").getListValue().getValues(0).getStringValue()).isEqualTo("CP");
+        });
+    }
+
+    @Test
+    void searchBatchesTenantAndGlobalScopes() {
+        List<RetrievedChunk> chunks = store.search(new ChatRequest("conversation", "tenant-1", "user-1",
+                List.of(new ChatTurn(ChatMessageRole.USER, "Where is my parcel?")),
+                new ChatContext(Locale.ENGLISH, Set.of("CP"), "CP")), "RAG_FAQ");
+
+        assertThat(chunks).extracting(RetrievedChunk::docId).containsExactly("GLOBAL-doc", "tenant-doc");
+        assertThat(searches).singleElement().satisfies(batch -> {
+            assertThat(batch.getSearchPointsCount()).isEqualTo(2);
+            assertThat(batch.getSearchPoints(0).getVectorList()).containsExactly(0.25f, 0.5f, 0.75f);
+            assertThat(batch.getSearchPoints(0).getVectorName()).isEqualTo("dense");
+            assertThat(batch.getSearchPoints(1).getFilter().getMust(0).getField().getMatch().getKeyword()).isEqualTo("GLOBAL");
+        });
+    }
+
+    private static ScoredPoint hit(String docId, float score) {
+        return ScoredPoint.newBuilder()
+                .setScore(score)
+                .putPayload("docId", value(docId))
+                .putPayload("chunkId", value(docId + "#1"))
+                .putPayload("title", value(docId))
+                .putPayload("page", value(1))
+                .putPayload("text", value("text"))
+                .build();
+    }
+}
@@ -0,0 +1,228 @@
+package com.netcourier.chatbot.service.retrieval.grpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentMetadata;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import com.netcourier.chatbot.service.ingestion.QdrantCollectionProperties;
+import com.netcourier.chatbot.service.ingestion.QdrantVectorStoreClient;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST/JSON versus gRPC/protobuf for Qdrant. The {@code encode*} benchmarks need nothing running and measure
+ * the cost of serialising a 32-chunk upsert of 1024-dimensional vectors; the request sizes are printed at
+ * setup. With {@code -Dqdrant.host=<host>} the live benchmarks also run: upsert throughput and tenant+GLOBAL
+ * search latency against a collection named by {@code -Dqdrant.collection} (default {@code bench_chunks})
+ * that has a 1024-dimensional named vector {@code dense}. Run like the other benchmarks with
+ * {@code -Dexec.mainClass=com.netcourier.chatbot.service.retrieval.grpc.QdrantTransportBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QdrantTransportBenchmark {
+
+    private static final int DIMENSIONS = 1024;
+    private static final int BATCH = 32;
+    private static final String VECTOR = "dense";
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+        final ObjectMapper mapper = new ObjectMapper();
+        final Random random = new Random(3);
+        List<EmbeddedChunk> chunks;
+        QdrantGrpcVectorStore grpc;
+        String collection;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            collection = System.getProperty("qdrant.collection", "bench_chunks");
+            chunks = chunks(random);
+            grpc = new QdrantGrpcVectorStore(fixedQuery(random), new QdrantCollectionProperties(),
+                    System.getProperty("qdrant.host", "localhost"), 6334, false, 30, 10_000,
+                    collection, 8, VECTOR, "tenantId", "roles");
+            System.out.printf("upsert of %d x %d: json %d bytes, protobuf %d bytes%n", BATCH, DIMENSIONS,
+                    mapper.writeValueAsBytes(restBody(chunks)).length, grpcBody(this).toByteArray().length);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            grpc.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Live {
+        WebClient rest;
+        ChatRequest request;
+        List<Double> query;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String host = System.getProperty("qdrant.host");
+            if (host == null) {
+                throw new IllegalStateException("live benchmarks need -Dqdrant.host");
+            }
+            rest = WebClient.builder()
+                    .baseUrl("http://" + host + ":6333")
+                    .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(4 * 1024 * 1024))
+                    .build();
+            request = new ChatRequest("bench", "tenant-1", "user", List.of(new ChatTurn(ChatMessageRole.USER, "parcel")),
+                    new ChatContext(Locale.ENGLISH, Set.of("CP"), "CP"));
+            query = unitVector(new Random(9));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeUpsertJson(Batch batch) throws Exception {
+        return batch.mapper.writeValueAsBytes(restBody(batch.chunks));
+    }
+
+    @Benchmark
+    public byte[] encodeUpsertProtobuf(Batch batch) {
+        return grpcBody(batch).toByteArray();
+    }
+
+    @Benchmark
+    public void upsertRest(Batch batch, Live live) {
+        live.rest.put()
+                .uri("/collections/{collection}/points?wait=true", batch.collection)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(restBody(batch.chunks))
+                .retrieve()
+                .bodyToMono(Void.class)
+                .block();
+    }
+
+    @Benchmark
+    public void upsertGrpc(Batch batch) {
+        batch.grpc.upsert("tenant-1", "doc", batch.chunks);
+    }
+
+    @Benchmark
+    public String searchRest(Batch batch, Live live) {
+        List<Map<String, Object>> searches = new ArrayList<>();
+        for (String tenant : List.of("tenant-1", "GLOBAL")) {
+            Map<String, Object> search = new LinkedHashMap<>();
+            search.put("vector", Map.of("name", VECTOR, "vector", live.query));
+            search.put("limit", 8);
+            search.put("filter", Map.of("must", List.of(
+                    Map.of("key", "tenantId", "match", Map.of("value", tenant)),
+                    Map.of("key", "roles", "match", Map.of("any", List.of("CP"))))));
+            search.put("with_payload", true);
+            searches.add(search);
+        }
+        return live.rest.post()
+                .uri("/collections/{collection}/points/search/batch", batch.collection)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("searches", searches))
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+
+    @Benchmark
+    public List<RetrievedChunk> searchGrpc(Batch batch, Live live) {
+        return batch.grpc.search(live.request, "RAG_FAQ");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = System.getProperty("qdrant.host") == null
+                ? QdrantTransportBenchmark.class.getSimpleName() + ".encode"
+                : QdrantTransportBenchmark.class.getSimpleName();
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .build())
+                .run();
+    }
+
+    private static UpsertPoints grpcBody(Batch batch) {
+        return UpsertPoints.newBuilder()
+                .setCollectionName(batch.collection)
+                .addAllPoints(batch.grpc.points("tenant-1", "doc", batch.chunks))
+                .build();
+    }
+
+    /**
+     * Same shape {@code QdrantVectorStoreClient} sends, with the ids and named vector a real collection accepts.
+     */
+    private static Map<String, Object> restBody(List<EmbeddedChunk> chunks) {
+        List<Map<String, Object>> points = new ArrayList<>(chunks.size());
+        for (EmbeddedChunk chunk : chunks) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("tenantId", "tenant-1");
+            payload.put("docId", "doc");
+            payload.put("chunkId", chunk.id());
+            payload.put("title", chunk.title());
+            payload.put("page", chunk.page());
+            payload.put("text", chunk.text());
+            payload.put("roles", chunk.roles());
+            points.add(Map.of(
+                    "id", QdrantVectorStoreClient.pointId(chunk.id()).toString(),
+                    "vector", Map.of(VECTOR, chunk.vector()),
+                    "payload", payload));
+        }
+        return Map.of("points", points);
+    }
+
+    private static List<EmbeddedChunk> chunks(Random random) {
+        List<EmbeddedChunk> chunks = new ArrayList<>(BATCH);
+        String text = "Parcels are collected within two working days of the booking being confirmed. ".repeat(8);
+        for (int i = 0; i < BATCH; i++) {
+            chunks.add(new EmbeddedChunk("doc-" + i, "Collections", i + 1, text, List.of("CP"),
+                    DocumentMetadata.empty(), unitVector(random)));
+        }
+        return chunks;
+    }
+
+    private static EmbeddingsClient fixedQuery(Random random) {
+        List<Double> vector = unitVector(random);
+        return texts -> new EmbeddingsClient.EmbeddingBatch(List.of(vector), "bench", DIMENSIONS);
+    }
+
+    private static List<Double> unitVector(Random random) {
+        double[] values = new double[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            values[i] = random.nextGaussian();
+            norm += values[i] * values[i];
+        }
+        List<Double> vector = new ArrayList<>(DIMENSIONS);
+        for (double value : values) {
+            vector.add(value / Math.sqrt(norm));
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,267 @@
+package com.netcourier.chatbot.service.retrieval.hnsw;
+
+import com.netcourier.chatbot.model.ChatContext;
+import com.netcourier.chatbot.model.ChatMessageRole;
+import com.netcourier.chatbot.model.ChatRequest;
+import com.netcourier.chatbot.model.ChatTurn;
+import com.netcourier.chatbot.model.RetrievedChunk;
+import com.netcourier.chatbot.service.ingestion.DocumentMetadata;
+import com.netcourier.chatbot.service.ingestion.EmbeddedChunk;
+import com.netcourier.chatbot.service.ingestion.EmbeddingsClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswVectorIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path directory;
+
+    private final Map<String, List<Double>> queryVectors = new HashMap<>();
+    private final EmbeddingsClient embeddingsClient = texts -> new EmbeddingsClient.EmbeddingBatch(
+            List.of(queryVectors.get(texts.getFirst())), "test", DIMENSIONS);
+    private HnswVectorIndex index;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void searchRecallMatchesExactScanOnRandomVectors() {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 10, 16, 200, 96);
+        Random random = new Random(7);
+        Map<String, List<Double>> corpus = new HashMap<>();
+        for (int doc = 0; doc < 200; doc++) {
+            List<EmbeddedChunk> chunks = new ArrayList<>();
+            for (int part = 0; part < 10; part++) {
+                List<Double> vector = randomVector(random);
+                String chunkId = "doc-" + doc + "-" + part;
+                corpus.put(chunkId, vector);
+                chunks.add(chunk(chunkId, vector, List.of("CP")));
+            }
+            index.upsert("TENANT", "doc-" + doc, chunks);
+        }
+
+        double hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            List<Double> query = randomVector(random);
+            queryVectors.put("query " + q, query);
+            Set<String> expected = corpus.entrySet().stream()
+                    .sorted(Comparator.comparingDouble((Map.Entry<String, List<Double>> entry) -> cosine(query, entry.getValue())).reversed())
+                    .limit(10)
+                    .map(entry -> "text " + entry.getKey())
+                    .collect(Collectors.toSet());
+            List<RetrievedChunk> found = index.search(request("TENANT", "query " + q, Set.of("CP")), "RAG_FAQ");
+            hits += found.stream()
+                    .map(RetrievedChunk::text)
+                    .filter(expected::contains)
+                    .count();
+        }
+
+        assertThat(hits / (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void searchAppliesTenantScopeGlobalFallbackAndRoleFilter() {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        List<Double> shared = unit(0);
+        index.upsert("TENANT-A", "a-doc", List.of(chunk("a-1", shared, List.of("CP"))));
+        index.upsert("TENANT-B", "b-doc", List.of(chunk("b-1", shared, List.of("CP"))));
+        index.upsert("GLOBAL", "global-doc", List.of(chunk("g-1", shared, List.of("BO"))));
+        queryVectors.put("question", shared);
+
+        assertThat(index.search(request("TENANT-A", "question", Set.of("CP")), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactly("a-doc");
+        assertThat(index.search(request("TENANT-A", "question", Set.of("CP", "BO")), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactlyInAnyOrder("a-doc", "global-doc");
+    }
+
+    @Test
+    void reingestionReplacesChunksAndSurvivesRestart() throws IOException {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        index.upsert("TENANT", "doc", List.of(chunk("doc-1", unit(0), List.of("CP")), chunk("doc-2", unit(1), List.of("CP"))));
+        index.upsert("TENANT", "doc", List.of(chunk("doc-1", unit(2), List.of("CP"))));
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        queryVectors.put("question", unit(2));
+
+        assertThat(index.liveChunks()).isEqualTo(1);
+        List<RetrievedChunk> found = index.search(request("TENANT", "question", Set.of()), "RAG_FAQ");
+        assertThat(found).hasSize(1);
+        assertThat(found.getFirst().score()).isGreaterThan(0.99);
+
+        index.delete("TENANT", "doc");
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ")).isEmpty();
+    }
+
+    @Test
+    void restartReplaysTheLogWithAndWithoutCheckpoints() throws IOException {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 16L << 20, 1.0);
+        Random random = new Random(11);
+        List<Double> probe = null;
+        for (int doc = 0; doc < 40; doc++) {
+            List<Double> vector = randomVector(random);
+            probe = doc == 17 ? vector : probe;
+            index.upsert("TENANT", "doc-" + doc, List.of(chunk("doc-" + doc, vector, List.of("CP"))));
+        }
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 2048, 1.0);
+        assertThat(index.liveChunks()).isEqualTo(40);
+        for (int doc = 40; doc < 80; doc++) {
+            index.upsert("TENANT", "doc-" + doc, List.of(chunk("doc-" + doc, randomVector(random), List.of("CP"))));
+        }
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 2048, 1.0);
+        queryVectors.put("question", probe);
+
+        assertThat(index.liveChunks()).isEqualTo(80);
+        assertThat(Files.size(directory.resolve("g1").resolve("index.log"))).isLessThan(4096);
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ").getFirst().docId()).isEqualTo("doc-17");
+    }
+
+    @Test
+    void restartDropsATornLogFrame() throws IOException {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 16L << 20, 1.0);
+        index.upsert("TENANT", "doc-a", List.of(chunk("a-1", unit(0), List.of("CP"))));
+        index.upsert("TENANT", "doc-b", List.of(chunk("b-1", unit(1), List.of("CP"))));
+        index.close();
+        Files.write(directory.resolve("g1").resolve("index.log"), new byte[] {0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 16L << 20, 1.0);
+        assertThat(index.liveChunks()).isEqualTo(2);
+        index.upsert("TENANT", "doc-c", List.of(chunk("c-1", unit(2), List.of("CP"))));
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64, 16L << 20, 1.0);
+        queryVectors.put("question", unit(2));
+
+        assertThat(index.liveChunks()).isEqualTo(3);
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ").getFirst().docId()).isEqualTo("doc-c");
+    }
+
+    @Test
+    void tombstonesPastTheRatioRebuildIntoANewGeneration() throws IOException {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        for (int doc = 0; doc < 10; doc++) {
+            index.upsert("TENANT", "doc-" + doc, List.of(chunk("doc-" + doc, unit(doc), List.of("CP"))));
+        }
+        for (int doc = 0; doc < 3; doc++) {
+            index.delete("TENANT", "doc-" + doc);
+        }
+        assertThat(Files.exists(directory.resolve("g2"))).isFalse();
+
+        index.delete("TENANT", "doc-3");
+        index.rebuild();
+
+        assertThat(directory.resolve("g1")).doesNotExist();
+        assertThat(Files.readString(directory.resolve("CURRENT"))).isEqualTo("g2");
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        queryVectors.put("question", unit(7));
+
+        assertThat(index.liveChunks()).isEqualTo(6);
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactlyInAnyOrder("doc-4", "doc-5", "doc-6", "doc-7", "doc-8", "doc-9")
+                .first().isEqualTo("doc-7");
+    }
+
+    @Test
+    void writesMadeDuringARebuildSurviveTheSwap() throws IOException {
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+        for (int doc = 0; doc < 10; doc++) {
+            index.upsert("TENANT", "doc-" + doc, List.of(chunk("doc-" + doc, unit(doc), List.of("CP"))));
+        }
+        index.beforeSwap = () -> {
+            index.upsert("TENANT", "doc-10", List.of(chunk("doc-10", unit(10), List.of("CP"))));
+            index.delete("TENANT", "doc-4");
+        };
+        for (int doc = 0; doc < 4; doc++) {
+            index.delete("TENANT", "doc-" + doc);
+        }
+        index.rebuild();
+        queryVectors.put("question", unit(10));
+
+        assertThat(Files.readString(directory.resolve("CURRENT"))).isEqualTo("g2");
+        assertThat(index.liveChunks()).isEqualTo(6);
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactlyInAnyOrder("doc-5", "doc-6", "doc-7", "doc-8", "doc-9", "doc-10")
+                .first().isEqualTo("doc-10");
+        index.close();
+
+        index = new HnswVectorIndex(embeddingsClient, directory.toString(), 8, 16, 100, 64);
+
+        assertThat(index.liveChunks()).isEqualTo(6);
+        assertThat(index.search(request("TENANT", "question", Set.of()), "RAG_FAQ"))
+                .extracting(RetrievedChunk::docId)
+                .containsExactlyInAnyOrder("doc-5", "doc-6", "doc-7", "doc-8", "doc-9", "doc-10")
+                .first().isEqualTo("doc-10");
+    }
+
+    private static EmbeddedChunk chunk(String id, List<Double> vector, List<String> roles) {
+        return new EmbeddedChunk(id, "Title " + id, 1, "text " + id, roles, DocumentMetadata.empty(), vector);
+    }
+
+    private static ChatRequest request(String tenantId, String utterance, Set<String> roles) {
+        return new ChatRequest("conversation", tenantId, "user",
+                List.of(new ChatTurn(ChatMessageRole.USER, utterance)),
+                new ChatContext(Locale.ENGLISH, roles, "CP"));
+    }
+
+    private static List<Double> randomVector(Random random) {
+        List<Double> vector = new ArrayList<>(DIMENSIONS);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector.add(random.nextGaussian());
+        }
+        return vector;
+    }
+
+    private static List<Double> unit(int axis) {
+        List<Double> vector = new ArrayList<>(DIMENSIONS);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector.add(i == axis ? 1d : 0d);
+        }
+        return vector;
+    }
+
+    private static double cosine(List<Double> a, List<Double> b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            dot += a.get(i) * b.get(i);
+            normA += a.get(i) * a.get(i);
+            normB += b.get(i) * b.get(i);
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,66 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorScorerTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void simdAndScalarAgreeIncludingTails() {
+        VectorScorer simd = new SimdVectorScorer();
+        VectorScorer scalar = VectorScorer.scalar();
+        for (int dimensions : new int[] {1, 7, 16, 33, 384, 769}) {
+            float[] a = VectorScorer.normalise(randomVector(dimensions));
+            float[] b = VectorScorer.normalise(randomVector(dimensions));
+            byte[] qa = VectorScorer.quantise(a);
+            byte[] qb = VectorScorer.quantise(b);
+
+            assertThat(simd.dot(a, b)).isCloseTo(scalar.dot(a, b), within(1e-4f));
+            assertThat(simd.dot(qa, 0, qb, 0, dimensions)).isEqualTo(scalar.dot(qa, 0, qb, 0, dimensions));
+            float approximate = scalar.dot(qa, 0, qb, 0, dimensions) / (VectorScorer.INT8_SCALE * VectorScorer.INT8_SCALE);
+            assertThat(approximate).isCloseTo(scalar.dot(a, b), within(0.02f));
+        }
+    }
+
+    @Test
+    void batchScoresEveryVectorInTheBlock() {
+        int dimensions = 37;
+        int count = 5;
+        float[] query = VectorScorer.normalise(randomVector(dimensions));
+        float[] block = new float[count * dimensions];
+        byte[] quantisedBlock = new byte[count * dimensions];
+        for (int i = 0; i < count; i++) {
+            float[] row = VectorScorer.normalise(randomVector(dimensions));
+            System.arraycopy(row, 0, block, i * dimensions, dimensions);
+            System.arraycopy(VectorScorer.quantise(row), 0, quantisedBlock, i * dimensions, dimensions);
+        }
+        float[] scores = new float[count];
+        int[] quantisedScores = new int[count];
+
+        VectorScorer.instance().dot(query, block, count, scores);
+        VectorScorer.instance().dot(VectorScorer.quantise(query), quantisedBlock, count, quantisedScores);
+
+        for (int i = 0; i < count; i++) {
+            assertThat(scores[i]).isCloseTo(VectorScorer.scalar().dot(query, 0, block, i * dimensions, dimensions), within(1e-4f));
+            assertThat(quantisedScores[i]).isEqualTo(VectorScorer.scalar().dot(VectorScorer.quantise(query), 0,
+                    quantisedBlock, i * dimensions, dimensions));
+        }
+        assertThat(VectorScorer.instance().name()).startsWith("simd");
+    }
+
+    private List<Double> randomVector(int dimensions) {
+        List<Double> vector = new ArrayList<>(dimensions);
+        for (int i = 0; i < dimensions; i++) {
+            vector.add(random.nextGaussian());
+        }
+        return vector;
+    }
+}
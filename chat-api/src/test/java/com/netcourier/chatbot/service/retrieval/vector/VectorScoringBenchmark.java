@@ -0,0 +1,133 @@
+package com.netcourier.chatbot.service.retrieval.vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores one query against {@code count} candidates: a naive loop over the boxed {@code List<Double>} vectors
+ * that {@code EmbeddingsClient.EmbeddingBatch} carries, then the scalar and SIMD scorers over a contiguous
+ * float32 block and an int8 block. Run from {@code chat-api} with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.netcourier.chatbot.service.retrieval.vector.VectorScoringBenchmark};
+ * the forked JVM enables the incubator module itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorScoringBenchmark {
+
+    @Param({"384", "1024"})
+    int dimensions;
+
+    @Param({"1000"})
+    int count;
+
+    private List<Double> boxedQuery;
+    private List<List<Double>> boxedCandidates;
+    private float[] query;
+    private float[] block;
+    private byte[] quantisedQuery;
+    private byte[] quantisedBlock;
+    private float[] scores;
+    private int[] quantisedScores;
+    private VectorScorer simd;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        boxedQuery = randomVector(random);
+        boxedCandidates = new ArrayList<>(count);
+        query = VectorScorer.normalise(boxedQuery);
+        quantisedQuery = VectorScorer.quantise(query);
+        block = new float[count * dimensions];
+        quantisedBlock = new byte[count * dimensions];
+        for (int i = 0; i < count; i++) {
+            List<Double> candidate = randomVector(random);
+            boxedCandidates.add(candidate);
+            float[] row = VectorScorer.normalise(candidate);
+            System.arraycopy(row, 0, block, i * dimensions, dimensions);
+            System.arraycopy(VectorScorer.quantise(row), 0, quantisedBlock, i * dimensions, dimensions);
+        }
+        scores = new float[count];
+        quantisedScores = new int[count];
+        simd = new SimdVectorScorer();
+    }
+
+    @Benchmark
+    public double[] boxedCosine() {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            List<Double> candidate = boxedCandidates.get(i);
+            double dot = 0;
+            double queryNorm = 0;
+            double candidateNorm = 0;
+            for (int d = 0; d < dimensions; d++) {
+                double q = boxedQuery.get(d);
+                double c = candidate.get(d);
+                dot += q * c;
+                queryNorm += q * q;
+                candidateNorm += c * c;
+            }
+            result[i] = dot / Math.sqrt(queryNorm * candidateNorm);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public float[] scalarFloat() {
+        VectorScorer.scalar().dot(query, block, count, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] simdFloat() {
+        simd.dot(query, block, count, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public int[] scalarInt8() {
+        VectorScorer.scalar().dot(quantisedQuery, quantisedBlock, count, quantisedScores);
+        return quantisedScores;
+    }
+
+    @Benchmark
+    public int[] simdInt8() {
+        simd.dot(quantisedQuery, quantisedBlock, count, quantisedScores);
+        return quantisedScores;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VectorScoringBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private List<Double> randomVector(Random random) {
+        List<Double> vector = new ArrayList<>(dimensions);
+        for (int d = 0; d < dimensions; d++) {
+            vector.add(random.nextGaussian());
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,41 @@
+package com.netcourier.chatbot.service.tools;
+
+import com.netcourier.chatbot.model.RoleSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolSpecificationTest {
+
+    @Test
+    void authorizesWhenAnyRequiredRoleMatchesIgnoringCase() {
+        ToolSpecification specification = new ToolSpecification("reschedule", List.of("CP", "BO"), Map.of(), List.of(), false);
+
+        assertThat(specification.isAuthorized(RoleSet.of(Set.of("cp", "driver")))).isTrue();
+        assertThat(specification.isAuthorized(RoleSet.of(Set.of("Bo")))).isTrue();
+        assertThat(specification.isAuthorized(RoleSet.of(Set.of("DRIVER")))).isFalse();
+        assertThat(specification.isAuthorized(RoleSet.empty())).isFalse();
+    }
+
+    @Test
+    void toolWithoutRequiredRolesIsOpenToEveryone() {
+        ToolSpecification specification = new ToolSpecification("track", List.of(), Map.of(), List.of(), false);
+
+        assertThat(specification.isAuthorized(RoleSet.empty())).isTrue();
+    }
+
+    @Test
+    void roleSetsCompareByRolesNotOrderAndKeepExactNamesForFilters() {
+        RoleSet roles = RoleSet.of(List.of("CP", "BO"));
+
+        assertThat(roles).isEqualTo(RoleSet.of(Set.of("BO", "CP")));
+        assertThat(roles).isNotEqualTo(RoleSet.of(Set.of("cp", "bo")));
+        assertThat(roles.names()).containsExactly("BO", "CP");
+        assertThat(roles.intersects(RoleSet.of(Set.of("cp")))).isFalse();
+        assertThat(roles.intersects(RoleSet.of(Set.of("CP")))).isTrue();
+    }
+}
@@ -2,7 +2,7 @@ from __future__ import annotations
 
 import asyncio
 import logging
-from typing import Callable, Dict, List
+from typing import Any, Callable, Dict, List
 
 from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel, Field
@@ -14,12 +14,19 @@ logger = logging.getLogger(__name__)
 class EmbedRequest(BaseModel):
     texts: List[str] = Field(..., description="Texts to embed", min_length=1)
     model: str | None = Field(default=None, description="Optional override model identifier")
+    sparse: bool = Field(default=False, description="Also return bge-m3 lexical weights per text")
+
+
+class SparseVector(BaseModel):
+    indices: List[int]
+    values: List[float]
 
 
 class EmbedResponse(BaseModel):
     vectors: List[List[float]]
     model: str
     dimensions: int
+    sparse: List[SparseVector] | None = None
 
 
 class HealthResponse(BaseModel):
@@ -34,15 +41,37 @@ def load_model(model_name: str) -> SentenceTransformer:
         raise RuntimeError(f"Could not load model {model_name}") from exc
 
 
+def load_lexical_model(model_name: str) -> Any:
+    """Loads bge-m3 through FlagEmbedding, which exposes the lexical weights SentenceTransformer drops."""
+    try:
+        from FlagEmbedding import BGEM3FlagModel
+    except ImportError as exc:
+        raise RuntimeError("Lexical weights need the FlagEmbedding package (pip install .[sparse])") from exc
+    try:
+        return BGEM3FlagModel(model_name, use_fp16=False)
+    except Exception as exc:
+        logger.exception("Failed to load lexical model %s", model_name)
+        raise RuntimeError(f"Could not load lexical model {model_name}") from exc
+
+
+def to_sparse(weights: Dict[str, float]) -> SparseVector:
+    items = sorted((int(token), float(weight)) for token, weight in weights.items())
+    return SparseVector(indices=[token for token, _ in items], values=[weight for _, weight in items])
+
+
 ModelLoader = Callable[[str], SentenceTransformer]
+LexicalLoader = Callable[[str], Any]
 
 
 def build_app(default_model: str = "BAAI/bge-m3",
               model_loader: ModelLoader | None = None,
-              warm_start_async: bool = True) -> FastAPI:
+              warm_start_async: bool = True,
+              lexical_loader: LexicalLoader | None = None) -> FastAPI:
     app = FastAPI(title="NetCourier Embeddings Service", version="1.0.0")
     model_cache: Dict[str, SentenceTransformer] = {}
+    lexical_cache: Dict[str, Any] = {}
     loader = model_loader or load_model
+    lexical = lexical_loader or load_lexical_model
     warm_start_task: asyncio.Task[SentenceTransformer] | None = None
 
     def get_model(name: str) -> SentenceTransformer:
@@ -50,6 +79,11 @@ def build_app(default_model: str = "BAAI/bge-m3",
             model_cache[name] = loader(name)
         return model_cache[name]
 
+    def get_lexical_model(name: str) -> Any:
+        if name not in lexical_cache:
+            lexical_cache[name] = lexical(name)
+        return lexical_cache[name]
+
     @app.on_event("startup")
     async def _startup() -> None:
         nonlocal warm_start_task
@@ -72,6 +106,8 @@ def build_app(default_model: str = "BAAI/bge-m3",
     @app.post("/embed", response_model=EmbedResponse)
     async def embed(request: EmbedRequest) -> EmbedResponse:
         model_name = request.model or default_model
+        if request.sparse:
+            return embed_with_lexical_weights(request.texts, model_name)
         try:
             model = get_model(model_name)
             vectors = model.encode(request.texts, normalize_embeddings=True)
@@ -82,6 +118,19 @@ def build_app(default_model: str = "BAAI/bge-m3",
         dimensions = len(vector_list[0]) if vector_list else 0
         return EmbedResponse(vectors=vector_list, model=model_name, dimensions=dimensions)
 
+    def embed_with_lexical_weights(texts: List[str], model_name: str) -> EmbedResponse:
+        """Dense vectors and lexical weights from one bge-m3 pass, so both describe the same tokenisation."""
+        try:
+            model = get_lexical_model(model_name)
+            output = model.encode(texts, return_dense=True, return_sparse=True, return_colbert_vecs=False)
+        except Exception as exc:
+            logger.exception("Lexical weight computation failed")
+            raise HTTPException(status_code=500, detail="Lexical weight computation failed") from exc
+        vector_list = [list(map(float, vector)) for vector in output["dense_vecs"]]
+        dimensions = len(vector_list[0]) if vector_list else 0
+        sparse = [to_sparse(weights) for weights in output["lexical_weights"]]
+        return EmbedResponse(vectors=vector_list, model=model_name, dimensions=dimensions, sparse=sparse)
+
     @app.get("/health", response_model=HealthResponse)
     async def health() -> HealthResponse:
         return HealthResponse(status="ok")
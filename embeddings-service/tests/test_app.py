@@ -52,6 +52,35 @@ def test_embed_uses_cached_model():
     assert model.encode_calls == 2
 
 
+class DummyLexicalModel:
+    def __init__(self, dense, lexical_weights):
+        self.dense = np.array(dense, dtype=float)
+        self.lexical_weights = lexical_weights
+        self.last_flags = None
+
+    def encode(self, texts, return_dense=True, return_sparse=False, return_colbert_vecs=False):
+        self.last_flags = (return_dense, return_sparse, return_colbert_vecs)
+        return {"dense_vecs": self.dense, "lexical_weights": self.lexical_weights}
+
+
+def test_embed_returns_lexical_weights_when_asked():
+    lexical = DummyLexicalModel([[0.6, 0.8]], [{"2054": 0.25, "17": 0.5}])
+    app = build_app(default_model="test-model", model_loader=lambda name: DummyModel([[1.0, 0.0]]),
+                    lexical_loader=lambda name: lexical)
+    client = TestClient(app)
+
+    response = client.post("/embed", json={"texts": ["parcel"], "sparse": True})
+    assert response.status_code == 200
+    body = response.json()
+    assert body["vectors"] == [[0.6, 0.8]]
+    assert body["dimensions"] == 2
+    assert body["sparse"] == [{"indices": [17, 2054], "values": [0.5, 0.25]}]
+    assert lexical.last_flags == (True, True, False)
+
+    plain = client.post("/embed", json={"texts": ["parcel"]})
+    assert plain.json()["sparse"] is None
+
+
 def test_embed_failure_returns_500():
     failing_model = Mock()
     failing_model.encode.side_effect = RuntimeError("boom")